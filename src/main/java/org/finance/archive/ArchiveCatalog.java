@@ -0,0 +1,119 @@
+package org.finance.archive;
+import org.finance.database.DatabaseManager;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+/**
+ * Knows which years of a database have been moved out of the hot transactions table
+ * into yearly archive partitions, and builds the FROM clause a query needs.
+ * A query whose date range does not reach an archived year reads the hot table only.
+ * <p>
+ * One catalog exists per database; the set of archived years is cached and only
+ * changes through {@link TransactionArchiver} or a snapshot restore.
+ */
+public final class ArchiveCatalog {
+    private static final Logger logger = Logger.getLogger(ArchiveCatalog.class.getName());
+    /** Columns shared by the hot table and every archive partition. */
+    public static final String TRANSACTION_COLUMNS =
+            "id, amount, description, timestamp, category_name, type, currency, fingerprint, idempotency_key";
+    private static final String ARCHIVE_TABLE_PREFIX = "transactions_archive_";
+    private static final Map<DatabaseManager, ArchiveCatalog> catalogs = new ConcurrentHashMap<>();
+    private final DatabaseManager dbManager;
+    private volatile NavigableSet<Integer> archivedYears;
+
+    private ArchiveCatalog(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+    }
+    public static ArchiveCatalog forDatabase(DatabaseManager dbManager) {
+        Objects.requireNonNull(dbManager, "Database manager cannot be null");
+        return catalogs.computeIfAbsent(dbManager, ArchiveCatalog::new);
+    }
+    public static String tableName(int year) {
+        return ARCHIVE_TABLE_PREFIX + year;
+    }
+    /**
+     * Gets the archived years in ascending order.
+     */
+    public NavigableSet<Integer> getArchivedYears() {
+        NavigableSet<Integer> years = archivedYears;
+        if (years == null) {
+            years = load();
+            archivedYears = years;
+        }
+        return years;
+    }
+    public boolean hasArchives() {
+        return !getArchivedYears().isEmpty();
+    }
+    /**
+     * Returns the FROM clause covering every transaction whose timestamp may fall in the range.
+     * Null bounds are open. The result is either {@code transactions} or a derived table
+     * named {@code transactions} over the hot table and the needed partitions.
+     */
+    public String source(LocalDateTime from, LocalDateTime to) {
+        NavigableSet<Integer> years = getArchivedYears();
+        if (years.isEmpty()) {
+            return "transactions";
+        }
+        int fromYear = from == null ? Integer.MIN_VALUE : from.getYear();
+        int toYear = to == null ? Integer.MAX_VALUE : to.getYear();
+        NavigableSet<Integer> needed = years.subSet(fromYear, true, toYear, true);
+        if (needed.isEmpty()) {
+            return "transactions";
+        }
+        StringBuilder sql = new StringBuilder("(SELECT ").append(TRANSACTION_COLUMNS).append(" FROM transactions");
+        for (int year : needed) {
+            sql.append(" UNION ALL SELECT ").append(TRANSACTION_COLUMNS).append(" FROM ").append(tableName(year));
+        }
+        return sql.append(") transactions").toString();
+    }
+    /**
+     * Returns the FROM clause covering every transaction, archived or not.
+     */
+    public String allTransactions() {
+        return source(null, null);
+    }
+    void registered(int year) {
+        NavigableSet<Integer> years = new TreeSet<>(getArchivedYears());
+        years.add(year);
+        archivedYears = Collections.unmodifiableNavigableSet(years);
+    }
+    /**
+     * Drops every archive partition and rollup, for instance before a restore that
+     * brings the archived rows back into the hot table.
+     */
+    public void dropAll(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (int year : getArchivedYears()) {
+                stmt.execute("DROP TABLE IF EXISTS " + tableName(year));
+            }
+            stmt.execute("DELETE FROM transaction_rollups");
+            stmt.execute("DELETE FROM archive_partitions");
+        }
+        archivedYears = Collections.emptyNavigableSet();
+    }
+    private NavigableSet<Integer> load() {
+        NavigableSet<Integer> years = new TreeSet<>();
+        try (Connection conn = dbManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT archive_year FROM archive_partitions")) {
+            while (rs.next()) {
+                years.add(rs.getInt(1));
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nel caricamento delle partizioni di archivio", e);
+            throw new RuntimeException("Errore nel caricamento delle partizioni di archivio", e);
+        }
+        return Collections.unmodifiableNavigableSet(years);
+    }
+}
@@ -0,0 +1,11 @@
+package org.finance.archive;
+import java.time.Duration;
+import java.util.Map;
+/**
+ * Outcome of an archival run: rows moved per year.
+ */
+public record ArchiveResult(Map<Integer, Long> rowsByYear, Duration elapsed) {
+    public long totalRows() {
+        return rowsByYear.values().stream().mapToLong(Long::longValue).sum();
+    }
+}
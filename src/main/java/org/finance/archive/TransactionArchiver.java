@@ -0,0 +1,141 @@
+package org.finance.archive;
+import org.finance.database.DatabaseManager;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+/**
+ * Moves transactions older than a horizon out of the hot table into one archive table
+ * per year, keeping monthly per-category totals in transaction_rollups so that
+ * aggregates never need to read the archives.
+ * <p>
+ * Each year is archived in its own unit of work: copy, roll up, delete and register
+ * commit together. Transactions back-dated into an already archived year stay in the
+ * hot table until the next run moves them.
+ */
+public class TransactionArchiver {
+    private static final Logger logger = Logger.getLogger(TransactionArchiver.class.getName());
+    /** Years of history kept in the hot table; override with -Dfinance.archive.horizonYears. */
+    public static final int DEFAULT_HORIZON_YEARS = Integer.getInteger("finance.archive.horizonYears", 2);
+    private final DatabaseManager dbManager;
+    private final ArchiveCatalog catalog;
+
+    public TransactionArchiver(DatabaseManager dbManager) {
+        this.dbManager = Objects.requireNonNull(dbManager, "Database manager cannot be null");
+        this.catalog = ArchiveCatalog.forDatabase(dbManager);
+    }
+    public ArchiveResult archive() {
+        return archive(DEFAULT_HORIZON_YEARS);
+    }
+    /**
+     * Archives every complete year older than the horizon: with a horizon of 2 in 2026,
+     * 2023 and earlier are archived and 2024-2026 stay hot.
+     */
+    public ArchiveResult archive(int horizonYears) {
+        if (horizonYears < 0) {
+            throw new IllegalArgumentException("Horizon cannot be negative");
+        }
+        long start = System.nanoTime();
+        Year firstHotYear = Year.now().minusYears(horizonYears);
+        Map<Integer, Long> rowsByYear = new LinkedHashMap<>();
+        for (int year : findYearsBefore(firstHotYear.getValue())) {
+            long rows = dbManager.execute(() -> archiveYear(year));
+            catalog.registered(year);
+            rowsByYear.put(year, rows);
+            logger.info("Archiviate " + rows + " transazioni del " + year);
+        }
+        return new ArchiveResult(rowsByYear, Duration.ofNanos(System.nanoTime() - start));
+    }
+    private List<Integer> findYearsBefore(int firstHotYear) {
+        String sql = "SELECT DISTINCT YEAR(timestamp) FROM transactions WHERE timestamp < ? ORDER BY 1";
+        List<Integer> years = new ArrayList<>();
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setTimestamp(1, Timestamp.valueOf(LocalDate.of(firstHotYear, 1, 1).atStartOfDay()));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    years.add(rs.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nella ricerca degli anni da archiviare", e);
+            throw new RuntimeException("Errore nella ricerca degli anni da archiviare", e);
+        }
+        return years;
+    }
+    private long archiveYear(int year) {
+        String table = ArchiveCatalog.tableName(year);
+        String range = " WHERE timestamp >= ? AND timestamp < ?";
+        try (Connection conn = dbManager.getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("""
+                    CREATE TABLE IF NOT EXISTS %s (
+                        id VARCHAR(100) PRIMARY KEY,
+                        amount DECIMAL(15,2) NOT NULL,
+                        description VARCHAR(500),
+                        timestamp TIMESTAMP NOT NULL,
+                        category_name VARCHAR(100),
+                        type VARCHAR(20) NOT NULL,
+                        currency VARCHAR(10),
+                        fingerprint VARCHAR(32),
+                        idempotency_key VARCHAR(100)
+                    )
+                """.formatted(table));
+                stmt.execute("CREATE INDEX IF NOT EXISTS idx_" + table + "_fingerprint ON " + table + "(fingerprint)");
+                stmt.execute("CREATE INDEX IF NOT EXISTS idx_" + table + "_timestamp ON " + table + "(timestamp)");
+                stmt.execute("CREATE INDEX IF NOT EXISTS idx_" + table + "_category_timestamp ON " + table
+                        + "(category_name, timestamp)");
+                stmt.execute("CREATE UNIQUE INDEX IF NOT EXISTS uk_" + table + "_idempotency_key ON " + table + "(idempotency_key)");
+            }
+            executeForYear(conn, "INSERT INTO " + table + " (" + ArchiveCatalog.TRANSACTION_COLUMNS + ") SELECT "
+                    + ArchiveCatalog.TRANSACTION_COLUMNS + " FROM transactions" + range, year);
+            executeForYear(conn, """
+                MERGE INTO transaction_rollups r
+                USING (SELECT YEAR(timestamp) y, MONTH(timestamp) m, COALESCE(category_name, '') c, type t,
+                              COUNT(*) n, SUM(amount) s, SUM(amount * amount) q
+                       FROM transactions""" + range + """
+                       GROUP BY YEAR(timestamp), MONTH(timestamp), COALESCE(category_name, ''), type) a
+                ON r.rollup_year = a.y AND r.rollup_month = a.m AND r.category_name = a.c AND r.type = a.t
+                WHEN MATCHED THEN UPDATE SET transaction_count = r.transaction_count + a.n, total = r.total + a.s,
+                    sum_of_squares = r.sum_of_squares + a.q
+                WHEN NOT MATCHED THEN INSERT (rollup_year, rollup_month, category_name, type, transaction_count, total,
+                    sum_of_squares)
+                    VALUES (a.y, a.m, a.c, a.t, a.n, a.s, a.q)
+                """, year);
+            long rows = executeForYear(conn, "DELETE FROM transactions" + range, year);
+            try (PreparedStatement stmt = conn.prepareStatement("""
+                    MERGE INTO archive_partitions p USING (VALUES (?, ?, ?)) v(y, t, n) ON p.archive_year = v.y
+                    WHEN MATCHED THEN UPDATE SET row_count = p.row_count + v.n, archived_at = CURRENT_TIMESTAMP
+                    WHEN NOT MATCHED THEN INSERT (archive_year, table_name, row_count) VALUES (v.y, v.t, v.n)
+                    """)) {
+                stmt.setInt(1, year);
+                stmt.setString(2, table);
+                stmt.setLong(3, rows);
+                stmt.executeUpdate();
+            }
+            return rows;
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nell'archiviazione dell'anno " + year, e);
+            throw new RuntimeException("Errore nell'archiviazione dell'anno " + year, e);
+        }
+    }
+    private static int executeForYear(Connection conn, String sql, int year) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setTimestamp(1, Timestamp.valueOf(LocalDate.of(year, 1, 1).atStartOfDay()));
+            stmt.setTimestamp(2, Timestamp.valueOf(LocalDate.of(year + 1, 1, 1).atStartOfDay()));
+            return stmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.finance.categorization;
+import org.finance.model.CategorizationRule;
+import org.finance.model.TransactionType;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+/**
+ * Compiled set of categorization rules.
+ * All keywords go into a single {@link KeywordAutomaton}, so a description is scanned
+ * once however many rules there are; only the rules whose keyword occurs are then
+ * checked for amount and type. Rules without a keyword are checked on every call and
+ * are expected to be few.
+ * Instances are immutable; recompile to change the rules.
+ */
+public final class CategorizationEngine {
+    private static final CategorizationEngine EMPTY = new CategorizationEngine(List.of());
+    private final List<CategorizationRule> rules;
+    private final KeywordAutomaton automaton;
+    /** Positions in {@code rules} of the rules using each keyword id. */
+    private final int[][] rulesByKeyword;
+    private final int[] amountOnlyRules;
+
+    private CategorizationEngine(List<CategorizationRule> rules) {
+        this.rules = List.copyOf(rules);
+        Map<String, List<Integer>> byKeyword = new LinkedHashMap<>();
+        List<Integer> amountOnly = new ArrayList<>();
+        for (int i = 0; i < this.rules.size(); i++) {
+            String keyword = this.rules.get(i).getKeyword();
+            if (keyword == null) {
+                amountOnly.add(i);
+            } else {
+                byKeyword.computeIfAbsent(keyword, k -> new ArrayList<>()).add(i);
+            }
+        }
+        this.automaton = new KeywordAutomaton(new ArrayList<>(byKeyword.keySet()));
+        this.rulesByKeyword = byKeyword.values().stream()
+                .map(list -> list.stream().mapToInt(Integer::intValue).toArray())
+                .toArray(int[][]::new);
+        this.amountOnlyRules = amountOnly.stream().mapToInt(Integer::intValue).toArray();
+    }
+    public static CategorizationEngine compile(List<CategorizationRule> rules) {
+        Objects.requireNonNull(rules, "Rules cannot be null");
+        return rules.isEmpty() ? EMPTY : new CategorizationEngine(rules);
+    }
+    public static CategorizationEngine empty() {
+        return EMPTY;
+    }
+    /**
+     * Finds the best rule for a transaction: highest priority first, then longest keyword,
+     * then the rule that comes first in the list the engine was compiled from.
+     */
+    public Optional<CategorizationRule> match(String description, BigDecimal amount, TransactionType type) {
+        Objects.requireNonNull(amount, "Amount cannot be null");
+        BestMatch best = new BestMatch(amount, type);
+        if (description != null && automaton.getKeywordCount() > 0) {
+            automaton.scan(description, keywordId -> {
+                for (int position : rulesByKeyword[keywordId]) {
+                    best.offer(position);
+                }
+            });
+        }
+        for (int position : amountOnlyRules) {
+            best.offer(position);
+        }
+        return best.position < 0 ? Optional.empty() : Optional.of(rules.get(best.position));
+    }
+    public List<CategorizationRule> getRules() {
+        return rules;
+    }
+    public int getStateCount() {
+        return automaton.getStateCount();
+    }
+    /**
+     * Keeps the best accepted rule seen so far.
+     */
+    private final class BestMatch {
+        private final BigDecimal amount;
+        private final TransactionType type;
+        private int position = -1;
+        private BestMatch(BigDecimal amount, TransactionType type) {
+            this.amount = amount;
+            this.type = type;
+        }
+        private void offer(int candidatePosition) {
+            if (position >= 0 && !better(candidatePosition, position)) {
+                return;
+            }
+            if (rules.get(candidatePosition).accepts(amount, type)) {
+                position = candidatePosition;
+            }
+        }
+        private boolean better(int candidatePosition, int currentPosition) {
+            CategorizationRule candidate = rules.get(candidatePosition);
+            CategorizationRule current = rules.get(currentPosition);
+            if (candidate.getPriority() != current.getPriority()) {
+                return candidate.getPriority() > current.getPriority();
+            }
+            int candidateLength = candidate.getKeyword() == null ? 0 : candidate.getKeyword().length();
+            int currentLength = current.getKeyword() == null ? 0 : current.getKeyword().length();
+            if (candidateLength != currentLength) {
+                return candidateLength > currentLength;
+            }
+            return candidatePosition < currentPosition;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package org.finance.categorization;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntConsumer;
+/**
+ * Aho-Corasick automaton over a fixed set of keywords.
+ * The keywords are compiled into one deterministic automaton with a transition table
+ * indexed by state and character class, so a text is scanned once, one table lookup per
+ * character, whatever the number of keywords. Matching is case-insensitive.
+ * <p>
+ * Only characters appearing in some keyword get their own class; every other character
+ * shares class 0, which keeps the table at states x (distinct keyword characters + 1) ints.
+ * Instances are immutable and can be shared between threads.
+ */
+public final class KeywordAutomaton {
+    private static final int ROOT = 0;
+    private static final int NO_STATE = -1;
+    private final char[] charClass;
+    private final int classCount;
+    private final int[] transitions;
+    /** Keyword ending exactly at each state, or -1. */
+    private final int[] terminal;
+    /** Nearest state on the failure chain that ends a keyword, or -1. */
+    private final int[] outputLink;
+    private final int keywordCount;
+
+    /**
+     * Compiles the keywords; the index of each keyword in the list is the id reported on a match.
+     * Keywords must be non-empty and distinct once lower-cased.
+     */
+    public KeywordAutomaton(List<String> keywords) {
+        Objects.requireNonNull(keywords, "Keywords cannot be null");
+        this.keywordCount = keywords.size();
+        this.charClass = new char[Character.MAX_VALUE + 1];
+        int classes = 1;
+        for (String keyword : keywords) {
+            if (keyword == null || keyword.isEmpty()) {
+                throw new IllegalArgumentException("Keywords must not be empty");
+            }
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = Character.toLowerCase(keyword.charAt(i));
+                if (charClass[c] == 0) {
+                    charClass[c] = (char) classes++;
+                }
+            }
+        }
+        this.classCount = classes;
+        // trie first, with NO_STATE for missing edges
+        List<int[]> trie = new ArrayList<>();
+        List<Integer> ends = new ArrayList<>();
+        trie.add(newRow());
+        ends.add(NO_STATE);
+        for (int k = 0; k < keywords.size(); k++) {
+            String keyword = keywords.get(k);
+            int state = ROOT;
+            for (int i = 0; i < keyword.length(); i++) {
+                int cls = charClass[Character.toLowerCase(keyword.charAt(i))];
+                int next = trie.get(state)[cls];
+                if (next == NO_STATE) {
+                    next = trie.size();
+                    trie.add(newRow());
+                    ends.add(NO_STATE);
+                    trie.get(state)[cls] = next;
+                }
+                state = next;
+            }
+            if (ends.get(state) != NO_STATE) {
+                throw new IllegalArgumentException("Duplicate keyword: " + keyword);
+            }
+            ends.set(state, k);
+        }
+        int states = trie.size();
+        this.transitions = new int[states * classCount];
+        this.terminal = new int[states];
+        this.outputLink = new int[states];
+        int[] failure = new int[states];
+        for (int s = 0; s < states; s++) {
+            terminal[s] = ends.get(s);
+        }
+        // breadth-first, so the failure state of every state is complete before it is used
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+        outputLink[ROOT] = NO_STATE;
+        int[] rootRow = trie.get(ROOT);
+        for (int cls = 0; cls < classCount; cls++) {
+            int child = rootRow[cls];
+            if (child == NO_STATE) {
+                transitions[cls] = ROOT;
+            } else {
+                transitions[cls] = child;
+                failure[child] = ROOT;
+                outputLink[child] = NO_STATE;
+                queue[tail++] = child;
+            }
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            int[] row = trie.get(state);
+            int fail = failure[state];
+            for (int cls = 0; cls < classCount; cls++) {
+                int child = row[cls];
+                if (child == NO_STATE) {
+                    transitions[state * classCount + cls] = transitions[fail * classCount + cls];
+                } else {
+                    transitions[state * classCount + cls] = child;
+                    int childFail = transitions[fail * classCount + cls];
+                    failure[child] = childFail;
+                    outputLink[child] = terminal[childFail] != NO_STATE ? childFail : outputLink[childFail];
+                    queue[tail++] = child;
+                }
+            }
+        }
+    }
+    private int[] newRow() {
+        int[] row = new int[classCount];
+        Arrays.fill(row, NO_STATE);
+        return row;
+    }
+    /**
+     * Scans the text once and reports the id of every keyword occurrence, in order of end position.
+     */
+    public void scan(CharSequence text, IntConsumer onMatch) {
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            state = transitions[state * classCount + charClass[Character.toLowerCase(text.charAt(i))]];
+            if (terminal[state] != NO_STATE) {
+                onMatch.accept(terminal[state]);
+            }
+            for (int out = outputLink[state]; out != NO_STATE; out = outputLink[out]) {
+                onMatch.accept(terminal[out]);
+            }
+        }
+    }
+    public int getKeywordCount() {
+        return keywordCount;
+    }
+    public int getStateCount() {
+        return terminal.length;
+    }
+}
@@ -0,0 +1,53 @@
+package org.finance.categorization;
+import org.finance.model.CategorizationRule;
+import org.finance.model.Category;
+import org.finance.model.TransactionType;
+import org.finance.repository.CategorizationRuleRepository;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.logging.Logger;
+/**
+ * Suggests categories from the stored rules.
+ * The rules are compiled into a {@link CategorizationEngine} once and recompiled only
+ * when they change through this class; {@link #reload()} picks up changes made elsewhere
+ * (e.g. a snapshot restore). Lookups read a volatile reference and never block.
+ */
+public class TransactionCategorizer {
+    private static final Logger logger = Logger.getLogger(TransactionCategorizer.class.getName());
+    private final CategorizationRuleRepository ruleRepository;
+    private volatile CategorizationEngine engine = CategorizationEngine.empty();
+
+    public TransactionCategorizer(CategorizationRuleRepository ruleRepository) {
+        this.ruleRepository = Objects.requireNonNull(ruleRepository, "Rule repository cannot be null");
+    }
+    /**
+     * Recompiles the engine from the repository.
+     */
+    public synchronized void reload() {
+        long start = System.nanoTime();
+        CategorizationEngine compiled = CategorizationEngine.compile(ruleRepository.findAll());
+        engine = compiled;
+        logger.info(String.format("Regole di categorizzazione compilate: %d regole, %d stati, %d ms",
+                compiled.getRules().size(), compiled.getStateCount(), (System.nanoTime() - start) / 1_000_000));
+    }
+    public Optional<Category> categorize(String description, BigDecimal amount, TransactionType type) {
+        return engine.match(description, amount, type).map(CategorizationRule::getCategory);
+    }
+    public synchronized CategorizationRule addRule(CategorizationRule rule) {
+        CategorizationRule saved = ruleRepository.save(rule);
+        reload();
+        return saved;
+    }
+    public synchronized void deleteRule(String ruleId) {
+        ruleRepository.deleteById(ruleId);
+        reload();
+    }
+    /**
+     * Gets the rules in evaluation order.
+     */
+    public List<CategorizationRule> getRules() {
+        return engine.getRules();
+    }
+}
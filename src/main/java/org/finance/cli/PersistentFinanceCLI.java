@@ -1,17 +1,61 @@
 package org.finance.cli;
+import org.finance.archive.ArchiveResult;
+import org.finance.archive.TransactionArchiver;
+import org.finance.categorization.TransactionCategorizer;
 import org.finance.database.DatabaseManager;
+import org.finance.dedup.DuplicateDetector;
+import org.finance.distribution.ExpenseDistribution;
+import org.finance.distribution.ExpenseHistogram;
+import org.finance.exporter.ExportFilter;
+import org.finance.exporter.ExportFormat;
+import org.finance.exporter.ExportResult;
+import org.finance.exporter.TransactionExporter;
+import org.finance.importer.CsvColumnMapping;
+import org.finance.importer.CsvStatementImporter;
+import org.finance.importer.ExchangeRateImporter;
+import org.finance.importer.ImportResult;
 import org.finance.model.*;
+import org.finance.observer.ConsoleAnomalyObserver;
 import org.finance.observer.ConsoleBudgetObserver;
+import org.finance.repository.BudgetRepository;
+import org.finance.repository.CategoryRepository;
+import org.finance.repository.RecurringTransactionRepository;
+import org.finance.repository.TransactionCriteria;
+import org.finance.repository.TransactionRepository;
 import org.finance.repository.impl.*;
+import org.finance.repository.routing.LedgerShard;
+import org.finance.repository.routing.LedgerShardRegistry;
+import org.finance.search.DescriptionIndex;
+import org.finance.service.RecurringTransactionScheduler;
+import org.finance.service.BudgetRecomputationJob;
+import org.finance.service.BudgetSpendAccumulator;
+import org.finance.service.CashFlowReportService;
+import org.finance.service.CashFlowSeries;
+import org.finance.service.CrossLedgerReportService;
+import org.finance.service.CurrencyConverter;
+import org.finance.service.ExpenseAnomalyDetector;
 import org.finance.service.PersistentFinanceService;
+import org.finance.service.ReportCache;
+import org.finance.snapshot.LedgerSnapshotService;
+import org.finance.summary.LedgerSummary;
 import org.finance.strategy.*;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.function.Function;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 /**
  * Main CLI interface for Personal Finance Manager with database persistence.
  * Implements a complete and intuitive user interface for managing personal finances.
@@ -19,23 +63,91 @@ import java.util.Scanner;
 public class PersistentFinanceCLI {
     private final Scanner scanner;
     private final PersistentFinanceService financeService;
+    private final BudgetSpendAccumulator budgetSpendAccumulator;
+    private final CsvStatementImporter csvImporter;
+    private final DuplicateDetector duplicateDetector;
+    private final TransactionCategorizer categorizer;
+    private final ExpenseAnomalyDetector anomalyDetector;
+    private final CashFlowReportService cashFlowReportService;
+    private final CurrencyConverter currencyConverter;
+    private final ExchangeRateImporter exchangeRateImporter;
+    private final HistoricalBudgetingStrategy historicalStrategy;
+    private final ExpenseDistribution expenseDistribution;
+    private final RecurringTransactionRepository recurringRepository;
+    private final RecurringTransactionScheduler recurringScheduler;
+    private final LedgerSnapshotService snapshotService;
+    private final TransactionExporter exporter;
     private final DateTimeFormatter dateFormatter;
+    private final String ledgerId;
+    private final DatabaseManager dbManager;
+    private final LedgerShardRegistry ledgerRegistry;
+    private final ExecutorService crossLedgerExecutor;
+    private final CrossLedgerReportService crossLedgerReportService;
     public PersistentFinanceCLI() {
+        this(LedgerShardRegistry.DEFAULT_LEDGER);
+    }
+    /**
+     * Opens the given ledger: the default one lives in the main database, any other
+     * in its own shard file, created with the default categories on first use.
+     * Every service below is built on that shard's database manager and repositories.
+     */
+    public PersistentFinanceCLI(String ledgerId) {
         this.scanner = new Scanner(System.in);
         this.dateFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
         
-        DatabaseManager.getInstance();
-        H2CategoryRepository categoryRepo = new H2CategoryRepository();
-        H2BudgetRepository budgetRepo = new H2BudgetRepository(categoryRepo);
-        H2TransactionRepository transactionRepo = new H2TransactionRepository(categoryRepo);
+        this.ledgerId = ledgerId;
+        this.ledgerRegistry = new LedgerShardRegistry(DatabaseManager.getInstance(), Paths.get("data", "ledgers"));
+        LedgerShard shard = ledgerRegistry.shardFor(ledgerId);
+        this.dbManager = shard.getDatabaseManager();
+        CategoryRepository categoryRepo = shard.getCategoryRepository();
+        BudgetRepository budgetRepo = shard.getBudgetRepository();
+        TransactionRepository transactionRepo = shard.getTransactionRepository();
+        new DescriptionIndex(dbManager).ensureBuilt();
+        new LedgerSummary(dbManager).ensureBuilt();
+        this.expenseDistribution = new ExpenseDistribution(dbManager);
+        this.expenseDistribution.ensureBuilt();
         
-        this.financeService = new PersistentFinanceService(transactionRepo, budgetRepo, categoryRepo);
+        this.financeService = new PersistentFinanceService(transactionRepo, budgetRepo, categoryRepo, dbManager);
         this.financeService.addBudgetObserver(new ConsoleBudgetObserver());
+        this.budgetSpendAccumulator = new BudgetSpendAccumulator(budgetRepo,
+                new BudgetRecomputationJob(transactionRepo, budgetRepo));
+        this.budgetSpendAccumulator.replay();
+        this.financeService.setBudgetSpendAccumulator(budgetSpendAccumulator);
+        this.anomalyDetector = new ExpenseAnomalyDetector(transactionRepo);
+        this.anomalyDetector.warmStart();
+        this.anomalyDetector.addObserver(new ConsoleAnomalyObserver());
+        this.financeService.setAnomalyDetector(anomalyDetector);
+        H2ExchangeRateRepository exchangeRateRepo = new H2ExchangeRateRepository(dbManager);
+        this.currencyConverter = new CurrencyConverter(exchangeRateRepo);
+        this.exchangeRateImporter = new ExchangeRateImporter(exchangeRateRepo);
+        this.financeService.setCurrencyConverter(currencyConverter);
+        this.cashFlowReportService = new CashFlowReportService(transactionRepo, financeService.getReportCache());
+        this.historicalStrategy = new HistoricalBudgetingStrategy(transactionRepo);
+        this.csvImporter = new CsvStatementImporter(transactionRepo, categoryRepo, dbManager);
+        this.duplicateDetector = DuplicateDetector.forDatabase(dbManager);
+        this.csvImporter.setDuplicateDetector(duplicateDetector);
+        this.categorizer = new TransactionCategorizer(new H2CategorizationRuleRepository(categoryRepo, dbManager));
+        this.categorizer.reload();
+        this.csvImporter.setCategorizer(categorizer);
+        this.recurringRepository = shard.getRecurringTransactionRepository();
+        this.recurringScheduler = new RecurringTransactionScheduler(recurringRepository, transactionRepo,
+                financeService, dbManager);
+        this.recurringScheduler.setAnomalyDetector(anomalyDetector);
+        startBackgroundWriters();
+        this.snapshotService = new LedgerSnapshotService(dbManager);
+        this.exporter = new TransactionExporter(dbManager);
+        AtomicInteger fanOutThreads = new AtomicInteger();
+        this.crossLedgerExecutor = Executors.newFixedThreadPool(4, runnable -> {
+            Thread thread = new Thread(runnable, "ledger-fan-out-" + fanOutThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.crossLedgerReportService = new CrossLedgerReportService(ledgerRegistry, crossLedgerExecutor, currencyConverter);
         
         System.out.println("=".repeat(60));
         System.out.println("   PERSONAL FINANCE MANAGER - VERSIONE PERSISTENTE");
         System.out.println("=".repeat(60));
-        System.out.println("Database H2 inizializzato con successo!");
+        System.out.println("Database H2 inizializzato con successo! Ledger: " + ledgerId);
         System.out.println();
     }
     public void start() {
@@ -64,8 +176,26 @@ public class PersistentFinanceCLI {
             }
         }
     }
+    /**
+     * Starts the threads that write to the ledger on their own: the budget flush and
+     * the recurring transactions scheduler.
+     */
+    private void startBackgroundWriters() {
+        budgetSpendAccumulator.start(5, TimeUnit.SECONDS);
+        recurringScheduler.start(1, TimeUnit.HOURS);
+    }
+    /**
+     * Stops the background writers and waits for any write in progress.
+     */
+    private void stopBackgroundWriters() {
+        recurringScheduler.close();
+        budgetSpendAccumulator.close();
+    }
     private void cleanup() {
-        DatabaseManager.getInstance().closeConnection();
+        stopBackgroundWriters();
+        csvImporter.close();
+        crossLedgerExecutor.shutdown();
+        ledgerRegistry.close();
         scanner.close();
         System.out.println("Arrivederci!");
     }
@@ -90,6 +220,9 @@ public class PersistentFinanceCLI {
             System.out.println("3. Visualizza Tutte le Transazioni");
             System.out.println("4. Cerca Transazioni");
             System.out.println("5. Elimina Transazione");
+            System.out.println("6. Importa Estratto Conto CSV");
+            System.out.println("7. Esporta Transazioni");
+            System.out.println("8. Transazioni Ricorrenti");
             System.out.println("0. Torna al Menu Principale");
             int choice = getIntInput("Seleziona: ");
             switch (choice) {
@@ -98,6 +231,9 @@ public class PersistentFinanceCLI {
                 case 3 -> viewAllTransactions();
                 case 4 -> searchTransactions();
                 case 5 -> deleteTransaction();
+                case 6 -> importCsvStatement();
+                case 7 -> exportTransactions();
+                case 8 -> manageRecurringTransactions();
                 case 0 -> back = true;
                 default -> System.out.println("Opzione non valida.");
             }
@@ -108,7 +244,8 @@ public class PersistentFinanceCLI {
         try {
             BigDecimal amount = getBigDecimalInput("Importo: �");
             String description = getStringInput("Descrizione: ");
-            Category category = selectCategory("Seleziona categoria per l'entrata: ");
+            Category category = suggestCategory(description, amount, TransactionType.INCOME,
+                    "Seleziona categoria per l'entrata: ");
             if (category == null) return;
             Transaction transaction = new IncomeTransaction(amount, description, category, financeService.getDefaultCurrency());
             financeService.addTransaction(transaction);
@@ -125,7 +262,8 @@ public class PersistentFinanceCLI {
         try {
             BigDecimal amount = getBigDecimalInput("Importo: �");
             String description = getStringInput("Descrizione: ");
-            Category category = selectCategory("Seleziona categoria per la spesa: ");
+            Category category = suggestCategory(description, amount, TransactionType.EXPENSE,
+                    "Seleziona categoria per la spesa: ");
             if (category == null) return;
             Transaction transaction = new ExpenseTransaction(amount, description, category, financeService.getDefaultCurrency());
             financeService.addTransaction(transaction);
@@ -161,34 +299,46 @@ public class PersistentFinanceCLI {
     }
     private void searchTransactions() {
         System.out.println("\n--- CERCA TRANSAZIONI ---");
-        System.out.println("1. Per Categoria");
-        System.out.println("2. Per Intervallo Date");
-        System.out.println("3. Solo Entrate");
-        System.out.println("4. Solo Spese");
-        int choice = getIntInput("Tipo di ricerca: ");
-        List<Transaction> results = List.of();
-        switch (choice) {
-            case 1 -> {
+        System.out.println("I filtri scelti vengono combinati in un'unica ricerca.");
+        List<Transaction> results;
+        try {
+            TransactionCriteria criteria = TransactionCriteria.all()
+                    .withText(getStringInput("Testo nella descrizione (vuoto per nessuno): "));
+            if (getBooleanInput("Filtrare per categoria? (s/n): ")) {
                 Category category = selectCategory("Seleziona categoria: ");
-                if (category != null) {
-                    results = financeService.getTransactionsByCategory(category.getName());
-                }
+                if (category == null) return;
+                criteria = criteria.withCategory(category.getName());
             }
-            case 2 -> {
+            if (getBooleanInput("Filtrare per intervallo date? (s/n): ")) {
                 LocalDate startDate = getDateInput("Data inizio (dd/MM/yyyy): ");
                 LocalDate endDate = getDateInput("Data fine (dd/MM/yyyy): ");
-                if (startDate != null && endDate != null) {
-                    results = financeService.getTransactionsByDateRange(startDate, endDate);
-                }
+                criteria = criteria.between(startDate, endDate);
             }
-            case 3 -> results = financeService.getAllTransactions().stream()
-                    .filter(t -> t instanceof IncomeTransaction).toList();
-            case 4 -> results = financeService.getAllTransactions().stream()
-                    .filter(t -> t instanceof ExpenseTransaction).toList();
-            default -> {
-                System.out.println("Opzione non valida.");
-                return;
+            System.out.println("Tipo: 1. Tutti  2. Solo Entrate  3. Solo Spese");
+            criteria = switch (getIntInput("Seleziona tipo: ")) {
+                case 2 -> criteria.withType(TransactionType.INCOME);
+                case 3 -> criteria.withType(TransactionType.EXPENSE);
+                default -> criteria;
+            };
+            String min = getStringInput("Importo minimo (vuoto per nessuno): ");
+            String max = getStringInput("Importo massimo (vuoto per nessuno): ");
+            criteria = criteria.withAmountBetween(min.isEmpty() ? null : new BigDecimal(min),
+                    max.isEmpty() ? null : new BigDecimal(max));
+            System.out.println("Ordina per: 1. Piu' recenti  2. Meno recenti  3. Importo maggiore  4. Importo minore");
+            criteria = criteria.orderBy(switch (getIntInput("Seleziona ordinamento: ")) {
+                case 2 -> TransactionCriteria.Order.OLDEST_FIRST;
+                case 3 -> TransactionCriteria.Order.LARGEST_FIRST;
+                case 4 -> TransactionCriteria.Order.SMALLEST_FIRST;
+                default -> TransactionCriteria.Order.NEWEST_FIRST;
+            });
+            String limit = getStringInput("Numero massimo di risultati (vuoto per tutti): ");
+            if (!limit.isEmpty()) {
+                criteria = criteria.limit(Integer.parseInt(limit));
             }
+            results = financeService.searchTransactions(criteria);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Criteri non validi: " + e.getMessage());
+            return;
         }
         System.out.println("\nRisultati trovati: " + results.size());
         displayTransactions(results);
@@ -207,6 +357,236 @@ public class PersistentFinanceCLI {
             System.err.println("Errore nell'eliminazione: " + e.getMessage());
         }
     }
+    private void importCsvStatement() {
+        System.out.println("\n--- IMPORTA ESTRATTO CONTO CSV ---");
+        System.out.println("Formato atteso: data;descrizione;importo;categoria (con intestazione)");
+        System.out.println("Importi negativi = spese, positivi = entrate. Date nel formato dd/MM/yyyy.");
+        Path file = Path.of(getStringInput("Percorso del file CSV: "));
+        if (!Files.isRegularFile(file)) {
+            System.out.println("File non trovato: " + file);
+            return;
+        }
+        try {
+            ImportResult result = csvImporter.importFile(file,
+                    CsvColumnMapping.defaultMapping(financeService.getDefaultCurrency()));
+            System.out.println("? Import completato!");
+            System.out.println("  Righe lette: " + result.rowsRead());
+            System.out.println("  Importate: " + result.rowsImported());
+            System.out.println("  Scartate: " + result.rowsRejected());
+            System.out.println("  Duplicati ignorati: " + result.rowsDuplicate());
+            if (result.rowsImported() > 0) {
+                System.out.println("  Budget aggiornati: " + financeService.recomputeBudgets().size());
+                anomalyDetector.warmStart();
+            }
+            System.out.printf("  Velocita': %.0f righe/s%n", result.rowsPerSecond());
+            if (result.rejectFile() != null) {
+                System.out.println("  Righe scartate salvate in: " + result.rejectFile());
+            }
+        } catch (Exception e) {
+            System.err.println("Errore nell'import: " + e.getMessage());
+        }
+    }
+    private void exportTransactions() {
+        System.out.println("\n--- ESPORTA TRANSAZIONI ---");
+        System.out.println("1. Tutte le Transazioni");
+        System.out.println("2. Per Intervallo Date");
+        System.out.println("3. Per Categoria");
+        System.out.println("4. Totali per Categoria");
+        int choice = getIntInput("Seleziona: ");
+        ExportFilter filter = ExportFilter.all();
+        switch (choice) {
+            case 1, 4 -> { }
+            case 2 -> {
+                LocalDate startDate = getDateInput("Data inizio (dd/MM/yyyy): ");
+                LocalDate endDate = getDateInput("Data fine (dd/MM/yyyy): ");
+                filter = ExportFilter.betweenDates(startDate, endDate);
+            }
+            case 3 -> {
+                Category category = selectCategory("Seleziona categoria: ");
+                if (category == null) {
+                    return;
+                }
+                filter = filter.withCategory(category.getName());
+            }
+            default -> {
+                System.out.println("Opzione non valida.");
+                return;
+            }
+        }
+        ExportFormat format = getBooleanInput("Formato JSON lines invece di CSV? (s/n): ")
+                ? ExportFormat.JSON_LINES : ExportFormat.CSV;
+        Path file = Path.of(getStringInput("Percorso del file (senza estensione): ") + format.getExtension());
+        try {
+            ExportResult result = choice == 4
+                    ? exporter.exportCategoryTotals(file, format, filter)
+                    : exporter.exportTransactions(file, format, filter);
+            System.out.println("? Esportazione completata!");
+            System.out.println("  Righe scritte: " + result.rowsWritten());
+            System.out.println("  File: " + result.file());
+            System.out.printf("  Velocita': %.0f righe/s%n", result.rowsPerSecond());
+        } catch (Exception e) {
+            System.err.println("Errore nell'esportazione: " + e.getMessage());
+        }
+    }
+    private void manageRecurringTransactions() {
+        boolean back = false;
+        while (!back) {
+            System.out.println("\n--- TRANSAZIONI RICORRENTI ---");
+            System.out.println("1. Visualizza Ricorrenti");
+            System.out.println("2. Aggiungi Ricorrente");
+            System.out.println("3. Elimina Ricorrente");
+            System.out.println("0. Indietro");
+            int choice = getIntInput("Seleziona: ");
+            switch (choice) {
+                case 1 -> viewRecurringTransactions();
+                case 2 -> addRecurringTransaction();
+                case 3 -> deleteRecurringTransaction();
+                case 0 -> back = true;
+                default -> System.out.println("Opzione non valida.");
+            }
+        }
+    }
+    private List<RecurringTransaction> viewRecurringTransactions() {
+        List<RecurringTransaction> templates = recurringRepository.findAll();
+        if (templates.isEmpty()) {
+            System.out.println("Nessuna transazione ricorrente.");
+            return templates;
+        }
+        System.out.printf("%-3s %-8s %-10s %-15s %-20s %-12s %-12s%n",
+                "#", "TIPO", "IMPORTO", "CATEGORIA", "DESCRIZIONE", "FREQUENZA", "PROSSIMA");
+        System.out.println("-".repeat(86));
+        for (int i = 0; i < templates.size(); i++) {
+            RecurringTransaction t = templates.get(i);
+            LocalDate next = t.getNextDueDate();
+            System.out.printf("%-3d %-8s %-10.2f %-15s %-20s %-12s %-12s%n",
+                    i + 1,
+                    t.getType() == TransactionType.INCOME ? "ENTRATA" : "SPESA",
+                    t.getAmount(),
+                    t.getCategory().getName(),
+                    truncateString(t.getDescription(), 18),
+                    t.getFrequency(),
+                    next == null ? "terminata" : next.format(dateFormatter));
+        }
+        return templates;
+    }
+    private void addRecurringTransaction() {
+        System.out.println("\n--- NUOVA TRANSAZIONE RICORRENTE ---");
+        try {
+            TransactionType type = getBooleanInput("E' un'entrata? (s/n): ") ? TransactionType.INCOME : TransactionType.EXPENSE;
+            BigDecimal amount = getBigDecimalInput("Importo: ");
+            String description = getStringInput("Descrizione: ");
+            Category category = selectCategory("Seleziona categoria: ");
+            if (category == null) return;
+            System.out.println("Frequenza: 1. Giornaliera  2. Settimanale  3. Mensile");
+            RecurrenceFrequency frequency = switch (getIntInput("Seleziona frequenza: ")) {
+                case 1 -> RecurrenceFrequency.DAILY;
+                case 2 -> RecurrenceFrequency.WEEKLY;
+                default -> RecurrenceFrequency.MONTHLY;
+            };
+            LocalDate startDate = getDateInput("Data prima occorrenza (dd/MM/yyyy): ");
+            LocalDate endDate = getBooleanInput("Impostare una data di fine? (s/n): ")
+                    ? getDateInput("Data fine (dd/MM/yyyy): ") : null;
+            recurringRepository.save(new RecurringTransaction(type, amount, description, category,
+                    financeService.getDefaultCurrency(), frequency, startDate, endDate));
+            int created = recurringScheduler.materializeDue(LocalDate.now());
+            System.out.println("? Transazione ricorrente aggiunta!");
+            if (created > 0) {
+                System.out.println("  Occorrenze gia' scadute registrate: " + created);
+            }
+        } catch (Exception e) {
+            System.err.println("Errore nell'aggiunta della transazione ricorrente: " + e.getMessage());
+        }
+    }
+    private void deleteRecurringTransaction() {
+        List<RecurringTransaction> templates = viewRecurringTransactions();
+        if (templates.isEmpty()) {
+            return;
+        }
+        int choice = getIntInput("Numero della ricorrente da eliminare (le transazioni gia' generate restano): ");
+        if (choice < 1 || choice > templates.size()) {
+            System.out.println("Selezione non valida.");
+            return;
+        }
+        recurringRepository.deleteById(templates.get(choice - 1).getId());
+        System.out.println("? Transazione ricorrente eliminata.");
+    }
+    private void manageCategorizationRules() {
+        boolean back = false;
+        while (!back) {
+            System.out.println("\n--- REGOLE DI CATEGORIZZAZIONE ---");
+            System.out.println("1. Visualizza Regole");
+            System.out.println("2. Aggiungi Regola");
+            System.out.println("3. Elimina Regola");
+            System.out.println("0. Indietro");
+            int choice = getIntInput("Seleziona: ");
+            switch (choice) {
+                case 1 -> viewCategorizationRules();
+                case 2 -> addCategorizationRule();
+                case 3 -> deleteCategorizationRule();
+                case 0 -> back = true;
+                default -> System.out.println("Opzione non valida.");
+            }
+        }
+    }
+    private List<CategorizationRule> viewCategorizationRules() {
+        List<CategorizationRule> rules = categorizer.getRules();
+        if (rules.isEmpty()) {
+            System.out.println("Nessuna regola di categorizzazione.");
+            return rules;
+        }
+        System.out.printf("%-4s %-20s %-10s %-10s %-8s %-15s %-8s%n",
+                "#", "PAROLA CHIAVE", "MIN", "MAX", "TIPO", "CATEGORIA", "PRIORITA");
+        System.out.println("-".repeat(80));
+        for (int i = 0; i < rules.size(); i++) {
+            CategorizationRule rule = rules.get(i);
+            System.out.printf("%-4d %-20s %-10s %-10s %-8s %-15s %-8d%n",
+                    i + 1,
+                    rule.getKeyword() == null ? "-" : truncateString(rule.getKeyword(), 20),
+                    rule.getMinAmount() == null ? "-" : rule.getMinAmount().toPlainString(),
+                    rule.getMaxAmount() == null ? "-" : rule.getMaxAmount().toPlainString(),
+                    rule.getType() == null ? "tutti" : rule.getType() == TransactionType.INCOME ? "ENTRATA" : "SPESA",
+                    rule.getCategory().getName(),
+                    rule.getPriority());
+        }
+        return rules;
+    }
+    private void addCategorizationRule() {
+        System.out.println("\n--- NUOVA REGOLA ---");
+        System.out.println("La parola chiave viene cercata nella descrizione (maiuscole ignorate).");
+        try {
+            String keyword = getStringInput("Parola chiave (vuoto per nessuna): ");
+            String min = getStringInput("Importo minimo (vuoto per nessuno): ");
+            String max = getStringInput("Importo massimo (vuoto per nessuno): ");
+            System.out.println("Tipo: 1. Tutti  2. Entrate  3. Spese");
+            TransactionType type = switch (getIntInput("Seleziona tipo: ")) {
+                case 2 -> TransactionType.INCOME;
+                case 3 -> TransactionType.EXPENSE;
+                default -> null;
+            };
+            Category category = selectCategory("Categoria da assegnare: ");
+            if (category == null) return;
+            int priority = getIntInput("Priorita' (piu' alta vince, es. 0): ");
+            CategorizationRule rule = categorizer.addRule(new CategorizationRule(keyword,
+                    min.isEmpty() ? null : new BigDecimal(min), max.isEmpty() ? null : new BigDecimal(max),
+                    type, category, priority));
+            System.out.println("? Regola aggiunta: " + rule);
+        } catch (Exception e) {
+            System.err.println("Errore nell'aggiunta della regola: " + e.getMessage());
+        }
+    }
+    private void deleteCategorizationRule() {
+        List<CategorizationRule> rules = viewCategorizationRules();
+        if (rules.isEmpty()) {
+            return;
+        }
+        int choice = getIntInput("Numero della regola da eliminare: ");
+        if (choice < 1 || choice > rules.size()) {
+            System.out.println("Selezione non valida.");
+            return;
+        }
+        categorizer.deleteRule(rules.get(choice - 1).getId());
+        System.out.println("? Regola eliminata.");
+    }
     private void manageCategories() {
         boolean back = false;
         while (!back) {
@@ -214,12 +594,14 @@ public class PersistentFinanceCLI {
             System.out.println("1. Visualizza Categorie");
             System.out.println("2. Aggiungi Categoria");
             System.out.println("3. Elimina Categoria");
+            System.out.println("4. Regole di Categorizzazione");
             System.out.println("0. Torna al Menu Principale");
             int choice = getIntInput("Seleziona: ");
             switch (choice) {
                 case 1 -> viewCategories();
                 case 2 -> addCategory();
                 case 3 -> deleteCategory();
+                case 4 -> manageCategorizationRules();
                 case 0 -> back = true;
                 default -> System.out.println("Opzione non valida.");
             }
@@ -271,6 +653,7 @@ public class PersistentFinanceCLI {
             System.out.println("2. Aggiungi Budget");
             System.out.println("3. Elimina Budget");
             System.out.println("4. Suggerisci Budget");
+            System.out.println("5. Suggerisci Budget per Tutte le Categorie");
             System.out.println("0. Torna al Menu Principale");
             int choice = getIntInput("Seleziona: ");
             switch (choice) {
@@ -278,6 +661,7 @@ public class PersistentFinanceCLI {
                 case 2 -> addBudget();
                 case 3 -> deleteBudget();
                 case 4 -> suggestBudget();
+                case 5 -> suggestAllBudgets();
                 case 0 -> back = true;
                 default -> System.out.println("Opzione non valida.");
             }
@@ -333,6 +717,27 @@ public class PersistentFinanceCLI {
             System.err.println("Errore nell'eliminazione: " + e.getMessage());
         }
     }
+    private void suggestAllBudgets() {
+        System.out.println("\n--- SUGGERIMENTO BUDGET PER TUTTE LE CATEGORIE ---");
+        try {
+            YearMonth period = getPeriodInput("Periodo (MM/yyyy): ");
+            List<Budget> suggested = financeService.suggestBudgets(period);
+            if (suggested.isEmpty()) {
+                System.out.println("Nessuna categoria disponibile.");
+                return;
+            }
+            System.out.println("Strategia: " + financeService.getBudgetingStrategy().getStrategyName());
+            System.out.printf("%-20s %12s%n", "CATEGORIA", "SUGGERITO");
+            System.out.println("-".repeat(33));
+            suggested.forEach(budget -> System.out.printf("%-20s %12.2f%n", budget.getCategory().getName(), budget.getAmount()));
+            if (getBooleanInput("Vuoi creare tutti questi budget? (s/n): ")) {
+                suggested.forEach(financeService::addBudget);
+                System.out.println("? Budget creati: " + suggested.size());
+            }
+        } catch (Exception e) {
+            System.err.println("Errore nel suggerimento: " + e.getMessage());
+        }
+    }
     private void suggestBudget() {
         System.out.println("\n--- SUGGERIMENTO BUDGET ---");
         try {
@@ -361,12 +766,22 @@ public class PersistentFinanceCLI {
             System.out.println("1. Bilancio Generale");
             System.out.println("2. Spese per Categoria");
             System.out.println("3. Analisi Budget");
+            System.out.println("4. Spese Piu' Alte");
+            System.out.println("5. Flusso di Cassa Mensile");
+            System.out.println("6. Distribuzione delle Spese");
+            System.out.println("7. Spese per Gerarchia di Categorie");
+            System.out.println("8. Riepilogo di Tutti i Ledger");
             System.out.println("0. Torna al Menu Principale");
             int choice = getIntInput("Seleziona: ");
             switch (choice) {
                 case 1 -> showGeneralBalance();
                 case 2 -> showExpensesByCategory();
                 case 3 -> showBudgetAnalysis();
+                case 4 -> showLargestExpenses();
+                case 5 -> viewCashFlowReports();
+                case 6 -> showSpendingDistribution();
+                case 7 -> showExpenseRollup();
+                case 8 -> showAllLedgers();
                 case 0 -> back = true;
                 default -> System.out.println("Opzione non valida.");
             }
@@ -376,11 +791,29 @@ public class PersistentFinanceCLI {
         System.out.println("\n--- BILANCIO GENERALE ---");
         BigDecimal totalIncome = financeService.getTotalIncome();
         BigDecimal totalExpenses = financeService.getTotalExpenses();
+        BigDecimal totalInvestments = financeService.getTotalInvestments();
         BigDecimal balance = financeService.getBalance();
         System.out.println("Entrate totali:    �" + totalIncome);
         System.out.println("Spese totali:      �" + totalExpenses);
+        System.out.println("Investimenti:      �" + totalInvestments);
         System.out.println("-".repeat(30));
         System.out.println("Bilancio:          �" + balance);
+        Map<String, LedgerTotals> byCurrency = financeService.getLedgerTotals();
+        if (byCurrency.size() > 1) {
+            System.out.println("Bilancio per valuta:");
+            byCurrency.values().stream()
+                    .sorted(Comparator.comparing(LedgerTotals::currency))
+                    .forEach(totals -> System.out.println("  " + totals.currency() + ": " + totals.balance()
+                            + " (" + totals.transactionCount() + " transazioni)"));
+        }
+        String currency = financeService.getDefaultCurrency();
+        if (financeService.hasOtherCurrencies(currency)) {
+            try {
+                System.out.println("Bilancio convertito in " + currency + ": " + financeService.getBalanceIn(currency));
+            } catch (IllegalStateException e) {
+                System.out.println("Conversione in " + currency + " non disponibile: " + e.getMessage());
+            }
+        }
         if (balance.compareTo(BigDecimal.ZERO) > 0) {
             System.out.println("? Bilancio positivo!");
         } else if (balance.compareTo(BigDecimal.ZERO) < 0) {
@@ -389,9 +822,33 @@ public class PersistentFinanceCLI {
             System.out.println("= Bilancio in pareggio");
         }
     }
+    private void showAllLedgers() {
+        System.out.println("\n--- RIEPILOGO DI TUTTI I LEDGER ---");
+        crossLedgerReportService.getTransactionCountByLedger().forEach((id, count) ->
+                System.out.println("  " + id + (id.equals(ledgerId) ? " (aperto)" : "") + ": " + count + " transazioni"));
+        String currency = financeService.getDefaultCurrency();
+        try {
+            System.out.println("Entrate totali in " + currency + ":  " + crossLedgerReportService.getTotalIncomeIn(currency));
+            System.out.println("Spese totali in " + currency + ":    " + crossLedgerReportService.getTotalExpensesIn(currency));
+            System.out.println("Investimenti in " + currency + ":    " + crossLedgerReportService.getTotalInvestmentsIn(currency));
+            System.out.println("-".repeat(30));
+            System.out.println("Bilancio in " + currency + ":        " + crossLedgerReportService.getBalanceIn(currency));
+        } catch (IllegalStateException e) {
+            System.out.println("Conversione in " + currency + " non disponibile: " + e.getMessage());
+        }
+    }
     private void showExpensesByCategory() {
         System.out.println("\n--- SPESE PER CATEGORIA ---");
         var expensesByCategory = financeService.getExpensesByCategory();
+        String currency = financeService.getDefaultCurrency();
+        if (financeService.hasOtherCurrencies(currency)) {
+            try {
+                expensesByCategory = financeService.getExpensesByCategoryIn(currency);
+                System.out.println("Importi convertiti in " + currency + " al cambio di oggi.");
+            } catch (IllegalStateException e) {
+                System.out.println("Conversione in " + currency + " non disponibile, importi non convertiti: " + e.getMessage());
+            }
+        }
         if (expensesByCategory.isEmpty()) {
             System.out.println("Nessuna spesa registrata.");
             return;
@@ -404,6 +861,156 @@ public class PersistentFinanceCLI {
                     System.out.printf("%-20s �%-14.2f%n", entry.getKey(), entry.getValue())
                 );
     }
+    private void showLargestExpenses() {
+        System.out.println("\n--- SPESE PIU' ALTE ---");
+        System.out.println("1. Complessive  2. Per Categoria  3. Per Mese");
+        int choice = getIntInput("Seleziona: ");
+        int limit = getIntInput("Quante spese mostrare: ");
+        if (limit <= 0) {
+            System.out.println("Il numero deve essere positivo.");
+            return;
+        }
+        switch (choice) {
+            case 2 -> financeService.getLargestExpensesByCategory(limit).entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    .forEach(entry -> printLargestExpenses(entry.getKey(), entry.getValue()));
+            case 3 -> financeService.getLargestExpensesByMonth(limit).entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    .forEach(entry -> printLargestExpenses(entry.getKey().toString(), entry.getValue()));
+            default -> printLargestExpenses("Tutte", financeService.getLargestExpenses(limit));
+        }
+    }
+    private void printLargestExpenses(String group, List<Transaction> expenses) {
+        if (expenses.isEmpty()) {
+            System.out.println("Nessuna spesa registrata.");
+            return;
+        }
+        System.out.println("\n" + group + ":");
+        for (Transaction expense : expenses) {
+            System.out.printf("  %s %-30s �%10.2f%n", expense.getTimestamp().format(dateFormatter),
+                    expense.getDescription(), expense.getAmount());
+        }
+    }
+    private void viewCashFlowReports() {
+        boolean back = false;
+        while (!back) {
+            System.out.println("\n--- FLUSSO DI CASSA MENSILE ---");
+            System.out.println("1. Entrate, Spese, Investimenti e Netto");
+            System.out.println("2. Medie Mobili del Netto");
+            System.out.println("3. Medie Mobili delle Spese");
+            System.out.println("4. Medie Mobili delle Entrate");
+            System.out.println("0. Indietro");
+            int choice = getIntInput("Seleziona: ");
+            switch (choice) {
+                case 1 -> showMonthlyCashFlow();
+                case 2 -> showRollingAverages("NETTO", MonthlyCashFlow::net);
+                case 3 -> showRollingAverages("SPESE", MonthlyCashFlow::expenses);
+                case 4 -> showRollingAverages("ENTRATE", MonthlyCashFlow::income);
+                case 0 -> back = true;
+                default -> System.out.println("Opzione non valida.");
+            }
+        }
+    }
+    /**
+     * Gets the series in the default currency when the ledger holds other currencies.
+     */
+    private CashFlowSeries cashFlowSeries() {
+        String currency = financeService.getDefaultCurrency();
+        if (financeService.hasOtherCurrencies(currency)) {
+            try {
+                return cashFlowReportService.getSeriesIn(currency, currencyConverter);
+            } catch (IllegalStateException e) {
+                System.out.println("Conversione in " + currency + " non disponibile, importi non convertiti: " + e.getMessage());
+            }
+        }
+        return cashFlowReportService.getSeries();
+    }
+    private void showMonthlyCashFlow() {
+        List<MonthlyCashFlow> months = lastMonths(cashFlowSeries().getMonths());
+        System.out.printf("%n%-8s %12s %12s %12s %12s%n", "MESE", "ENTRATE", "SPESE", "INVESTIMENTI", "NETTO");
+        System.out.println("-".repeat(60));
+        for (MonthlyCashFlow month : months) {
+            System.out.printf("%-8s %12.2f %12.2f %12.2f %12.2f%n", month.month(), month.income(), month.expenses(),
+                    month.investments(), month.net());
+        }
+    }
+    private void showRollingAverages(String label, Function<MonthlyCashFlow, BigDecimal> metric) {
+        CashFlowSeries series = cashFlowSeries();
+        List<MonthlyCashFlow> all = series.getMonths();
+        List<BigDecimal> average3 = series.rollingAverages(3, metric);
+        List<BigDecimal> average6 = series.rollingAverages(6, metric);
+        List<BigDecimal> average12 = series.rollingAverages(12, metric);
+        int first = all.size() - lastMonths(all).size();
+        System.out.printf("%n%-8s %12s %12s %12s %12s%n", "MESE", label, "MEDIA 3M", "MEDIA 6M", "MEDIA 12M");
+        System.out.println("-".repeat(60));
+        for (int i = first; i < all.size(); i++) {
+            System.out.printf("%-8s %12.2f %12s %12s %12s%n", all.get(i).month(), metric.apply(all.get(i)),
+                    formatAverage(average3.get(i)), formatAverage(average6.get(i)), formatAverage(average12.get(i)));
+        }
+    }
+    private List<MonthlyCashFlow> lastMonths(List<MonthlyCashFlow> months) {
+        String input = getStringInput("Mesi da mostrare (vuoto per 12): ");
+        int count;
+        try {
+            count = input.isEmpty() ? 12 : Math.max(1, Integer.parseInt(input));
+        } catch (NumberFormatException e) {
+            count = 12;
+        }
+        return months.subList(Math.max(0, months.size() - count), months.size());
+    }
+    private String formatAverage(BigDecimal average) {
+        return average == null ? "-" : average.toPlainString();
+    }
+    private void showExpenseRollup() {
+        System.out.println("\n--- SPESE PER GERARCHIA DI CATEGORIE ---");
+        List<CategoryRollup> roots = financeService.getExpenseRollup();
+        if (roots.isEmpty()) {
+            System.out.println("Nessuna spesa registrata.");
+            return;
+        }
+        System.out.printf("%-40s %14s %14s%n", "CATEGORIA", "TOTALE", "DIRETTO");
+        System.out.println("-".repeat(70));
+        roots.forEach(root -> printRollup(root, 0));
+    }
+    private void printRollup(CategoryRollup node, int depth) {
+        String label = "  ".repeat(depth) + (depth > 0 ? "- " : "") + node.getName();
+        System.out.printf("%-40s %14.2f %14s%n", label, node.getTotalAmount(),
+                node.getChildren().isEmpty() ? "" : String.format("%.2f", node.getOwnAmount()));
+        node.getChildren().forEach(child -> printRollup(child, depth + 1));
+    }
+    private void showSpendingDistribution() {
+        System.out.println("\n--- DISTRIBUZIONE DELLE SPESE ---");
+        String input = getStringInput("Ultimi mesi da considerare (vuoto per tutti): ");
+        YearMonth first = null;
+        if (!input.isEmpty()) {
+            try {
+                first = YearMonth.now().minusMonths(Math.max(1, Integer.parseInt(input)) - 1);
+            } catch (NumberFormatException e) {
+                System.out.println("Numero non valido, considero tutti i mesi.");
+            }
+        }
+        Map<String, ExpenseHistogram> histograms = expenseDistribution.histogramsByCategory(first, null);
+        if (histograms.isEmpty()) {
+            System.out.println("Nessuna spesa registrata.");
+            return;
+        }
+        System.out.printf("%-20s %8s %10s %10s %10s%n", "CATEGORIA", "SPESE", "P50", "P90", "P99");
+        System.out.println("-".repeat(62));
+        ExpenseHistogram total = new ExpenseHistogram();
+        histograms.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> {
+                    printPercentiles(entry.getKey(), entry.getValue());
+                    total.merge(entry.getValue());
+                });
+        System.out.println("-".repeat(62));
+        printPercentiles("Tutte", total);
+        System.out.printf("Valori approssimati entro l'%.0f%%.%n", ExpenseHistogram.RELATIVE_ACCURACY * 100);
+    }
+    private void printPercentiles(String label, ExpenseHistogram histogram) {
+        System.out.printf("%-20s %8d %10.2f %10.2f %10.2f%n", label, histogram.getCount(),
+                histogram.quantile(0.5), histogram.quantile(0.9), histogram.quantile(0.99));
+    }
     private void showBudgetAnalysis() {
         System.out.println("\n--- ANALISI BUDGET ---");
         List<Budget> budgets = financeService.getActiveBudgets();
@@ -436,12 +1043,24 @@ public class PersistentFinanceCLI {
             System.out.println("1. Cambia Strategia di Budgeting");
             System.out.println("2. Impostazioni Valuta");
             System.out.println("3. Informazioni Database");
+            System.out.println("4. Esporta Snapshot");
+            System.out.println("5. Ripristina Snapshot");
+            System.out.println("6. Archivia Transazioni Vecchie");
+            System.out.println("7. Soglia Spese Insolite");
+            System.out.println("8. Verifica Totali del Registro");
+            System.out.println("9. Carica Tassi di Cambio");
             System.out.println("0. Torna al Menu Principale");
             int choice = getIntInput("Seleziona: ");
             switch (choice) {
                 case 1 -> changeBudgetingStrategy();
                 case 2 -> changeCurrency();
                 case 3 -> showDatabaseInfo();
+                case 4 -> exportSnapshot();
+                case 5 -> restoreSnapshot();
+                case 6 -> archiveOldTransactions();
+                case 7 -> changeAnomalyThreshold();
+                case 8 -> reconcileLedgerTotals();
+                case 9 -> loadExchangeRates();
                 case 0 -> back = true;
                 default -> System.out.println("Opzione non valida.");
             }
@@ -453,6 +1072,7 @@ public class PersistentFinanceCLI {
         System.out.println();
         System.out.println("1. Conservativa (50% necessit�, 30% desideri, 20% risparmi)");
         System.out.println("2. Aggressiva (40% necessit�, 40% desideri, 20% risparmi)");
+        System.out.println("3. Storica (media stagionale delle spese per categoria + 10%)");
         int choice = getIntInput("Seleziona nuova strategia: ");
         switch (choice) {
             case 1 -> {
@@ -463,9 +1083,50 @@ public class PersistentFinanceCLI {
                 financeService.setBudgetingStrategy(new AggressiveBudgetingStrategy());
                 System.out.println("? Strategia aggressiva impostata!");
             }
+            case 3 -> {
+                financeService.setBudgetingStrategy(historicalStrategy);
+                System.out.println("? Strategia storica impostata!");
+            }
             default -> System.out.println("Opzione non valida.");
         }
     }
+    private void changeAnomalyThreshold() {
+        System.out.println("\n--- SOGLIA SPESE INSOLITE ---");
+        System.out.println("Una spesa viene segnalata se supera la media della categoria di piu' deviazioni standard della soglia.");
+        System.out.println("Soglia attuale: " + anomalyDetector.getThreshold());
+        try {
+            BigDecimal threshold = getBigDecimalInput("Nuova soglia (es. 3): ");
+            anomalyDetector.setThreshold(threshold.doubleValue());
+            System.out.println("? Soglia aggiornata a: " + anomalyDetector.getThreshold());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Soglia non valida: " + e.getMessage());
+        }
+    }
+    private void reconcileLedgerTotals() {
+        System.out.println("\n--- VERIFICA TOTALI DEL REGISTRO ---");
+        Map<String, LedgerTotals> corrected = financeService.reconcileLedgerTotals();
+        if (corrected.isEmpty()) {
+            System.out.println("? Totali allineati con le transazioni.");
+            return;
+        }
+        corrected.values().forEach(totals -> System.out.println("Corretti i totali in " + totals.currency()
+                + ": bilancio " + totals.balance() + " (" + totals.transactionCount() + " transazioni)"));
+    }
+    private void loadExchangeRates() {
+        System.out.println("\n--- CARICA TASSI DI CAMBIO ---");
+        System.out.println("Formato: una riga data,valuta,tasso (es. 2024-03-15,USD,1.0892),");
+        System.out.println("con il tasso espresso in unita' della valuta per 1 " + CurrencyConverter.REFERENCE_CURRENCY + ".");
+        Path file = Path.of(getStringInput("Percorso del file dei tassi: "));
+        try {
+            int loaded = exchangeRateImporter.importFile(file);
+            currencyConverter.clearCache();
+            System.out.println("? Tassi di cambio caricati: " + loaded);
+        } catch (IllegalArgumentException e) {
+            System.err.println("File non valido, nessun tasso caricato: " + e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Errore nel caricamento dei tassi: " + e.getMessage());
+        }
+    }
     private void changeCurrency() {
         System.out.println("\n--- IMPOSTAZIONI VALUTA ---");
         System.out.println("Valuta attuale: " + financeService.getDefaultCurrency());
@@ -484,6 +1145,89 @@ public class PersistentFinanceCLI {
         System.out.println("  Categorie: " + financeService.getAllCategories().size());
         System.out.println("  Transazioni: " + financeService.getAllTransactions().size());
         System.out.println("  Budget attivi: " + financeService.getActiveBudgets().size());
+        ReportCache.Statistics cache = financeService.getReportCache().getStatistics();
+        System.out.println();
+        System.out.println("Cache dei report:");
+        System.out.println("  Risultati in cache: " + cache.entries());
+        System.out.println("  Hit: " + cache.hits() + " - Miss: " + cache.misses()
+                + " (di cui invalidati da scritture: " + cache.staleMisses() + ")");
+        System.out.printf("  Hit rate: %.1f%%%n", cache.hitRate() * 100);
+    }
+    private void exportSnapshot() {
+        System.out.println("\n--- ESPORTA SNAPSHOT ---");
+        Path file = Path.of(getStringInput("Percorso del file di snapshot: "));
+        try {
+            budgetSpendAccumulator.flush();
+            LedgerSnapshotService.SnapshotSummary summary = snapshotService.export(file);
+            System.out.println("? Snapshot esportato!");
+            printSnapshotSummary(summary);
+        } catch (Exception e) {
+            System.err.println("Errore nell'esportazione: " + e.getMessage());
+        }
+    }
+    private void restoreSnapshot() {
+        System.out.println("\n--- RIPRISTINA SNAPSHOT ---");
+        System.out.println("ATTENZIONE: tutti i dati attuali verranno sostituiti.");
+        Path file = Path.of(getStringInput("Percorso del file di snapshot: "));
+        if (!Files.isRegularFile(file)) {
+            System.out.println("File non trovato: " + file);
+            return;
+        }
+        if (!getBooleanInput("Confermi il ripristino? (s/n): ")) {
+            System.out.println("Ripristino annullato.");
+            return;
+        }
+        // The restore turns referential integrity off for the whole database; nothing else may write meanwhile.
+        stopBackgroundWriters();
+        try {
+            LedgerSnapshotService.SnapshotSummary summary = snapshotService.restore(file);
+            currencyConverter.clearCache();
+            budgetSpendAccumulator.replay();
+            duplicateDetector.invalidate();
+            categorizer.reload();
+            anomalyDetector.warmStart();
+            System.out.println("? Snapshot ripristinato!");
+            printSnapshotSummary(summary);
+        } catch (Exception e) {
+            // A failed restore loads the previous ledger back without its archive tables.
+            duplicateDetector.invalidate();
+            System.err.println("Errore nel ripristino: " + e.getMessage());
+        } finally {
+            startBackgroundWriters();
+        }
+    }
+    private void archiveOldTransactions() {
+        System.out.println("\n--- ARCHIVIA TRANSAZIONI VECCHIE ---");
+        System.out.println("Gli anni piu' vecchi dell'orizzonte vengono spostati in tabelle di archivio annuali.");
+        System.out.println("Totali e ricerche per data continuano a includerli.");
+        int horizon = getIntInput("Anni da mantenere nella tabella principale (default "
+                + TransactionArchiver.DEFAULT_HORIZON_YEARS + "): ");
+        try {
+            ArchiveResult result = new TransactionArchiver(dbManager).archive(horizon);
+            if (result.rowsByYear().isEmpty()) {
+                System.out.println("Nessuna transazione da archiviare.");
+                return;
+            }
+            result.rowsByYear().forEach((year, rows) -> System.out.println("  " + year + ": " + rows + " transazioni"));
+            System.out.println("? Archiviazione completata in " + result.elapsed().toMillis() + " ms");
+        } catch (Exception e) {
+            System.err.println("Errore nell'archiviazione: " + e.getMessage());
+        }
+    }
+    private void printSnapshotSummary(LedgerSnapshotService.SnapshotSummary summary) {
+        summary.rowsByTable().forEach((table, rows) -> System.out.println("  " + table + ": " + rows + " righe"));
+        System.out.println("  Dimensione: " + summary.bytes() + " byte");
+        System.out.println("  Tempo: " + summary.elapsed().toMillis() + " ms");
+    }
+    /**
+     * Proposes the category chosen by the rules, falling back to the manual selection.
+     */
+    private Category suggestCategory(String description, BigDecimal amount, TransactionType type, String prompt) {
+        Category suggested = categorizer.categorize(description, amount, type).orElse(null);
+        if (suggested != null && getBooleanInput("Categoria suggerita: " + suggested.getName() + ". Confermi? (s/n): ")) {
+            return suggested;
+        }
+        return selectCategory(prompt);
     }
     private Category selectCategory(String prompt) {
         System.out.println("\n" + prompt);
@@ -588,7 +1332,7 @@ public class PersistentFinanceCLI {
     }
     public static void main(String[] args) {
         try {
-            PersistentFinanceCLI cli = new PersistentFinanceCLI();
+            PersistentFinanceCLI cli = new PersistentFinanceCLI(args.length > 0 ? args[0] : LedgerShardRegistry.DEFAULT_LEDGER);
             cli.start();
         } catch (Exception e) {
             System.err.println("Errore critico nell'avvio dell'applicazione: " + e.getMessage());
@@ -1,23 +1,71 @@
 package org.finance.database;
+import org.h2.jdbcx.JdbcConnectionPool;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
 /**
  * Singleton for managing H2 database connections.
- * Implements the Singleton pattern to ensure only one active connection.
+ * Implements the Singleton pattern to ensure a single bounded connection pool per
+ * database file, and the Unit of Work pattern by binding one connection to the current thread.
+ * The default instance serves the main ledger; forUrl gives each additional
+ * database (e.g. a ledger shard) its own instance and pools.
  */
-public class DatabaseManager {
+public class DatabaseManager implements UnitOfWork {
     private static final Logger logger = Logger.getLogger(DatabaseManager.class.getName());
     private static DatabaseManager instance;
-    private static final String DB_URL = "jdbc:h2:./data/finance_db;AUTO_SERVER=TRUE";
+    private static final Map<String, DatabaseManager> instancesByUrl = new ConcurrentHashMap<>();
+    /** Source of every write epoch, shared so that two databases never report the same epoch. */
+    private static final AtomicLong epochSequence = new AtomicLong();
+    /**
+     * Secondary (non primary key, non foreign key) indexes, by name.
+     * Bulk loads drop them first and rebuild them once at the end.
+     */
+    private static final Map<String, String> SECONDARY_INDEXES = new LinkedHashMap<>();
+    static {
+        SECONDARY_INDEXES.put("idx_transactions_timestamp", "transactions(timestamp)");
+        SECONDARY_INDEXES.put("idx_transactions_fingerprint", "transactions(fingerprint)");
+        SECONDARY_INDEXES.put("idx_transactions_category_timestamp", "transactions(category_name, timestamp)");
+        SECONDARY_INDEXES.put("idx_transaction_tokens_transaction", "transaction_tokens(transaction_id)");
+    }
+    /** Unique index that rejects a reused idempotency key in the hot table. */
+    public static final String IDEMPOTENCY_KEY_INDEX = "uk_transactions_idempotency_key";
+    private static final String DEFAULT_DB_URL = "jdbc:h2:./data/finance_db;AUTO_SERVER=TRUE";
     private static final String DB_USER = "sa";
     private static final String DB_PASSWORD = "";
+    private static final String DB_URL_PROPERTY = "finance.db.url";
+    private static final String POOL_SIZE_PROPERTY = "finance.db.poolSize";
+    private static final String READ_POOL_SIZE_PROPERTY = "finance.db.readPoolSize";
+    private static final int DEFAULT_POOL_SIZE = 8;
+    private static final int DEFAULT_READ_POOL_SIZE = 4;
+    private final String dbUrl;
+    private final int maxConnections;
+    private final int maxReadConnections;
+    private JdbcConnectionPool connectionPool;
+    private JdbcConnectionPool readConnectionPool;
+    private final ThreadLocal<Connection> boundConnection = new ThreadLocal<>();
+    private final ThreadLocal<List<Runnable>> afterCommitCallbacks = new ThreadLocal<>();
+    private volatile long writeEpoch = epochSequence.incrementAndGet();
 
-    private DatabaseManager() {
+    private DatabaseManager(String dbUrl) {
+        this.dbUrl = dbUrl;
+        this.maxConnections = Integer.getInteger(POOL_SIZE_PROPERTY, DEFAULT_POOL_SIZE);
+        this.maxReadConnections = Integer.getInteger(READ_POOL_SIZE_PROPERTY, DEFAULT_READ_POOL_SIZE);
+        if (maxConnections <= 0 || maxReadConnections <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive");
+        }
         initializeDatabase();
     }
 
@@ -26,24 +74,264 @@ public class DatabaseManager {
      */
     public static synchronized DatabaseManager getInstance() {
         if (instance == null) {
-            instance = new DatabaseManager();
+            instance = forUrl(System.getProperty(DB_URL_PROPERTY, DEFAULT_DB_URL));
         }
         return instance;
     }
 
     /**
-     * Gets the database connection.
+     * Gets the instance managing the database at the given JDBC URL, creating its
+     * tables and pools on first use.
+     */
+    public static DatabaseManager forUrl(String dbUrl) {
+        DatabaseManager manager = instancesByUrl.get(dbUrl);
+        if (manager != null) {
+            return manager;
+        }
+        // Opening a database runs the schema setup, too long for computeIfAbsent.
+        synchronized (instancesByUrl) {
+            manager = instancesByUrl.get(dbUrl);
+            if (manager == null) {
+                manager = new DatabaseManager(dbUrl);
+                instancesByUrl.put(dbUrl, manager);
+            }
+            return manager;
+        }
+    }
+
+    /**
+     * Gets the JDBC URL of the managed database.
+     */
+    public String getUrl() {
+        return dbUrl;
+    }
+
+    /**
+     * Gets a pooled database connection; closing it returns it to the pool.
+     * Inside a unit of work the connection bound to the current thread is returned
+     * instead, and closing it is a no-op so the transaction stays open.
      */
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        Connection bound = boundConnection.get();
+        if (bound != null) {
+            return nonClosing(bound);
+        }
+        return writeTracking(getConnectionPool().getConnection());
+    }
+
+    /**
+     * Gets a read-only connection from a pool separate from the writer's.
+     * Each connection runs at REPEATABLE READ, so a report reads a consistent
+     * point-in-time snapshot of the MVStore without taking locks that block inserts.
+     * Inside a unit of work the bound connection is returned so pending writes stay visible.
+     */
+    public Connection getReadConnection() throws SQLException {
+        Connection bound = boundConnection.get();
+        if (bound != null) {
+            return nonClosing(bound);
+        }
+        Connection conn = getReadConnectionPool().getConnection();
+        conn.setReadOnly(true);
+        conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        return conn;
+    }
+
+    @Override
+    public <T> T execute(Supplier<T> work) {
+        if (boundConnection.get() != null) {
+            return work.get();
+        }
+        Connection conn;
+        try {
+            conn = getConnectionPool().getConnection();
+            conn.setAutoCommit(false);
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error opening unit of work", e);
+            throw new RuntimeException("Unable to open unit of work", e);
+        }
+        boundConnection.set(conn);
+        List<Runnable> callbacks = new ArrayList<>();
+        afterCommitCallbacks.set(callbacks);
+        boolean committed = false;
+        try {
+            T result = work.get();
+            conn.commit();
+            committed = true;
+            return result;
+        } catch (SQLException e) {
+            rollbackQuietly(conn);
+            logger.log(Level.SEVERE, "Error committing unit of work", e);
+            throw new RuntimeException("Unable to commit unit of work", e);
+        } catch (RuntimeException | Error e) {
+            rollbackQuietly(conn);
+            throw e;
+        } finally {
+            boundConnection.remove();
+            afterCommitCallbacks.remove();
+            try {
+                conn.setAutoCommit(true);
+                conn.close();
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Error releasing unit of work connection", e);
+            }
+            if (committed) {
+                advanceWriteEpoch();
+                runCallbacks(callbacks);
+            }
+        }
+    }
+
+    /**
+     * Advances the write epoch. Committed units of work and closed write connections
+     * do it; code writing through other connections must call it itself.
+     */
+    public void advanceWriteEpoch() {
+        writeEpoch = epochSequence.incrementAndGet();
+    }
+    /**
+     * Epochs are drawn from one JVM-wide sequence, so a cache comparing them also notices
+     * when it is being read against another database (e.g. after a ledger switch).
+     */
+    @Override
+    public long getWriteEpoch() {
+        return writeEpoch;
+    }
+
+    /**
+     * Runs the callback once the current unit of work has committed, or immediately
+     * when there is none. Callbacks are dropped if the unit of work rolls back, which
+     * makes this the place to update caches that must only see committed rows.
+     */
+    public void afterCommit(Runnable callback) {
+        List<Runnable> callbacks = afterCommitCallbacks.get();
+        if (callbacks == null) {
+            callback.run();
+        } else {
+            callbacks.add(callback);
+        }
+    }
+
+    private void runCallbacks(List<Runnable> callbacks) {
+        for (Runnable callback : callbacks) {
+            try {
+                callback.run();
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Error in after-commit callback", e);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the current thread is running inside a unit of work.
+     */
+    public boolean isInUnitOfWork() {
+        return boundConnection.get() != null;
+    }
+
+    private void rollbackQuietly(Connection conn) {
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Error rolling back unit of work", e);
+        }
+    }
+
+    /**
+     * Wraps a connection used outside a unit of work so that closing it advances the
+     * write epoch if it ran anything but a query.
+     */
+    private Connection writeTracking(Connection target) {
+        boolean[] wrote = {false};
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    try {
+                        Object result = method.invoke(target, args);
+                        return switch (method.getName()) {
+                            case "createStatement" -> writeTracking((Statement) result, wrote);
+                            case "prepareStatement", "prepareCall" -> {
+                                wrote[0] |= !isQuery((String) args[0]);
+                                yield result;
+                            }
+                            default -> result;
+                        };
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        if ("close".equals(method.getName()) && wrote[0]) {
+                            wrote[0] = false;
+                            advanceWriteEpoch();
+                        }
+                    }
+                });
+    }
+    private static Statement writeTracking(Statement target, boolean[] wrote) {
+        return (Statement) Proxy.newProxyInstance(
+                Statement.class.getClassLoader(),
+                new Class<?>[]{Statement.class},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("execute") && !"executeQuery".equals(method.getName())) {
+                        wrote[0] = true;
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+    private static boolean isQuery(String sql) {
+        String statement = sql.stripLeading();
+        return statement.regionMatches(true, 0, "SELECT", 0, 6) || statement.regionMatches(true, 0, "WITH", 0, 4);
+    }
+    private static Connection nonClosing(Connection target) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName())) {
+                        return null;
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * Gets the maximum number of concurrently open pooled connections.
+     * Components running database work in parallel should not exceed it.
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    private synchronized JdbcConnectionPool getConnectionPool() {
+        if (connectionPool == null) {
+            connectionPool = JdbcConnectionPool.create(dbUrl, DB_USER, DB_PASSWORD);
+            connectionPool.setMaxConnections(maxConnections);
+        }
+        return connectionPool;
+    }
+
+    private synchronized JdbcConnectionPool getReadConnectionPool() {
+        if (readConnectionPool == null) {
+            readConnectionPool = JdbcConnectionPool.create(dbUrl, DB_USER, DB_PASSWORD);
+            readConnectionPool.setMaxConnections(maxReadConnections);
+        }
+        return readConnectionPool;
     }
 
     /**
      * Initializes the database by creating necessary tables.
      */
     private void initializeDatabase() {
-        try (Connection initConnection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
+        try (Connection initConnection = DriverManager.getConnection(dbUrl, DB_USER, DB_PASSWORD)) {
             createTables(initConnection);
+            createSecondaryIndexes(initConnection);
             logger.info("Database initialized successfully");
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Error initializing database", e);
@@ -83,18 +371,137 @@ public class DatabaseManager {
                     category_name VARCHAR(100) NOT NULL,
                     limit_amount DECIMAL(15,2) NOT NULL,
                     period VARCHAR(10) NOT NULL,
+                    spent DECIMAL(15,2) DEFAULT 0 NOT NULL,
                     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
                     FOREIGN KEY (category_name) REFERENCES categories(name)
                 )
             """);
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS recurring_transactions (
+                    id VARCHAR(100) PRIMARY KEY,
+                    type VARCHAR(20) NOT NULL,
+                    amount DECIMAL(15,2) NOT NULL,
+                    description VARCHAR(500),
+                    category_name VARCHAR(100) NOT NULL,
+                    currency VARCHAR(10) DEFAULT 'EUR',
+                    frequency VARCHAR(10) NOT NULL,
+                    start_date DATE NOT NULL,
+                    end_date DATE,
+                    materialized_count BIGINT DEFAULT 0 NOT NULL,
+                    next_due_date DATE,
+                    FOREIGN KEY (category_name) REFERENCES categories(name)
+                )
+            """);
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_recurring_next_due ON recurring_transactions(next_due_date)");
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS categorization_rules (
+                    id VARCHAR(100) PRIMARY KEY,
+                    keyword VARCHAR(200),
+                    min_amount DECIMAL(15,2),
+                    max_amount DECIMAL(15,2),
+                    type VARCHAR(20),
+                    category_name VARCHAR(100) NOT NULL,
+                    priority INT DEFAULT 0 NOT NULL,
+                    FOREIGN KEY (category_name) REFERENCES categories(name)
+                )
+            """);
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS expense_histograms (
+                    category_name VARCHAR(100) NOT NULL,
+                    histogram_year INT NOT NULL,
+                    histogram_month INT NOT NULL,
+                    bucket INT NOT NULL,
+                    transaction_count BIGINT NOT NULL,
+                    PRIMARY KEY (category_name, histogram_year, histogram_month, bucket)
+                )
+            """);
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS ledger_summary (
+                    currency VARCHAR(10) PRIMARY KEY,
+                    income DECIMAL(19,2) NOT NULL,
+                    expenses DECIMAL(19,2) NOT NULL,
+                    investments DECIMAL(19,2) NOT NULL,
+                    transaction_count BIGINT NOT NULL
+                )
+            """);
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS exchange_rates (
+                    currency VARCHAR(10) NOT NULL,
+                    rate_date DATE NOT NULL,
+                    rate DECIMAL(19,8) NOT NULL,
+                    PRIMARY KEY (currency, rate_date)
+                )
+            """);
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS transaction_tokens (
+                    token VARCHAR(50) NOT NULL,
+                    transaction_id VARCHAR(100) NOT NULL,
+                    PRIMARY KEY (token, transaction_id)
+                )
+            """);
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS archive_partitions (
+                    archive_year INT PRIMARY KEY,
+                    table_name VARCHAR(100) NOT NULL,
+                    row_count BIGINT NOT NULL,
+                    archived_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                )
+            """);
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS transaction_rollups (
+                    rollup_year INT NOT NULL,
+                    rollup_month INT NOT NULL,
+                    category_name VARCHAR(100) NOT NULL,
+                    type VARCHAR(20) NOT NULL,
+                    transaction_count BIGINT NOT NULL,
+                    total DECIMAL(17,2) NOT NULL,
+                    PRIMARY KEY (rollup_year, rollup_month, category_name, type)
+                )
+            """);
+            stmt.execute("ALTER TABLE budgets ADD COLUMN IF NOT EXISTS spent DECIMAL(15,2) DEFAULT 0 NOT NULL");
+            stmt.execute("ALTER TABLE transactions ADD COLUMN IF NOT EXISTS fingerprint VARCHAR(32)");
+            stmt.execute("ALTER TABLE transactions ADD COLUMN IF NOT EXISTS idempotency_key VARCHAR(100)");
+            stmt.execute("ALTER TABLE transaction_rollups ADD COLUMN IF NOT EXISTS sum_of_squares DECIMAL(31,4) DEFAULT 0 NOT NULL");
+            // Kept out of the secondary index registry: uniqueness must hold during bulk restores too.
+            stmt.execute("CREATE UNIQUE INDEX IF NOT EXISTS " + IDEMPOTENCY_KEY_INDEX + " ON transactions(idempotency_key)");
             logger.info("Tables created/verified successfully");
         }
     }
+
+    /**
+     * Creates the secondary indexes that do not exist yet.
+     */
+    public void createSecondaryIndexes(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (Map.Entry<String, String> index : SECONDARY_INDEXES.entrySet()) {
+                stmt.execute("CREATE INDEX IF NOT EXISTS " + index.getKey() + " ON " + index.getValue());
+            }
+        }
+    }
+
+    /**
+     * Drops the secondary indexes, e.g. before a bulk load.
+     */
+    public void dropSecondaryIndexes(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String indexName : SECONDARY_INDEXES.keySet()) {
+                stmt.execute("DROP INDEX IF EXISTS " + indexName);
+            }
+        }
+    }
     
-    public void closeConnection() {
+    /**
+     * Releases all pooled connections. A later call to getConnection opens a new pool.
+     */
+    public synchronized void closeConnection() {
         logger.info("Closing database connections");
+        if (connectionPool != null) {
+            connectionPool.dispose();
+            connectionPool = null;
+        }
+        if (readConnectionPool != null) {
+            readConnectionPool.dispose();
+            readConnectionPool = null;
+        }
     }
 }
-
-
-
@@ -0,0 +1,73 @@
+package org.finance.database;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Runs a MERGE ... WHEN NOT MATCHED THEN INSERT statement for many rows in batches.
+ * <p>
+ * Two transactions merging the same new key both take the insert branch, and the one
+ * that commits second fails with a duplicate key. The rows of the batch that failed
+ * that way are merged again one at a time: by then the other row is committed, so the
+ * retry takes the update branch. Any other failure is rethrown.
+ */
+public final class MergeBatch {
+    private static final String DUPLICATE_KEY_STATE = "23505";
+    private static final int MAX_ATTEMPTS = 3;
+
+    private MergeBatch() {
+    }
+
+    public static void execute(Connection conn, String sql, List<Object[]> rows, int batchSize) throws SQLException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int from = 0; from < rows.size(); from += batchSize) {
+                List<Object[]> chunk = rows.subList(from, Math.min(from + batchSize, rows.size()));
+                for (Object[] row : chunk) {
+                    bind(stmt, row);
+                    stmt.addBatch();
+                }
+                try {
+                    stmt.executeBatch();
+                } catch (BatchUpdateException e) {
+                    stmt.clearBatch();
+                    retryFailed(stmt, chunk, e);
+                }
+            }
+        }
+    }
+    private static void retryFailed(PreparedStatement stmt, List<Object[]> chunk, BatchUpdateException e) throws SQLException {
+        int[] counts = e.getUpdateCounts();
+        if (counts == null || counts.length != chunk.size()) {
+            throw e;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == Statement.EXECUTE_FAILED) {
+                bind(stmt, chunk.get(i));
+                executeWithRetry(stmt);
+            }
+        }
+    }
+    private static void executeWithRetry(PreparedStatement stmt) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                stmt.executeUpdate();
+                return;
+            } catch (SQLException e) {
+                if (!DUPLICATE_KEY_STATE.equals(e.getSQLState()) || attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+    private static void bind(PreparedStatement stmt, Object[] row) throws SQLException {
+        for (int i = 0; i < row.length; i++) {
+            stmt.setObject(i + 1, row[i]);
+        }
+    }
+}
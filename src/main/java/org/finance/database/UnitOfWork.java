@@ -0,0 +1,28 @@
+package org.finance.database;
+import java.util.function.Supplier;
+/**
+ * Unit of Work that groups several repository writes into a single database transaction.
+ * All repository calls made inside the work share one connection and one commit;
+ * if the work throws, every write is rolled back.
+ */
+public interface UnitOfWork {
+    /**
+     * Executes the work inside a transaction and returns its result.
+     * Nested calls join the transaction already open on the current thread.
+     */
+    <T> T execute(Supplier<T> work);
+    /**
+     * Executes work without a result inside a transaction.
+     */
+    default void run(Runnable work) {
+        execute(() -> {
+            work.run();
+            return null;
+        });
+    }
+    /**
+     * Gets a value that changes whenever a write commits, so caches of derived
+     * data can tell whether anything was written since they were filled.
+     */
+    long getWriteEpoch();
+}
@@ -0,0 +1,59 @@
+package org.finance.dedup;
+import java.util.concurrent.atomic.AtomicLongArray;
+/**
+ * Thread-safe Bloom filter over transaction fingerprints.
+ * A negative answer is definite; a positive answer must be confirmed with an exact lookup.
+ * The k bit positions are derived from the two halves of the fingerprint by double hashing,
+ * so no further hashing is needed.
+ */
+public class BloomFilter {
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * Sizes the filter for the expected number of entries and false positive probability.
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveProbability) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("Expected insertions must be positive");
+        }
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("False positive probability must be between 0 and 1");
+        }
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, (bits + 63) / 64);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = (long) wordCount * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+    public void put(TransactionFingerprint fingerprint) {
+        long combined = fingerprint.high();
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(combined, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            if ((words.get(word) & mask) == 0) {
+                words.getAndAccumulate(word, mask, (current, bitMask) -> current | bitMask);
+            }
+            combined += fingerprint.low();
+        }
+    }
+    public boolean mightContain(TransactionFingerprint fingerprint) {
+        long combined = fingerprint.high();
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(combined, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+            combined += fingerprint.low();
+        }
+        return true;
+    }
+    public long getBitCount() {
+        return bitCount;
+    }
+    public int getHashCount() {
+        return hashCount;
+    }
+}
@@ -0,0 +1,267 @@
+package org.finance.dedup;
+import org.finance.archive.ArchiveCatalog;
+import org.finance.database.DatabaseManager;
+import org.finance.model.Transaction;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+/**
+ * Detects transactions that are already in the ledger by fingerprint.
+ * Every candidate is first checked against an in-memory Bloom filter seeded from the
+ * hot table and the archive partitions; only the few that might be present are
+ * confirmed with batched lookups on the fingerprint indexes, so new rows never cost
+ * a query.
+ * <p>
+ * The filter is built on the first lookup rather than at startup, so sessions that
+ * never import do not pay for the scan; {@link #invalidate()} drops it after the
+ * ledger is replaced, e.g. by a restore.
+ * <p>
+ * There is one detector per database. The transaction repository records every
+ * committed save in it, whichever path wrote the row (import, manual entry, recurring
+ * catch-up), so a stored row is never a Bloom negative. Rows committed while the filter
+ * is being seeded are queued and added once the seed is in place.
+ * <p>
+ * Only rows already stored count as duplicates: identical rows within the same
+ * batch of candidates (two coffees on the same day) are kept. Checking and saving are
+ * separate steps, so callers that save concurrently can both save the same new row.
+ */
+public class DuplicateDetector {
+    private static final Logger logger = Logger.getLogger(DuplicateDetector.class.getName());
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+    private static final long MIN_CAPACITY = 100_000;
+    private static final int LOOKUP_BATCH_SIZE = 500;
+    private static final int BACKFILL_BATCH_SIZE = 1_000;
+    private static final Map<DatabaseManager, DuplicateDetector> detectors = new ConcurrentHashMap<>();
+    private final DatabaseManager dbManager;
+    private final ArchiveCatalog archiveCatalog;
+    private final Object recordLock = new Object();
+    private volatile BloomFilter filter;
+    /** Fingerprints recorded while a seed runs, or null when no seed is running. */
+    private List<TransactionFingerprint> recordedWhileSeeding;
+
+    private DuplicateDetector(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+        this.archiveCatalog = ArchiveCatalog.forDatabase(dbManager);
+    }
+    public static DuplicateDetector forDatabase(DatabaseManager dbManager) {
+        Objects.requireNonNull(dbManager, "Database manager cannot be null");
+        return detectors.computeIfAbsent(dbManager, DuplicateDetector::new);
+    }
+    /**
+     * Builds the Bloom filter from the fingerprint column, sized for twice the current
+     * ledger so later imports do not degrade it. Rows saved before fingerprints existed
+     * are fingerprinted first.
+     */
+    public synchronized void seed() {
+        synchronized (recordLock) {
+            recordedWhileSeeding = new ArrayList<>();
+        }
+        BloomFilter seeded = null;
+        try {
+            seeded = scan();
+        } finally {
+            synchronized (recordLock) {
+                if (seeded != null) {
+                    recordedWhileSeeding.forEach(seeded::put);
+                    filter = seeded;
+                }
+                recordedWhileSeeding = null;
+            }
+        }
+    }
+    /**
+     * Builds a filter from the fingerprints stored in the hot table and the archives.
+     */
+    private BloomFilter scan() {
+        backfillMissingFingerprints();
+        String source = archiveCatalog.allTransactions();
+        String sql = "SELECT fingerprint FROM " + source;
+        try (Connection conn = dbManager.getReadConnection()) {
+            long rows;
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + source)) {
+                rs.next();
+                rows = rs.getLong(1);
+            }
+            BloomFilter seeded = new BloomFilter(Math.max(MIN_CAPACITY, rows * 2), FALSE_POSITIVE_PROBABILITY);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("SET LAZY_QUERY_EXECUTION TRUE");
+                stmt.setFetchSize(10_000);
+                try (ResultSet rs = stmt.executeQuery(sql)) {
+                    while (rs.next()) {
+                        String fingerprint = rs.getString(1);
+                        if (fingerprint != null) {
+                            seeded.put(TransactionFingerprint.fromHex(fingerprint));
+                        }
+                    }
+                } finally {
+                    stmt.execute("SET LAZY_QUERY_EXECUTION FALSE");
+                }
+            }
+            logger.info("Filtro duplicati inizializzato: " + rows + " transazioni, "
+                    + seeded.getBitCount() / 8 / 1024 + " KB");
+            return seeded;
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nell'inizializzazione del filtro duplicati", e);
+            throw new RuntimeException("Errore nell'inizializzazione del filtro duplicati", e);
+        }
+    }
+    /**
+     * Returns the transactions whose fingerprint is not already stored, in their original order.
+     */
+    public List<Transaction> filterNew(List<Transaction> candidates) {
+        BloomFilter current = seeded();
+        List<TransactionFingerprint> fingerprints = new ArrayList<>(candidates.size());
+        List<String> maybePresent = new ArrayList<>();
+        for (Transaction transaction : candidates) {
+            TransactionFingerprint fingerprint = TransactionFingerprint.of(transaction);
+            fingerprints.add(fingerprint);
+            if (current.mightContain(fingerprint)) {
+                maybePresent.add(fingerprint.toHex());
+            }
+        }
+        if (maybePresent.isEmpty()) {
+            return candidates;
+        }
+        Set<String> existing = findExisting(maybePresent);
+        if (existing.isEmpty()) {
+            return candidates;
+        }
+        List<Transaction> fresh = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            if (!existing.contains(fingerprints.get(i).toHex())) {
+                fresh.add(candidates.get(i));
+            }
+        }
+        return fresh;
+    }
+    /**
+     * Adds committed transactions to the filter so later imports see them; called by
+     * the transaction repository after each save commits. Without a filter there is
+     * nothing to do: the next seed reads them from the table.
+     */
+    public void record(List<Transaction> saved) {
+        List<TransactionFingerprint> fingerprints = saved.stream().map(TransactionFingerprint::of).toList();
+        synchronized (recordLock) {
+            if (recordedWhileSeeding != null) {
+                recordedWhileSeeding.addAll(fingerprints);
+            }
+        }
+        BloomFilter current = filter;
+        if (current != null) {
+            fingerprints.forEach(current::put);
+        }
+    }
+    public boolean isSeeded() {
+        return filter != null;
+    }
+    /**
+     * Drops the filter; the next lookup seeds it again from the database.
+     */
+    public void invalidate() {
+        filter = null;
+    }
+    private BloomFilter seeded() {
+        BloomFilter current = filter;
+        if (current == null) {
+            synchronized (this) {
+                if (filter == null) {
+                    seed();
+                }
+                current = filter;
+            }
+        }
+        return current;
+    }
+    /**
+     * Looks the fingerprints up table by table, so each query uses the fingerprint
+     * index of the hot table or of one archive partition.
+     */
+    private Set<String> findExisting(List<String> fingerprints) {
+        Set<String> existing = new HashSet<>();
+        String placeholders = String.join(", ", Collections.nCopies(LOOKUP_BATCH_SIZE, "?"));
+        try (Connection conn = dbManager.getReadConnection()) {
+            for (String table : transactionTables()) {
+                String sql = "SELECT fingerprint FROM " + table + " WHERE fingerprint IN (" + placeholders + ")";
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    for (int from = 0; from < fingerprints.size(); from += LOOKUP_BATCH_SIZE) {
+                        List<String> batch = fingerprints.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, fingerprints.size()));
+                        for (int i = 0; i < LOOKUP_BATCH_SIZE; i++) {
+                            // pad the last batch by repeating a value so one statement serves every batch
+                            stmt.setString(i + 1, batch.get(Math.min(i, batch.size() - 1)));
+                        }
+                        try (ResultSet rs = stmt.executeQuery()) {
+                            while (rs.next()) {
+                                existing.add(rs.getString(1));
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nella ricerca dei duplicati", e);
+            throw new RuntimeException("Errore nella ricerca dei duplicati", e);
+        }
+        return existing;
+    }
+    private List<String> transactionTables() {
+        List<String> tables = new ArrayList<>();
+        tables.add("transactions");
+        archiveCatalog.getArchivedYears().forEach(year -> tables.add(ArchiveCatalog.tableName(year)));
+        return tables;
+    }
+    private void backfillMissingFingerprints() {
+        long updated = 0;
+        for (String table : transactionTables()) {
+            updated += backfillMissingFingerprints(table);
+        }
+        if (updated > 0) {
+            logger.info("Impronte calcolate per " + updated + " transazioni esistenti");
+        }
+    }
+    private long backfillMissingFingerprints(String table) {
+        String select = "SELECT id, amount, timestamp, description, category_name FROM " + table + " WHERE fingerprint IS NULL";
+        String update = "UPDATE " + table + " SET fingerprint = ? WHERE id = ?";
+        long updated = 0;
+        try (Connection conn = dbManager.getConnection();
+             Statement query = conn.createStatement();
+             ResultSet rs = query.executeQuery(select);
+             PreparedStatement stmt = conn.prepareStatement(update)) {
+            int pending = 0;
+            while (rs.next()) {
+                BigDecimal amount = rs.getBigDecimal("amount");
+                TransactionFingerprint fingerprint = TransactionFingerprint.of(amount,
+                        rs.getTimestamp("timestamp").toLocalDateTime(), rs.getString("description"),
+                        rs.getString("category_name"));
+                stmt.setString(1, fingerprint.toHex());
+                stmt.setString(2, rs.getString("id"));
+                stmt.addBatch();
+                updated++;
+                if (++pending == BACKFILL_BATCH_SIZE) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nel calcolo delle impronte mancanti", e);
+            throw new RuntimeException("Errore nel calcolo delle impronte mancanti", e);
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,56 @@
+package org.finance.dedup;
+import org.finance.model.Transaction;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+/**
+ * 128-bit fingerprint of the fields that identify a transaction on a bank statement:
+ * amount, timestamp, description and category. The id is deliberately left out,
+ * since every import assigns a fresh one.
+ * Descriptions and category names are compared ignoring case and repeated whitespace.
+ */
+public record TransactionFingerprint(long high, long low) {
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+    public static TransactionFingerprint of(Transaction transaction) {
+        return of(transaction.getAmount(), transaction.getTimestamp(), transaction.getDescription(),
+                transaction.getCategory().getName());
+    }
+    public static TransactionFingerprint of(BigDecimal amount, LocalDateTime timestamp, String description,
+                                            String categoryName) {
+        String canonical = amount.setScale(2, RoundingMode.HALF_UP).toPlainString()
+                + '|' + timestamp.truncatedTo(ChronoUnit.SECONDS)
+                + '|' + normalize(description)
+                + '|' + normalize(categoryName);
+        byte[] digest = SHA_256.get().digest(canonical.getBytes(StandardCharsets.UTF_8));
+        ByteBuffer buffer = ByteBuffer.wrap(digest);
+        return new TransactionFingerprint(buffer.getLong(), buffer.getLong());
+    }
+    /**
+     * Parses the 32 hex digit form stored in the fingerprint column.
+     */
+    public static TransactionFingerprint fromHex(String hex) {
+        if (hex == null || hex.length() != 32) {
+            throw new IllegalArgumentException("Invalid fingerprint: " + hex);
+        }
+        return new TransactionFingerprint(Long.parseUnsignedLong(hex.substring(0, 16), 16),
+                Long.parseUnsignedLong(hex.substring(16), 16));
+    }
+    public String toHex() {
+        return String.format("%016x%016x", high, low);
+    }
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
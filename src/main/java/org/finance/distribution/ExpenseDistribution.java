@@ -0,0 +1,162 @@
+package org.finance.distribution;
+import org.finance.archive.ArchiveCatalog;
+import org.finance.database.DatabaseManager;
+import org.finance.database.MergeBatch;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+/**
+ * Expense amount histograms per category and month, stored sparsely in
+ * expense_histograms as one row per non-empty bucket.
+ * <p>
+ * The repository keeps them in step with the transactions in the same unit of work,
+ * reading back the stored rows so the stored type decides what counts as an expense.
+ * Archiving leaves them untouched. They are derived data: snapshots do not carry them
+ * and restores rebuild them. Percentile reports merge the histograms of the requested
+ * months, so their cost depends on the number of categories and months, not on the
+ * number of transactions.
+ */
+public class ExpenseDistribution {
+    private static final Logger logger = Logger.getLogger(ExpenseDistribution.class.getName());
+    private static final int BATCH_SIZE = 10_000;
+    private static final String MERGE = """
+        MERGE INTO expense_histograms h USING (VALUES (?, ?, ?, ?, ?)) v(c, y, m, b, n)
+        ON h.category_name = v.c AND h.histogram_year = v.y AND h.histogram_month = v.m AND h.bucket = v.b
+        WHEN MATCHED THEN UPDATE SET transaction_count = h.transaction_count + v.n
+        WHEN NOT MATCHED THEN INSERT (category_name, histogram_year, histogram_month, bucket, transaction_count)
+            VALUES (v.c, v.y, v.m, v.b, v.n)
+    """;
+    private final DatabaseManager dbManager;
+
+    public ExpenseDistribution(DatabaseManager dbManager) {
+        this.dbManager = Objects.requireNonNull(dbManager, "Database manager cannot be null");
+    }
+    /**
+     * Adds (sign 1) or removes (sign -1) the stored expenses with the given ids.
+     * Call it after inserting the rows, or before replacing or deleting them.
+     *
+     * @param source table or union of tables holding the rows
+     */
+    public static void apply(Connection conn, String source, Collection<String> ids, int sign) throws SQLException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        String sql = "SELECT COALESCE(category_name, ''), YEAR(timestamp), MONTH(timestamp), amount FROM " + source
+                + " WHERE type = 'EXPENSE' AND id = ANY(?)";
+        Map<BucketKey, Long> deltas = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setObject(1, ids.toArray());
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                deltas.merge(BucketKey.of(rs), (long) sign, Long::sum);
+            }
+        }
+        write(conn, deltas);
+    }
+    /**
+     * Builds the histograms of every expense of the given source on the caller's
+     * transaction. The table must be empty.
+     */
+    public static void rebuild(Connection conn, String source) throws SQLException {
+        long start = System.nanoTime();
+        Map<BucketKey, Long> counts = new HashMap<>();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.setFetchSize(BATCH_SIZE);
+            ResultSet rs = stmt.executeQuery("SELECT COALESCE(category_name, ''), YEAR(timestamp), MONTH(timestamp), amount FROM "
+                    + source + " WHERE type = 'EXPENSE'");
+            while (rs.next()) {
+                counts.merge(BucketKey.of(rs), 1L, Long::sum);
+            }
+        }
+        write(conn, counts);
+        logger.info("Istogrammi di spesa costruiti: " + counts.size() + " intervalli in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+    private static void write(Connection conn, Map<BucketKey, Long> deltas) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        for (Map.Entry<BucketKey, Long> delta : deltas.entrySet()) {
+            if (delta.getValue() == 0) {
+                continue;
+            }
+            BucketKey key = delta.getKey();
+            rows.add(new Object[] {key.category(), key.month().getYear(), key.month().getMonthValue(),
+                    key.bucket(), delta.getValue()});
+        }
+        MergeBatch.execute(conn, MERGE, rows, BATCH_SIZE);
+    }
+    /**
+     * Builds the histograms when there are none but expenses exist, e.g. on a ledger
+     * created before they were introduced.
+     */
+    public void ensureBuilt() {
+        try (Connection conn = dbManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("""
+                 SELECT NOT EXISTS(SELECT 1 FROM expense_histograms)
+                     AND (EXISTS(SELECT 1 FROM transactions WHERE type = 'EXPENSE') OR EXISTS(SELECT 1 FROM archive_partitions))
+             """)) {
+            rs.next();
+            if (!rs.getBoolean(1)) {
+                return;
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nella verifica degli istogrammi di spesa", e);
+            throw new RuntimeException("Errore nella verifica degli istogrammi di spesa", e);
+        }
+        dbManager.run(() -> {
+            try (Connection conn = dbManager.getConnection()) {
+                rebuild(conn, ArchiveCatalog.forDatabase(dbManager).allTransactions());
+            } catch (SQLException e) {
+                logger.log(Level.SEVERE, "Errore nella costruzione degli istogrammi di spesa", e);
+                throw new RuntimeException("Errore nella costruzione degli istogrammi di spesa", e);
+            }
+        });
+    }
+    /**
+     * Merges the histograms of each category over the months from first to last,
+     * both included; null bounds are open.
+     */
+    public Map<String, ExpenseHistogram> histogramsByCategory(YearMonth first, YearMonth last) {
+        String sql = """
+            SELECT category_name, bucket, SUM(transaction_count) FROM expense_histograms
+            WHERE histogram_year * 12 + histogram_month BETWEEN ? AND ?
+            GROUP BY category_name, bucket
+        """;
+        Map<String, ExpenseHistogram> histograms = new HashMap<>();
+        try (Connection conn = dbManager.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, first == null ? Integer.MIN_VALUE : first.getYear() * 12 + first.getMonthValue());
+            stmt.setInt(2, last == null ? Integer.MAX_VALUE : last.getYear() * 12 + last.getMonthValue());
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                long count = rs.getLong(3);
+                if (count > 0) {
+                    histograms.computeIfAbsent(rs.getString(1), category -> new ExpenseHistogram())
+                            .add(rs.getInt(2), count);
+                }
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nel calcolo della distribuzione delle spese", e);
+            throw new RuntimeException("Errore nel calcolo della distribuzione delle spese", e);
+        }
+        return histograms;
+    }
+    private record BucketKey(String category, YearMonth month, int bucket) {
+        private static BucketKey of(ResultSet rs) throws SQLException {
+            BigDecimal amount = rs.getBigDecimal(4);
+            return new BucketKey(rs.getString(1), YearMonth.of(rs.getInt(2), rs.getInt(3)), ExpenseHistogram.bucketOf(amount));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.finance.distribution;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+/**
+ * Fixed-size histogram of expense amounts with logarithmic buckets.
+ * Bucket i holds amounts in (MIN * GAMMA^(i-1), MIN * GAMMA^i], so any quantile is
+ * answered within {@link #RELATIVE_ACCURACY} of the true value whatever the number of
+ * amounts recorded. Histograms merge by adding counts, which is how periods and
+ * categories are combined.
+ * <p>
+ * Bucket indexes are persisted, so they are computed with {@link StrictMath} to be the
+ * same on every JVM.
+ */
+public final class ExpenseHistogram {
+    public static final double RELATIVE_ACCURACY = 0.01;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = StrictMath.log(GAMMA);
+    private static final double MIN_AMOUNT = 0.01;
+    /** Enough buckets for every amount a DECIMAL(15,2) column can hold. */
+    public static final int BUCKET_COUNT = (int) Math.ceil(StrictMath.log(1e13 / MIN_AMOUNT) / LOG_GAMMA) + 1;
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long count;
+
+    public static int bucketOf(BigDecimal amount) {
+        double value = amount.abs().doubleValue();
+        if (value <= MIN_AMOUNT) {
+            return 0;
+        }
+        int bucket = (int) Math.ceil(StrictMath.log(value / MIN_AMOUNT) / LOG_GAMMA);
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+    /**
+     * Gets the value reported for a bucket: the point with the same relative distance
+     * to both bounds.
+     */
+    public static BigDecimal bucketValue(int bucket) {
+        double value = MIN_AMOUNT * 2 * StrictMath.pow(GAMMA, bucket) / (GAMMA + 1);
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP).max(BigDecimal.valueOf(MIN_AMOUNT));
+    }
+    public void add(BigDecimal amount) {
+        add(bucketOf(amount), 1);
+    }
+    public void add(int bucket, long bucketCount) {
+        if (bucketCount < 0) {
+            throw new IllegalArgumentException("Bucket count cannot be negative");
+        }
+        counts[bucket] += bucketCount;
+        count += bucketCount;
+    }
+    public void merge(ExpenseHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+    }
+    public long getCount() {
+        return count;
+    }
+    public boolean isEmpty() {
+        return count == 0;
+    }
+    /**
+     * Gets the quantile q (0.5 for the median) by nearest rank.
+     */
+    public BigDecimal quantile(double q) {
+        if (!(q > 0 && q <= 1)) {
+            throw new IllegalArgumentException("Quantile must be in (0, 1]");
+        }
+        if (count == 0) {
+            throw new IllegalStateException("Histogram is empty");
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return bucketValue(i);
+            }
+        }
+        throw new IllegalStateException("Histogram counts are inconsistent");
+    }
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ExpenseHistogram other && count == other.count && Arrays.equals(counts, other.counts);
+    }
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(counts);
+    }
+}
@@ -0,0 +1,37 @@
+package org.finance.exporter;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+/**
+ * Restricts which transactions are exported. Null fields are not applied.
+ *
+ * @param from         inclusive lower bound of the transaction timestamp
+ * @param to           exclusive upper bound of the transaction timestamp, like the other
+ *                     range searches: the start of the day after the last one to export
+ * @param categoryName exact category name
+ * @param type         stored transaction type (INCOME, EXPENSE or INVESTMENT)
+ */
+public record ExportFilter(LocalDateTime from, LocalDateTime to, String categoryName, String type) {
+    public ExportFilter {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("Start date must be before end date");
+        }
+    }
+    public static ExportFilter all() {
+        return new ExportFilter(null, null, null, null);
+    }
+    public static ExportFilter between(LocalDateTime from, LocalDateTime to) {
+        return new ExportFilter(from, to, null, null);
+    }
+    /**
+     * Covers the days from start to end, both included.
+     */
+    public static ExportFilter betweenDates(LocalDate start, LocalDate end) {
+        return between(start.atStartOfDay(), end.plusDays(1).atStartOfDay());
+    }
+    public ExportFilter withCategory(String categoryName) {
+        return new ExportFilter(from, to, categoryName, type);
+    }
+    public ExportFilter withType(String type) {
+        return new ExportFilter(from, to, categoryName, type);
+    }
+}
@@ -0,0 +1,17 @@
+package org.finance.exporter;
+/**
+ * Output formats supported by the exporter.
+ */
+public enum ExportFormat {
+    /** Semicolon separated values with a header line, readable by the CSV importer. */
+    CSV(".csv"),
+    /** One JSON object per line. */
+    JSON_LINES(".jsonl");
+    private final String extension;
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+    public String getExtension() {
+        return extension;
+    }
+}
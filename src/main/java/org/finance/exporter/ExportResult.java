@@ -0,0 +1,20 @@
+package org.finance.exporter;
+import java.nio.file.Path;
+import java.time.Duration;
+/**
+ * Outcome of an export.
+ */
+public record ExportResult(long rowsWritten, long bytesWritten, Duration elapsed, Path file) {
+    /**
+     * Gets the export throughput.
+     */
+    public double rowsPerSecond() {
+        double seconds = elapsed.toNanos() / 1_000_000_000.0;
+        return seconds == 0 ? rowsWritten : rowsWritten / seconds;
+    }
+    @Override
+    public String toString() {
+        return String.format("ExportResult{righe=%d, byte=%d, durata=%dms, righe/s=%.0f}",
+                rowsWritten, bytesWritten, elapsed.toMillis(), rowsPerSecond());
+    }
+}
@@ -0,0 +1,264 @@
+package org.finance.exporter;
+import org.finance.archive.ArchiveCatalog;
+import org.finance.database.DatabaseManager;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.logging.Logger;
+/**
+ * Exports transactions and category reports to CSV or JSON lines.
+ * Rows go straight from the JDBC cursor to a buffered writer on a FileChannel: the
+ * query runs with lazy execution so H2 does not materialize the result, and no
+ * Transaction objects are created. Memory use is the same for one month or ten years.
+ * Archive partitions are read only for the years the filter reaches.
+ * <p>
+ * The first five CSV columns follow the importer's default layout
+ * (data;descrizione;importo;categoria;tipo, expenses and investments negative), so an
+ * export can be imported back with its types. The currency column is informational:
+ * the importer assigns the mapping's currency to every row.
+ */
+public class TransactionExporter {
+    private static final Logger logger = Logger.getLogger(TransactionExporter.class.getName());
+    private static final int FETCH_SIZE = 1_000;
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+    private static final char CSV_DELIMITER = ';';
+    private static final DateTimeFormatter CSV_DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private final DatabaseManager dbManager;
+    private final ArchiveCatalog archiveCatalog;
+
+    public TransactionExporter(DatabaseManager dbManager) {
+        this.dbManager = Objects.requireNonNull(dbManager, "Database manager cannot be null");
+        this.archiveCatalog = ArchiveCatalog.forDatabase(dbManager);
+    }
+    /**
+     * Exports the transactions matching the filter, oldest first.
+     */
+    public ExportResult exportTransactions(Path target, ExportFormat format, ExportFilter filter) throws IOException {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT id, timestamp, type, category_name, amount, currency, description FROM "
+                + archiveCatalog.source(filter.from(), filter.to())
+                + where(filter, params) + " ORDER BY timestamp, id";
+        RowWriter rowWriter = format == ExportFormat.CSV ? new RowWriter() {
+            @Override
+            public void header(Writer out) throws IOException {
+                out.write("data;descrizione;importo;categoria;tipo;valuta;id;timestamp\n");
+            }
+            @Override
+            public void row(ResultSet rs, Writer out) throws SQLException, IOException {
+                LocalDateTime timestamp = rs.getTimestamp("timestamp").toLocalDateTime();
+                String type = rs.getString("type");
+                out.write(CSV_DATE_FORMAT.format(timestamp));
+                out.write(CSV_DELIMITER);
+                writeCsvField(out, rs.getString("description"));
+                out.write(CSV_DELIMITER);
+                out.write(signedAmount(rs.getBigDecimal("amount"), type).toPlainString().replace('.', ','));
+                out.write(CSV_DELIMITER);
+                writeCsvField(out, rs.getString("category_name"));
+                out.write(CSV_DELIMITER);
+                out.write(type);
+                out.write(CSV_DELIMITER);
+                writeCsvField(out, rs.getString("currency"));
+                out.write(CSV_DELIMITER);
+                writeCsvField(out, rs.getString("id"));
+                out.write(CSV_DELIMITER);
+                out.write(timestamp.toString());
+                out.write('\n');
+            }
+        } : (rs, out) -> {
+            out.write("{\"id\":");
+            writeJsonString(out, rs.getString("id"));
+            out.write(",\"timestamp\":");
+            writeJsonString(out, rs.getTimestamp("timestamp").toLocalDateTime().toString());
+            out.write(",\"type\":");
+            writeJsonString(out, rs.getString("type"));
+            out.write(",\"category\":");
+            writeJsonString(out, rs.getString("category_name"));
+            out.write(",\"amount\":");
+            out.write(rs.getBigDecimal("amount").toPlainString());
+            out.write(",\"currency\":");
+            writeJsonString(out, rs.getString("currency"));
+            out.write(",\"description\":");
+            writeJsonString(out, rs.getString("description"));
+            out.write("}\n");
+        };
+        return export(target, sql, params, rowWriter);
+    }
+    /**
+     * Exports the number of transactions and the total amount per category and type.
+     */
+    public ExportResult exportCategoryTotals(Path target, ExportFormat format, ExportFilter filter) throws IOException {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT category_name, type, COUNT(*) AS transactions, SUM(amount) AS total FROM "
+                + archiveCatalog.source(filter.from(), filter.to())
+                + where(filter, params) + " GROUP BY category_name, type ORDER BY category_name, type";
+        RowWriter rowWriter = format == ExportFormat.CSV ? new RowWriter() {
+            @Override
+            public void header(Writer out) throws IOException {
+                out.write("categoria;tipo;transazioni;totale\n");
+            }
+            @Override
+            public void row(ResultSet rs, Writer out) throws SQLException, IOException {
+                writeCsvField(out, rs.getString("category_name"));
+                out.write(CSV_DELIMITER);
+                out.write(rs.getString("type"));
+                out.write(CSV_DELIMITER);
+                out.write(Long.toString(rs.getLong("transactions")));
+                out.write(CSV_DELIMITER);
+                out.write(rs.getBigDecimal("total").toPlainString().replace('.', ','));
+                out.write('\n');
+            }
+        } : (rs, out) -> {
+            out.write("{\"category\":");
+            writeJsonString(out, rs.getString("category_name"));
+            out.write(",\"type\":");
+            writeJsonString(out, rs.getString("type"));
+            out.write(",\"transactions\":");
+            out.write(Long.toString(rs.getLong("transactions")));
+            out.write(",\"total\":");
+            out.write(rs.getBigDecimal("total").toPlainString());
+            out.write("}\n");
+        };
+        return export(target, sql, params, rowWriter);
+    }
+    private ExportResult export(Path target, String sql, List<Object> params, RowWriter rowWriter) throws IOException {
+        long start = System.nanoTime();
+        long rows = 0;
+        boolean completed = false;
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             Writer out = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+             Connection conn = dbManager.getReadConnection()) {
+            setLazyExecution(conn, true);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < params.size(); i++) {
+                    stmt.setObject(i + 1, params.get(i));
+                }
+                stmt.setFetchSize(FETCH_SIZE);
+                rowWriter.header(out);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        rowWriter.row(rs, out);
+                        rows++;
+                    }
+                }
+            } finally {
+                setLazyExecution(conn, false);
+            }
+            out.flush();
+            completed = true;
+        } catch (SQLException e) {
+            throw new IOException("Errore nell'esportazione delle transazioni", e);
+        } finally {
+            if (!completed) {
+                Files.deleteIfExists(target);
+            }
+        }
+        ExportResult result = new ExportResult(rows, Files.size(target), Duration.ofNanos(System.nanoTime() - start), target);
+        logger.info("Esportazione completata in " + target + ": " + result);
+        return result;
+    }
+    private static void setLazyExecution(Connection conn, boolean enabled) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SET LAZY_QUERY_EXECUTION " + (enabled ? "TRUE" : "FALSE"));
+        }
+    }
+    private static String where(ExportFilter filter, List<Object> params) {
+        List<String> conditions = new ArrayList<>();
+        if (filter.from() != null) {
+            conditions.add("timestamp >= ?");
+            params.add(Timestamp.valueOf(filter.from()));
+        }
+        if (filter.to() != null) {
+            conditions.add("timestamp < ?");
+            params.add(Timestamp.valueOf(filter.to()));
+        }
+        if (filter.categoryName() != null) {
+            conditions.add("category_name = ?");
+            params.add(filter.categoryName());
+        }
+        if (filter.type() != null) {
+            conditions.add("type = ?");
+            params.add(filter.type());
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+    private static BigDecimal signedAmount(BigDecimal amount, String type) {
+        return "INCOME".equals(type) ? amount : amount.negate();
+    }
+    static void writeCsvField(Writer out, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == CSV_DELIMITER || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c == '\n' || c == '\r' ? ' ' : c);
+        }
+        out.write('"');
+    }
+    static void writeJsonString(Writer out, String value) throws IOException {
+        if (value == null) {
+            out.write("null");
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.write("\\\"");
+                case '\\' -> out.write("\\\\");
+                case '\n' -> out.write("\\n");
+                case '\r' -> out.write("\\r");
+                case '\t' -> out.write("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+                }
+            }
+        }
+        out.write('"');
+    }
+    /**
+     * Formats one result set row.
+     */
+    @FunctionalInterface
+    private interface RowWriter {
+        default void header(Writer out) throws IOException {
+        }
+        void row(ResultSet rs, Writer out) throws SQLException, IOException;
+    }
+}
@@ -1,6 +1,8 @@
 package org.finance.factory;
 import org.finance.model.*;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
 /**
  * Factory for the dynamic creation of transactions.
  */
@@ -25,6 +27,36 @@ public class TransactionFactory {
             default -> throw new IllegalArgumentException("Unsupported transaction type: " + type);
         };
     }
+    /**
+     * Creates a transaction of the specified type that happened at the given time
+     * (e.g. a row of an imported bank statement).
+     *
+     * @param type The type of transaction to create
+     * @param amount The amount of the transaction
+     * @param description The description of the transaction
+     * @param category The category of the transaction
+     * @param currency The currency of the transaction
+     * @param timestamp When the transaction happened
+     * @return The created transaction
+     * @throws IllegalArgumentException if the type is not supported
+     */
+    public static Transaction createTransaction(TransactionType type, BigDecimal amount, String description,
+                                                Category category, String currency, LocalDateTime timestamp) {
+        return createTransaction(UUID.randomUUID().toString(), type, amount, description, category, currency, timestamp);
+    }
+    /**
+     * Create a transaction with a caller-chosen id, so that writing it again replaces
+     * the same row instead of adding a new one.
+     */
+    public static Transaction createTransaction(String id, TransactionType type, BigDecimal amount, String description,
+                                                Category category, String currency, LocalDateTime timestamp) {
+        return switch (type) {
+            case INCOME -> new IncomeTransaction(id, amount, description, category, currency, timestamp);
+            case EXPENSE -> new ExpenseTransaction(id, amount, description, category, currency, timestamp);
+            case INVESTMENT -> new InvestmentTransaction(id, amount, description, category, currency, timestamp);
+            default -> throw new IllegalArgumentException("Unsupported transaction type: " + type);
+        };
+    }
     /**
      * Create an income transaction.
      */
@@ -0,0 +1,46 @@
+package org.finance.importer;
+import java.util.Objects;
+/**
+ * Describes how the columns of a bank statement CSV map onto transaction fields.
+ * Column indexes are zero-based; use {@link #NONE} for columns the file does not have.
+ * Without a type column, or on rows where it is missing or blank, the sign of the
+ * amount decides: negative rows are expenses, positive rows are income.
+ *
+ * @param dateColumn        column holding the transaction date
+ * @param amountColumn      column holding the amount
+ * @param descriptionColumn column holding the description
+ * @param categoryColumn    column holding the category name, or NONE to use the default category
+ * @param typeColumn        column holding INCOME/EXPENSE/INVESTMENT, or NONE to use the amount sign
+ * @param delimiter         field separator
+ * @param decimalSeparator  '.' or ',' (in which case '.' is treated as the thousands separator)
+ * @param hasHeader         whether the first line is a header to skip
+ * @param datePattern       DateTimeFormatter pattern of the date column
+ * @param currency          currency assigned to every imported transaction
+ * @param defaultCategory   category used when the row has none and no categorization rule matches,
+ *                          or null to reject such rows
+ */
+public record CsvColumnMapping(int dateColumn, int amountColumn, int descriptionColumn,
+                               int categoryColumn, int typeColumn, char delimiter,
+                               char decimalSeparator, boolean hasHeader, String datePattern,
+                               String currency, String defaultCategory) {
+    public static final int NONE = -1;
+    public CsvColumnMapping {
+        Objects.requireNonNull(datePattern, "Date pattern cannot be null");
+        Objects.requireNonNull(currency, "Currency cannot be null");
+        if (dateColumn < 0 || amountColumn < 0 || descriptionColumn < 0) {
+            throw new IllegalArgumentException("Date, amount and description columns are required");
+        }
+        if (decimalSeparator != '.' && decimalSeparator != ',') {
+            throw new IllegalArgumentException("Decimal separator must be '.' or ','");
+        }
+    }
+    /**
+     * Default layout: data;descrizione;importo;categoria[;tipo] with a header line,
+     * Italian number format and dd/MM/yyyy dates. The optional fifth column is the one
+     * written by the exporter, so investments survive an export and re-import; bank
+     * statements without it are typed by the amount sign.
+     */
+    public static CsvColumnMapping defaultMapping(String currency) {
+        return new CsvColumnMapping(0, 2, 1, 3, 4, ';', ',', true, "dd/MM/yyyy", currency, null);
+    }
+}
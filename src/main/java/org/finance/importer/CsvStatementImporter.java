@@ -0,0 +1,376 @@
+package org.finance.importer;
+import org.finance.categorization.TransactionCategorizer;
+import org.finance.database.DatabaseManager;
+import org.finance.dedup.DuplicateDetector;
+import org.finance.factory.TransactionFactory;
+import org.finance.model.Category;
+import org.finance.model.Transaction;
+import org.finance.model.TransactionType;
+import org.finance.repository.CategoryRepository;
+import org.finance.repository.TransactionRepository;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+/**
+ * Bulk importer for bank statement CSV files of any size.
+ * The file is read line by line and cut into chunks; chunks are parsed in parallel,
+ * turned into transactions through TransactionFactory and saved with one batch each.
+ * At most two chunks per worker are in memory at any time, so memory use does not
+ * depend on the file size. Rows that cannot be imported are written to a side file.
+ * Quoted fields may contain the delimiter but not line breaks.
+ * With a {@link DuplicateDetector} set, rows already in the ledger are skipped, so
+ * overlapping statements can be imported again safely.
+ * <p>
+ * The duplicate check and the save are two steps per chunk, not one atomic operation,
+ * and chunks run in parallel. A chunk only sees the rows committed before its check, so:
+ * <ul>
+ *   <li>two imports of overlapping statements running at the same time may both save
+ *       the overlapping rows; run imports one after the other;</li>
+ *   <li>identical rows of one statement are kept when they fall in the same chunk,
+ *       but a row identical to one in an earlier chunk is skipped if that chunk was
+ *       saved first.</li>
+ * </ul>
+ * With a {@link TransactionCategorizer} set, rows without a category are categorized by rule.
+ */
+public class CsvStatementImporter implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(CsvStatementImporter.class.getName());
+    private static final int DEFAULT_CHUNK_SIZE = 1_000;
+    private static final String REJECT_FILE_SUFFIX = ".rejected.csv";
+    private final TransactionRepository transactionRepository;
+    private final CategoryRepository categoryRepository;
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final int chunkSize;
+    private final Map<String, Optional<Category>> categoryCache;
+    private volatile DuplicateDetector duplicateDetector;
+    private volatile TransactionCategorizer categorizer;
+
+    /**
+     * Sizes the import pool to the cores, capped by the connections of the database
+     * the repositories write to.
+     */
+    public CsvStatementImporter(TransactionRepository transactionRepository, CategoryRepository categoryRepository,
+                                DatabaseManager dbManager) {
+        this(transactionRepository, categoryRepository,
+                Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), dbManager.getMaxConnections())),
+                DEFAULT_CHUNK_SIZE);
+    }
+    public CsvStatementImporter(TransactionRepository transactionRepository, CategoryRepository categoryRepository,
+                                int parallelism, int chunkSize) {
+        if (parallelism <= 0 || chunkSize <= 0) {
+            throw new IllegalArgumentException("Parallelism and chunk size must be positive");
+        }
+        this.transactionRepository = Objects.requireNonNull(transactionRepository, "Transaction repository cannot be null");
+        this.categoryRepository = Objects.requireNonNull(categoryRepository, "Category repository cannot be null");
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "csv-import-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.categoryCache = new ConcurrentHashMap<>();
+    }
+    /**
+     * Enables duplicate detection; the detector seeds itself on the first chunk.
+     */
+    public void setDuplicateDetector(DuplicateDetector duplicateDetector) {
+        this.duplicateDetector = duplicateDetector;
+    }
+    /**
+     * Enables rule-based categorization for rows without a category; the mapping's
+     * default category is used only when no rule matches.
+     */
+    public void setCategorizer(TransactionCategorizer categorizer) {
+        this.categorizer = categorizer;
+    }
+    /**
+     * Imports every row of the file. Rejected rows are written to
+     * {@code <file>.rejected.csv} as {@code line;reason;original row}.
+     */
+    public ImportResult importFile(Path csvFile, CsvColumnMapping mapping) throws IOException {
+        Objects.requireNonNull(mapping, "Mapping cannot be null");
+        long start = System.nanoTime();
+        Path rejectFile = csvFile.resolveSibling(csvFile.getFileName() + REJECT_FILE_SUFFIX);
+        RowParser parser = new RowParser(mapping);
+        int maxInFlight = parallelism * 2;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicLong imported = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        AtomicLong duplicates = new AtomicLong();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        long rowsRead = 0;
+        try (BufferedReader reader = Files.newBufferedReader(csvFile, StandardCharsets.UTF_8);
+             RejectWriter rejects = new RejectWriter(rejectFile, mapping.delimiter())) {
+            long lineNumber = 0;
+            if (mapping.hasHeader() && reader.readLine() != null) {
+                lineNumber++;
+            }
+            Chunk chunk = new Chunk(chunkSize);
+            String line;
+            while ((line = reader.readLine()) != null && failure.get() == null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                rowsRead++;
+                chunk.add(lineNumber, line);
+                if (chunk.size() == chunkSize) {
+                    submit(chunk, parser, rejects, inFlight, imported, rejected, duplicates, failure);
+                    chunk = new Chunk(chunkSize);
+                }
+            }
+            if (chunk.size() > 0) {
+                submit(chunk, parser, rejects, inFlight, imported, rejected, duplicates, failure);
+            }
+            inFlight.acquireUninterruptibly(maxInFlight);
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        if (rejected.get() == 0) {
+            Files.deleteIfExists(rejectFile);
+        }
+        ImportResult result = new ImportResult(rowsRead, imported.get(), rejected.get(), duplicates.get(),
+                Duration.ofNanos(System.nanoTime() - start), rejected.get() == 0 ? null : rejectFile);
+        logger.info("Import completato da " + csvFile + ": " + result);
+        return result;
+    }
+    private void submit(Chunk chunk, RowParser parser, RejectWriter rejects, Semaphore inFlight,
+                        AtomicLong imported, AtomicLong rejected, AtomicLong duplicates,
+                        AtomicReference<RuntimeException> failure) {
+        inFlight.acquireUninterruptibly();
+        try {
+            executor.execute(() -> {
+                try {
+                    processChunk(chunk, parser, rejects, imported, rejected, duplicates);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+    private void processChunk(Chunk chunk, RowParser parser, RejectWriter rejects,
+                              AtomicLong imported, AtomicLong rejected, AtomicLong duplicates) {
+        List<Transaction> transactions = new ArrayList<>(chunk.size());
+        List<Integer> accepted = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            try {
+                transactions.add(parser.parse(chunk.lines.get(i)));
+                accepted.add(i);
+            } catch (RuntimeException e) {
+                rejects.write(chunk.lineNumbers[i], e.getMessage(), chunk.lines.get(i));
+                rejected.incrementAndGet();
+            }
+        }
+        try {
+            DuplicateDetector detector = duplicateDetector;
+            List<Transaction> fresh = detector == null ? transactions : detector.filterNew(transactions);
+            transactionRepository.saveAll(fresh);
+            imported.addAndGet(fresh.size());
+            duplicates.addAndGet(transactions.size() - fresh.size());
+        } catch (RuntimeException e) {
+            for (int i : accepted) {
+                rejects.write(chunk.lineNumbers[i], "Errore di salvataggio: " + e.getMessage(), chunk.lines.get(i));
+            }
+            rejected.addAndGet(accepted.size());
+        }
+    }
+    private Category resolveCategory(String name) {
+        return categoryCache.computeIfAbsent(name, categoryRepository::findById)
+                .orElseThrow(() -> new IllegalArgumentException("Categoria sconosciuta: " + name));
+    }
+    /**
+     * Splits a CSV line, honouring double-quoted fields and doubled quotes inside them.
+     */
+    static List<String> splitLine(String line, char delimiter) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+    /**
+     * Converts CSV rows into transactions according to a mapping.
+     */
+    private final class RowParser {
+        private final CsvColumnMapping mapping;
+        private final DateTimeFormatter dateFormatter;
+        private final boolean dateHasTime;
+        private RowParser(CsvColumnMapping mapping) {
+            this.mapping = mapping;
+            // Strict resolution rejects impossible dates such as 31/02 instead of clamping them;
+            // it needs the proleptic year field 'u' rather than year-of-era 'y'.
+            this.dateFormatter = DateTimeFormatter.ofPattern(mapping.datePattern().replace('y', 'u'))
+                    .withResolverStyle(ResolverStyle.STRICT);
+            this.dateHasTime = mapping.datePattern().contains("H");
+        }
+        private Transaction parse(String line) {
+            List<String> fields = splitLine(line, mapping.delimiter());
+            LocalDateTime timestamp = parseTimestamp(field(fields, mapping.dateColumn()));
+            BigDecimal amount = parseAmount(field(fields, mapping.amountColumn()));
+            String description = field(fields, mapping.descriptionColumn());
+            String typeName = mapping.typeColumn() == CsvColumnMapping.NONE || mapping.typeColumn() >= fields.size()
+                    ? "" : field(fields, mapping.typeColumn());
+            TransactionType type;
+            if (typeName.isEmpty()) {
+                type = amount.signum() < 0 ? TransactionType.EXPENSE : TransactionType.INCOME;
+            } else {
+                type = parseType(typeName);
+            }
+            String categoryName = mapping.categoryColumn() == CsvColumnMapping.NONE
+                    ? "" : field(fields, mapping.categoryColumn());
+            Category category;
+            if (!categoryName.isEmpty()) {
+                category = resolveCategory(categoryName);
+            } else {
+                TransactionCategorizer rules = categorizer;
+                Optional<Category> matched = rules == null
+                        ? Optional.empty() : rules.categorize(description, amount.abs(), type);
+                if (matched.isPresent()) {
+                    category = matched.get();
+                } else if (mapping.defaultCategory() != null) {
+                    category = resolveCategory(mapping.defaultCategory());
+                } else {
+                    throw new IllegalArgumentException("Categoria mancante");
+                }
+            }
+            return TransactionFactory.createTransaction(type, amount.abs(), description,
+                    category, mapping.currency(), timestamp);
+        }
+        private String field(List<String> fields, int column) {
+            if (column >= fields.size()) {
+                throw new IllegalArgumentException("Colonna " + (column + 1) + " mancante");
+            }
+            return fields.get(column).trim();
+        }
+        private LocalDateTime parseTimestamp(String value) {
+            try {
+                return dateHasTime
+                        ? LocalDateTime.parse(value, dateFormatter)
+                        : LocalDate.parse(value, dateFormatter).atStartOfDay();
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Data non valida: " + value);
+            }
+        }
+        private BigDecimal parseAmount(String value) {
+            String normalized = value.replace(" ", "").replace(" ", "");
+            if (mapping.decimalSeparator() == ',') {
+                normalized = normalized.replace(".", "").replace(',', '.');
+            }
+            try {
+                BigDecimal amount = new BigDecimal(normalized);
+                if (amount.signum() == 0) {
+                    throw new IllegalArgumentException("Importo nullo");
+                }
+                return amount;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Importo non valido: " + value);
+            }
+        }
+        private TransactionType parseType(String value) {
+            try {
+                return TransactionType.valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Tipo non valido: " + value);
+            }
+        }
+    }
+    /**
+     * A block of consecutive CSV lines with their line numbers.
+     */
+    private static final class Chunk {
+        private final List<String> lines;
+        private final long[] lineNumbers;
+        private Chunk(int capacity) {
+            this.lines = new ArrayList<>(capacity);
+            this.lineNumbers = new long[capacity];
+        }
+        private void add(long lineNumber, String line) {
+            lineNumbers[lines.size()] = lineNumber;
+            lines.add(line);
+        }
+        private int size() {
+            return lines.size();
+        }
+    }
+    /**
+     * Thread-safe writer for the rejected rows side file.
+     */
+    private static final class RejectWriter implements AutoCloseable {
+        private final BufferedWriter writer;
+        private final char delimiter;
+        private RejectWriter(Path file, char delimiter) throws IOException {
+            this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+            this.delimiter = delimiter;
+        }
+        private synchronized void write(long lineNumber, String reason, String line) {
+            try {
+                String text = reason == null ? "Errore sconosciuto" : reason.replace(delimiter, ' ');
+                writer.write(lineNumber + String.valueOf(delimiter) + text + delimiter + line);
+                writer.newLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        @Override
+        public synchronized void close() throws IOException {
+            writer.close();
+        }
+    }
+}
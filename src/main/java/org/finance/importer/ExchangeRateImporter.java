@@ -0,0 +1,67 @@
+package org.finance.importer;
+import org.finance.model.ExchangeRate;
+import org.finance.repository.ExchangeRateRepository;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.logging.Logger;
+/**
+ * Loads exchange rates from a text file with one {@code date,currency,rate} row per
+ * line, the date in ISO format (2024-03-15) and the rate as units of the currency per
+ * one unit of the reference currency. Blank lines, lines starting with {@code #} and a
+ * header row are skipped; {@code ;} is accepted as delimiter.
+ * <p>
+ * Rates are reference data, so the file is loaded as a whole: a malformed row rejects
+ * the file and nothing is saved. Rows already loaded for the same currency and date
+ * are replaced, so a file can be loaded again after corrections.
+ */
+public class ExchangeRateImporter {
+    private static final Logger logger = Logger.getLogger(ExchangeRateImporter.class.getName());
+    private final ExchangeRateRepository exchangeRateRepository;
+
+    public ExchangeRateImporter(ExchangeRateRepository exchangeRateRepository) {
+        this.exchangeRateRepository = Objects.requireNonNull(exchangeRateRepository, "Exchange rate repository cannot be null");
+    }
+    /**
+     * Loads the file and returns the number of rates saved.
+     *
+     * @throws IllegalArgumentException if a row is malformed
+     */
+    public int importFile(Path file) throws IOException {
+        List<ExchangeRate> rates = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String row = line.strip();
+                if (row.isEmpty() || row.startsWith("#") || (lineNumber == 1 && row.toLowerCase().startsWith("date"))) {
+                    continue;
+                }
+                rates.add(parse(row, lineNumber));
+            }
+        }
+        exchangeRateRepository.saveAll(rates);
+        logger.info("Tassi di cambio caricati da " + file + ": " + rates.size());
+        return rates.size();
+    }
+    private static ExchangeRate parse(String row, int lineNumber) {
+        String[] fields = row.split("[,;]");
+        if (fields.length != 3) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": expected date, currency and rate");
+        }
+        try {
+            return new ExchangeRate(fields[1], LocalDate.parse(fields[0].strip()), new BigDecimal(fields[2].strip()));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.finance.importer;
+import java.nio.file.Path;
+import java.time.Duration;
+/**
+ * Outcome of a bulk import.
+ */
+public record ImportResult(long rowsRead, long rowsImported, long rowsRejected, long rowsDuplicate,
+                           Duration elapsed, Path rejectFile) {
+    /**
+     * Gets the import throughput measured on every row read.
+     */
+    public double rowsPerSecond() {
+        double seconds = elapsed.toNanos() / 1_000_000_000.0;
+        return seconds == 0 ? rowsRead : rowsRead / seconds;
+    }
+    @Override
+    public String toString() {
+        return String.format("ImportResult{letti=%d, importati=%d, scartati=%d, duplicati=%d, durata=%dms, righe/s=%.0f}",
+                rowsRead, rowsImported, rowsRejected, rowsDuplicate, elapsed.toMillis(), rowsPerSecond());
+    }
+}
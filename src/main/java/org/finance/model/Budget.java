@@ -30,12 +30,15 @@ public class Budget {
         }
     }
     public Budget(String id, Category category, BigDecimal amount, YearMonth period) {
+        this(id, category, amount, period, BigDecimal.ZERO);
+    }
+    public Budget(String id, Category category, BigDecimal amount, YearMonth period, BigDecimal spent) {
         this.id = Objects.requireNonNull(id, "ID cannot be null");
         this.category = Objects.requireNonNull(category, "Category cannot be null");
         this.amount = Objects.requireNonNull(amount, "Amount cannot be null");
         this.period = Objects.requireNonNull(period, "Period cannot be null");
         this.currency = "EUR"; // Default currency dal database
-        this.spent = BigDecimal.ZERO;
+        this.spent = Objects.requireNonNull(spent, "Spent cannot be null");
         this.createdAt = LocalDate.now();
         if (amount.compareTo(BigDecimal.ZERO) <= 0) {
             throw new IllegalArgumentException("Budget amount must be positive");
@@ -0,0 +1,99 @@
+package org.finance.model;
+import java.math.BigDecimal;
+import java.util.Objects;
+import java.util.UUID;
+/**
+ * Rule assigning a category to transactions whose description contains a keyword
+ * and/or whose amount falls in a range. Keywords are matched case-insensitively;
+ * bounds are inclusive and compared with the absolute amount.
+ * When several rules match, the highest priority wins, then the longest keyword.
+ */
+public class CategorizationRule {
+    private final String id;
+    private final String keyword;
+    private final BigDecimal minAmount;
+    private final BigDecimal maxAmount;
+    private final TransactionType type;
+    private final Category category;
+    private final int priority;
+
+    public CategorizationRule(String keyword, BigDecimal minAmount, BigDecimal maxAmount, TransactionType type,
+                              Category category, int priority) {
+        this(UUID.randomUUID().toString(), keyword, minAmount, maxAmount, type, category, priority);
+    }
+    public CategorizationRule(String id, String keyword, BigDecimal minAmount, BigDecimal maxAmount,
+                              TransactionType type, Category category, int priority) {
+        this.id = Objects.requireNonNull(id, "ID cannot be null");
+        this.keyword = keyword == null || keyword.isBlank() ? null : normalizeKeyword(keyword);
+        this.minAmount = minAmount;
+        this.maxAmount = maxAmount;
+        this.type = type;
+        this.category = Objects.requireNonNull(category, "Category cannot be null");
+        this.priority = priority;
+        if (this.keyword == null && minAmount == null && maxAmount == null) {
+            throw new IllegalArgumentException("A rule needs a keyword or an amount range");
+        }
+        if (minAmount != null && maxAmount != null && minAmount.compareTo(maxAmount) > 0) {
+            throw new IllegalArgumentException("Minimum amount must not exceed maximum amount");
+        }
+    }
+    /**
+     * Lower-cases a keyword char by char, the same way descriptions are lower-cased while matching.
+     */
+    public static String normalizeKeyword(String keyword) {
+        String trimmed = keyword.trim();
+        char[] chars = new char[trimmed.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(trimmed.charAt(i));
+        }
+        return new String(chars);
+    }
+    /**
+     * Checks the amount range and the type, leaving the keyword to the caller.
+     */
+    public boolean accepts(BigDecimal amount, TransactionType transactionType) {
+        if (type != null && type != transactionType) {
+            return false;
+        }
+        BigDecimal absolute = amount.abs();
+        return (minAmount == null || absolute.compareTo(minAmount) >= 0)
+                && (maxAmount == null || absolute.compareTo(maxAmount) <= 0);
+    }
+    public String getId() {
+        return id;
+    }
+    public String getKeyword() {
+        return keyword;
+    }
+    public BigDecimal getMinAmount() {
+        return minAmount;
+    }
+    public BigDecimal getMaxAmount() {
+        return maxAmount;
+    }
+    public TransactionType getType() {
+        return type;
+    }
+    public Category getCategory() {
+        return category;
+    }
+    public int getPriority() {
+        return priority;
+    }
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CategorizationRule that = (CategorizationRule) o;
+        return Objects.equals(id, that.id);
+    }
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+    @Override
+    public String toString() {
+        return String.format("CategorizationRule{keyword='%s', amount=[%s, %s], type=%s, category=%s, priority=%d}",
+                keyword, minAmount, maxAmount, type, category.getName(), priority);
+    }
+}
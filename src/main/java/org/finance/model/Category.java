@@ -19,6 +19,16 @@ public class Category {
     public Category(String name) {
         this(name, "");
     }
+    /**
+     * Creates the categories every new ledger starts with.
+     */
+    public static List<Category> defaults() {
+        return List.of(new Category("Alimentari", "Spese per cibo e bevande"),
+                new Category("Trasporti", "Spese per trasporti e carburante"),
+                new Category("Casa", "Spese per la casa"),
+                new Category("Svago", "Spese per divertimento e tempo libero"),
+                new Category("Lavoro", "Entrate da lavoro"));
+    }
     /**
      * Adds a subcategory to this category.
      * Implements the Composite pattern.
@@ -0,0 +1,94 @@
+package org.finance.model;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+/**
+ * A node of the category tree with the amount booked directly on the category and
+ * the total of its whole subtree.
+ */
+public final class CategoryRollup {
+    private final String name;
+    private final BigDecimal ownAmount;
+    private BigDecimal totalAmount;
+    private final List<CategoryRollup> children = new ArrayList<>();
+
+    private CategoryRollup(String name, BigDecimal ownAmount) {
+        this.name = name;
+        this.ownAmount = ownAmount;
+        this.totalAmount = ownAmount;
+    }
+    /**
+     * Builds the trees from the parent of each category and the amounts booked on each
+     * category, propagating the amounts up in a single bottom-up pass. Categories with
+     * amounts but no known parent, or whose parent chain loops, become roots; subtrees
+     * with a zero total are left out. Children are sorted by total, largest first.
+     *
+     * @param parents parent name of each category, null for roots
+     * @param amounts amount booked on each category
+     */
+    public static List<CategoryRollup> build(Map<String, String> parents, Map<String, BigDecimal> amounts) {
+        Map<String, CategoryRollup> nodes = new LinkedHashMap<>();
+        parents.keySet().forEach(name -> nodes.put(name, new CategoryRollup(name, amounts.getOrDefault(name, BigDecimal.ZERO))));
+        amounts.forEach((name, amount) -> nodes.putIfAbsent(name, new CategoryRollup(name, amount)));
+        Map<String, List<CategoryRollup>> childrenByParent = new HashMap<>();
+        List<CategoryRollup> roots = new ArrayList<>();
+        for (CategoryRollup node : nodes.values()) {
+            String parent = parents.get(node.name);
+            if (parent == null || !nodes.containsKey(parent)) {
+                roots.add(node);
+            } else {
+                childrenByParent.computeIfAbsent(parent, p -> new ArrayList<>()).add(node);
+            }
+        }
+        // top-down order; walking it backwards visits every child before its parent
+        List<CategoryRollup> order = new ArrayList<>(nodes.size());
+        Map<String, CategoryRollup> parentOf = new HashMap<>();
+        Set<String> visited = new HashSet<>();
+        Deque<CategoryRollup> queue = new ArrayDeque<>(roots);
+        roots.forEach(root -> visited.add(root.name));
+        while (order.size() < nodes.size()) {
+            if (queue.isEmpty()) {
+                // only categories on a parent cycle are left: cut the cycle at the first one
+                CategoryRollup cut = nodes.values().stream()
+                        .filter(node -> !visited.contains(node.name))
+                        .findFirst().orElseThrow();
+                roots.add(cut);
+                visited.add(cut.name);
+                queue.add(cut);
+            }
+            CategoryRollup node = queue.poll();
+            order.add(node);
+            for (CategoryRollup child : childrenByParent.getOrDefault(node.name, List.of())) {
+                if (visited.add(child.name)) {
+                    parentOf.put(child.name, node);
+                    queue.add(child);
+                }
+            }
+        }
+        for (int i = order.size() - 1; i >= 0; i--) {
+            CategoryRollup node = order.get(i);
+            CategoryRollup parent = parentOf.get(node.name);
+            if (parent != null && node.totalAmount.signum() != 0) {
+                parent.totalAmount = parent.totalAmount.add(node.totalAmount);
+                parent.children.add(node);
+            }
+        }
+        Comparator<CategoryRollup> largestFirst = Comparator.comparing(CategoryRollup::getTotalAmount).reversed()
+                .thenComparing(CategoryRollup::getName);
+        order.forEach(node -> node.children.sort(largestFirst));
+        return roots.stream().filter(root -> root.totalAmount.signum() != 0).sorted(largestFirst).toList();
+    }
+    public String getName() { return name; }
+    public BigDecimal getOwnAmount() { return ownAmount; }
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public List<CategoryRollup> getChildren() { return Collections.unmodifiableList(children); }
+}
@@ -0,0 +1,22 @@
+package org.finance.model;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+/**
+ * Exchange rate of a currency on a date, as units of the currency per one unit of the
+ * reference currency (EUR), the way reference rates are usually published.
+ */
+public record ExchangeRate(String currency, LocalDate date, BigDecimal rate) {
+    public ExchangeRate {
+        Objects.requireNonNull(currency, "Currency cannot be null");
+        Objects.requireNonNull(date, "Date cannot be null");
+        Objects.requireNonNull(rate, "Rate cannot be null");
+        if (currency.isBlank()) {
+            throw new IllegalArgumentException("Currency cannot be empty");
+        }
+        if (rate.signum() <= 0) {
+            throw new IllegalArgumentException("Rate must be positive");
+        }
+        currency = currency.trim().toUpperCase();
+    }
+}
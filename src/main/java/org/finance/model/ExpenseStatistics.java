@@ -0,0 +1,30 @@
+package org.finance.model;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Objects;
+/**
+ * Count, sum and sum of squares of the expenses of one category.
+ * Kept as exact sums so statistics from separate sources (hot table, rollups) can be added
+ * before mean and variance are derived.
+ */
+public record ExpenseStatistics(long count, BigDecimal sum, BigDecimal sumOfSquares) {
+    public ExpenseStatistics {
+        Objects.requireNonNull(sum, "Sum cannot be null");
+        Objects.requireNonNull(sumOfSquares, "Sum of squares cannot be null");
+    }
+    public double mean() {
+        return count == 0 ? 0 : sum.divide(BigDecimal.valueOf(count), MathContext.DECIMAL64).doubleValue();
+    }
+    /**
+     * Population variance, computed on the exact sums to avoid cancellation.
+     */
+    public double variance() {
+        if (count == 0) {
+            return 0;
+        }
+        BigDecimal n = BigDecimal.valueOf(count);
+        // (n * sumSq - sum^2) / n^2
+        BigDecimal numerator = n.multiply(sumOfSquares).subtract(sum.multiply(sum));
+        return Math.max(0, numerator.divide(n.multiply(n), MathContext.DECIMAL64).doubleValue());
+    }
+}
@@ -1,5 +1,6 @@
 package org.finance.model;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 /**
  * Implementation of an investment transaction.
  * Uses the Factory pattern for creation through TransactionFactory.
@@ -8,6 +9,9 @@ public class InvestmentTransaction extends Transaction {
     public InvestmentTransaction(BigDecimal amount, String description, Category category, String currency) {
         super(amount, description, category, currency);
     }
+    public InvestmentTransaction(String id, BigDecimal amount, String description, Category category, String currency, LocalDateTime timestamp) {
+        super(id, amount, description, category, currency, timestamp);
+    }
     @Override
     protected void validateAmount(BigDecimal amount) {
         if (amount.compareTo(BigDecimal.ZERO) <= 0) {
@@ -0,0 +1,37 @@
+package org.finance.model;
+import java.math.BigDecimal;
+import java.util.Objects;
+/**
+ * Running totals of the transactions of one currency.
+ * Investments reduce the balance like expenses but are totalled separately.
+ */
+public record LedgerTotals(String currency, BigDecimal income, BigDecimal expenses, BigDecimal investments,
+                           long transactionCount) {
+    public LedgerTotals {
+        Objects.requireNonNull(currency, "Currency cannot be null");
+        Objects.requireNonNull(income, "Income cannot be null");
+        Objects.requireNonNull(expenses, "Expenses cannot be null");
+        Objects.requireNonNull(investments, "Investments cannot be null");
+    }
+    public BigDecimal balance() {
+        return income.subtract(expenses).subtract(investments);
+    }
+    /**
+     * Adds the totals of the same currency.
+     */
+    public LedgerTotals plus(LedgerTotals other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Cannot add totals of " + other.currency + " to " + currency);
+        }
+        return new LedgerTotals(currency, income.add(other.income), expenses.add(other.expenses),
+                investments.add(other.investments), transactionCount + other.transactionCount);
+    }
+    /**
+     * Compares the totals by value, ignoring the scale of the amounts.
+     */
+    public boolean matches(LedgerTotals other) {
+        return other != null && currency.equals(other.currency) && transactionCount == other.transactionCount
+                && income.compareTo(other.income) == 0 && expenses.compareTo(other.expenses) == 0
+                && investments.compareTo(other.investments) == 0;
+    }
+}
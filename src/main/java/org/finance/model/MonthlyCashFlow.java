@@ -0,0 +1,21 @@
+package org.finance.model;
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.Objects;
+/**
+ * Income, expenses and investments recorded in one month.
+ */
+public record MonthlyCashFlow(YearMonth month, BigDecimal income, BigDecimal expenses, BigDecimal investments) {
+    public MonthlyCashFlow {
+        Objects.requireNonNull(month, "Month cannot be null");
+        Objects.requireNonNull(income, "Income cannot be null");
+        Objects.requireNonNull(expenses, "Expenses cannot be null");
+        Objects.requireNonNull(investments, "Investments cannot be null");
+    }
+    /**
+     * Gets income minus expenses and investments, like the ledger balance.
+     */
+    public BigDecimal net() {
+        return income.subtract(expenses).subtract(investments);
+    }
+}
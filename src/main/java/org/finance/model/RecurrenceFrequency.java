@@ -0,0 +1,33 @@
+package org.finance.model;
+import java.time.LocalDate;
+/**
+ * Frequenze supportate per le transazioni ricorrenti.
+ */
+public enum RecurrenceFrequency {
+    DAILY("Giornaliera"),
+    WEEKLY("Settimanale"),
+    MONTHLY("Mensile");
+    private final String displayName;
+    RecurrenceFrequency(String displayName) {
+        this.displayName = displayName;
+    }
+    /**
+     * Calcola la data dell'occorrenza di indice dato (0 = data di inizio).
+     * Le occorrenze mensili restano ancorate al giorno di inizio: un modello del 31
+     * cade a fine mese nei mesi piu' corti e torna al 31 quando possibile.
+     */
+    public LocalDate occurrence(LocalDate start, long index) {
+        return switch (this) {
+            case DAILY -> start.plusDays(index);
+            case WEEKLY -> start.plusWeeks(index);
+            case MONTHLY -> start.plusMonths(index);
+        };
+    }
+    public String getDisplayName() {
+        return displayName;
+    }
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
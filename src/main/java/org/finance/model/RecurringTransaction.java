@@ -0,0 +1,103 @@
+package org.finance.model;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.UUID;
+/**
+ * Template for a transaction that repeats on a schedule (rent, salary, subscriptions).
+ * Occurrences are numbered from the start date; the template remembers how many have
+ * already been turned into transactions.
+ */
+public class RecurringTransaction {
+    private final String id;
+    private final TransactionType type;
+    private final BigDecimal amount;
+    private final String description;
+    private final Category category;
+    private final String currency;
+    private final RecurrenceFrequency frequency;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private long materializedCount;
+
+    public RecurringTransaction(TransactionType type, BigDecimal amount, String description, Category category,
+                                String currency, RecurrenceFrequency frequency, LocalDate startDate, LocalDate endDate) {
+        this(UUID.randomUUID().toString(), type, amount, description, category, currency, frequency,
+                startDate, endDate, 0);
+    }
+    public RecurringTransaction(String id, TransactionType type, BigDecimal amount, String description,
+                                Category category, String currency, RecurrenceFrequency frequency,
+                                LocalDate startDate, LocalDate endDate, long materializedCount) {
+        this.id = Objects.requireNonNull(id, "ID cannot be null");
+        this.type = Objects.requireNonNull(type, "Type cannot be null");
+        this.amount = Objects.requireNonNull(amount, "Amount cannot be null");
+        this.description = description;
+        this.category = Objects.requireNonNull(category, "Category cannot be null");
+        this.currency = Objects.requireNonNull(currency, "Currency cannot be null");
+        this.frequency = Objects.requireNonNull(frequency, "Frequency cannot be null");
+        this.startDate = Objects.requireNonNull(startDate, "Start date cannot be null");
+        this.endDate = endDate;
+        this.materializedCount = materializedCount;
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        if (endDate != null && endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("End date must not be before start date");
+        }
+        if (materializedCount < 0) {
+            throw new IllegalArgumentException("Materialized count cannot be negative");
+        }
+    }
+    /**
+     * Gets the date of the next occurrence not yet materialized, or null if the template has ended.
+     */
+    public LocalDate getNextDueDate() {
+        LocalDate next = frequency.occurrence(startDate, materializedCount);
+        return endDate != null && next.isAfter(endDate) ? null : next;
+    }
+    /**
+     * Checks whether at least one occurrence is due on or before the given date.
+     */
+    public boolean isDue(LocalDate asOf) {
+        LocalDate next = getNextDueDate();
+        return next != null && !next.isAfter(asOf);
+    }
+    /**
+     * Deterministic id of an occurrence, so that materializing it twice overwrites the same row.
+     */
+    public String occurrenceId(long index) {
+        return UUID.nameUUIDFromBytes((id + "#" + index).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+    /**
+     * Marks the next occurrence as materialized.
+     */
+    public void advance() {
+        materializedCount++;
+    }
+    public String getId() { return id; }
+    public TransactionType getType() { return type; }
+    public BigDecimal getAmount() { return amount; }
+    public String getDescription() { return description; }
+    public Category getCategory() { return category; }
+    public String getCurrency() { return currency; }
+    public RecurrenceFrequency getFrequency() { return frequency; }
+    public LocalDate getStartDate() { return startDate; }
+    public LocalDate getEndDate() { return endDate; }
+    public long getMaterializedCount() { return materializedCount; }
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RecurringTransaction that)) return false;
+        return id.equals(that.id);
+    }
+    @Override
+    public int hashCode() {
+        return id.hashCode();
+    }
+    @Override
+    public String toString() {
+        return String.format("RecurringTransaction{type=%s, amount=%s, description='%s', category='%s', frequency=%s, next=%s}",
+                type, amount, description, category.getName(), frequency, getNextDueDate());
+    }
+}
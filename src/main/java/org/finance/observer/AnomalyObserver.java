@@ -0,0 +1,10 @@
+package org.finance.observer;
+/**
+ * Observer interface for receiving alerts on unusual expenses.
+ */
+public interface AnomalyObserver {
+    /**
+     * Notification when an expense deviates beyond the configured threshold.
+     */
+    void onAnomalousExpense(ExpenseAnomaly anomaly);
+}
@@ -1,26 +1,24 @@
 package org.finance.observer;
 import org.finance.model.Budget;
 import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
 /**
  * Subject for the Observer pattern that manages budget notifications.
  * Maintains a list of observers and notifies them when there are budget changes.
+ * The observer list is copy-on-write so notifications can be fired from worker threads.
  */
 public class BudgetNotificationSubject {
-    private final List<BudgetObserver> observers;
+    private final CopyOnWriteArrayList<BudgetObserver> observers;
     public BudgetNotificationSubject() {
-        this.observers = new ArrayList<>();
+        this.observers = new CopyOnWriteArrayList<>();
     }
     /**
      * Adds an observer to the list.
      */
     public void addObserver(BudgetObserver observer) {
         Objects.requireNonNull(observer, "Observer cannot be null");
-        if (!observers.contains(observer)) {
-            observers.add(observer);
-        }
+        observers.addIfAbsent(observer);
     }
     /**
      * Removes an observer from the list.
@@ -0,0 +1,17 @@
+package org.finance.observer;
+/**
+ * Concrete implementation of AnomalyObserver that shows alerts on the console.
+ */
+public class ConsoleAnomalyObserver implements AnomalyObserver {
+    @Override
+    public void onAnomalousExpense(ExpenseAnomaly anomaly) {
+        System.out.println("\n" + "ATTENZIONE: Spesa insolita!");
+        System.out.println("-".repeat(50));
+        System.out.println("Categoria: " + anomaly.expense().getCategory().getName());
+        System.out.println("Importo: " + anomaly.expense().getAmount() + " " + anomaly.expense().getCurrency());
+        System.out.printf("Media: %.2f (recente: %.2f), deviazione standard: %.2f%n",
+                anomaly.mean(), anomaly.recentMean(), anomaly.standardDeviation());
+        System.out.printf("Scostamento: %.1f deviazioni standard%n", anomaly.score());
+        System.out.println("-".repeat(50) + "\n");
+    }
+}
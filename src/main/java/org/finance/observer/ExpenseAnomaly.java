@@ -0,0 +1,14 @@
+package org.finance.observer;
+import org.finance.model.ExpenseTransaction;
+/**
+ * An expense that deviates from its category's usual spending.
+ *
+ * @param expense       the expense that triggered the alert
+ * @param mean          long-run mean expense of the category before this one
+ * @param standardDeviation long-run standard deviation of the category
+ * @param recentMean    exponentially weighted mean, following recent spending
+ * @param score         deviation in standard deviations, the smaller of the long-run and recent scores
+ */
+public record ExpenseAnomaly(ExpenseTransaction expense, double mean, double standardDeviation,
+                             double recentMean, double score) {
+}
@@ -1,7 +1,9 @@
 package org.finance.repository;
 import org.finance.model.Budget;
+import java.math.BigDecimal;
 import java.time.YearMonth;
 import java.util.List;
+import java.util.Map;
 /**
  * Repository specifico per i budget.
  */
@@ -18,6 +20,14 @@ public interface BudgetRepository extends Repository<Budget, String> {
      * Trova budget attivi (non scaduti).
      */
     List<Budget> findActiveBudgets();
+    /**
+     * Aggiunge in batch gli incrementi di spesa (budget id -> delta) alla colonna spent.
+     */
+    void addSpent(Map<String, BigDecimal> deltasByBudgetId);
+    /**
+     * Imposta in batch la spesa assoluta dei budget (budget id -> spesa).
+     */
+    void updateSpent(Map<String, BigDecimal> spentByBudgetId);
 }
 
 
@@ -0,0 +1,8 @@
+package org.finance.repository;
+import org.finance.model.CategorizationRule;
+/**
+ * Repository per le regole di categorizzazione automatica.
+ * {@link #findAll()} restituisce le regole in ordine di priorita' decrescente.
+ */
+public interface CategorizationRuleRepository extends Repository<CategorizationRule, String> {
+}
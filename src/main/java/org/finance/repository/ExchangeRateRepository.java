@@ -0,0 +1,23 @@
+package org.finance.repository;
+import org.finance.model.ExchangeRate;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.NavigableMap;
+/**
+ * Repository per i tassi di cambio giornalieri rispetto alla valuta di riferimento.
+ */
+public interface ExchangeRateRepository {
+    /**
+     * Salva i tassi in un'unica transazione, sostituendo quelli con stessa valuta e data.
+     */
+    void saveAll(List<ExchangeRate> rates);
+    /**
+     * Restituisce i tassi di una valuta ordinati per data.
+     */
+    NavigableMap<LocalDate, BigDecimal> findRatesByCurrency(String currency);
+    /**
+     * Conta i tassi memorizzati.
+     */
+    long count();
+}
@@ -0,0 +1,13 @@
+package org.finance.repository;
+import org.finance.model.RecurringTransaction;
+import java.time.LocalDate;
+import java.util.List;
+/**
+ * Repository per i modelli di transazioni ricorrenti.
+ */
+public interface RecurringTransactionRepository extends Repository<RecurringTransaction, String> {
+    /**
+     * Trova i modelli con almeno un'occorrenza da generare entro la data indicata.
+     */
+    List<RecurringTransaction> findDue(LocalDate asOf);
+}
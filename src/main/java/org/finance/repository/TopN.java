@@ -0,0 +1,68 @@
+package org.finance.repository;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+/**
+ * Keeps the first {@code limit} items of a stream in a given order.
+ * The items are held in a heap whose head is the worst one kept, so each offer costs
+ * O(log limit) and memory stays proportional to the limit, not to the stream.
+ *
+ * @param <T> item type
+ */
+public final class TopN<T> {
+    private final int limit;
+    private final Comparator<? super T> order;
+    private final PriorityQueue<T> heap;
+
+    /**
+     * @param order the ranking, best first
+     */
+    public TopN(int limit, Comparator<? super T> order) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        this.limit = limit;
+        this.order = Objects.requireNonNull(order, "Order cannot be null");
+        this.heap = new PriorityQueue<>(Math.min(limit, 1024) + 1, order.reversed());
+    }
+    /**
+     * Offers an item; returns whether it is kept for now.
+     */
+    public boolean offer(T item) {
+        if (heap.size() < limit) {
+            heap.add(item);
+            return true;
+        }
+        if (order.compare(item, heap.peek()) >= 0) {
+            return false;
+        }
+        heap.poll();
+        heap.add(item);
+        return true;
+    }
+    public int size() {
+        return heap.size();
+    }
+    /**
+     * Gets the items kept, best first.
+     */
+    public List<T> toList() {
+        List<T> items = new ArrayList<>(heap);
+        items.sort(order);
+        return items;
+    }
+    /**
+     * Merges lists that are each already limited, e.g. the top items of several ledgers.
+     */
+    public static <T> List<T> merge(Collection<? extends Collection<? extends T>> lists, int limit,
+                                    Comparator<? super T> order) {
+        TopN<T> top = new TopN<>(limit, order);
+        for (Collection<? extends T> list : lists) {
+            list.forEach(top::offer);
+        }
+        return top.toList();
+    }
+}
@@ -0,0 +1,94 @@
+package org.finance.repository;
+import org.finance.model.Transaction;
+import org.finance.model.TransactionType;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Objects;
+/**
+ * Combinable search conditions for {@link TransactionRepository#findByCriteria}.
+ * Null fields are not applied; every condition set is combined with AND and the whole
+ * search runs as one query.
+ *
+ * @param categoryName exact category name
+ * @param text         full-text query: every word must be a prefix of a word in the description;
+ *                     words shorter than three characters must match a whole word
+ * @param from         inclusive lower bound of the timestamp
+ * @param to           exclusive upper bound of the timestamp
+ * @param type         transaction type
+ * @param minAmount    inclusive lower bound of the amount
+ * @param maxAmount    inclusive upper bound of the amount
+ * @param order        result ordering
+ * @param limit        maximum number of results, or 0 for no limit
+ */
+public record TransactionCriteria(String categoryName, String text, LocalDateTime from, LocalDateTime to,
+                                  TransactionType type, BigDecimal minAmount, BigDecimal maxAmount, Order order, int limit) {
+    /**
+     * Result orderings; ties are broken by id so paging is stable. Each ordering has an
+     * in-memory comparator matching its SQL, for merging results of several queries.
+     */
+    public enum Order {
+        NEWEST_FIRST("timestamp DESC, id DESC",
+                Comparator.comparing(Transaction::getTimestamp).thenComparing(Transaction::getId).reversed()),
+        OLDEST_FIRST("timestamp, id",
+                Comparator.comparing(Transaction::getTimestamp).thenComparing(Transaction::getId)),
+        LARGEST_FIRST("amount DESC, id",
+                Comparator.comparing(Transaction::getAmount, Comparator.reverseOrder()).thenComparing(Transaction::getId)),
+        SMALLEST_FIRST("amount, id",
+                Comparator.comparing(Transaction::getAmount).thenComparing(Transaction::getId));
+        private final String sql;
+        private final Comparator<Transaction> comparator;
+        Order(String sql, Comparator<Transaction> comparator) {
+            this.sql = sql;
+            this.comparator = comparator;
+        }
+        public String getSql() {
+            return sql;
+        }
+        public Comparator<Transaction> comparator() {
+            return comparator;
+        }
+    }
+    public TransactionCriteria {
+        Objects.requireNonNull(order, "Order cannot be null");
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("Start must be before end");
+        }
+        if (minAmount != null && maxAmount != null && minAmount.compareTo(maxAmount) > 0) {
+            throw new IllegalArgumentException("Minimum amount must not exceed maximum amount");
+        }
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative");
+        }
+    }
+    public static TransactionCriteria all() {
+        return new TransactionCriteria(null, null, null, null, null, null, null, Order.NEWEST_FIRST, 0);
+    }
+    public TransactionCriteria withCategory(String categoryName) {
+        return new TransactionCriteria(categoryName, text, from, to, type, minAmount, maxAmount, order, limit);
+    }
+    public TransactionCriteria withText(String text) {
+        return new TransactionCriteria(categoryName, text == null || text.isBlank() ? null : text, from, to, type,
+                minAmount, maxAmount, order, limit);
+    }
+    /**
+     * Restricts to the days from start to end, both included.
+     */
+    public TransactionCriteria between(LocalDate start, LocalDate end) {
+        return new TransactionCriteria(categoryName, text, start.atStartOfDay(), end.plusDays(1).atStartOfDay(),
+                type, minAmount, maxAmount, order, limit);
+    }
+    public TransactionCriteria withType(TransactionType type) {
+        return new TransactionCriteria(categoryName, text, from, to, type, minAmount, maxAmount, order, limit);
+    }
+    public TransactionCriteria withAmountBetween(BigDecimal minAmount, BigDecimal maxAmount) {
+        return new TransactionCriteria(categoryName, text, from, to, type, minAmount, maxAmount, order, limit);
+    }
+    public TransactionCriteria orderBy(Order order) {
+        return new TransactionCriteria(categoryName, text, from, to, type, minAmount, maxAmount, order, limit);
+    }
+    public TransactionCriteria limit(int limit) {
+        return new TransactionCriteria(categoryName, text, from, to, type, minAmount, maxAmount, order, limit);
+    }
+}
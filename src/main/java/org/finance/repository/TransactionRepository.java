@@ -1,11 +1,26 @@
 package org.finance.repository;
+import org.finance.model.ExpenseStatistics;
+import org.finance.model.LedgerTotals;
 import org.finance.model.Transaction;
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
+import java.util.Map;
 /**
  * Repository specifico per le transazioni con metodi di ricerca avanzati.
  */
 public interface TransactionRepository extends Repository<Transaction, String> {
+    /**
+     * Salva un blocco di transazioni con un unico batch JDBC e un unico commit.
+     */
+    List<Transaction> saveAll(List<Transaction> transactions);
+    /**
+     * Salva la transazione una sola volta per chiave di idempotenza.
+     * Restituisce l'id della transazione registrata: quello della transazione passata,
+     * oppure quello della transazione originale se la chiave era gia' stata usata.
+     */
+    String saveWithIdempotencyKey(Transaction transaction, String idempotencyKey);
     /**
      * Trova transazioni per intervallo di date.
      */
@@ -21,7 +36,64 @@ public interface TransactionRepository extends Repository<Transaction, String> {
     /**
      * Trova transazioni per importo minimo.
      */
-    List<Transaction> findByAmountGreaterThan(double amount);
+    List<Transaction> findByAmountGreaterThan(BigDecimal amount);
+    /**
+     * Trova le spese piu' alte, al massimo {@code limit}, dalla maggiore.
+     */
+    List<Transaction> findLargestExpenses(int limit);
+    /**
+     * Trova le spese piu' alte di ogni categoria, al massimo {@code limit} per categoria.
+     */
+    Map<String, List<Transaction>> findLargestExpensesByCategory(int limit);
+    /**
+     * Trova le spese piu' alte di ogni mese, al massimo {@code limit} per mese.
+     */
+    Map<YearMonth, List<Transaction>> findLargestExpensesByMonth(int limit);
+    /**
+     * Trova le transazioni che soddisfano tutti i criteri, con un'unica query parametrizzata.
+     */
+    List<Transaction> findByCriteria(TransactionCriteria criteria);
+    /**
+     * Somma gli importi di tutte le transazioni di un tipo, calcolata dal database.
+     */
+    BigDecimal sumAmountByType(String type);
+    /**
+     * Somma gli importi per categoria per le transazioni di un tipo, con un'unica query raggruppata.
+     */
+    Map<String, BigDecimal> sumAmountByCategory(String type);
+    /**
+     * Somma gli importi per mese e tipo con un'unica aggregazione raggruppata, inclusi i mesi archiviati.
+     */
+    Map<YearMonth, Map<String, BigDecimal>> sumAmountByMonthAndType();
+    /**
+     * Somma gli importi per categoria e valuta per le transazioni di un tipo, incluse quelle archiviate.
+     */
+    Map<String, Map<String, BigDecimal>> sumAmountByCategoryAndCurrency(String type);
+    /**
+     * Somma gli importi per mese, tipo e valuta con un'unica aggregazione, inclusi i mesi archiviati.
+     */
+    Map<YearMonth, Map<String, Map<String, BigDecimal>>> sumAmountByMonthTypeAndCurrency();
+    /**
+     * Somma le spese per mese e categoria con un'unica aggregazione raggruppata,
+     * includendo i mesi archiviati tramite i rollup.
+     */
+    Map<YearMonth, Map<String, BigDecimal>> sumExpensesByMonthAndCategory();
+    /**
+     * Calcola numero, somma e somma dei quadrati delle spese per categoria con un'unica aggregazione.
+     */
+    Map<String, ExpenseStatistics> expenseStatisticsByCategory();
+    /**
+     * Legge i totali per valuta mantenuti a ogni scrittura, senza scorrere le transazioni.
+     */
+    Map<String, LedgerTotals> findLedgerTotals();
+    /**
+     * Ricalcola i totali per valuta da tutte le transazioni, incluse quelle archiviate.
+     */
+    Map<String, LedgerTotals> sumLedgerTotals();
+    /**
+     * Sostituisce i totali per valuta memorizzati.
+     */
+    void replaceLedgerTotals(Map<String, LedgerTotals> totals);
 }
 
 
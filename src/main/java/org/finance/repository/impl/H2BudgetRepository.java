@@ -9,6 +9,7 @@ import java.sql.*;
 import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.logging.Logger;
 import java.util.logging.Level;
@@ -19,15 +20,22 @@ public class H2BudgetRepository implements BudgetRepository {
     private static final Logger logger = Logger.getLogger(H2BudgetRepository.class.getName());
     private final DatabaseManager dbManager;
     private final CategoryRepository categoryRepository;
+    /**
+     * @deprecated binds to the default database; pass the database manager of the ledger explicitly.
+     */
+    @Deprecated
     public H2BudgetRepository(CategoryRepository categoryRepository) {
-        this.dbManager = DatabaseManager.getInstance();
+        this(categoryRepository, DatabaseManager.getInstance());
+    }
+    public H2BudgetRepository(CategoryRepository categoryRepository, DatabaseManager dbManager) {
+        this.dbManager = dbManager;
         this.categoryRepository = categoryRepository;
     }
     @Override
     public Budget save(Budget budget) {
         String sql = """
-            MERGE INTO budgets (id, category_name, limit_amount, period) 
-            VALUES (?, ?, ?, ?)
+            MERGE INTO budgets (id, category_name, limit_amount, period, spent) 
+            VALUES (?, ?, ?, ?, ?)
         """;
         try (Connection conn = dbManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -35,6 +43,7 @@ public class H2BudgetRepository implements BudgetRepository {
             stmt.setString(2, budget.getCategory().getName());
             stmt.setBigDecimal(3, budget.getAmount());
             stmt.setString(4, budget.getPeriod().toString());
+            stmt.setBigDecimal(5, budget.getSpent());
             stmt.executeUpdate();
             logger.info("Budget salvato: " + budget.getId());
             return budget;
@@ -128,6 +137,46 @@ public class H2BudgetRepository implements BudgetRepository {
         return budgets;
     }
     @Override
+    public void addSpent(Map<String, BigDecimal> deltasByBudgetId) {
+        if (deltasByBudgetId.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE budgets SET spent = spent + ? WHERE id = ?";
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Map.Entry<String, BigDecimal> entry : deltasByBudgetId.entrySet()) {
+                stmt.setBigDecimal(1, entry.getValue());
+                stmt.setString(2, entry.getKey());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            logger.fine("Spese budget aggiornate: " + deltasByBudgetId.size());
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nell'aggiornamento delle spese dei budget", e);
+            throw new RuntimeException("Errore nell'aggiornamento delle spese dei budget", e);
+        }
+    }
+    @Override
+    public void updateSpent(Map<String, BigDecimal> spentByBudgetId) {
+        if (spentByBudgetId.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE budgets SET spent = ? WHERE id = ?";
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Map.Entry<String, BigDecimal> entry : spentByBudgetId.entrySet()) {
+                stmt.setBigDecimal(1, entry.getValue());
+                stmt.setString(2, entry.getKey());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            logger.fine("Spese budget impostate: " + spentByBudgetId.size());
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nell'aggiornamento delle spese dei budget", e);
+            throw new RuntimeException("Errore nell'aggiornamento delle spese dei budget", e);
+        }
+    }
+    @Override
     public void deleteById(String id) {
         String sql = "DELETE FROM budgets WHERE id = ?";
         try (Connection conn = dbManager.getConnection();
@@ -178,9 +227,10 @@ public class H2BudgetRepository implements BudgetRepository {
         String categoryName = rs.getString("category_name");
         BigDecimal limitAmount = rs.getBigDecimal("limit_amount");
         YearMonth period = YearMonth.parse(rs.getString("period"));
+        BigDecimal spent = rs.getBigDecimal("spent");
         Category category = categoryRepository.findById(categoryName)
                 .orElse(new Category(categoryName, "Categoria temporanea"));
-        return new Budget(id, category, limitAmount, period);
+        return new Budget(id, category, limitAmount, period, spent);
     }
 }
 
@@ -0,0 +1,128 @@
+package org.finance.repository.impl;
+import org.finance.database.DatabaseManager;
+import org.finance.model.CategorizationRule;
+import org.finance.model.Category;
+import org.finance.model.TransactionType;
+import org.finance.repository.CategorizationRuleRepository;
+import org.finance.repository.CategoryRepository;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+/**
+ * Implementazione del repository delle regole di categorizzazione con database H2.
+ */
+public class H2CategorizationRuleRepository implements CategorizationRuleRepository {
+    private static final Logger logger = Logger.getLogger(H2CategorizationRuleRepository.class.getName());
+    private final DatabaseManager dbManager;
+    private final CategoryRepository categoryRepository;
+    public H2CategorizationRuleRepository(CategoryRepository categoryRepository, DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+        this.categoryRepository = categoryRepository;
+    }
+    @Override
+    public CategorizationRule save(CategorizationRule rule) {
+        String sql = """
+            MERGE INTO categorization_rules (id, keyword, min_amount, max_amount, type, category_name, priority)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+        """;
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, rule.getId());
+            stmt.setString(2, rule.getKeyword());
+            stmt.setBigDecimal(3, rule.getMinAmount());
+            stmt.setBigDecimal(4, rule.getMaxAmount());
+            stmt.setString(5, rule.getType() == null ? null : rule.getType().name());
+            stmt.setString(6, rule.getCategory().getName());
+            stmt.setInt(7, rule.getPriority());
+            stmt.executeUpdate();
+            logger.fine("Regola di categorizzazione salvata: " + rule.getId());
+            return rule;
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nel salvataggio della regola di categorizzazione", e);
+            throw new RuntimeException("Errore nel salvataggio della regola di categorizzazione", e);
+        }
+    }
+    @Override
+    public Optional<CategorizationRule> findById(String id) {
+        String sql = "SELECT * FROM categorization_rules WHERE id = ?";
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, id);
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                return Optional.of(mapResultSetToRule(rs, new HashMap<>()));
+            }
+            return Optional.empty();
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nella ricerca della regola di categorizzazione", e);
+            throw new RuntimeException("Errore nella ricerca della regola di categorizzazione", e);
+        }
+    }
+    @Override
+    public List<CategorizationRule> findAll() {
+        String sql = "SELECT * FROM categorization_rules ORDER BY priority DESC, keyword, id";
+        List<CategorizationRule> rules = new ArrayList<>();
+        // rules share few categories: resolve each one once
+        Map<String, Category> categories = new HashMap<>();
+        try (Connection conn = dbManager.getReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                rules.add(mapResultSetToRule(rs, categories));
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nel recupero delle regole di categorizzazione", e);
+            throw new RuntimeException("Errore nel recupero delle regole di categorizzazione", e);
+        }
+        return rules;
+    }
+    @Override
+    public void deleteById(String id) {
+        String sql = "DELETE FROM categorization_rules WHERE id = ?";
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, id);
+            if (stmt.executeUpdate() > 0) {
+                logger.info("Regola di categorizzazione eliminata: " + id);
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nell'eliminazione della regola di categorizzazione", e);
+            throw new RuntimeException("Errore nell'eliminazione della regola di categorizzazione", e);
+        }
+    }
+    @Override
+    public boolean existsById(String id) {
+        return findById(id).isPresent();
+    }
+    @Override
+    public long count() {
+        String sql = "SELECT COUNT(*) FROM categorization_rules";
+        try (Connection conn = dbManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nel conteggio delle regole di categorizzazione", e);
+            throw new RuntimeException("Errore nel conteggio delle regole di categorizzazione", e);
+        }
+    }
+    private CategorizationRule mapResultSetToRule(ResultSet rs, Map<String, Category> categories) throws SQLException {
+        String categoryName = rs.getString("category_name");
+        Category category = categories.computeIfAbsent(categoryName, name -> categoryRepository.findById(name)
+                .orElse(new Category(name, "Categoria temporanea")));
+        String type = rs.getString("type");
+        return new CategorizationRule(
+                rs.getString("id"),
+                rs.getString("keyword"),
+                rs.getBigDecimal("min_amount"),
+                rs.getBigDecimal("max_amount"),
+                type == null ? null : TransactionType.valueOf(type),
+                category,
+                rs.getInt("priority"));
+    }
+}
@@ -14,8 +14,15 @@ import java.util.logging.Level;
 public class H2CategoryRepository implements CategoryRepository {
     private static final Logger logger = Logger.getLogger(H2CategoryRepository.class.getName());
     private final DatabaseManager dbManager;
+    /**
+     * @deprecated binds to the default database; pass the database manager of the ledger explicitly.
+     */
+    @Deprecated
     public H2CategoryRepository() {
-        this.dbManager = DatabaseManager.getInstance();
+        this(DatabaseManager.getInstance());
+    }
+    public H2CategoryRepository(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
     }
     @Override
     public Category save(Category category) {
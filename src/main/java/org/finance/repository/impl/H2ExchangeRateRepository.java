@@ -0,0 +1,82 @@
+package org.finance.repository.impl;
+import org.finance.database.DatabaseManager;
+import org.finance.model.ExchangeRate;
+import org.finance.repository.ExchangeRateRepository;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+/**
+ * Implementazione del repository dei tassi di cambio con database H2.
+ */
+public class H2ExchangeRateRepository implements ExchangeRateRepository {
+    private static final Logger logger = Logger.getLogger(H2ExchangeRateRepository.class.getName());
+    private static final int BATCH_SIZE = 1_000;
+    private final DatabaseManager dbManager;
+    public H2ExchangeRateRepository(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+    }
+    @Override
+    public void saveAll(List<ExchangeRate> rates) {
+        if (rates.isEmpty()) {
+            return;
+        }
+        String sql = "MERGE INTO exchange_rates (currency, rate_date, rate) VALUES (?, ?, ?)";
+        dbManager.run(() -> {
+            try (Connection conn = dbManager.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                int pending = 0;
+                for (ExchangeRate rate : rates) {
+                    stmt.setString(1, rate.currency());
+                    stmt.setDate(2, Date.valueOf(rate.date()));
+                    stmt.setBigDecimal(3, rate.rate());
+                    stmt.addBatch();
+                    if (++pending == BATCH_SIZE) {
+                        stmt.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    stmt.executeBatch();
+                }
+            } catch (SQLException e) {
+                logger.log(Level.SEVERE, "Errore nel salvataggio dei tassi di cambio", e);
+                throw new RuntimeException("Errore nel salvataggio dei tassi di cambio", e);
+            }
+        });
+        logger.fine("Tassi di cambio salvati: " + rates.size());
+    }
+    @Override
+    public NavigableMap<LocalDate, BigDecimal> findRatesByCurrency(String currency) {
+        String sql = "SELECT rate_date, rate FROM exchange_rates WHERE currency = ?";
+        NavigableMap<LocalDate, BigDecimal> rates = new TreeMap<>();
+        try (Connection conn = dbManager.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, currency);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                rates.put(rs.getDate(1).toLocalDate(), rs.getBigDecimal(2));
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nella lettura dei tassi di cambio", e);
+            throw new RuntimeException("Errore nella lettura dei tassi di cambio", e);
+        }
+        return rates;
+    }
+    @Override
+    public long count() {
+        try (Connection conn = dbManager.getReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM exchange_rates")) {
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nel conteggio dei tassi di cambio", e);
+            throw new RuntimeException("Errore nel conteggio dei tassi di cambio", e);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package org.finance.repository.impl;
+import org.finance.database.DatabaseManager;
+import org.finance.model.Category;
+import org.finance.model.RecurrenceFrequency;
+import org.finance.model.RecurringTransaction;
+import org.finance.model.TransactionType;
+import org.finance.repository.CategoryRepository;
+import org.finance.repository.RecurringTransactionRepository;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+/**
+ * Implementazione del repository dei modelli ricorrenti con database H2.
+ * La prossima scadenza e' salvata in una colonna indicizzata, cosi' la ricerca dei
+ * modelli scaduti non deve esaminare quelli futuri o terminati.
+ */
+public class H2RecurringTransactionRepository implements RecurringTransactionRepository {
+    private static final Logger logger = Logger.getLogger(H2RecurringTransactionRepository.class.getName());
+    private final DatabaseManager dbManager;
+    private final CategoryRepository categoryRepository;
+    public H2RecurringTransactionRepository(CategoryRepository categoryRepository, DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+        this.categoryRepository = categoryRepository;
+    }
+    @Override
+    public RecurringTransaction save(RecurringTransaction recurring) {
+        String sql = """
+            MERGE INTO recurring_transactions (id, type, amount, description, category_name, currency,
+                frequency, start_date, end_date, materialized_count, next_due_date)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, recurring.getId());
+            stmt.setString(2, recurring.getType().name());
+            stmt.setBigDecimal(3, recurring.getAmount());
+            stmt.setString(4, recurring.getDescription());
+            stmt.setString(5, recurring.getCategory().getName());
+            stmt.setString(6, recurring.getCurrency());
+            stmt.setString(7, recurring.getFrequency().name());
+            stmt.setDate(8, Date.valueOf(recurring.getStartDate()));
+            stmt.setDate(9, recurring.getEndDate() == null ? null : Date.valueOf(recurring.getEndDate()));
+            stmt.setLong(10, recurring.getMaterializedCount());
+            LocalDate nextDue = recurring.getNextDueDate();
+            stmt.setDate(11, nextDue == null ? null : Date.valueOf(nextDue));
+            stmt.executeUpdate();
+            logger.fine("Transazione ricorrente salvata: " + recurring.getId());
+            return recurring;
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nel salvataggio della transazione ricorrente", e);
+            throw new RuntimeException("Errore nel salvataggio della transazione ricorrente", e);
+        }
+    }
+    @Override
+    public Optional<RecurringTransaction> findById(String id) {
+        String sql = "SELECT * FROM recurring_transactions WHERE id = ?";
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, id);
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                return Optional.of(mapResultSetToRecurring(rs));
+            }
+            return Optional.empty();
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nella ricerca della transazione ricorrente", e);
+            throw new RuntimeException("Errore nella ricerca della transazione ricorrente", e);
+        }
+    }
+    @Override
+    public List<RecurringTransaction> findAll() {
+        return query("SELECT * FROM recurring_transactions ORDER BY start_date", null,
+                "Errore nel recupero delle transazioni ricorrenti");
+    }
+    @Override
+    public List<RecurringTransaction> findDue(LocalDate asOf) {
+        return query("SELECT * FROM recurring_transactions WHERE next_due_date <= ? ORDER BY next_due_date", asOf,
+                "Errore nella ricerca delle transazioni ricorrenti scadute");
+    }
+    private List<RecurringTransaction> query(String sql, LocalDate date, String errorMessage) {
+        List<RecurringTransaction> result = new ArrayList<>();
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            if (date != null) {
+                stmt.setDate(1, Date.valueOf(date));
+            }
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                result.add(mapResultSetToRecurring(rs));
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, errorMessage, e);
+            throw new RuntimeException(errorMessage, e);
+        }
+        return result;
+    }
+    @Override
+    public void deleteById(String id) {
+        String sql = "DELETE FROM recurring_transactions WHERE id = ?";
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, id);
+            if (stmt.executeUpdate() > 0) {
+                logger.info("Transazione ricorrente eliminata: " + id);
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nell'eliminazione della transazione ricorrente", e);
+            throw new RuntimeException("Errore nell'eliminazione della transazione ricorrente", e);
+        }
+    }
+    @Override
+    public boolean existsById(String id) {
+        return findById(id).isPresent();
+    }
+    @Override
+    public long count() {
+        String sql = "SELECT COUNT(*) FROM recurring_transactions";
+        try (Connection conn = dbManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nel conteggio delle transazioni ricorrenti", e);
+            throw new RuntimeException("Errore nel conteggio delle transazioni ricorrenti", e);
+        }
+    }
+    private RecurringTransaction mapResultSetToRecurring(ResultSet rs) throws SQLException {
+        String categoryName = rs.getString("category_name");
+        Category category = categoryRepository.findById(categoryName)
+                .orElse(new Category(categoryName, "Categoria temporanea"));
+        Date endDate = rs.getDate("end_date");
+        return new RecurringTransaction(
+                rs.getString("id"),
+                TransactionType.valueOf(rs.getString("type")),
+                rs.getBigDecimal("amount"),
+                rs.getString("description"),
+                category,
+                rs.getString("currency"),
+                RecurrenceFrequency.valueOf(rs.getString("frequency")),
+                rs.getDate("start_date").toLocalDate(),
+                endDate == null ? null : endDate.toLocalDate(),
+                rs.getLong("materialized_count"));
+    }
+}
@@ -1,77 +1,250 @@
 package org.finance.repository.impl;
+import org.finance.archive.ArchiveCatalog;
+import org.finance.dedup.DuplicateDetector;
 import org.finance.database.DatabaseManager;
+import org.finance.dedup.TransactionFingerprint;
+import org.finance.distribution.ExpenseDistribution;
 import org.finance.model.*;
 import org.finance.repository.TransactionRepository;
 import org.finance.repository.CategoryRepository;
+import org.finance.repository.TransactionCriteria;
+import org.finance.repository.TopN;
+import org.finance.search.DescriptionIndex;
+import org.finance.search.DescriptionTokenizer;
+import org.finance.summary.LedgerSummary;
 import java.math.BigDecimal;
 import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 /**
  * Implementation of transaction repository with H2 database.
+ * Search and report queries use the read-only snapshot connections so that long
+ * scans never compete with the writer for connections or locks.
+ * Archived years are read only when a query can reach them: date-range searches
+ * touch the partitions of the requested years, and totals use the monthly rollups.
  */
 public class H2TransactionRepository implements TransactionRepository {
     private static final Logger logger = Logger.getLogger(H2TransactionRepository.class.getName());
+    private static final int RECENT_KEYS_CAPACITY = 10_000;
+    private static final String DUPLICATE_KEY_STATE = "23505";
     private final DatabaseManager dbManager;
     private final CategoryRepository categoryRepository;
+    private final ArchiveCatalog archiveCatalog;
+    private final DuplicateDetector duplicateDetector;
+    private final IdempotencyKeyCache recentKeys = new IdempotencyKeyCache(RECENT_KEYS_CAPACITY);
 
+    /**
+     * @deprecated binds to the default database; pass the database manager of the ledger explicitly.
+     */
+    @Deprecated
     public H2TransactionRepository(CategoryRepository categoryRepository) {
-        this.dbManager = DatabaseManager.getInstance();
+        this(categoryRepository, DatabaseManager.getInstance());
+    }
+    public H2TransactionRepository(CategoryRepository categoryRepository, DatabaseManager dbManager) {
+        this.dbManager = dbManager;
         this.categoryRepository = categoryRepository;
+        this.archiveCatalog = ArchiveCatalog.forDatabase(dbManager);
+        this.duplicateDetector = DuplicateDetector.forDatabase(dbManager);
     }
     @Override
     public Transaction save(Transaction transaction) {
         String sql = """
-            MERGE INTO transactions (id, amount, description, timestamp, category_name, type, currency) 
-            VALUES (?, ?, ?, ?, ?, ?, ?)
+            MERGE INTO transactions (id, amount, description, timestamp, category_name, type, currency, fingerprint) 
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
         """;
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, transaction.getId());
-            stmt.setBigDecimal(2, transaction.getAmount());
-            stmt.setString(3, transaction.getDescription());
-            stmt.setTimestamp(4, Timestamp.valueOf(transaction.getTimestamp()));
-            stmt.setString(5, transaction.getCategory().getName());
-            stmt.setString(6, transaction instanceof IncomeTransaction ? "INCOME" : "EXPENSE");
-            stmt.setString(7, transaction.getCurrency());
-            stmt.executeUpdate();
-            logger.info("Transazione salvata: " + transaction.getId());
-            return transaction;
-        } catch (SQLException e) {
-            logger.log(Level.SEVERE, "Errore nel salvataggio della transazione", e);
-            throw new RuntimeException("Errore nel salvataggio della transazione", e);
+        return dbManager.execute(() -> {
+            try (Connection conn = dbManager.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                List<String> ids = List.of(transaction.getId());
+                ExpenseDistribution.apply(conn, "transactions", ids, -1);
+                LedgerSummary.apply(conn, "transactions", ids, -1);
+                bindTransaction(stmt, transaction);
+                stmt.executeUpdate();
+                ExpenseDistribution.apply(conn, "transactions", ids, 1);
+                LedgerSummary.apply(conn, "transactions", ids, 1);
+                DescriptionIndex.index(conn, List.of(transaction), true);
+                dbManager.afterCommit(() -> duplicateDetector.record(List.of(transaction)));
+                logger.info("Transazione salvata: " + transaction.getId());
+                return transaction;
+            } catch (SQLException e) {
+                logger.log(Level.SEVERE, "Errore nel salvataggio della transazione", e);
+                throw new RuntimeException("Errore nel salvataggio della transazione", e);
+            }
+        });
+    }
+    @Override
+    public List<Transaction> saveAll(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return transactions;
+        }
+        String sql = """
+            MERGE INTO transactions (id, amount, description, timestamp, category_name, type, currency, fingerprint) 
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+        dbManager.run(() -> {
+            try (Connection conn = dbManager.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                List<String> ids = transactions.stream().map(Transaction::getId).toList();
+                ExpenseDistribution.apply(conn, "transactions", ids, -1);
+                LedgerSummary.apply(conn, "transactions", ids, -1);
+                for (Transaction transaction : transactions) {
+                    bindTransaction(stmt, transaction);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                ExpenseDistribution.apply(conn, "transactions", ids, 1);
+                LedgerSummary.apply(conn, "transactions", ids, 1);
+                DescriptionIndex.index(conn, transactions, true);
+                dbManager.afterCommit(() -> duplicateDetector.record(transactions));
+            } catch (SQLException e) {
+                logger.log(Level.SEVERE, "Errore nel salvataggio batch delle transazioni", e);
+                throw new RuntimeException("Errore nel salvataggio batch delle transazioni", e);
+            }
+        });
+        logger.fine("Transazioni salvate in batch: " + transactions.size());
+        return transactions;
+    }
+    /**
+     * Retries are answered from the recent keys cache without a query; otherwise the
+     * archive partitions are checked for the key, then the row is inserted and the
+     * unique index on idempotency_key rejects a key reused in the hot table, in which
+     * case the original transaction id is looked up. Only a violation of that index
+     * counts as a reused key: any other constraint failure, such as an existing id,
+     * is an error. Nothing is written twice.
+     */
+    @Override
+    public String saveWithIdempotencyKey(Transaction transaction, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            throw new IllegalArgumentException("Idempotency key cannot be empty");
+        }
+        String cachedId = recentKeys.get(idempotencyKey);
+        if (cachedId != null) {
+            logger.fine("Chiave di idempotenza gia' usata: " + idempotencyKey);
+            return cachedId;
+        }
+        String sql = """
+            INSERT INTO transactions (id, amount, description, timestamp, category_name, type, currency, fingerprint, idempotency_key) 
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+        return dbManager.execute(() -> {
+            try (Connection conn = dbManager.getConnection()) {
+                Optional<String> archivedId = findArchivedIdByIdempotencyKey(conn, idempotencyKey);
+                if (archivedId.isPresent()) {
+                    dbManager.afterCommit(() -> recentKeys.put(idempotencyKey, archivedId.get()));
+                    logger.info("Chiave di idempotenza gia' usata dalla transazione archiviata " + archivedId.get());
+                    return archivedId.get();
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    bindTransaction(stmt, transaction);
+                    stmt.setString(9, idempotencyKey);
+                    stmt.executeUpdate();
+                    ExpenseDistribution.apply(conn, "transactions", List.of(transaction.getId()), 1);
+                    LedgerSummary.apply(conn, "transactions", List.of(transaction.getId()), 1);
+                    DescriptionIndex.index(conn, List.of(transaction), false);
+                    dbManager.afterCommit(() -> {
+                        recentKeys.put(idempotencyKey, transaction.getId());
+                        duplicateDetector.record(List.of(transaction));
+                    });
+                    logger.info("Transazione salvata: " + transaction.getId());
+                    return transaction.getId();
+                } catch (SQLException e) {
+                    if (!isIdempotencyKeyViolation(e)) {
+                        throw e;
+                    }
+                }
+                String existingId = findIdByIdempotencyKey(conn, idempotencyKey);
+                dbManager.afterCommit(() -> recentKeys.put(idempotencyKey, existingId));
+                logger.info("Chiave di idempotenza gia' usata dalla transazione " + existingId);
+                return existingId;
+            } catch (SQLException e) {
+                logger.log(Level.SEVERE, "Errore nel salvataggio idempotente della transazione", e);
+                throw new RuntimeException("Errore nel salvataggio idempotente della transazione", e);
+            }
+        });
+    }
+    private static boolean isIdempotencyKeyViolation(SQLException e) {
+        return DUPLICATE_KEY_STATE.equals(e.getSQLState()) && e.getMessage() != null
+                && e.getMessage().toLowerCase(Locale.ROOT).contains(DatabaseManager.IDEMPOTENCY_KEY_INDEX);
+    }
+    private Optional<String> findArchivedIdByIdempotencyKey(Connection conn, String idempotencyKey) throws SQLException {
+        for (int year : archiveCatalog.getArchivedYears()) {
+            String sql = "SELECT id FROM " + ArchiveCatalog.tableName(year) + " WHERE idempotency_key = ?";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, idempotencyKey);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        return Optional.of(rs.getString(1));
+                    }
+                }
+            }
+        }
+        return Optional.empty();
+    }
+    private String findIdByIdempotencyKey(Connection conn, String idempotencyKey) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT id FROM transactions WHERE idempotency_key = ?")) {
+            stmt.setString(1, idempotencyKey);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Transazione con chiave " + idempotencyKey + " non trovata");
+                }
+                return rs.getString(1);
+            }
         }
     }
+    private void bindTransaction(PreparedStatement stmt, Transaction transaction) throws SQLException {
+        stmt.setString(1, transaction.getId());
+        stmt.setBigDecimal(2, transaction.getAmount());
+        stmt.setString(3, transaction.getDescription());
+        stmt.setTimestamp(4, Timestamp.valueOf(transaction.getTimestamp()));
+        stmt.setString(5, transaction.getCategory().getName());
+        stmt.setString(6, transaction.getType().name());
+        stmt.setString(7, transaction.getCurrency());
+        stmt.setString(8, TransactionFingerprint.of(transaction).toHex());
+    }
     @Override
     public Optional<Transaction> findById(String id) {
-        String sql = "SELECT * FROM transactions WHERE id = ?";
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = dbManager.getConnection()) {
+            Optional<Transaction> transaction = findById(conn, "transactions", id);
+            if (transaction.isEmpty() && archiveCatalog.hasArchives()) {
+                transaction = findById(conn, archiveCatalog.allTransactions(), id);
+            }
+            return transaction;
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nella ricerca della transazione", e);
+            throw new RuntimeException("Errore nella ricerca della transazione", e);
+        }
+    }
+    private Optional<Transaction> findById(Connection conn, String source, String id) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT * FROM " + source + " WHERE id = ?")) {
             stmt.setString(1, id);
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
                 return Optional.of(mapResultSetToTransaction(rs));
             }
             return Optional.empty();
-        } catch (SQLException e) {
-            logger.log(Level.SEVERE, "Errore nella ricerca della transazione", e);
-            throw new RuntimeException("Errore nella ricerca della transazione", e);
         }
     }
     @Override
     public List<Transaction> findAll() {
-        String sql = "SELECT * FROM transactions ORDER BY timestamp DESC";
+        String sql = "SELECT * FROM " + archiveCatalog.allTransactions() + " ORDER BY timestamp DESC";
         List<Transaction> transactions = new ArrayList<>();
-        try (Connection conn = dbManager.getConnection();
+        Map<String, Category> categories = new HashMap<>();
+        try (Connection conn = dbManager.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             while (rs.next()) {
-                transactions.add(mapResultSetToTransaction(rs));
+                transactions.add(mapResultSetToTransaction(rs, categories));
             }
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Errore nel recupero delle transazioni", e);
@@ -81,15 +254,17 @@ public class H2TransactionRepository implements TransactionRepository {
     }
     @Override
     public List<Transaction> findByDateRange(LocalDate startDate, LocalDate endDate) {
-        String sql = "SELECT * FROM transactions WHERE DATE(timestamp) BETWEEN ? AND ? ORDER BY timestamp DESC";
+        String sql = "SELECT * FROM " + archiveCatalog.source(startDate.atStartOfDay(), endDate.atTime(LocalTime.MAX))
+                + " WHERE timestamp >= ? AND timestamp < ? ORDER BY timestamp DESC";
         List<Transaction> transactions = new ArrayList<>();
-        try (Connection conn = dbManager.getConnection();
+        Map<String, Category> categories = new HashMap<>();
+        try (Connection conn = dbManager.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setDate(1, Date.valueOf(startDate));
-            stmt.setDate(2, Date.valueOf(endDate));
+            stmt.setTimestamp(1, Timestamp.valueOf(startDate.atStartOfDay()));
+            stmt.setTimestamp(2, Timestamp.valueOf(endDate.plusDays(1).atStartOfDay()));
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                transactions.add(mapResultSetToTransaction(rs));
+                transactions.add(mapResultSetToTransaction(rs, categories));
             }
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Errore nella ricerca per intervallo date", e);
@@ -99,14 +274,15 @@ public class H2TransactionRepository implements TransactionRepository {
     }
     @Override
     public List<Transaction> findByCategory(String categoryName) {
-        String sql = "SELECT * FROM transactions WHERE category_name = ? ORDER BY timestamp DESC";
+        String sql = "SELECT * FROM " + archiveCatalog.allTransactions() + " WHERE category_name = ? ORDER BY timestamp DESC";
         List<Transaction> transactions = new ArrayList<>();
-        try (Connection conn = dbManager.getConnection();
+        Map<String, Category> categories = new HashMap<>();
+        try (Connection conn = dbManager.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, categoryName);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                transactions.add(mapResultSetToTransaction(rs));
+                transactions.add(mapResultSetToTransaction(rs, categories));
             }
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Errore nella ricerca per categoria", e);
@@ -116,14 +292,15 @@ public class H2TransactionRepository implements TransactionRepository {
     }
     @Override
     public List<Transaction> findByType(String type) {
-        String sql = "SELECT * FROM transactions WHERE type = ? ORDER BY timestamp DESC";
+        String sql = "SELECT * FROM " + archiveCatalog.allTransactions() + " WHERE type = ? ORDER BY timestamp DESC";
         List<Transaction> transactions = new ArrayList<>();
-        try (Connection conn = dbManager.getConnection();
+        Map<String, Category> categories = new HashMap<>();
+        try (Connection conn = dbManager.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, type);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                transactions.add(mapResultSetToTransaction(rs));
+                transactions.add(mapResultSetToTransaction(rs, categories));
             }
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Errore nella ricerca per tipo", e);
@@ -132,15 +309,16 @@ public class H2TransactionRepository implements TransactionRepository {
         return transactions;
     }
     @Override
-    public List<Transaction> findByAmountGreaterThan(double amount) {
-        String sql = "SELECT * FROM transactions WHERE amount > ? ORDER BY amount DESC";
+    public List<Transaction> findByAmountGreaterThan(BigDecimal amount) {
+        String sql = "SELECT * FROM " + archiveCatalog.allTransactions() + " WHERE amount > ? ORDER BY amount DESC, id";
         List<Transaction> transactions = new ArrayList<>();
-        try (Connection conn = dbManager.getConnection();
+        Map<String, Category> categories = new HashMap<>();
+        try (Connection conn = dbManager.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setDouble(1, amount);
+            stmt.setBigDecimal(1, amount);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                transactions.add(mapResultSetToTransaction(rs));
+                transactions.add(mapResultSetToTransaction(rs, categories));
             }
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Errore nella ricerca per importo", e);
@@ -149,23 +327,425 @@ public class H2TransactionRepository implements TransactionRepository {
         return transactions;
     }
     @Override
+    public List<Transaction> findLargestExpenses(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        return findByCriteria(TransactionCriteria.all()
+                .withType(TransactionType.EXPENSE)
+                .orderBy(TransactionCriteria.Order.LARGEST_FIRST)
+                .limit(limit));
+    }
+    @Override
+    public Map<String, List<Transaction>> findLargestExpensesByCategory(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        List<String> tables = new ArrayList<>();
+        tables.add("transactions");
+        archiveCatalog.getArchivedYears().forEach(year -> tables.add(ArchiveCatalog.tableName(year)));
+        Map<String, List<Transaction>> largest = new HashMap<>();
+        Map<String, Category> categories = new HashMap<>();
+        try (Connection conn = dbManager.getReadConnection()) {
+            List<String> names = new ArrayList<>();
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT name FROM categories")) {
+                while (rs.next()) {
+                    names.add(rs.getString(1));
+                }
+            }
+            for (String name : names) {
+                List<Transaction> top = findLargestExpenses(conn, tables, "category_name = ?", limit, categories, name);
+                if (!top.isEmpty()) {
+                    largest.put(name, top);
+                }
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nella ricerca delle spese piu' alte", e);
+            throw new RuntimeException("Errore nella ricerca delle spese piu' alte", e);
+        }
+        return largest;
+    }
+    @Override
+    public Map<YearMonth, List<Transaction>> findLargestExpensesByMonth(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        Set<Integer> archivedYears = archiveCatalog.getArchivedYears();
+        List<YearMonth> months = sumAmountByMonthAndType().entrySet().stream()
+                .filter(month -> month.getValue().containsKey("EXPENSE"))
+                .map(Map.Entry::getKey)
+                .toList();
+        Map<YearMonth, List<Transaction>> largest = new HashMap<>();
+        Map<String, Category> categories = new HashMap<>();
+        try (Connection conn = dbManager.getReadConnection()) {
+            for (YearMonth key : months) {
+                List<String> tables = archivedYears.contains(key.getYear())
+                        ? List.of("transactions", ArchiveCatalog.tableName(key.getYear()))
+                        : List.of("transactions");
+                List<Transaction> top = findLargestExpenses(conn, tables, "timestamp >= ? AND timestamp < ?", limit,
+                        categories, Timestamp.valueOf(key.atDay(1).atStartOfDay()),
+                        Timestamp.valueOf(key.plusMonths(1).atDay(1).atStartOfDay()));
+                if (!top.isEmpty()) {
+                    largest.put(key, top);
+                }
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nella ricerca delle spese piu' alte", e);
+            throw new RuntimeException("Errore nella ricerca delle spese piu' alte", e);
+        }
+        return largest;
+    }
+    /**
+     * Finds the largest expenses of one group with an indexed {@code ORDER BY ... LIMIT} per table,
+     * so each table returns at most {@code limit} rows. Only when the group spans the hot table
+     * and an archive partition are the per-table results merged in memory.
+     */
+    private List<Transaction> findLargestExpenses(Connection conn, List<String> tables, String condition, int limit,
+                                                  Map<String, Category> categories, Object... params) throws SQLException {
+        List<List<Transaction>> perTable = new ArrayList<>();
+        for (String table : tables) {
+            String sql = "SELECT * FROM " + table + " WHERE type = 'EXPENSE' AND " + condition
+                    + " ORDER BY " + TransactionCriteria.Order.LARGEST_FIRST.getSql() + " LIMIT ?";
+            List<Transaction> transactions = new ArrayList<>();
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < params.length; i++) {
+                    stmt.setObject(i + 1, params[i]);
+                }
+                stmt.setInt(params.length + 1, limit);
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    transactions.add(mapResultSetToTransaction(rs, categories));
+                }
+            }
+            perTable.add(transactions);
+        }
+        if (perTable.size() == 1) {
+            return perTable.get(0);
+        }
+        return TopN.merge(perTable, limit, TransactionCriteria.Order.LARGEST_FIRST.comparator());
+    }
+    @Override
+    public List<Transaction> findByCriteria(TransactionCriteria criteria) {
+        List<Object> params = new ArrayList<>();
+        List<String> conditions = new ArrayList<>();
+        if (criteria.categoryName() != null) {
+            conditions.add("category_name = ?");
+            params.add(criteria.categoryName());
+        }
+        if (criteria.text() != null) {
+            List<String> terms = DescriptionTokenizer.queryTerms(criteria.text());
+            if (terms.isEmpty()) {
+                return List.of();
+            }
+            for (String term : terms) {
+                if (DescriptionTokenizer.isPrefixTerm(term)) {
+                    // tokens are letters and digits only, so the prefix needs no LIKE escaping
+                    conditions.add("id IN (SELECT transaction_id FROM transaction_tokens WHERE token LIKE ?)");
+                    params.add(term + "%");
+                } else {
+                    conditions.add("id IN (SELECT transaction_id FROM transaction_tokens WHERE token = ?)");
+                    params.add(term);
+                }
+            }
+        }
+        if (criteria.from() != null) {
+            conditions.add("timestamp >= ?");
+            params.add(Timestamp.valueOf(criteria.from()));
+        }
+        if (criteria.to() != null) {
+            conditions.add("timestamp < ?");
+            params.add(Timestamp.valueOf(criteria.to()));
+        }
+        if (criteria.type() != null) {
+            conditions.add("type = ?");
+            params.add(criteria.type().name());
+        }
+        if (criteria.minAmount() != null) {
+            conditions.add("amount >= ?");
+            params.add(criteria.minAmount());
+        }
+        if (criteria.maxAmount() != null) {
+            conditions.add("amount <= ?");
+            params.add(criteria.maxAmount());
+        }
+        String sql = "SELECT * FROM " + archiveCatalog.source(criteria.from(), criteria.to())
+                + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+                + " ORDER BY " + criteria.order().getSql()
+                + (criteria.limit() > 0 ? " LIMIT " + criteria.limit() : "");
+        List<Transaction> transactions = new ArrayList<>();
+        Map<String, Category> categories = new HashMap<>();
+        try (Connection conn = dbManager.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                transactions.add(mapResultSetToTransaction(rs, categories));
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nella ricerca delle transazioni", e);
+            throw new RuntimeException("Errore nella ricerca delle transazioni", e);
+        }
+        return transactions;
+    }
+    @Override
+    public BigDecimal sumAmountByType(String type) {
+        String sql = """
+            SELECT (SELECT COALESCE(SUM(amount), 0) FROM transactions WHERE type = ?)
+                 + (SELECT COALESCE(SUM(total), 0) FROM transaction_rollups WHERE type = ?)
+        """;
+        try (Connection conn = dbManager.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, type);
+            stmt.setString(2, type);
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            return rs.getBigDecimal(1);
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nel calcolo del totale per tipo", e);
+            throw new RuntimeException("Errore nel calcolo del totale per tipo", e);
+        }
+    }
+    @Override
+    public Map<String, BigDecimal> sumAmountByCategory(String type) {
+        String sql = """
+            SELECT category_name, SUM(total) FROM (
+                SELECT category_name, SUM(amount) AS total FROM transactions WHERE type = ? GROUP BY category_name
+                UNION ALL
+                SELECT category_name, SUM(total) FROM transaction_rollups WHERE type = ? GROUP BY category_name
+            ) GROUP BY category_name
+        """;
+        Map<String, BigDecimal> totals = new HashMap<>();
+        try (Connection conn = dbManager.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, type);
+            stmt.setString(2, type);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                totals.put(rs.getString(1), rs.getBigDecimal(2));
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nel calcolo dei totali per categoria", e);
+            throw new RuntimeException("Errore nel calcolo dei totali per categoria", e);
+        }
+        return totals;
+    }
+    @Override
+    public Map<YearMonth, Map<String, BigDecimal>> sumAmountByMonthAndType() {
+        String sql = """
+            SELECT y, m, type, SUM(total) FROM (
+                SELECT YEAR(timestamp) AS y, MONTH(timestamp) AS m, type, SUM(amount) AS total
+                FROM transactions
+                GROUP BY YEAR(timestamp), MONTH(timestamp), type
+                UNION ALL
+                SELECT rollup_year, rollup_month, type, total
+                FROM transaction_rollups
+            ) GROUP BY y, m, type
+        """;
+        Map<YearMonth, Map<String, BigDecimal>> totals = new HashMap<>();
+        try (Connection conn = dbManager.getReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                totals.computeIfAbsent(YearMonth.of(rs.getInt(1), rs.getInt(2)), month -> new HashMap<>())
+                        .put(rs.getString(3), rs.getBigDecimal(4));
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nel calcolo dei totali per mese e tipo", e);
+            throw new RuntimeException("Errore nel calcolo dei totali per mese e tipo", e);
+        }
+        return totals;
+    }
+    /**
+     * The rollups do not keep the currency, so archived months are read from the partitions.
+     */
+    @Override
+    public Map<String, Map<String, BigDecimal>> sumAmountByCategoryAndCurrency(String type) {
+        String sql = "SELECT category_name, COALESCE(currency, 'EUR'), SUM(amount) FROM " + archiveCatalog.allTransactions()
+                + " WHERE type = ? GROUP BY category_name, COALESCE(currency, 'EUR')";
+        Map<String, Map<String, BigDecimal>> totals = new HashMap<>();
+        try (Connection conn = dbManager.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, type);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                totals.computeIfAbsent(rs.getString(1), category -> new HashMap<>())
+                        .put(rs.getString(2), rs.getBigDecimal(3));
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nel calcolo dei totali per categoria e valuta", e);
+            throw new RuntimeException("Errore nel calcolo dei totali per categoria e valuta", e);
+        }
+        return totals;
+    }
+    /**
+     * The rollups do not keep the currency, so archived months are read from the partitions.
+     */
+    @Override
+    public Map<YearMonth, Map<String, Map<String, BigDecimal>>> sumAmountByMonthTypeAndCurrency() {
+        String sql = "SELECT YEAR(timestamp), MONTH(timestamp), type, COALESCE(currency, 'EUR'), SUM(amount) FROM "
+                + archiveCatalog.allTransactions()
+                + " GROUP BY YEAR(timestamp), MONTH(timestamp), type, COALESCE(currency, 'EUR')";
+        Map<YearMonth, Map<String, Map<String, BigDecimal>>> totals = new HashMap<>();
+        try (Connection conn = dbManager.getReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                totals.computeIfAbsent(YearMonth.of(rs.getInt(1), rs.getInt(2)), month -> new HashMap<>())
+                        .computeIfAbsent(rs.getString(3), type -> new HashMap<>())
+                        .put(rs.getString(4), rs.getBigDecimal(5));
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nel calcolo dei totali per mese, tipo e valuta", e);
+            throw new RuntimeException("Errore nel calcolo dei totali per mese, tipo e valuta", e);
+        }
+        return totals;
+    }
+    @Override
+    public Map<YearMonth, Map<String, BigDecimal>> sumExpensesByMonthAndCategory() {
+        String sql = """
+            SELECT y, m, category_name, SUM(total) FROM (
+                SELECT YEAR(timestamp) AS y, MONTH(timestamp) AS m, category_name, SUM(amount) AS total
+                FROM transactions WHERE type = 'EXPENSE'
+                GROUP BY YEAR(timestamp), MONTH(timestamp), category_name
+                UNION ALL
+                SELECT rollup_year, rollup_month, category_name, total
+                FROM transaction_rollups WHERE type = 'EXPENSE'
+            ) GROUP BY y, m, category_name
+        """;
+        Map<YearMonth, Map<String, BigDecimal>> totals = new HashMap<>();
+        try (Connection conn = dbManager.getReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                totals.computeIfAbsent(YearMonth.of(rs.getInt(1), rs.getInt(2)), month -> new HashMap<>())
+                        .put(rs.getString(3), rs.getBigDecimal(4));
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nel calcolo delle spese per mese e categoria", e);
+            throw new RuntimeException("Errore nel calcolo delle spese per mese e categoria", e);
+        }
+        return totals;
+    }
+    @Override
+    public Map<String, ExpenseStatistics> expenseStatisticsByCategory() {
+        String sql = """
+            SELECT category_name, SUM(n), SUM(s), SUM(q) FROM (
+                SELECT category_name, COUNT(*) AS n, SUM(amount) AS s, SUM(amount * amount) AS q
+                FROM transactions WHERE type = 'EXPENSE' GROUP BY category_name
+                UNION ALL
+                SELECT category_name, SUM(transaction_count), SUM(total), SUM(sum_of_squares)
+                FROM transaction_rollups WHERE type = 'EXPENSE' GROUP BY category_name
+            ) GROUP BY category_name
+        """;
+        Map<String, ExpenseStatistics> statistics = new HashMap<>();
+        try (Connection conn = dbManager.getReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                statistics.put(rs.getString(1),
+                        new ExpenseStatistics(rs.getLong(2), rs.getBigDecimal(3), rs.getBigDecimal(4)));
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nel calcolo delle statistiche di spesa", e);
+            throw new RuntimeException("Errore nel calcolo delle statistiche di spesa", e);
+        }
+        return statistics;
+    }
+    @Override
+    public Map<String, LedgerTotals> findLedgerTotals() {
+        try (Connection conn = dbManager.getReadConnection()) {
+            return LedgerSummary.read(conn);
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nella lettura dei totali del registro", e);
+            throw new RuntimeException("Errore nella lettura dei totali del registro", e);
+        }
+    }
+    @Override
+    public Map<String, LedgerTotals> sumLedgerTotals() {
+        try (Connection conn = dbManager.getReadConnection()) {
+            return LedgerSummary.sum(conn, archiveCatalog.hasArchives() ? archiveCatalog.allTransactions() : "transactions");
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nel calcolo dei totali del registro", e);
+            throw new RuntimeException("Errore nel calcolo dei totali del registro", e);
+        }
+    }
+    @Override
+    public void replaceLedgerTotals(Map<String, LedgerTotals> totals) {
+        dbManager.run(() -> {
+            try (Connection conn = dbManager.getConnection()) {
+                LedgerSummary.replace(conn, totals);
+            } catch (SQLException e) {
+                logger.log(Level.SEVERE, "Errore nell'aggiornamento dei totali del registro", e);
+                throw new RuntimeException("Errore nell'aggiornamento dei totali del registro", e);
+            }
+        });
+    }
+    @Override
     public void deleteById(String id) {
         String sql = "DELETE FROM transactions WHERE id = ?";
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        dbManager.run(() -> {
+            try (Connection conn = dbManager.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                String source = archiveCatalog.hasArchives() ? archiveCatalog.allTransactions() : "transactions";
+                ExpenseDistribution.apply(conn, source, List.of(id), -1);
+                LedgerSummary.apply(conn, source, List.of(id), -1);
+                stmt.setString(1, id);
+                int rowsAffected = stmt.executeUpdate();
+                if (rowsAffected == 0 && archiveCatalog.hasArchives()) {
+                    rowsAffected = deleteFromArchive(conn, id);
+                }
+                if (rowsAffected > 0) {
+                    DescriptionIndex.remove(conn, id);
+                    dbManager.afterCommit(() -> recentKeys.removeTransaction(id));
+                    logger.info("Transazione eliminata: " + id);
+                }
+            } catch (SQLException e) {
+                logger.log(Level.SEVERE, "Errore nell'eliminazione della transazione", e);
+                throw new RuntimeException("Errore nell'eliminazione della transazione", e);
+            }
+        });
+    }
+    /**
+     * Deletes a transaction from its archive partition and takes it out of the rollups.
+     */
+    private int deleteFromArchive(Connection conn, String id) throws SQLException {
+        String find = "SELECT YEAR(timestamp), MONTH(timestamp), COALESCE(category_name, ''), type, amount FROM "
+                + archiveCatalog.allTransactions() + " WHERE id = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(find)) {
             stmt.setString(1, id);
-            int rowsAffected = stmt.executeUpdate();
-            if (rowsAffected > 0) {
-                logger.info("Transazione eliminata: " + id);
+            ResultSet rs = stmt.executeQuery();
+            if (!rs.next()) {
+                return 0;
+            }
+            int year = rs.getInt(1);
+            try (PreparedStatement delete = conn.prepareStatement("DELETE FROM " + ArchiveCatalog.tableName(year) + " WHERE id = ?");
+                 PreparedStatement rollup = conn.prepareStatement("""
+                     UPDATE transaction_rollups SET transaction_count = transaction_count - 1, total = total - ?,
+                         sum_of_squares = sum_of_squares - ?
+                     WHERE rollup_year = ? AND rollup_month = ? AND category_name = ? AND type = ?
+                 """)) {
+                delete.setString(1, id);
+                int rows = delete.executeUpdate();
+                if (rows > 0) {
+                    BigDecimal amount = rs.getBigDecimal(5);
+                    rollup.setBigDecimal(1, amount);
+                    rollup.setBigDecimal(2, amount.multiply(amount));
+                    rollup.setInt(3, year);
+                    rollup.setInt(4, rs.getInt(2));
+                    rollup.setString(5, rs.getString(3));
+                    rollup.setString(6, rs.getString(4));
+                    rollup.executeUpdate();
+                }
+                return rows;
             }
-        } catch (SQLException e) {
-            logger.log(Level.SEVERE, "Errore nell'eliminazione della transazione", e);
-            throw new RuntimeException("Errore nell'eliminazione della transazione", e);
         }
     }
     @Override
     public boolean existsById(String id) {
-        String sql = "SELECT COUNT(*) FROM transactions WHERE id = ?";
+        String sql = "SELECT COUNT(*) FROM " + archiveCatalog.allTransactions() + " WHERE id = ?";
         try (Connection conn = dbManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, id);
@@ -181,8 +761,11 @@ public class H2TransactionRepository implements TransactionRepository {
     }
     @Override
     public long count() {
-        String sql = "SELECT COUNT(*) FROM transactions";
-        try (Connection conn = dbManager.getConnection();
+        String sql = """
+            SELECT (SELECT COUNT(*) FROM transactions)
+                 + (SELECT COALESCE(SUM(transaction_count), 0) FROM transaction_rollups)
+        """;
+        try (Connection conn = dbManager.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             if (rs.next()) {
@@ -195,6 +778,12 @@ public class H2TransactionRepository implements TransactionRepository {
         }
     }
     private Transaction mapResultSetToTransaction(ResultSet rs) throws SQLException {
+        return mapResultSetToTransaction(rs, new HashMap<>());
+    }
+    /**
+     * Maps a row, resolving each category once per query through the given cache.
+     */
+    private Transaction mapResultSetToTransaction(ResultSet rs, Map<String, Category> categories) throws SQLException {
         String id = rs.getString("id");
         BigDecimal amount = rs.getBigDecimal("amount");
         String description = rs.getString("description");
@@ -202,15 +791,16 @@ public class H2TransactionRepository implements TransactionRepository {
         String categoryName = rs.getString("category_name");
         String type = rs.getString("type");
         String currency = rs.getString("currency");
-        Category category = categoryRepository.findById(categoryName)
-                .orElse(new Category(categoryName, "Categoria temporanea"));
+        Category category = categories.computeIfAbsent(categoryName, name -> categoryRepository.findById(name)
+                .orElse(new Category(name, "Categoria temporanea")));
         if ("INCOME".equals(type)) {
             return new IncomeTransaction(id, amount, description, category, currency, timestamp);
+        } else if ("INVESTMENT".equals(type)) {
+            return new InvestmentTransaction(id, amount, description, category, currency, timestamp);
         } else {
+            // Investments saved before the INVESTMENT type existed were stored as EXPENSE;
+            // nothing on the row tells them apart, so they stay expenses.
             return new ExpenseTransaction(id, amount, description, category, currency, timestamp);
         }
     }
 }
-
-
-
@@ -0,0 +1,57 @@
+package org.finance.repository.impl;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+/**
+ * Bounded LRU map from recently seen idempotency keys to the id of the transaction
+ * they created. It only ever holds committed keys, so a hit can safely answer a
+ * retry without touching the database; a miss falls back to the unique index.
+ * A reverse map from transaction id to key lets a delete forget its key in constant time.
+ */
+final class IdempotencyKeyCache {
+    private final Map<String, String> transactionIdsByKey;
+    private final Map<String, String> keysByTransactionId;
+
+    IdempotencyKeyCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.keysByTransactionId = new HashMap<>();
+        this.transactionIdsByKey = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                if (size() > capacity) {
+                    keysByTransactionId.remove(eldest.getValue(), eldest.getKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    synchronized String get(String key) {
+        return transactionIdsByKey.get(key);
+    }
+    synchronized void put(String key, String transactionId) {
+        String previousId = transactionIdsByKey.put(key, transactionId);
+        if (previousId != null) {
+            keysByTransactionId.remove(previousId, key);
+        }
+        keysByTransactionId.put(transactionId, key);
+    }
+    /**
+     * Forgets the keys of a deleted transaction so that a new submission with the same key is stored again.
+     */
+    synchronized void removeTransaction(String transactionId) {
+        String key = keysByTransactionId.remove(transactionId);
+        if (key != null) {
+            transactionIdsByKey.remove(key, transactionId);
+        }
+    }
+    synchronized int size() {
+        return transactionIdsByKey.size();
+    }
+    synchronized void clear() {
+        transactionIdsByKey.clear();
+        keysByTransactionId.clear();
+    }
+}
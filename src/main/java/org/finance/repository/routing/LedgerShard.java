@@ -0,0 +1,41 @@
+package org.finance.repository.routing;
+import org.finance.database.DatabaseManager;
+import org.finance.model.Category;
+import org.finance.repository.BudgetRepository;
+import org.finance.repository.CategoryRepository;
+import org.finance.repository.RecurringTransactionRepository;
+import org.finance.repository.TransactionRepository;
+import org.finance.repository.impl.H2BudgetRepository;
+import org.finance.repository.impl.H2CategoryRepository;
+import org.finance.repository.impl.H2RecurringTransactionRepository;
+import org.finance.repository.impl.H2TransactionRepository;
+/**
+ * A single ledger stored in its own H2 database file, with its own connection pools
+ * and repositories. A new ledger starts with the default categories, so that its
+ * first transactions satisfy the category foreign key.
+ */
+public class LedgerShard {
+    private final String ledgerId;
+    private final DatabaseManager dbManager;
+    private final CategoryRepository categoryRepository;
+    private final BudgetRepository budgetRepository;
+    private final TransactionRepository transactionRepository;
+    private final RecurringTransactionRepository recurringTransactionRepository;
+    public LedgerShard(String ledgerId, DatabaseManager dbManager) {
+        this.ledgerId = LedgerShardRegistry.validateLedgerId(ledgerId);
+        this.dbManager = dbManager;
+        this.categoryRepository = new H2CategoryRepository(dbManager);
+        this.budgetRepository = new H2BudgetRepository(categoryRepository, dbManager);
+        this.transactionRepository = new H2TransactionRepository(categoryRepository, dbManager);
+        this.recurringTransactionRepository = new H2RecurringTransactionRepository(categoryRepository, dbManager);
+        if (categoryRepository.count() == 0) {
+            Category.defaults().forEach(categoryRepository::save);
+        }
+    }
+    public String getLedgerId() { return ledgerId; }
+    public DatabaseManager getDatabaseManager() { return dbManager; }
+    public CategoryRepository getCategoryRepository() { return categoryRepository; }
+    public BudgetRepository getBudgetRepository() { return budgetRepository; }
+    public TransactionRepository getTransactionRepository() { return transactionRepository; }
+    public RecurringTransactionRepository getRecurringTransactionRepository() { return recurringTransactionRepository; }
+}
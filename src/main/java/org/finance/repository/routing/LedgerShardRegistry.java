@@ -0,0 +1,104 @@
+package org.finance.repository.routing;
+import org.finance.database.DatabaseManager;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+/**
+ * Maps ledger ids to their shards. The default ledger keeps using the main database;
+ * every other ledger gets its own file under the shard directory, opened lazily.
+ * Callers pick a shard explicitly and build their services on its database manager
+ * and repositories; there is no ambient "current ledger".
+ */
+public class LedgerShardRegistry {
+    private static final Logger logger = Logger.getLogger(LedgerShardRegistry.class.getName());
+    public static final String DEFAULT_LEDGER = "default";
+    private static final Pattern VALID_LEDGER_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final String SHARD_FILE_SUFFIX = ".mv.db";
+    private final DatabaseManager defaultDatabase;
+    private final Path shardDirectory;
+    private final Map<String, LedgerShard> shards;
+    /**
+     * @param defaultDatabase database of the default ledger
+     * @param shardDirectory  directory holding one database file per other ledger
+     */
+    public LedgerShardRegistry(DatabaseManager defaultDatabase, Path shardDirectory) {
+        this.defaultDatabase = Objects.requireNonNull(defaultDatabase, "Default database cannot be null");
+        this.shardDirectory = shardDirectory.toAbsolutePath();
+        this.shards = new ConcurrentHashMap<>();
+    }
+    /**
+     * Gets the shard of a ledger, creating its database on first use.
+     */
+    public LedgerShard shardFor(String ledgerId) {
+        LedgerShard shard = shards.get(validateLedgerId(ledgerId));
+        if (shard != null) {
+            return shard;
+        }
+        synchronized (shards) {
+            shard = shards.get(ledgerId);
+            if (shard == null) {
+                shard = openShard(ledgerId);
+                shards.put(ledgerId, shard);
+            }
+            return shard;
+        }
+    }
+    private LedgerShard openShard(String ledgerId) {
+        if (DEFAULT_LEDGER.equals(ledgerId)) {
+            return new LedgerShard(ledgerId, defaultDatabase);
+        }
+        String url = "jdbc:h2:" + shardDirectory.resolve(ledgerId) + ";AUTO_SERVER=TRUE";
+        logger.info("Apertura shard ledger " + ledgerId);
+        return new LedgerShard(ledgerId, DatabaseManager.forUrl(url));
+    }
+    /**
+     * Checks that a ledger id is safe to use as a database file name.
+     */
+    public static String validateLedgerId(String ledgerId) {
+        Objects.requireNonNull(ledgerId, "Ledger ID cannot be null");
+        if (!VALID_LEDGER_ID.matcher(ledgerId).matches()) {
+            throw new IllegalArgumentException("Invalid ledger ID: " + ledgerId);
+        }
+        return ledgerId;
+    }
+    /**
+     * Lists every known ledger: the default one plus each shard file on disk.
+     */
+    public List<String> getLedgerIds() {
+        TreeSet<String> ids = new TreeSet<>(shards.keySet());
+        ids.add(DEFAULT_LEDGER);
+        if (Files.isDirectory(shardDirectory)) {
+            try (Stream<Path> files = Files.list(shardDirectory)) {
+                files.map(file -> file.getFileName().toString())
+                        .filter(name -> name.endsWith(SHARD_FILE_SUFFIX))
+                        .map(name -> name.substring(0, name.length() - SHARD_FILE_SUFFIX.length()))
+                        .forEach(ids::add);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Impossibile elencare gli shard dei ledger", e);
+            }
+        }
+        return new ArrayList<>(ids);
+    }
+    /**
+     * Gets the shards of every known ledger, opening them if needed.
+     */
+    public List<LedgerShard> getAllShards() {
+        return getLedgerIds().stream().map(this::shardFor).toList();
+    }
+    /**
+     * Releases the connection pools of every opened shard.
+     */
+    public void close() {
+        shards.values().forEach(shard -> shard.getDatabaseManager().closeConnection());
+    }
+}
@@ -0,0 +1,132 @@
+package org.finance.search;
+import org.finance.archive.ArchiveCatalog;
+import org.finance.database.DatabaseManager;
+import org.finance.model.Transaction;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+/**
+ * Inverted index over transaction descriptions: one row per (word, transaction) in
+ * transaction_tokens, whose primary key orders the postings by word so both exact
+ * words and prefixes are index range scans.
+ * <p>
+ * The repository keeps it in step with the transactions in the same unit of work;
+ * it is derived data, so snapshots do not carry it and restores rebuild it.
+ * Postings of archived transactions stay in the index.
+ */
+public class DescriptionIndex {
+    private static final Logger logger = Logger.getLogger(DescriptionIndex.class.getName());
+    private static final int BATCH_SIZE = 10_000;
+    private static final String INSERT = "INSERT INTO transaction_tokens (token, transaction_id) VALUES (?, ?)";
+    private static final String DELETE = "DELETE FROM transaction_tokens WHERE transaction_id = ?";
+    private final DatabaseManager dbManager;
+
+    public DescriptionIndex(DatabaseManager dbManager) {
+        this.dbManager = Objects.requireNonNull(dbManager, "Database manager cannot be null");
+    }
+    /**
+     * Replaces the postings of the given transactions.
+     *
+     * @param replace false when the transactions are known to be new, skipping the delete
+     */
+    public static void index(Connection conn, List<? extends Transaction> transactions, boolean replace) throws SQLException {
+        if (replace) {
+            try (PreparedStatement delete = conn.prepareStatement(DELETE)) {
+                for (Transaction transaction : transactions) {
+                    delete.setString(1, transaction.getId());
+                    delete.addBatch();
+                }
+                delete.executeBatch();
+            }
+        }
+        try (PreparedStatement insert = conn.prepareStatement(INSERT)) {
+            int pending = 0;
+            for (Transaction transaction : transactions) {
+                for (String token : DescriptionTokenizer.tokens(transaction.getDescription())) {
+                    insert.setString(1, token);
+                    insert.setString(2, transaction.getId());
+                    insert.addBatch();
+                    if (++pending == BATCH_SIZE) {
+                        insert.executeBatch();
+                        pending = 0;
+                    }
+                }
+            }
+            if (pending > 0) {
+                insert.executeBatch();
+            }
+        }
+    }
+    public static void remove(Connection conn, String transactionId) throws SQLException {
+        try (PreparedStatement delete = conn.prepareStatement(DELETE)) {
+            delete.setString(1, transactionId);
+            delete.executeUpdate();
+        }
+    }
+    /**
+     * Builds the index when it is empty but transactions exist, e.g. on a ledger
+     * created before full-text search.
+     */
+    public void ensureBuilt() {
+        try (Connection conn = dbManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("""
+                 SELECT EXISTS(SELECT 1 FROM transactions) AND NOT EXISTS(SELECT 1 FROM transaction_tokens)
+             """)) {
+            rs.next();
+            if (!rs.getBoolean(1)) {
+                return;
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nella verifica dell'indice di ricerca", e);
+            throw new RuntimeException("Errore nella verifica dell'indice di ricerca", e);
+        }
+        dbManager.run(() -> {
+            try (Connection conn = dbManager.getConnection()) {
+                indexAll(conn, ArchiveCatalog.forDatabase(dbManager).allTransactions());
+            } catch (SQLException e) {
+                logger.log(Level.SEVERE, "Errore nella costruzione dell'indice di ricerca", e);
+                throw new RuntimeException("Errore nella costruzione dell'indice di ricerca", e);
+            }
+        });
+    }
+    /**
+     * Indexes every description of the given source on the caller's transaction.
+     * The index must be empty.
+     */
+    public static void indexAll(Connection conn, String source) throws SQLException {
+        long start = System.nanoTime();
+        long postings = 0;
+        try (Statement query = conn.createStatement();
+             PreparedStatement insert = conn.prepareStatement(INSERT)) {
+            query.setFetchSize(BATCH_SIZE);
+            try (ResultSet rs = query.executeQuery("SELECT id, description FROM " + source)) {
+                int pending = 0;
+                while (rs.next()) {
+                    String id = rs.getString(1);
+                    for (String token : DescriptionTokenizer.tokens(rs.getString(2))) {
+                        insert.setString(1, token);
+                        insert.setString(2, id);
+                        insert.addBatch();
+                        postings++;
+                        if (++pending == BATCH_SIZE) {
+                            insert.executeBatch();
+                            pending = 0;
+                        }
+                    }
+                }
+                if (pending > 0) {
+                    insert.executeBatch();
+                }
+            }
+        }
+        logger.info("Indice di ricerca costruito: " + postings + " voci in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+}
@@ -0,0 +1,57 @@
+package org.finance.search;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+/**
+ * Splits descriptions into the words stored in the full-text index.
+ * Words are runs of letters and digits, lower-cased; single characters are dropped
+ * and long words are cut to {@link #MAX_TOKEN_LENGTH}. Queries go through the same
+ * rules, so "Esselunga" in a description is found by "esse" or "ESSELUNGA".
+ * Query terms shorter than {@link #MIN_PREFIX_LENGTH} match whole words only: a
+ * two-letter prefix would pull in a large share of the index.
+ */
+public final class DescriptionTokenizer {
+    public static final int MAX_TOKEN_LENGTH = 50;
+    public static final int MIN_PREFIX_LENGTH = 3;
+    private static final int MIN_TOKEN_LENGTH = 2;
+
+    private DescriptionTokenizer() {
+    }
+    /**
+     * Gets the distinct words of a description, in order of first appearance.
+     */
+    public static Set<String> tokens(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (word.length() < MAX_TOKEN_LENGTH) {
+                    word.append(Character.toLowerCase(c));
+                }
+            } else if (!word.isEmpty()) {
+                if (word.length() >= MIN_TOKEN_LENGTH) {
+                    tokens.add(word.toString());
+                }
+                word.setLength(0);
+            }
+        }
+        return tokens;
+    }
+    /**
+     * Gets the prefixes to look up for a query; every one must match some word of a description.
+     */
+    public static List<String> queryTerms(String query) {
+        return new ArrayList<>(tokens(query));
+    }
+    /**
+     * Tells whether a query term is matched as a word prefix rather than as a whole word.
+     */
+    public static boolean isPrefixTerm(String term) {
+        return term.length() >= MIN_PREFIX_LENGTH;
+    }
+}
@@ -0,0 +1,150 @@
+package org.finance.service;
+import org.finance.model.Transaction;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+/**
+ * Non-blocking facade over PersistentFinanceService.
+ * Every operation runs on a bounded executor sized to the connection pool, so callers
+ * never block on JDBC and the facade never asks for more connections than the pool holds.
+ * The wrapped service is built on one ledger's database, so the worker threads carry no
+ * ledger state of their own.
+ */
+public class AsyncFinanceService implements AutoCloseable {
+    private static final int QUEUE_CAPACITY_PER_THREAD = 64;
+    private final PersistentFinanceService financeService;
+    private final ExecutorService executor;
+
+    /**
+     * @param threads worker threads, usually the connection pool size of the ledger's database
+     */
+    public AsyncFinanceService(PersistentFinanceService financeService, int threads) {
+        this(financeService, createBoundedExecutor(threads));
+    }
+    public AsyncFinanceService(PersistentFinanceService financeService, ExecutorService executor) {
+        this.financeService = Objects.requireNonNull(financeService, "Finance service cannot be null");
+        this.executor = Objects.requireNonNull(executor, "Executor cannot be null");
+    }
+    /**
+     * Creates a fixed-size executor with a bounded queue. When the queue is full the task
+     * is rejected and the caller gets a failed future, so submitting never blocks or runs JDBC
+     * on the caller's thread; callers apply back-pressure by retrying later.
+     */
+    private static ExecutorService createBoundedExecutor(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "finance-async-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUE_CAPACITY_PER_THREAD),
+                threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+    private <T> CompletableFuture<T> supply(Supplier<T> operation) {
+        try {
+            return CompletableFuture.supplyAsync(operation, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    private CompletableFuture<Void> run(Runnable operation) {
+        try {
+            return CompletableFuture.runAsync(operation, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    public CompletableFuture<Void> addTransaction(Transaction transaction) {
+        return run(() -> financeService.addTransaction(transaction));
+    }
+    /**
+     * Completes with false when the idempotency key had already been used.
+     */
+    public CompletableFuture<Boolean> addTransaction(Transaction transaction, String idempotencyKey) {
+        return supply(() -> financeService.addTransaction(transaction, idempotencyKey));
+    }
+    public CompletableFuture<Void> removeTransaction(String transactionId) {
+        return run(() -> financeService.removeTransaction(transactionId));
+    }
+    public CompletableFuture<List<Transaction>> getAllTransactions() {
+        return supply(financeService::getAllTransactions);
+    }
+    public CompletableFuture<List<Transaction>> getTransactionsByCategory(String categoryName) {
+        return supply(() -> financeService.getTransactionsByCategory(categoryName));
+    }
+    public CompletableFuture<List<Transaction>> getTransactionsByDateRange(LocalDate startDate, LocalDate endDate) {
+        return supply(() -> financeService.getTransactionsByDateRange(startDate, endDate));
+    }
+    public CompletableFuture<BigDecimal> getTotalIncome() {
+        return supply(financeService::getTotalIncome);
+    }
+    public CompletableFuture<BigDecimal> getTotalExpenses() {
+        return supply(financeService::getTotalExpenses);
+    }
+    public CompletableFuture<BigDecimal> getTotalInvestments() {
+        return supply(financeService::getTotalInvestments);
+    }
+    /**
+     * Gets income minus expenses and investments, as {@link PersistentFinanceService#getBalance()}.
+     */
+    public CompletableFuture<BigDecimal> getBalance() {
+        return supply(financeService::getBalance);
+    }
+    public CompletableFuture<Map<String, BigDecimal>> getExpensesByCategory() {
+        return supply(financeService::getExpensesByCategory);
+    }
+    /**
+     * Runs all general report queries in parallel and completes when every one is ready.
+     */
+    public CompletableFuture<BalanceReport> getBalanceReport() {
+        CompletableFuture<BigDecimal> income = getTotalIncome();
+        CompletableFuture<BigDecimal> expenses = getTotalExpenses();
+        CompletableFuture<BigDecimal> investments = getTotalInvestments();
+        CompletableFuture<Map<String, BigDecimal>> byCategory = getExpensesByCategory();
+        return CompletableFuture.allOf(income, expenses, investments, byCategory)
+                .thenApply(ignored -> new BalanceReport(income.join(), expenses.join(), investments.join(),
+                        byCategory.join()));
+    }
+    /**
+     * Stops accepting new work and waits briefly for queued operations to finish.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+    /**
+     * Aggregated result of the general balance report.
+     */
+    public record BalanceReport(BigDecimal totalIncome, BigDecimal totalExpenses, BigDecimal totalInvestments,
+                                Map<String, BigDecimal> expensesByCategory) {
+        /**
+         * Gets income minus expenses and investments, like the ledger balance.
+         */
+        public BigDecimal balance() {
+            return totalIncome.subtract(totalExpenses).subtract(totalInvestments);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.finance.service;
+import org.finance.model.Budget;
+import org.finance.repository.BudgetRepository;
+import org.finance.repository.TransactionRepository;
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.logging.Logger;
+/**
+ * Recomputes the spending of every budget after bulk loads.
+ * Instead of one budget lookup and save per expense, it runs a single aggregation of
+ * expenses grouped by month and category, compares the result with the stored values
+ * and writes only the budgets that changed, in one batch.
+ * <p>
+ * It is the only recomputation of budget spending: the service runs it after bulk
+ * loads and the spend accumulator runs it on replay. The aggregation covers the hot
+ * table and the rollups of archived months, so archiving never changes a budget.
+ */
+public class BudgetRecomputationJob {
+    private static final Logger logger = Logger.getLogger(BudgetRecomputationJob.class.getName());
+    private final TransactionRepository transactionRepository;
+    private final BudgetRepository budgetRepository;
+
+    public BudgetRecomputationJob(TransactionRepository transactionRepository, BudgetRepository budgetRepository) {
+        this.transactionRepository = Objects.requireNonNull(transactionRepository, "Transaction repository cannot be null");
+        this.budgetRepository = Objects.requireNonNull(budgetRepository, "Budget repository cannot be null");
+    }
+    /**
+     * Runs the recomputation and returns the budgets whose spending changed, with the new values.
+     */
+    public List<Budget> run() {
+        Map<YearMonth, Map<String, BigDecimal>> expenses = transactionRepository.sumExpensesByMonthAndCategory();
+        List<Budget> changed = new ArrayList<>();
+        Map<String, BigDecimal> spentByBudgetId = new HashMap<>();
+        for (Budget budget : budgetRepository.findAll()) {
+            BigDecimal spent = expenses.getOrDefault(budget.getPeriod(), Map.of())
+                    .getOrDefault(budget.getCategory().getName(), BigDecimal.ZERO);
+            if (spent.compareTo(budget.getSpent()) != 0) {
+                spentByBudgetId.put(budget.getId(), spent);
+                changed.add(new Budget(budget.getId(), budget.getCategory(), budget.getAmount(), budget.getPeriod(), spent));
+            }
+        }
+        budgetRepository.updateSpent(spentByBudgetId);
+        logger.info("Budget ricalcolati: " + changed.size() + " modificati");
+        return changed;
+    }
+}
@@ -0,0 +1,293 @@
+package org.finance.service;
+import org.finance.model.Budget;
+import org.finance.model.ExpenseTransaction;
+import org.finance.repository.BudgetRepository;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+/**
+ * In-memory accumulator of budget spending based on striped LongAdder counters.
+ * Expenses update the counters without touching the database; the accumulated deltas
+ * are written to the budgets table in one batch on a schedule and at shutdown.
+ * Amounts are tracked in cents so every update is a single lock-free add.
+ * <p>
+ * Recording takes the shared side of a read-write lock and rebuilding the counters the
+ * exclusive side, so a reload never discards an expense recorded concurrently and
+ * never runs between the commit of an expense and its recording.
+ */
+public class BudgetSpendAccumulator implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(BudgetSpendAccumulator.class.getName());
+    private final BudgetRepository budgetRepository;
+    private final BudgetRecomputationJob recomputationJob;
+    private final Map<String, BudgetCounter> countersById;
+    private final Map<String, List<BudgetCounter>> countersByCategoryAndPeriod;
+    private final ReadWriteLock countersLock = new ReentrantReadWriteLock();
+    private ScheduledExecutorService flushScheduler;
+
+    public BudgetSpendAccumulator(BudgetRepository budgetRepository, BudgetRecomputationJob recomputationJob) {
+        this.budgetRepository = Objects.requireNonNull(budgetRepository, "Budget repository cannot be null");
+        this.recomputationJob = Objects.requireNonNull(recomputationJob, "Recomputation job cannot be null");
+        this.countersById = new ConcurrentHashMap<>();
+        this.countersByCategoryAndPeriod = new ConcurrentHashMap<>();
+    }
+    /**
+     * Rebuilds the spent column with the recomputation job, over the hot table and the
+     * archive rollups, and loads every budget. Deltas not flushed before a crash are
+     * recovered because spending is derived from the transactions themselves rather
+     * than from the last flushed value.
+     */
+    public void replay() {
+        rebuild(recomputationJob::run);
+    }
+    /**
+     * Flushes the pending deltas, runs the given recomputation of the persisted spending
+     * and reloads the counters from it, with recording held off for the whole sequence.
+     */
+    public <T> T rebuild(Supplier<T> recomputation) {
+        countersLock.writeLock().lock();
+        try {
+            flush();
+            T result = recomputation.get();
+            reload();
+            return result;
+        } finally {
+            countersLock.writeLock().unlock();
+        }
+    }
+    /**
+     * Discards the counters and reloads them from the persisted spending.
+     * Flush first if pending deltas must not be lost.
+     */
+    public void reload() {
+        countersLock.writeLock().lock();
+        try {
+            synchronized (this) {
+                countersById.clear();
+                countersByCategoryAndPeriod.clear();
+                budgetRepository.findAll().forEach(this::register);
+            }
+            logger.info("Contatori budget ricaricati: " + countersById.size());
+        } finally {
+            countersLock.writeLock().unlock();
+        }
+    }
+    /**
+     * Runs a write that records expenses here, e.g. a unit of work followed by
+     * recordExpense, without letting a rebuild or reload run in between.
+     */
+    public <T> T whileRecording(Supplier<T> write) {
+        countersLock.readLock().lock();
+        try {
+            return write.get();
+        } finally {
+            countersLock.readLock().unlock();
+        }
+    }
+    /**
+     * Starts the periodic flush of accumulated deltas.
+     */
+    public synchronized void start(long flushInterval, TimeUnit unit) {
+        if (flushScheduler != null) {
+            return;
+        }
+        flushScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "budget-spend-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushScheduler.scheduleWithFixedDelay(this::flushQuietly, flushInterval, flushInterval, unit);
+    }
+    /**
+     * Starts tracking a budget, seeded with its persisted spending.
+     */
+    public void register(Budget budget) {
+        countersLock.writeLock().lock();
+        try {
+            BudgetCounter counter = new BudgetCounter(budget);
+            BudgetCounter previous = countersById.put(budget.getId(), counter);
+            if (previous != null) {
+                indexFor(previous.key()).remove(previous);
+            }
+            indexFor(counter.key()).add(counter);
+        } finally {
+            countersLock.writeLock().unlock();
+        }
+    }
+    /**
+     * Stops tracking a budget and discards its pending deltas.
+     */
+    public void unregister(String budgetId) {
+        countersLock.writeLock().lock();
+        try {
+            BudgetCounter counter = countersById.remove(budgetId);
+            if (counter != null) {
+                indexFor(counter.key()).remove(counter);
+            }
+        } finally {
+            countersLock.writeLock().unlock();
+        }
+    }
+    /**
+     * Adds an expense to every matching budget and returns their updated snapshots.
+     */
+    public List<Budget> recordExpense(ExpenseTransaction expense) {
+        return apply(expense, toCents(expense.getAmount()));
+    }
+    /**
+     * Removes a previously recorded expense from every matching budget.
+     */
+    public List<Budget> revertExpense(ExpenseTransaction expense) {
+        return apply(expense, -toCents(expense.getAmount()));
+    }
+    private List<Budget> apply(ExpenseTransaction expense, long cents) {
+        String key = key(expense.getCategory().getName(), YearMonth.from(expense.getTimestamp()));
+        return whileRecording(() -> {
+            List<BudgetCounter> counters = countersByCategoryAndPeriod.get(key);
+            if (counters == null || counters.isEmpty()) {
+                return List.of();
+            }
+            List<Budget> updated = new ArrayList<>(counters.size());
+            for (BudgetCounter counter : counters) {
+                counter.spentCents.add(cents);
+                counter.pendingCents.add(cents);
+                updated.add(counter.snapshot());
+            }
+            return updated;
+        });
+    }
+    /**
+     * Gets the current spending of a budget in O(1), including unflushed deltas.
+     * Like the stored spent, it is not clamped: a revert applied before the expense it
+     * undoes leaves it briefly negative, and the two always agree after a flush.
+     */
+    public BigDecimal getSpent(String budgetId) {
+        BudgetCounter counter = countersById.get(budgetId);
+        return counter == null ? BigDecimal.ZERO : fromCents(counter.spentCents.sum());
+    }
+    /**
+     * Returns a copy of the budget carrying the live spending, or the budget itself if untracked.
+     */
+    public Budget withLiveSpent(Budget budget) {
+        BudgetCounter counter = countersById.get(budget.getId());
+        return counter == null ? budget : counter.snapshot();
+    }
+    public boolean isExceeded(String budgetId) {
+        BudgetCounter counter = countersById.get(budgetId);
+        return counter != null && counter.spentCents.sum() > counter.limitCents;
+    }
+    public boolean isNearLimit(String budgetId) {
+        BudgetCounter counter = countersById.get(budgetId);
+        return counter != null && counter.spentCents.sum() * 10 >= counter.limitCents * 9;
+    }
+    /**
+     * Writes all pending deltas to the budgets table in a single batch.
+     * If the write fails the deltas are put back so the next flush retries them.
+     */
+    public synchronized void flush() {
+        Map<String, Long> drained = new HashMap<>();
+        for (BudgetCounter counter : countersById.values()) {
+            long delta = counter.pendingCents.sumThenReset();
+            if (delta != 0) {
+                drained.put(counter.budget.getId(), delta);
+            }
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+        Map<String, BigDecimal> deltas = new HashMap<>();
+        drained.forEach((id, cents) -> deltas.put(id, fromCents(cents)));
+        try {
+            budgetRepository.addSpent(deltas);
+        } catch (RuntimeException e) {
+            drained.forEach((id, cents) -> {
+                BudgetCounter counter = countersById.get(id);
+                if (counter != null) {
+                    counter.pendingCents.add(cents);
+                }
+            });
+            throw e;
+        }
+    }
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Flush dei contatori budget fallito, nuovo tentativo al prossimo ciclo", e);
+        }
+    }
+    /**
+     * Stops the scheduler, waits for a flush in progress and flushes the remaining deltas.
+     * The periodic flush can be started again.
+     */
+    @Override
+    public void close() {
+        ScheduledExecutorService stopped;
+        synchronized (this) {
+            stopped = flushScheduler;
+            flushScheduler = null;
+        }
+        if (stopped != null) {
+            stopped.shutdown();
+            try {
+                if (!stopped.awaitTermination(30, TimeUnit.SECONDS)) {
+                    stopped.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                stopped.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+    private List<BudgetCounter> indexFor(String key) {
+        return countersByCategoryAndPeriod.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>());
+    }
+    private static String key(String categoryName, YearMonth period) {
+        return categoryName + "|" + period;
+    }
+    private static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+    private static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+    /**
+     * Live counters of a single budget.
+     */
+    private static final class BudgetCounter {
+        private final Budget budget;
+        private final long limitCents;
+        private final LongAdder spentCents;
+        private final LongAdder pendingCents;
+        private BudgetCounter(Budget budget) {
+            this.budget = budget;
+            this.limitCents = toCents(budget.getAmount());
+            this.spentCents = new LongAdder();
+            this.spentCents.add(toCents(budget.getSpent()));
+            this.pendingCents = new LongAdder();
+        }
+        private String key() {
+            return BudgetSpendAccumulator.key(budget.getCategory().getName(), budget.getPeriod());
+        }
+        private Budget snapshot() {
+            return new Budget(budget.getId(), budget.getCategory(), budget.getAmount(), budget.getPeriod(),
+                    fromCents(spentCents.sum()));
+        }
+    }
+}
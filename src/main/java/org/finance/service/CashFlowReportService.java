@@ -0,0 +1,67 @@
+package org.finance.service;
+import org.finance.repository.TransactionRepository;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+/**
+ * Monthly income, expense and net series.
+ * The totals come from one aggregation grouped by month and type, which includes the
+ * archive rollups; the series and its rolling averages are then derived in memory.
+ */
+public class CashFlowReportService {
+    private final TransactionRepository transactionRepository;
+    private final ReportCache reportCache;
+
+    public CashFlowReportService(TransactionRepository transactionRepository) {
+        this(transactionRepository, null);
+    }
+    /**
+     * @param reportCache cache for the series, or null to compute it on every call
+     */
+    public CashFlowReportService(TransactionRepository transactionRepository, ReportCache reportCache) {
+        this.transactionRepository = Objects.requireNonNull(transactionRepository, "Transaction repository cannot be null");
+        this.reportCache = reportCache;
+    }
+    /**
+     * Gets the series from the first month with transactions to the current month
+     * (or to the last month with transactions, if later).
+     */
+    public CashFlowSeries getSeries() {
+        YearMonth current = YearMonth.now();
+        if (reportCache == null) {
+            return computeSeries(current);
+        }
+        return reportCache.get("cashFlowSeries", () -> computeSeries(current), current);
+    }
+    /**
+     * Gets the series with every amount in the given currency. Amounts are summed per
+     * month, type and currency, and each subtotal is converted once at the rate of the
+     * last day of its month.
+     *
+     * @throws IllegalStateException if a rate needed for the conversion is missing
+     */
+    public CashFlowSeries getSeriesIn(String currency, CurrencyConverter converter) {
+        LocalDate today = LocalDate.now();
+        Map<YearMonth, Map<String, BigDecimal>> totals = new HashMap<>();
+        transactionRepository.sumAmountByMonthTypeAndCurrency().forEach((month, byType) -> {
+            LocalDate date = month.atEndOfMonth().isAfter(today) ? today : month.atEndOfMonth();
+            totals.put(month, converter.convertGroups(byType, currency, type -> date));
+        });
+        return seriesOf(totals, YearMonth.from(today));
+    }
+    private CashFlowSeries computeSeries(YearMonth current) {
+        return seriesOf(transactionRepository.sumAmountByMonthAndType(), current);
+    }
+    private static CashFlowSeries seriesOf(Map<YearMonth, Map<String, BigDecimal>> totals, YearMonth current) {
+        if (totals.isEmpty()) {
+            return CashFlowSeries.of(totals, current, current);
+        }
+        YearMonth first = Collections.min(totals.keySet());
+        YearMonth last = Collections.max(totals.keySet());
+        return CashFlowSeries.of(totals, first, last.isAfter(current) ? last : current);
+    }
+}
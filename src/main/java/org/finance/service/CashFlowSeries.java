@@ -0,0 +1,62 @@
+package org.finance.service;
+import org.finance.model.MonthlyCashFlow;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+/**
+ * Consecutive monthly cash flows, months without transactions included as zeros,
+ * so that a window of n entries always spans n calendar months.
+ * Rolling averages are computed in one pass with a sliding sum.
+ */
+public final class CashFlowSeries {
+    private final List<MonthlyCashFlow> months;
+
+    private CashFlowSeries(List<MonthlyCashFlow> months) {
+        this.months = Collections.unmodifiableList(months);
+    }
+    /**
+     * Builds the series from first to last, both included, from totals keyed by month
+     * and transaction type ("INCOME"/"EXPENSE"/"INVESTMENT"); missing months and types count as zero.
+     */
+    public static CashFlowSeries of(Map<YearMonth, Map<String, BigDecimal>> totals, YearMonth first, YearMonth last) {
+        if (first.isAfter(last)) {
+            throw new IllegalArgumentException("First month must not be after last month");
+        }
+        List<MonthlyCashFlow> months = new ArrayList<>();
+        for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+            Map<String, BigDecimal> byType = totals.getOrDefault(month, Map.of());
+            months.add(new MonthlyCashFlow(month, byType.getOrDefault("INCOME", BigDecimal.ZERO),
+                    byType.getOrDefault("EXPENSE", BigDecimal.ZERO), byType.getOrDefault("INVESTMENT", BigDecimal.ZERO)));
+        }
+        return new CashFlowSeries(months);
+    }
+    public List<MonthlyCashFlow> getMonths() {
+        return months;
+    }
+    /**
+     * Averages a metric over the last {@code window} months ending at each month.
+     * The result is aligned with {@link #getMonths()}; entries are null until a full
+     * window is available.
+     */
+    public List<BigDecimal> rollingAverages(int window, Function<MonthlyCashFlow, BigDecimal> metric) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("Window must be positive");
+        }
+        BigDecimal size = BigDecimal.valueOf(window);
+        List<BigDecimal> averages = new ArrayList<>(months.size());
+        BigDecimal sum = BigDecimal.ZERO;
+        for (int i = 0; i < months.size(); i++) {
+            sum = sum.add(metric.apply(months.get(i)));
+            if (i >= window) {
+                sum = sum.subtract(metric.apply(months.get(i - window)));
+            }
+            averages.add(i + 1 >= window ? sum.divide(size, 2, RoundingMode.HALF_UP) : null);
+        }
+        return averages;
+    }
+}
@@ -0,0 +1,112 @@
+package org.finance.service;
+import org.finance.model.LedgerTotals;
+import org.finance.model.Transaction;
+import org.finance.repository.TopN;
+import org.finance.repository.TransactionCriteria;
+import org.finance.repository.TransactionRepository;
+import org.finance.repository.routing.LedgerShard;
+import org.finance.repository.routing.LedgerShardRegistry;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+/**
+ * Aggregate reports across every ledger shard.
+ * Each query is sent to all shards in parallel and the partial results are merged.
+ * Amounts are summed per currency first and each subtotal converted once, since
+ * ledgers may keep their books in different currencies.
+ */
+public class CrossLedgerReportService {
+    private final LedgerShardRegistry registry;
+    private final Executor executor;
+    private final CurrencyConverter currencyConverter;
+    public CrossLedgerReportService(LedgerShardRegistry registry, Executor executor, CurrencyConverter currencyConverter) {
+        this.registry = Objects.requireNonNull(registry, "Registry cannot be null");
+        this.executor = Objects.requireNonNull(executor, "Executor cannot be null");
+        this.currencyConverter = Objects.requireNonNull(currencyConverter, "Currency converter cannot be null");
+    }
+    /**
+     * Runs a query on every shard in parallel and returns the results keyed by ledger id.
+     */
+    public <T> Map<String, T> fanOut(Function<TransactionRepository, T> query) {
+        List<LedgerShard> shards = registry.getAllShards();
+        Map<String, CompletableFuture<T>> futures = new LinkedHashMap<>();
+        for (LedgerShard shard : shards) {
+            futures.put(shard.getLedgerId(), CompletableFuture.supplyAsync(
+                    () -> query.apply(shard.getTransactionRepository()), executor));
+        }
+        CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new)).join();
+        Map<String, T> results = new LinkedHashMap<>();
+        futures.forEach((ledgerId, future) -> results.put(ledgerId, future.join()));
+        return results;
+    }
+    /**
+     * Gets the running totals of every ledger, added up per currency.
+     */
+    public Map<String, LedgerTotals> getLedgerTotals() {
+        Map<String, LedgerTotals> merged = new HashMap<>();
+        fanOut(TransactionRepository::findLedgerTotals)
+                .values()
+                .forEach(partial -> partial.forEach((currency, totals) -> merged.merge(currency, totals, LedgerTotals::plus)));
+        return merged;
+    }
+    public BigDecimal getTotalIncomeIn(String currency) {
+        return convertTotals(LedgerTotals::income, currency);
+    }
+    public BigDecimal getTotalExpensesIn(String currency) {
+        return convertTotals(LedgerTotals::expenses, currency);
+    }
+    public BigDecimal getTotalInvestmentsIn(String currency) {
+        return convertTotals(LedgerTotals::investments, currency);
+    }
+    /**
+     * Gets income minus expenses and investments of all ledgers in the given currency,
+     * like the balance of a single ledger.
+     *
+     * @throws IllegalStateException if a rate is missing
+     */
+    public BigDecimal getBalanceIn(String currency) {
+        return convertTotals(LedgerTotals::balance, currency);
+    }
+    /**
+     * Gets the expenses per category of all ledgers in the given currency: the
+     * per-currency subtotals of the shards are added up and converted once.
+     *
+     * @throws IllegalStateException if a rate is missing
+     */
+    public Map<String, BigDecimal> getExpensesByCategoryIn(String currency) {
+        Map<String, Map<String, BigDecimal>> merged = new HashMap<>();
+        fanOut(repository -> repository.sumAmountByCategoryAndCurrency("EXPENSE"))
+                .values()
+                .forEach(partial -> partial.forEach((category, byCurrency) -> byCurrency.forEach((from, amount) ->
+                        merged.computeIfAbsent(category, c -> new HashMap<>()).merge(from, amount, BigDecimal::add))));
+        LocalDate today = LocalDate.now();
+        return currencyConverter.convertGroups(merged, currency, category -> today);
+    }
+    /**
+     * Gets the largest expenses across all ledgers: each shard returns its own top
+     * {@code limit} and the partial lists are merged with a bounded heap. Amounts are
+     * ranked as recorded, in their own currency.
+     */
+    public List<Transaction> getLargestExpenses(int limit) {
+        return TopN.merge(fanOut(repository -> repository.findLargestExpenses(limit)).values(), limit,
+                TransactionCriteria.Order.LARGEST_FIRST.comparator());
+    }
+    public Map<String, Long> getTransactionCountByLedger() {
+        return fanOut(TransactionRepository::count);
+    }
+    /**
+     * Converts one component of the per-currency totals at today's rate.
+     */
+    private BigDecimal convertTotals(Function<LedgerTotals, BigDecimal> component, String currency) {
+        Map<String, BigDecimal> amounts = new HashMap<>();
+        getLedgerTotals().forEach((from, totals) -> amounts.put(from, component.apply(totals)));
+        return currencyConverter.convertTotal(amounts, currency, LocalDate.now());
+    }
+}
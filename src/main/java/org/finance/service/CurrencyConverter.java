@@ -0,0 +1,85 @@
+package org.finance.service;
+import org.finance.repository.ExchangeRateRepository;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+/**
+ * Converts amounts between currencies with the stored daily exchange rates.
+ * An amount is converted at the latest rate on or before its date, so weekends and
+ * holidays without a published rate use the previous one.
+ * <p>
+ * The rates of a currency are read once into a sorted map and kept in memory, so a
+ * lookup by currency and date is an in-memory search; call {@link #clearCache()} after
+ * loading new rates. Reports should sum per currency first and convert each subtotal
+ * once, as {@link #convertGroups} does, rather than convert every transaction.
+ */
+public class CurrencyConverter {
+    /** Currency the stored rates are quoted against. */
+    public static final String REFERENCE_CURRENCY = "EUR";
+    private final ExchangeRateRepository exchangeRateRepository;
+    private final Map<String, NavigableMap<LocalDate, BigDecimal>> ratesByCurrency = new ConcurrentHashMap<>();
+
+    public CurrencyConverter(ExchangeRateRepository exchangeRateRepository) {
+        this.exchangeRateRepository = Objects.requireNonNull(exchangeRateRepository, "Exchange rate repository cannot be null");
+    }
+    /**
+     * Gets the units of the currency per one unit of the reference currency on the date.
+     *
+     * @throws IllegalStateException if there is no rate on or before the date
+     */
+    public BigDecimal rate(String currency, LocalDate date) {
+        if (REFERENCE_CURRENCY.equals(currency)) {
+            return BigDecimal.ONE;
+        }
+        Map.Entry<LocalDate, BigDecimal> rate = ratesByCurrency
+                .computeIfAbsent(currency, exchangeRateRepository::findRatesByCurrency)
+                .floorEntry(date);
+        if (rate == null) {
+            throw new IllegalStateException("No exchange rate for " + currency + " on or before " + date);
+        }
+        return rate.getValue();
+    }
+    /**
+     * Converts an amount at the rates of the given date, rounded to cents.
+     * Amounts already in the target currency are returned unchanged.
+     */
+    public BigDecimal convert(BigDecimal amount, String from, String to, LocalDate date) {
+        if (from.equals(to)) {
+            return amount;
+        }
+        return amount.multiply(rate(to, date))
+                .divide(rate(from, date), MathContext.DECIMAL64)
+                .setScale(2, RoundingMode.HALF_EVEN);
+    }
+    /**
+     * Converts per-currency subtotals into one total in the target currency.
+     */
+    public BigDecimal convertTotal(Map<String, BigDecimal> amountsByCurrency, String to, LocalDate date) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Map.Entry<String, BigDecimal> amount : amountsByCurrency.entrySet()) {
+            total = total.add(convert(amount.getValue(), amount.getKey(), to, date));
+        }
+        return total;
+    }
+    /**
+     * Converts the per-currency subtotals of each group into one total per group,
+     * each group at the rates of its own date.
+     */
+    public <K> Map<K, BigDecimal> convertGroups(Map<K, Map<String, BigDecimal>> amountsByGroup, String to,
+                                                 Function<K, LocalDate> dateOfGroup) {
+        Map<K, BigDecimal> converted = new HashMap<>();
+        amountsByGroup.forEach((group, amounts) ->
+                converted.put(group, convertTotal(amounts, to, dateOfGroup.apply(group))));
+        return converted;
+    }
+    public void clearCache() {
+        ratesByCurrency.clear();
+    }
+}
@@ -0,0 +1,151 @@
+package org.finance.service;
+import org.finance.model.ExpenseStatistics;
+import org.finance.model.ExpenseTransaction;
+import org.finance.observer.AnomalyObserver;
+import org.finance.observer.ExpenseAnomaly;
+import org.finance.repository.TransactionRepository;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+/**
+ * Flags unusual expenses as they are recorded, without reading the history again.
+ * Each category keeps a running mean and variance (Welford) plus an exponentially
+ * weighted mean and variance that follow recent spending; checking and updating them
+ * costs the same whatever the size of the history.
+ * <p>
+ * The statistics are warm-started from one aggregation over the transactions and the
+ * archive rollups. An expense is reported when it exceeds both baselines by more than
+ * the threshold, in standard deviations, so a lasting change (a higher rent) stops
+ * alerting once the recent baseline has adapted. Bulk loads (imports, recurring
+ * catch-up, restores) bypass {@link #observe}; call {@link #warmStart()} after them.
+ */
+public class ExpenseAnomalyDetector {
+    private static final Logger logger = Logger.getLogger(ExpenseAnomalyDetector.class.getName());
+    public static final double DEFAULT_THRESHOLD = 3.0;
+    public static final int DEFAULT_MIN_SAMPLES = 10;
+    public static final double DEFAULT_SMOOTHING = 0.1;
+    /** Lower bound on the deviation, relative to the mean, so near-constant categories do not alert on cents. */
+    private static final double MIN_RELATIVE_DEVIATION = 0.05;
+    private final TransactionRepository transactionRepository;
+    private final int minSamples;
+    private final double smoothing;
+    private final Map<String, CategoryStatistics> statistics;
+    private final CopyOnWriteArrayList<AnomalyObserver> observers;
+    private volatile double threshold;
+
+    public ExpenseAnomalyDetector(TransactionRepository transactionRepository) {
+        this(transactionRepository, DEFAULT_THRESHOLD, DEFAULT_MIN_SAMPLES, DEFAULT_SMOOTHING);
+    }
+    public ExpenseAnomalyDetector(TransactionRepository transactionRepository, double threshold,
+                                  int minSamples, double smoothing) {
+        this.transactionRepository = Objects.requireNonNull(transactionRepository, "Transaction repository cannot be null");
+        if (minSamples < 1 || smoothing <= 0 || smoothing >= 1) {
+            throw new IllegalArgumentException("Minimum samples must be positive and smoothing in (0, 1)");
+        }
+        setThreshold(threshold);
+        this.minSamples = minSamples;
+        this.smoothing = smoothing;
+        this.statistics = new ConcurrentHashMap<>();
+        this.observers = new CopyOnWriteArrayList<>();
+    }
+    /**
+     * Rebuilds the per-category statistics with a single aggregation query.
+     * The recent baseline starts from the long-run one.
+     */
+    public void warmStart() {
+        Map<String, ExpenseStatistics> totals = transactionRepository.expenseStatisticsByCategory();
+        statistics.clear();
+        totals.forEach((category, total) -> statistics.put(category, new CategoryStatistics(total)));
+        logger.info("Statistiche di spesa inizializzate per " + totals.size() + " categorie");
+    }
+    /**
+     * Checks an expense against its category's statistics, then adds it to them.
+     * Observers are notified when the expense is anomalous.
+     */
+    public Optional<ExpenseAnomaly> observe(ExpenseTransaction expense) {
+        Objects.requireNonNull(expense, "Expense cannot be null");
+        CategoryStatistics category = statistics.computeIfAbsent(expense.getCategory().getName(),
+                name -> new CategoryStatistics());
+        ExpenseAnomaly anomaly = category.evaluateAndAdd(expense, threshold);
+        if (anomaly == null) {
+            return Optional.empty();
+        }
+        for (AnomalyObserver observer : observers) {
+            try {
+                observer.onAnomalousExpense(anomaly);
+            } catch (Exception e) {
+                System.err.println("Error notifying observer: " + e.getMessage());
+            }
+        }
+        return Optional.of(anomaly);
+    }
+    public void addObserver(AnomalyObserver observer) {
+        Objects.requireNonNull(observer, "Observer cannot be null");
+        observers.addIfAbsent(observer);
+    }
+    public void removeObserver(AnomalyObserver observer) {
+        observers.remove(observer);
+    }
+    public double getThreshold() {
+        return threshold;
+    }
+    public void setThreshold(double threshold) {
+        if (!(threshold > 0)) {
+            throw new IllegalArgumentException("Threshold must be positive");
+        }
+        this.threshold = threshold;
+    }
+    /**
+     * Running statistics of one category.
+     */
+    private final class CategoryStatistics {
+        private long count;
+        private double mean;
+        /** Sum of squared deviations from the mean (Welford). */
+        private double m2;
+        private double recentMean;
+        private double recentVariance;
+        private CategoryStatistics() {
+        }
+        private CategoryStatistics(ExpenseStatistics total) {
+            this.count = total.count();
+            this.mean = total.mean();
+            this.m2 = total.variance() * total.count();
+            this.recentMean = mean;
+            this.recentVariance = total.variance();
+        }
+        private synchronized ExpenseAnomaly evaluateAndAdd(ExpenseTransaction expense, double threshold) {
+            double amount = expense.getAmount().doubleValue();
+            ExpenseAnomaly anomaly = null;
+            if (count >= minSamples) {
+                double deviation = Math.sqrt(m2 / count);
+                double score = Math.min(score(amount, mean, deviation),
+                        score(amount, recentMean, Math.sqrt(recentVariance)));
+                if (score > threshold) {
+                    anomaly = new ExpenseAnomaly(expense, mean, deviation, recentMean, score);
+                }
+            }
+            count++;
+            double delta = amount - mean;
+            mean += delta / count;
+            m2 += delta * (amount - mean);
+            if (count == 1) {
+                recentMean = amount;
+                recentVariance = 0;
+            } else {
+                double difference = amount - recentMean;
+                double increment = smoothing * difference;
+                recentMean += increment;
+                recentVariance = (1 - smoothing) * (recentVariance + difference * increment);
+            }
+            return anomaly;
+        }
+        private double score(double amount, double center, double deviation) {
+            double floor = Math.max(Math.abs(center) * MIN_RELATIVE_DEVIATION, 0.01);
+            return (amount - center) / Math.max(deviation, floor);
+        }
+    }
+}
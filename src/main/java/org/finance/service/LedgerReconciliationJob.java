@@ -0,0 +1,48 @@
+package org.finance.service;
+import org.finance.model.LedgerTotals;
+import org.finance.repository.TransactionRepository;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.logging.Logger;
+/**
+ * Verifies the running totals per currency against the transactions.
+ * It recomputes them with one aggregation over the transactions and the archives,
+ * compares the result with the stored totals and, when any currency differs,
+ * replaces the stored totals with the recomputed ones.
+ */
+public class LedgerReconciliationJob {
+    private static final Logger logger = Logger.getLogger(LedgerReconciliationJob.class.getName());
+    private final TransactionRepository transactionRepository;
+
+    public LedgerReconciliationJob(TransactionRepository transactionRepository) {
+        this.transactionRepository = Objects.requireNonNull(transactionRepository, "Transaction repository cannot be null");
+    }
+    /**
+     * Runs the verification and returns the currencies whose totals were wrong, with the corrected values.
+     */
+    public Map<String, LedgerTotals> run() {
+        Map<String, LedgerTotals> recomputed = transactionRepository.sumLedgerTotals();
+        Map<String, LedgerTotals> stored = transactionRepository.findLedgerTotals();
+        Set<String> currencies = new HashSet<>(recomputed.keySet());
+        currencies.addAll(stored.keySet());
+        Map<String, LedgerTotals> corrected = new HashMap<>();
+        for (String currency : currencies) {
+            LedgerTotals expected = recomputed.getOrDefault(currency,
+                    new LedgerTotals(currency, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, 0));
+            if (!expected.matches(stored.get(currency))) {
+                logger.warning("Totali del registro non allineati per " + currency + ": memorizzati "
+                        + stored.get(currency) + ", ricalcolati " + expected);
+                corrected.put(currency, expected);
+            }
+        }
+        if (!corrected.isEmpty()) {
+            transactionRepository.replaceLedgerTotals(recomputed);
+        }
+        logger.info("Totali del registro verificati: " + corrected.size() + " valute corrette");
+        return corrected;
+    }
+}
@@ -1,12 +1,17 @@
 package org.finance.service;
+import org.finance.database.DatabaseManager;
+import org.finance.database.UnitOfWork;
 import org.finance.model.*;
 import org.finance.observer.*;
 import org.finance.repository.*;
 import org.finance.strategy.*;
 import org.finance.iterator.TransactionHistoryIterator;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 /**
  * Main service for managing financial operations with persistence.
@@ -17,83 +22,184 @@ public class PersistentFinanceService {
     private final BudgetRepository budgetRepository;
     private final CategoryRepository categoryRepository;
     private final BudgetNotificationSubject budgetNotificationSubject;
-    private BudgetingStrategy budgetingStrategy;
-    private String defaultCurrency;
+    private final UnitOfWork unitOfWork;
+    private final BudgetRecomputationJob budgetRecomputationJob;
+    private final LedgerReconciliationJob ledgerReconciliationJob;
+    private final ReportCache reportCache;
+    private volatile BudgetingStrategy budgetingStrategy;
+    private volatile String defaultCurrency;
+    private volatile BudgetSpendAccumulator budgetSpendAccumulator;
+    private volatile ExpenseAnomalyDetector anomalyDetector;
+    private volatile CurrencyConverter currencyConverter;
 
+    /**
+     * @deprecated binds to the default database; pass the unit of work of the ledger explicitly.
+     */
+    @Deprecated
     public PersistentFinanceService(TransactionRepository transactionRepository,
                                     BudgetRepository budgetRepository,
                                     CategoryRepository categoryRepository) {
+        this(transactionRepository, budgetRepository, categoryRepository, DatabaseManager.getInstance());
+    }
+    public PersistentFinanceService(TransactionRepository transactionRepository,
+                                    BudgetRepository budgetRepository,
+                                    CategoryRepository categoryRepository,
+                                    UnitOfWork unitOfWork) {
         this.transactionRepository = transactionRepository;
         this.budgetRepository = budgetRepository;
         this.categoryRepository = categoryRepository;
+        this.unitOfWork = Objects.requireNonNull(unitOfWork, "Unit of work cannot be null");
         this.budgetNotificationSubject = new BudgetNotificationSubject();
+        this.budgetRecomputationJob = new BudgetRecomputationJob(transactionRepository, budgetRepository);
+        this.ledgerReconciliationJob = new LedgerReconciliationJob(transactionRepository);
+        this.reportCache = new ReportCache(unitOfWork::getWriteEpoch);
         this.budgetingStrategy = new ConservativeBudgetingStrategy();
         this.defaultCurrency = "EUR";
         initializeDefaultCategories();
     }
     private void initializeDefaultCategories() {
         if (categoryRepository.count() == 0) {
-            Category alimentari = new Category("Alimentari", "Spese per cibo e bevande");
-            Category trasporti = new Category("Trasporti", "Spese per trasporti e carburante");
-            Category casa = new Category("Casa", "Spese per la casa");
-            Category svago = new Category("Svago", "Spese per divertimento e tempo libero");
-            Category lavoro = new Category("Lavoro", "Entrate da lavoro");
-            categoryRepository.save(alimentari);
-            categoryRepository.save(trasporti);
-            categoryRepository.save(casa);
-            categoryRepository.save(svago);
-            categoryRepository.save(lavoro);
+            Category.defaults().forEach(categoryRepository::save);
         }
     }
+    /**
+     * Saves the transaction and updates the matching budgets in a single unit of work,
+     * so the insert and every budget write share one commit. Notifications are sent
+     * only after the commit succeeds.
+     */
     public void addTransaction(Transaction transaction) {
         Objects.requireNonNull(transaction, "Transaction cannot be null");
-        transactionRepository.save(transaction);
-        if (transaction instanceof ExpenseTransaction) {
-            updateBudgetsForExpense((ExpenseTransaction) transaction);
+        BudgetSpendAccumulator accumulator = budgetSpendAccumulator;
+        List<Budget> updatedBudgets = recording(accumulator, () -> {
+            List<Budget> budgets = unitOfWork.execute(() -> {
+                transactionRepository.save(transaction);
+                if (accumulator == null && transaction instanceof ExpenseTransaction expense) {
+                    return updateBudgetsForExpense(expense);
+                }
+                return List.<Budget>of();
+            });
+            if (accumulator != null && transaction instanceof ExpenseTransaction expense) {
+                return accumulator.recordExpense(expense);
+            }
+            return budgets;
+        });
+        updatedBudgets.forEach(this::notifyBudgetThresholds);
+        checkForAnomaly(transaction);
+    }
+    /**
+     * Adds a transaction submitted with a client-supplied idempotency key.
+     * A retried submission with the same key is absorbed: nothing is written and
+     * budgets are not charged twice.
+     *
+     * @return true if the transaction was recorded, false if the key had already been used
+     */
+    public boolean addTransaction(Transaction transaction, String idempotencyKey) {
+        Objects.requireNonNull(transaction, "Transaction cannot be null");
+        BudgetSpendAccumulator accumulator = budgetSpendAccumulator;
+        List<Budget> updatedBudgets = recording(accumulator, () -> {
+            List<Budget> budgets = unitOfWork.execute(() -> {
+                String storedId = transactionRepository.saveWithIdempotencyKey(transaction, idempotencyKey);
+                if (!storedId.equals(transaction.getId())) {
+                    return null;
+                }
+                if (accumulator == null && transaction instanceof ExpenseTransaction expense) {
+                    return updateBudgetsForExpense(expense);
+                }
+                return List.<Budget>of();
+            });
+            if (budgets != null && accumulator != null && transaction instanceof ExpenseTransaction expense) {
+                return accumulator.recordExpense(expense);
+            }
+            return budgets;
+        });
+        if (updatedBudgets == null) {
+            return false;
+        }
+        updatedBudgets.forEach(this::notifyBudgetThresholds);
+        checkForAnomaly(transaction);
+        return true;
+    }
+    private void checkForAnomaly(Transaction transaction) {
+        ExpenseAnomalyDetector detector = anomalyDetector;
+        if (detector != null && transaction instanceof ExpenseTransaction expense) {
+            detector.observe(expense);
         }
     }
-    private void updateBudgetsForExpense(ExpenseTransaction expense) {
-        List<Budget> relevantBudgets = budgetRepository.findByCategory(expense.getCategory().getName())
+    /**
+     * Increments spent in SQL rather than read-modify-write, so concurrent expenses on the
+     * same budget serialize on the row lock instead of overwriting each other.
+     */
+    private List<Budget> updateBudgetsForExpense(ExpenseTransaction expense) {
+        return applyBudgetDelta(expense, expense.getAmount());
+    }
+    private List<Budget> applyBudgetDelta(ExpenseTransaction expense, BigDecimal delta) {
+        List<Budget> relevantBudgets = findBudgetsForExpense(expense);
+        if (relevantBudgets.isEmpty()) {
+            return relevantBudgets;
+        }
+        Map<String, BigDecimal> deltas = new HashMap<>();
+        relevantBudgets.forEach(budget -> deltas.put(budget.getId(), delta));
+        budgetRepository.addSpent(deltas);
+        return relevantBudgets.stream()
+                .map(budget -> budgetRepository.findById(budget.getId()).orElse(budget))
+                .toList();
+    }
+    private List<Budget> findBudgetsForExpense(ExpenseTransaction expense) {
+        return budgetRepository.findByCategory(expense.getCategory().getName())
                 .stream()
                 .filter(budget -> budget.getPeriod().equals(YearMonth.from(expense.getTimestamp())))
                 .toList();
-        for (Budget budget : relevantBudgets) {
-            budget.addExpense(expense.getAmount());
-            budgetRepository.save(budget);
-            if (budget.isExceeded()) {
-                budgetNotificationSubject.notifyBudgetExceeded(budget);
-            } else if (budget.isNearLimit()) {
-                budgetNotificationSubject.notifyBudgetNearLimit(budget);
-            }
+    }
+    private void notifyBudgetThresholds(Budget budget) {
+        if (budget.isExceeded()) {
+            budgetNotificationSubject.notifyBudgetExceeded(budget);
+        } else if (budget.isNearLimit()) {
+            budgetNotificationSubject.notifyBudgetNearLimit(budget);
         }
     }
     public List<Transaction> getAllTransactions() {
         return transactionRepository.findAll();
     }
+    public List<Transaction> searchTransactions(TransactionCriteria criteria) {
+        return transactionRepository.findByCriteria(criteria);
+    }
     public List<Transaction> getTransactionsByCategory(String categoryName) {
         return transactionRepository.findByCategory(categoryName);
     }
     public List<Transaction> getTransactionsByDateRange(java.time.LocalDate startDate, java.time.LocalDate endDate) {
         return transactionRepository.findByDateRange(startDate, endDate);
     }
+    /**
+     * Deletes the transaction and rolls back its budget impact in a single unit of work.
+     */
     public void removeTransaction(String transactionId) {
-        Optional<Transaction> transaction = transactionRepository.findById(transactionId);
-        if (transaction.isPresent()) {
-            transactionRepository.deleteById(transactionId);
-            if (transaction.get() instanceof ExpenseTransaction) {
-                rollbackBudgetsForExpense((ExpenseTransaction) transaction.get());
+        BudgetSpendAccumulator accumulator = budgetSpendAccumulator;
+        recording(accumulator, () -> {
+            Optional<Transaction> removed = unitOfWork.execute(() -> {
+                Optional<Transaction> transaction = transactionRepository.findById(transactionId);
+                if (transaction.isPresent()) {
+                    transactionRepository.deleteById(transactionId);
+                    if (accumulator == null && transaction.get() instanceof ExpenseTransaction expense) {
+                        rollbackBudgetsForExpense(expense);
+                    }
+                }
+                return transaction;
+            });
+            if (accumulator != null && removed.isPresent() && removed.get() instanceof ExpenseTransaction expense) {
+                accumulator.revertExpense(expense);
             }
-        }
+            return removed;
+        });
+    }
+    /**
+     * Runs a write that records into the accumulator, if any, so a counter rebuild
+     * cannot slip between its commit and its recording.
+     */
+    private static <T> T recording(BudgetSpendAccumulator accumulator, Supplier<T> write) {
+        return accumulator == null ? write.get() : accumulator.whileRecording(write);
     }
     private void rollbackBudgetsForExpense(ExpenseTransaction expense) {
-        List<Budget> relevantBudgets = budgetRepository.findByCategory(expense.getCategory().getName())
-                .stream()
-                .filter(budget -> budget.getPeriod().equals(YearMonth.from(expense.getTimestamp())))
-                .toList();
-        for (Budget budget : relevantBudgets) {
-            budget.removeExpense(expense.getAmount());
-            budgetRepository.save(budget);
-        }
+        applyBudgetDelta(expense, expense.getAmount().negate());
     }
     public void addCategory(Category category) {
         Objects.requireNonNull(category, "Category cannot be null");
@@ -122,44 +228,179 @@ public class PersistentFinanceService {
     public void addBudget(Budget budget) {
         Objects.requireNonNull(budget, "Budget cannot be null");
         budgetRepository.save(budget);
+        BudgetSpendAccumulator accumulator = budgetSpendAccumulator;
+        if (accumulator != null) {
+            accumulator.register(budget);
+        }
     }
     public List<Budget> getAllBudgets() {
-        return budgetRepository.findAll();
+        return withLiveSpent(budgetRepository.findAll());
     }
     public List<Budget> getBudgetsByCategory(String categoryName) {
-        return budgetRepository.findByCategory(categoryName);
+        return withLiveSpent(budgetRepository.findByCategory(categoryName));
     }
     public List<Budget> getBudgetsByPeriod(YearMonth period) {
-        return budgetRepository.findByPeriod(period);
+        return withLiveSpent(budgetRepository.findByPeriod(period));
     }
     public List<Budget> getActiveBudgets() {
-        return budgetRepository.findActiveBudgets();
+        return withLiveSpent(budgetRepository.findActiveBudgets());
     }
     public void removeBudget(String budgetId) {
         budgetRepository.deleteById(budgetId);
+        BudgetSpendAccumulator accumulator = budgetSpendAccumulator;
+        if (accumulator != null) {
+            accumulator.unregister(budgetId);
+        }
+    }
+    private List<Budget> withLiveSpent(List<Budget> budgets) {
+        BudgetSpendAccumulator accumulator = budgetSpendAccumulator;
+        if (accumulator == null) {
+            return budgets;
+        }
+        return budgets.stream().map(accumulator::withLiveSpent).toList();
+    }
+    /**
+     * Routes budget spending through an in-memory accumulator instead of saving
+     * every budget on each expense. Pass null to go back to direct writes.
+     */
+    public void setBudgetSpendAccumulator(BudgetSpendAccumulator accumulator) {
+        this.budgetSpendAccumulator = accumulator;
+    }
+    /**
+     * Checks every committed expense for anomalies. The detector must already be warm-started.
+     */
+    public void setAnomalyDetector(ExpenseAnomalyDetector detector) {
+        this.anomalyDetector = detector;
+    }
+    public void setCurrencyConverter(CurrencyConverter converter) {
+        this.currencyConverter = converter;
+    }
+    /**
+     * Recomputes every budget's spending from the transactions, typically after a bulk load
+     * that bypassed addTransaction. Threshold notifications fire once per changed budget.
+     *
+     * @return the budgets whose spending changed
+     */
+    public List<Budget> recomputeBudgets() {
+        BudgetSpendAccumulator accumulator = budgetSpendAccumulator;
+        List<Budget> changed = accumulator == null
+                ? unitOfWork.execute(budgetRecomputationJob::run)
+                : accumulator.rebuild(() -> unitOfWork.execute(budgetRecomputationJob::run));
+        changed.forEach(this::notifyBudgetThresholds);
+        return changed;
+    }
+    /**
+     * Gets the running totals per currency, maintained on every write, so the totals
+     * and the balance below are read in constant time.
+     */
+    public Map<String, LedgerTotals> getLedgerTotals() {
+        return transactionRepository.findLedgerTotals();
     }
     public BigDecimal getTotalIncome() {
-        return getAllTransactions().stream()
-                .filter(t -> t instanceof IncomeTransaction)
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return sumLedgerTotals(LedgerTotals::income);
     }
     public BigDecimal getTotalExpenses() {
-        return getAllTransactions().stream()
-                .filter(t -> t instanceof ExpenseTransaction)
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return sumLedgerTotals(LedgerTotals::expenses);
+    }
+    public BigDecimal getTotalInvestments() {
+        return sumLedgerTotals(LedgerTotals::investments);
     }
+    /**
+     * Gets income minus expenses and investments.
+     */
     public BigDecimal getBalance() {
-        return getTotalIncome().subtract(getTotalExpenses());
+        return sumLedgerTotals(LedgerTotals::balance);
+    }
+    /**
+     * Gets the balance in the given currency, converting the balance of each currency
+     * once at today's rate.
+     *
+     * @throws IllegalStateException if no converter is set or a rate is missing
+     */
+    public BigDecimal getBalanceIn(String currency) {
+        Map<String, BigDecimal> balances = new HashMap<>();
+        getLedgerTotals().forEach((from, totals) -> balances.put(from, totals.balance()));
+        return requireCurrencyConverter().convertTotal(balances, currency, LocalDate.now());
+    }
+    /**
+     * Gets the expenses per category in the given currency: amounts are summed per
+     * category and currency, and each subtotal is converted once at today's rate.
+     *
+     * @throws IllegalStateException if no converter is set or a rate is missing
+     */
+    public Map<String, BigDecimal> getExpensesByCategoryIn(String currency) {
+        CurrencyConverter converter = requireCurrencyConverter();
+        LocalDate today = LocalDate.now();
+        return reportCache.get("expensesByCategoryIn", () -> converter.convertGroups(
+                transactionRepository.sumAmountByCategoryAndCurrency("EXPENSE"), currency, category -> today),
+                currency, today);
+    }
+    /**
+     * Tells whether the ledger holds amounts in currencies other than the given one.
+     */
+    public boolean hasOtherCurrencies(String currency) {
+        return getLedgerTotals().keySet().stream().anyMatch(other -> !other.equals(currency));
+    }
+    private CurrencyConverter requireCurrencyConverter() {
+        CurrencyConverter converter = currencyConverter;
+        if (converter == null) {
+            throw new IllegalStateException("Currency converter not set");
+        }
+        return converter;
+    }
+    private BigDecimal sumLedgerTotals(Function<LedgerTotals, BigDecimal> amount) {
+        return getLedgerTotals().values().stream()
+                .map(amount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+    /**
+     * Recomputes the running totals from the transactions and corrects the stored ones
+     * if they differ; returns the corrected currencies.
+     */
+    public Map<String, LedgerTotals> reconcileLedgerTotals() {
+        return unitOfWork.execute(ledgerReconciliationJob::run);
     }
     public Map<String, BigDecimal> getExpensesByCategory() {
-        return getAllTransactions().stream()
+        return reportCache.get("expensesByCategory", () -> getAllTransactions().stream()
                 .filter(t -> t instanceof ExpenseTransaction)
                 .collect(Collectors.groupingBy(
                         t -> t.getCategory().getName(),
                         Collectors.reducing(BigDecimal.ZERO, Transaction::getAmount, BigDecimal::add)
-                ));
+                )));
+    }
+    /**
+     * Gets the expense totals of the category tree, each node including its subcategories.
+     * Uses one grouped sum and one read of the categories, whatever the depth of the tree.
+     */
+    public List<CategoryRollup> getExpenseRollup() {
+        return reportCache.get("expenseRollup", () -> {
+            Map<String, String> parents = new HashMap<>();
+            for (Category category : categoryRepository.findAll()) {
+                parents.put(category.getName(), category.getParent() == null ? null : category.getParent().getName());
+            }
+            return CategoryRollup.build(parents, transactionRepository.sumAmountByCategory("EXPENSE"));
+        });
+    }
+    /**
+     * Gets the largest expenses, at most {@code limit}, computed by the database.
+     */
+    public List<Transaction> getLargestExpenses(int limit) {
+        return reportCache.get("largestExpenses", () -> transactionRepository.findLargestExpenses(limit), limit);
+    }
+    public Map<String, List<Transaction>> getLargestExpensesByCategory(int limit) {
+        return reportCache.get("largestExpensesByCategory",
+                () -> transactionRepository.findLargestExpensesByCategory(limit), limit);
+    }
+    public Map<YearMonth, List<Transaction>> getLargestExpensesByMonth(int limit) {
+        return reportCache.get("largestExpensesByMonth",
+                () -> transactionRepository.findLargestExpensesByMonth(limit), limit);
+    }
+    /**
+     * Gets the cache shared by the reports, e.g. to read its statistics or to cache
+     * other reports of this ledger.
+     */
+    public ReportCache getReportCache() {
+        return reportCache;
     }
     public void setBudgetingStrategy(BudgetingStrategy strategy) {
         this.budgetingStrategy = Objects.requireNonNull(strategy, "Strategy cannot be null");
@@ -183,7 +424,13 @@ public class PersistentFinanceService {
         return new TransactionHistoryIterator(getAllTransactions());
     }
     public Budget suggestBudgetForCategory(Category category, YearMonth period) {
-        return budgetingStrategy.calculateSuggestedBudget(category, getTotalIncome());
+        return budgetingStrategy.calculateSuggestedBudget(category, period, this::getTotalIncome);
+    }
+    /**
+     * Suggests a budget for every category; history-based strategies read the history once.
+     */
+    public List<Budget> suggestBudgets(YearMonth period) {
+        return budgetingStrategy.calculateSuggestedBudgets(getAllCategories(), period, this::getTotalIncome);
     }
 }
 
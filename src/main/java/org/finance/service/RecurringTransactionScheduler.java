@@ -0,0 +1,138 @@
+package org.finance.service;
+import org.finance.database.UnitOfWork;
+import org.finance.factory.TransactionFactory;
+import org.finance.model.RecurringTransaction;
+import org.finance.model.Transaction;
+import org.finance.repository.RecurringTransactionRepository;
+import org.finance.repository.TransactionRepository;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+/**
+ * Turns due occurrences of recurring transaction templates into transactions.
+ * All occurrences due since the last run, including the ones missed while the
+ * application was down, are written with batched inserts in one unit of work,
+ * followed by a single budget recomputation and, with an anomaly detector set, a
+ * single warm start of its statistics.
+ * <p>
+ * Occurrence ids are derived from the template id and the occurrence number, so
+ * running the same catch-up twice rewrites the same rows instead of duplicating them.
+ */
+public class RecurringTransactionScheduler implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(RecurringTransactionScheduler.class.getName());
+    private static final int BATCH_SIZE = 1_000;
+    private final RecurringTransactionRepository recurringRepository;
+    private final TransactionRepository transactionRepository;
+    private final PersistentFinanceService financeService;
+    private final UnitOfWork unitOfWork;
+    private volatile ExpenseAnomalyDetector anomalyDetector;
+    private ScheduledExecutorService scheduler;
+
+    public RecurringTransactionScheduler(RecurringTransactionRepository recurringRepository,
+                                         TransactionRepository transactionRepository,
+                                         PersistentFinanceService financeService,
+                                         UnitOfWork unitOfWork) {
+        this.recurringRepository = Objects.requireNonNull(recurringRepository, "Recurring repository cannot be null");
+        this.transactionRepository = Objects.requireNonNull(transactionRepository, "Transaction repository cannot be null");
+        this.financeService = Objects.requireNonNull(financeService, "Finance service cannot be null");
+        this.unitOfWork = Objects.requireNonNull(unitOfWork, "Unit of work cannot be null");
+    }
+    /**
+     * Sets the detector whose statistics must include the materialized expenses,
+     * or null for none.
+     */
+    public void setAnomalyDetector(ExpenseAnomalyDetector anomalyDetector) {
+        this.anomalyDetector = anomalyDetector;
+    }
+    /**
+     * Materializes every occurrence due on or before the given date.
+     *
+     * @return the number of transactions created
+     */
+    public synchronized int materializeDue(LocalDate asOf) {
+        List<RecurringTransaction> due = recurringRepository.findDue(asOf);
+        if (due.isEmpty()) {
+            return 0;
+        }
+        int created = unitOfWork.execute(() -> {
+            List<Transaction> batch = new ArrayList<>(BATCH_SIZE);
+            int total = 0;
+            for (RecurringTransaction template : due) {
+                while (template.isDue(asOf)) {
+                    batch.add(TransactionFactory.createTransaction(
+                            template.occurrenceId(template.getMaterializedCount()),
+                            template.getType(), template.getAmount(), template.getDescription(),
+                            template.getCategory(), template.getCurrency(),
+                            template.getNextDueDate().atStartOfDay()));
+                    template.advance();
+                    if (batch.size() == BATCH_SIZE) {
+                        transactionRepository.saveAll(batch);
+                        total += batch.size();
+                        batch = new ArrayList<>(BATCH_SIZE);
+                    }
+                }
+                recurringRepository.save(template);
+            }
+            transactionRepository.saveAll(batch);
+            return total + batch.size();
+        });
+        financeService.recomputeBudgets();
+        ExpenseAnomalyDetector detector = anomalyDetector;
+        if (detector != null) {
+            detector.warmStart();
+        }
+        logger.info("Transazioni ricorrenti generate: " + created + " da " + due.size() + " modelli");
+        return created;
+    }
+    /**
+     * Checks for due occurrences periodically, starting immediately.
+     */
+    public synchronized void start(long interval, TimeUnit unit) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "recurring-transactions");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::materializeQuietly, 0, interval, unit);
+    }
+    private void materializeQuietly() {
+        try {
+            materializeDue(LocalDate.now());
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Generazione delle transazioni ricorrenti fallita, nuovo tentativo al prossimo ciclo", e);
+        }
+    }
+    /**
+     * Stops the periodic check and waits for a run in progress, so nothing is written
+     * after this returns. The scheduler can be started again.
+     */
+    @Override
+    public void close() {
+        ScheduledExecutorService stopped;
+        synchronized (this) {
+            stopped = scheduler;
+            scheduler = null;
+        }
+        if (stopped != null) {
+            // waited for outside the lock: a run blocked on materializeDue must be able to finish
+            stopped.shutdown();
+            try {
+                if (!stopped.awaitTermination(30, TimeUnit.SECONDS)) {
+                    stopped.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                stopped.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
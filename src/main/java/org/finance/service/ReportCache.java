@@ -0,0 +1,77 @@
+package org.finance.service;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+/**
+ * Cache of report results keyed by report name and parameters.
+ * Each entry is tagged with the write epoch read before it was computed and is served
+ * only while the epoch is unchanged, so a write committed during the computation
+ * invalidates the entry instead of leaving a stale result behind. Cached values are
+ * shared between callers and must not be modified.
+ */
+public class ReportCache {
+    private static final int MAX_ENTRIES = 256;
+    private final LongSupplier writeEpoch;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder staleMisses = new LongAdder();
+
+    public ReportCache(LongSupplier writeEpoch) {
+        this.writeEpoch = Objects.requireNonNull(writeEpoch, "Write epoch cannot be null");
+    }
+    /**
+     * Gets the cached result of a report, computing it if there is none for the current epoch.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String report, Supplier<T> computation, Object... parameters) {
+        Key key = new Key(report, List.of(parameters));
+        long epoch = writeEpoch.getAsLong();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.epoch() == epoch) {
+            hits.increment();
+            return (T) entry.value();
+        }
+        misses.increment();
+        if (entry != null) {
+            staleMisses.increment();
+        }
+        T value = computation.get();
+        if (entries.size() >= MAX_ENTRIES) {
+            entries.values().removeIf(old -> old.epoch() != epoch);
+            if (entries.size() >= MAX_ENTRIES) {
+                entries.clear();
+            }
+        }
+        entries.put(key, new Entry(epoch, value));
+        return value;
+    }
+    public void clear() {
+        entries.clear();
+    }
+    public Statistics getStatistics() {
+        return new Statistics(hits.sum(), misses.sum(), staleMisses.sum(), entries.size());
+    }
+    /**
+     * @param staleMisses misses caused by a write since the entry was computed
+     */
+    public record Statistics(long hits, long misses, long staleMisses, int entries) {
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+    }
+    private record Key(String report, List<Object> parameters) {
+        @Override
+        public String toString() {
+            return report + Arrays.toString(parameters.toArray());
+        }
+    }
+    private record Entry(long epoch, Object value) {
+    }
+}
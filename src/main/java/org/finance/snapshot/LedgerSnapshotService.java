@@ -0,0 +1,571 @@
+package org.finance.snapshot;
+import org.finance.archive.ArchiveCatalog;
+import org.finance.database.DatabaseManager;
+import org.finance.distribution.ExpenseDistribution;
+import org.finance.search.DescriptionIndex;
+import org.finance.summary.LedgerSummary;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+/**
+ * Exports the whole ledger (categories, budgets, recurring templates, categorization rules, transactions,
+ * exchange rates) to a compact binary snapshot and restores it.
+ * <p>
+ * File layout (big endian): magic, format version, then one section per table.
+ * A section starts with the table name and its column names, followed by blocks of
+ * rows. Each block is deflate-compressed and carries its row count, raw and compressed
+ * length and the CRC32 of the raw bytes. Because sections list their columns,
+ * a snapshot can be restored into a schema with added or missing columns. Tables without
+ * a section, such as the exchange rates in snapshots written before they were exported,
+ * keep their current rows.
+ * Archived transactions are exported with the hot ones and restored into the hot table.
+ * <p>
+ * Rows are streamed from a JDBC cursor into the FileChannel block by block, so
+ * export memory is bounded by the block size. Restore checks every checksum before
+ * touching the database, then bulk-loads with referential integrity off and the
+ * secondary indexes dropped, and rebuilds the indexes, the description search index and the
+ * expense histograms once at the end.
+ * <p>
+ * Truncating the tables and committing each block cannot be rolled back, so a restore
+ * first exports the current ledger to a temporary snapshot and loads it back if the
+ * restore fails, leaving the ledger as it was instead of half loaded.
+ * <p>
+ * A restore needs the database to itself: see {@link #restore(Path)}.
+ */
+public class LedgerSnapshotService {
+    private static final Logger logger = Logger.getLogger(LedgerSnapshotService.class.getName());
+    static final int MAGIC = 0x464C534E; // "FLSN"
+    static final short FORMAT_VERSION = 1;
+    private static final byte FILE_END = 0;
+    private static final byte SECTION = 1;
+    private static final byte BLOCK = 2;
+    private static final byte SECTION_END = 3;
+    private static final byte VALUE_NULL = 0;
+    private static final byte VALUE_STRING = 1;
+    private static final byte VALUE_DECIMAL = 2;
+    private static final byte VALUE_TIMESTAMP = 3;
+    private static final byte VALUE_LONG = 4;
+    private static final byte VALUE_BOOLEAN = 5;
+    /** Tables in load order: parents before the tables referencing them. */
+    private static final List<String> TABLES = List.of("categories", "budgets", "recurring_transactions",
+            "categorization_rules", "transactions", "exchange_rates");
+    private static final int BLOCK_SIZE = 1 << 20;
+    private static final int FETCH_SIZE = 1_000;
+    private final DatabaseManager dbManager;
+
+    public LedgerSnapshotService(DatabaseManager dbManager) {
+        this.dbManager = Objects.requireNonNull(dbManager, "Database manager cannot be null");
+    }
+    /**
+     * Writes a snapshot of the ledger. All tables are read from one consistent
+     * point-in-time view. The file is written next to the target and then moved
+     * into place, so a failed export never leaves a truncated snapshot behind.
+     */
+    public SnapshotSummary export(Path target) throws IOException {
+        requireNoUnitOfWork();
+        long start = System.nanoTime();
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        Map<String, Long> rowsByTable = new LinkedHashMap<>();
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             Connection conn = dbManager.getReadConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                HeaderWriter header = new HeaderWriter();
+                header.out.writeInt(MAGIC);
+                header.out.writeShort(FORMAT_VERSION);
+                header.writeTo(channel);
+                for (String table : TABLES) {
+                    rowsByTable.put(table, exportTable(conn, table, channel));
+                }
+                header = new HeaderWriter();
+                header.out.writeByte(FILE_END);
+                header.writeTo(channel);
+                channel.force(true);
+            } finally {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            Files.deleteIfExists(temporary);
+            throw new IOException("Errore nella lettura del ledger per lo snapshot", e);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        SnapshotSummary summary = new SnapshotSummary(rowsByTable, Files.size(target),
+                Duration.ofNanos(System.nanoTime() - start));
+        logger.info("Snapshot esportato in " + target + ": " + summary);
+        return summary;
+    }
+    private long exportTable(Connection conn, String table, FileChannel channel) throws SQLException, IOException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.setFetchSize(FETCH_SIZE);
+            String source = "transactions".equals(table) ? ArchiveCatalog.forDatabase(dbManager).allTransactions() : table;
+            try (ResultSet rs = stmt.executeQuery("SELECT * FROM " + source)) {
+                ResultSetMetaData meta = rs.getMetaData();
+                int columnCount = meta.getColumnCount();
+                int[] sqlTypes = new int[columnCount];
+                HeaderWriter header = new HeaderWriter();
+                header.out.writeByte(SECTION);
+                header.out.writeUTF(table);
+                header.out.writeShort(columnCount);
+                for (int i = 0; i < columnCount; i++) {
+                    header.out.writeUTF(meta.getColumnName(i + 1).toLowerCase(Locale.ROOT));
+                    sqlTypes[i] = meta.getColumnType(i + 1);
+                }
+                header.writeTo(channel);
+                BlockWriter block = new BlockWriter(channel);
+                long rows = 0;
+                while (rs.next()) {
+                    for (int i = 0; i < columnCount; i++) {
+                        writeValue(block.out, rs, i + 1, sqlTypes[i]);
+                    }
+                    rows++;
+                    block.rowWritten();
+                }
+                block.finish();
+                header = new HeaderWriter();
+                header.out.writeByte(SECTION_END);
+                header.out.writeLong(rows);
+                header.writeTo(channel);
+                return rows;
+            }
+        }
+    }
+    private static void writeValue(DataOutputStream out, ResultSet rs, int column, int sqlType)
+            throws SQLException, IOException {
+        switch (sqlType) {
+            case Types.CHAR, Types.VARCHAR, Types.LONGVARCHAR, Types.CLOB -> {
+                String value = rs.getString(column);
+                if (value == null) {
+                    out.writeByte(VALUE_NULL);
+                } else {
+                    out.writeByte(VALUE_STRING);
+                    out.writeUTF(value);
+                }
+            }
+            case Types.DECIMAL, Types.NUMERIC, Types.DOUBLE, Types.FLOAT, Types.REAL -> {
+                BigDecimal value = rs.getBigDecimal(column);
+                if (value == null) {
+                    out.writeByte(VALUE_NULL);
+                } else {
+                    byte[] unscaled = value.unscaledValue().toByteArray();
+                    out.writeByte(VALUE_DECIMAL);
+                    out.writeByte(value.scale());
+                    out.writeByte(unscaled.length);
+                    out.write(unscaled);
+                }
+            }
+            case Types.TIMESTAMP, Types.DATE, Types.TIMESTAMP_WITH_TIMEZONE -> {
+                Timestamp value = rs.getTimestamp(column);
+                if (value == null) {
+                    out.writeByte(VALUE_NULL);
+                } else {
+                    LocalDateTime dateTime = value.toLocalDateTime();
+                    out.writeByte(VALUE_TIMESTAMP);
+                    out.writeLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+                    out.writeInt(dateTime.getNano());
+                }
+            }
+            case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT -> {
+                long value = rs.getLong(column);
+                if (rs.wasNull()) {
+                    out.writeByte(VALUE_NULL);
+                } else {
+                    out.writeByte(VALUE_LONG);
+                    out.writeLong(value);
+                }
+            }
+            case Types.BOOLEAN, Types.BIT -> {
+                boolean value = rs.getBoolean(column);
+                if (rs.wasNull()) {
+                    out.writeByte(VALUE_NULL);
+                } else {
+                    out.writeByte(VALUE_BOOLEAN);
+                    out.writeBoolean(value);
+                }
+            }
+            default -> throw new IllegalStateException("Tipo di colonna non supportato nello snapshot: " + sqlType);
+        }
+    }
+    /**
+     * Checks the header and every block checksum of a snapshot without touching the database.
+     */
+    public SnapshotSummary verify(Path snapshot) throws IOException {
+        long start = System.nanoTime();
+        Map<String, Long> rowsByTable = new LinkedHashMap<>();
+        readSnapshot(snapshot, new SnapshotVisitor() {
+            @Override
+            public void sectionEnd(String table, long rows) {
+                rowsByTable.put(table, rows);
+            }
+        });
+        return new SnapshotSummary(rowsByTable, Files.size(snapshot), Duration.ofNanos(System.nanoTime() - start));
+    }
+    /**
+     * Replaces the ledger contents with the snapshot.
+     * The whole file is verified first, so a corrupted snapshot is rejected before any row is deleted.
+     * If loading fails afterwards, the ledger is restored from a snapshot taken just before;
+     * should that fail too, the pre-restore snapshot is kept on disk and its path logged.
+     * <p>
+     * The caller must stop every other writer of this database first, such as the recurring
+     * scheduler, the budget flush and any async or import executor, and restart them afterwards.
+     * Referential integrity is switched off for the whole database, not just this connection,
+     * and stays off across the per-block commits. A concurrent write would be neither checked
+     * nor covered by the rollback snapshot.
+     */
+    public SnapshotSummary restore(Path snapshot) throws IOException {
+        requireNoUnitOfWork();
+        Set<String> tables = verify(snapshot).rowsByTable().keySet();
+        long start = System.nanoTime();
+        Path backup = Files.createTempFile("ledger-pre-restore-", ".snap");
+        boolean keepBackup = false;
+        Map<String, Long> rowsByTable;
+        try {
+            export(backup);
+            try {
+                rowsByTable = load(snapshot, tables);
+            } catch (IOException | RuntimeException e) {
+                logger.log(Level.SEVERE, "Errore nel ripristino dello snapshot, ripristino del ledger precedente", e);
+                try {
+                    load(backup, TABLES);
+                } catch (IOException | RuntimeException rollbackError) {
+                    keepBackup = true;
+                    logger.log(Level.SEVERE, "Errore nel ripristino del ledger precedente, snapshot conservato in "
+                            + backup, rollbackError);
+                    e.addSuppressed(rollbackError);
+                }
+                throw e;
+            }
+        } finally {
+            if (!keepBackup) {
+                Files.deleteIfExists(backup);
+            }
+        }
+        SnapshotSummary summary = new SnapshotSummary(rowsByTable, Files.size(snapshot),
+                Duration.ofNanos(System.nanoTime() - start));
+        logger.info("Snapshot ripristinato da " + snapshot + ": " + summary);
+        return summary;
+    }
+    /**
+     * Truncates the derived tables and the given snapshot tables and loads the snapshot.
+     */
+    private Map<String, Long> load(Path snapshot, Collection<String> tables) throws IOException {
+        Map<String, Long> rowsByTable = new LinkedHashMap<>();
+        try (Connection conn = dbManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("SET REFERENTIAL_INTEGRITY FALSE");
+                try {
+                    dbManager.dropSecondaryIndexes(conn);
+                    ArchiveCatalog.forDatabase(dbManager).dropAll(conn);
+                    stmt.execute("TRUNCATE TABLE transaction_tokens");
+                    stmt.execute("TRUNCATE TABLE expense_histograms");
+                    stmt.execute("TRUNCATE TABLE ledger_summary");
+                    for (int i = TABLES.size() - 1; i >= 0; i--) {
+                        if (tables.contains(TABLES.get(i))) {
+                            stmt.execute("TRUNCATE TABLE " + TABLES.get(i));
+                        }
+                    }
+                    conn.commit();
+                    readSnapshot(snapshot, new RestoreVisitor(conn, rowsByTable));
+                    DescriptionIndex.indexAll(conn, "transactions");
+                    ExpenseDistribution.rebuild(conn, "transactions");
+                    LedgerSummary.rebuild(conn, "transactions");
+                    dbManager.createSecondaryIndexes(conn);
+                    conn.commit();
+                } catch (SQLException | IOException | RuntimeException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    stmt.execute("SET REFERENTIAL_INTEGRITY TRUE");
+                    conn.setAutoCommit(true);
+                }
+            }
+        } catch (SQLException e) {
+            throw new IOException("Errore nel ripristino dello snapshot", e);
+        }
+        return rowsByTable;
+    }
+    private void requireNoUnitOfWork() {
+        if (dbManager.isInUnitOfWork()) {
+            throw new IllegalStateException("Snapshot operations cannot run inside a unit of work");
+        }
+    }
+    private void readSnapshot(Path snapshot, SnapshotVisitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Il file non e' uno snapshot del ledger: " + snapshot);
+            }
+            short version = in.readShort();
+            if (version > FORMAT_VERSION) {
+                throw new IOException("Versione snapshot non supportata: " + version);
+            }
+            byte tag;
+            while ((tag = in.readByte()) != FILE_END) {
+                if (tag != SECTION) {
+                    throw new IOException("Snapshot corrotto: sezione attesa");
+                }
+                String table = in.readUTF();
+                if (!TABLES.contains(table)) {
+                    throw new IOException("Tabella sconosciuta nello snapshot: " + table);
+                }
+                String[] columns = new String[in.readShort()];
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = in.readUTF();
+                }
+                visitor.sectionStart(table, columns);
+                long rows = 0;
+                while ((tag = in.readByte()) == BLOCK) {
+                    int rowCount = in.readInt();
+                    byte[] raw = readBlock(in);
+                    visitor.block(new DataInputStream(new ByteArrayInputStream(raw)), rowCount, columns.length);
+                    rows += rowCount;
+                }
+                if (tag != SECTION_END || in.readLong() != rows) {
+                    throw new IOException("Snapshot corrotto: conteggio righe errato per " + table);
+                }
+                visitor.sectionEnd(table, rows);
+            }
+        } catch (EOFException e) {
+            throw new IOException("Snapshot troncato: " + snapshot, e);
+        } catch (SQLException e) {
+            throw new IOException("Errore nel caricamento dello snapshot", e);
+        }
+    }
+    private static byte[] readBlock(DataInputStream in) throws IOException {
+        int rawLength = in.readInt();
+        int compressedLength = in.readInt();
+        int checksum = in.readInt();
+        byte[] compressed = new byte[compressedLength];
+        in.readFully(compressed);
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int inflated = inflater.inflate(raw);
+            if (inflated != rawLength || !inflater.finished()) {
+                throw new IOException("Snapshot corrotto: lunghezza blocco errata");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Snapshot corrotto: blocco non decomprimibile", e);
+        } finally {
+            inflater.end();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(raw);
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("Snapshot corrotto: checksum del blocco errato");
+        }
+        return raw;
+    }
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        return switch (type) {
+            case VALUE_NULL -> null;
+            case VALUE_STRING -> in.readUTF();
+            case VALUE_DECIMAL -> {
+                int scale = in.readByte();
+                byte[] unscaled = new byte[in.readUnsignedByte()];
+                in.readFully(unscaled);
+                yield new BigDecimal(new BigInteger(unscaled), scale);
+            }
+            case VALUE_TIMESTAMP -> Timestamp.valueOf(
+                    LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC));
+            case VALUE_LONG -> in.readLong();
+            case VALUE_BOOLEAN -> in.readBoolean();
+            default -> throw new IOException("Snapshot corrotto: tipo di valore sconosciuto " + type);
+        };
+    }
+    /**
+     * Callbacks invoked while a snapshot is read. The default implementation only
+     * decodes the rows, which is enough to validate them.
+     */
+    private abstract static class SnapshotVisitor {
+        void sectionStart(String table, String[] columns) throws SQLException {
+        }
+        void block(DataInputStream rows, int rowCount, int columnCount) throws IOException, SQLException {
+            for (int r = 0; r < rowCount; r++) {
+                for (int c = 0; c < columnCount; c++) {
+                    readValue(rows);
+                }
+            }
+        }
+        void sectionEnd(String table, long rows) throws SQLException {
+        }
+    }
+    /**
+     * Inserts the rows of each section with one JDBC batch and one commit per block.
+     * Snapshot columns missing from the current schema are skipped.
+     */
+    private final class RestoreVisitor extends SnapshotVisitor {
+        private final Connection conn;
+        private final Map<String, Long> rowsByTable;
+        private PreparedStatement insert;
+        private int[] parameterIndexes;
+        private RestoreVisitor(Connection conn, Map<String, Long> rowsByTable) {
+            this.conn = conn;
+            this.rowsByTable = rowsByTable;
+        }
+        @Override
+        void sectionStart(String table, String[] columns) throws SQLException {
+            Set<String> existing = new HashSet<>();
+            try (ResultSet rs = conn.getMetaData().getColumns(null, null, table.toUpperCase(Locale.ROOT), null)) {
+                while (rs.next()) {
+                    existing.add(rs.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+                }
+            }
+            parameterIndexes = new int[columns.length];
+            List<String> restored = new ArrayList<>();
+            for (int i = 0; i < columns.length; i++) {
+                if (existing.contains(columns[i])) {
+                    restored.add(columns[i]);
+                    parameterIndexes[i] = restored.size();
+                } else {
+                    logger.warning("Colonna " + table + "." + columns[i] + " non presente nello schema, ignorata");
+                }
+            }
+            String placeholders = String.join(", ", restored.stream().map(c -> "?").toList());
+            insert = conn.prepareStatement("INSERT INTO " + table + " (" + String.join(", ", restored)
+                    + ") VALUES (" + placeholders + ")");
+        }
+        @Override
+        void block(DataInputStream rows, int rowCount, int columnCount) throws IOException, SQLException {
+            for (int r = 0; r < rowCount; r++) {
+                for (int c = 0; c < columnCount; c++) {
+                    Object value = readValue(rows);
+                    if (parameterIndexes[c] > 0) {
+                        insert.setObject(parameterIndexes[c], value);
+                    }
+                }
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            conn.commit();
+        }
+        @Override
+        void sectionEnd(String table, long rows) throws SQLException {
+            insert.close();
+            rowsByTable.put(table, rows);
+        }
+    }
+    /**
+     * Small in-memory buffer for section and file headers.
+     */
+    private static final class HeaderWriter {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private void writeTo(FileChannel channel) throws IOException {
+            out.flush();
+            writeFully(channel, ByteBuffer.wrap(bytes.toByteArray()));
+        }
+    }
+    /**
+     * Accumulates encoded rows and writes them as compressed, checksummed blocks.
+     */
+    private static final class BlockWriter {
+        private final FileChannel channel;
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(BLOCK_SIZE + 4096);
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private byte[] compressed = new byte[BLOCK_SIZE];
+        private int rows;
+        private BlockWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+        private void rowWritten() throws IOException {
+            rows++;
+            if (bytes.size() >= BLOCK_SIZE) {
+                flush();
+            }
+        }
+        private void flush() throws IOException {
+            if (rows > 0) {
+                out.flush();
+                byte[] raw = bytes.toByteArray();
+                CRC32 crc = new CRC32();
+                crc.update(raw);
+                deflater.reset();
+                deflater.setInput(raw);
+                deflater.finish();
+                int length = 0;
+                while (!deflater.finished()) {
+                    if (length == compressed.length) {
+                        compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                    }
+                    length += deflater.deflate(compressed, length, compressed.length - length);
+                }
+                ByteBuffer header = ByteBuffer.allocate(17);
+                header.put(BLOCK).putInt(rows).putInt(raw.length).putInt(length).putInt((int) crc.getValue());
+                header.flip();
+                writeFully(channel, header);
+                writeFully(channel, ByteBuffer.wrap(compressed, 0, length));
+                bytes.reset();
+                rows = 0;
+            }
+        }
+        private void finish() throws IOException {
+            try {
+                flush();
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+    /**
+     * Summary of an export, restore or verification.
+     */
+    public record SnapshotSummary(Map<String, Long> rowsByTable, long bytes, Duration elapsed) {
+        public long totalRows() {
+            return rowsByTable.values().stream().mapToLong(Long::longValue).sum();
+        }
+    }
+}
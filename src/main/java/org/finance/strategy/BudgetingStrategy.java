@@ -2,6 +2,9 @@ package org.finance.strategy;
 import org.finance.model.Budget;
 import org.finance.model.Category;
 import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.function.Supplier;
 /**
  * Strategy interface for budgeting algorithms.
  * Implements the Strategy pattern for different budgeting approaches.
@@ -15,11 +18,27 @@ public interface BudgetingStrategy {
      * @return The suggested budget
      */
     Budget calculateSuggestedBudget(Category category, BigDecimal totalIncome);
+    /**
+     * Calculates the suggested budget for a category and period.
+     * The total income is only computed if the strategy needs it.
+     */
+    default Budget calculateSuggestedBudget(Category category, YearMonth period, Supplier<BigDecimal> totalIncome) {
+        Budget budget = calculateSuggestedBudget(category, totalIncome.get());
+        return new Budget(category, budget.getAmount(), period, budget.getCurrency());
+    }
+    /**
+     * Calculates the suggested budgets of several categories for a period.
+     * Strategies reading history override it to read it once for all categories.
+     */
+    default List<Budget> calculateSuggestedBudgets(List<Category> categories, YearMonth period,
+                                                   Supplier<BigDecimal> totalIncome) {
+        BigDecimal income = totalIncome.get();
+        return categories.stream()
+                .map(category -> calculateSuggestedBudget(category, period, () -> income))
+                .toList();
+    }
     /**
      * Gets the strategy name.
      */
     String getStrategyName();
 }
-
-
-
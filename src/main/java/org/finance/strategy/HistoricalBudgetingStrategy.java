@@ -0,0 +1,92 @@
+package org.finance.strategy;
+import org.finance.model.*;
+import org.finance.repository.TransactionRepository;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+/**
+ * History-based budgeting strategy.
+ * Suggests each category's limit from its own spending: the average of the trailing
+ * months before the period, blended with the same month of previous years when the
+ * ledger covers them, plus a safety margin. Income is not used.
+ * <p>
+ * Spending comes from the per-category, per-month totals (archive rollups included),
+ * read once per suggestion or once for a whole batch of categories.
+ */
+public class HistoricalBudgetingStrategy implements BudgetingStrategy {
+    private static final int TRAILING_MONTHS = 6;
+    private static final int SEASONAL_YEARS = 3;
+    private static final BigDecimal MARGIN = BigDecimal.valueOf(0.10);
+    private static final BigDecimal MINIMUM_AMOUNT = BigDecimal.valueOf(50);
+    private static final BigDecimal TWO = BigDecimal.valueOf(2);
+    private final TransactionRepository transactionRepository;
+
+    public HistoricalBudgetingStrategy(TransactionRepository transactionRepository) {
+        this.transactionRepository = Objects.requireNonNull(transactionRepository, "Transaction repository cannot be null");
+    }
+    @Override
+    public Budget calculateSuggestedBudget(Category category, BigDecimal totalIncome) {
+        return calculateSuggestedBudget(category, YearMonth.now(), () -> totalIncome);
+    }
+    @Override
+    public Budget calculateSuggestedBudget(Category category, YearMonth period, Supplier<BigDecimal> totalIncome) {
+        return suggest(category, period, transactionRepository.sumExpensesByMonthAndCategory());
+    }
+    @Override
+    public List<Budget> calculateSuggestedBudgets(List<Category> categories, YearMonth period,
+                                                  Supplier<BigDecimal> totalIncome) {
+        Map<YearMonth, Map<String, BigDecimal>> history = transactionRepository.sumExpensesByMonthAndCategory();
+        return categories.stream().map(category -> suggest(category, period, history)).toList();
+    }
+    /**
+     * Suggests a budget from monthly expense totals keyed by month and category name.
+     * Months before the first month with any expense are outside the ledger and not
+     * averaged; months inside it without expenses for the category count as zero.
+     */
+    public static Budget suggest(Category category, YearMonth period, Map<YearMonth, Map<String, BigDecimal>> history) {
+        String name = category.getName();
+        YearMonth firstMonth = history.isEmpty() ? period : Collections.min(history.keySet());
+        BigDecimal trailing = BigDecimal.ZERO;
+        int trailingMonths = 0;
+        for (int i = 1; i <= TRAILING_MONTHS; i++) {
+            YearMonth month = period.minusMonths(i);
+            if (month.isBefore(firstMonth)) {
+                break;
+            }
+            trailing = trailing.add(spent(history, month, name));
+            trailingMonths++;
+        }
+        BigDecimal seasonal = BigDecimal.ZERO;
+        int seasonalYears = 0;
+        for (int i = 1; i <= SEASONAL_YEARS; i++) {
+            YearMonth month = period.minusYears(i);
+            if (month.isBefore(firstMonth)) {
+                break;
+            }
+            seasonal = seasonal.add(spent(history, month, name));
+            seasonalYears++;
+        }
+        BigDecimal base = BigDecimal.ZERO;
+        if (trailingMonths > 0) {
+            base = trailing.divide(BigDecimal.valueOf(trailingMonths), 2, RoundingMode.HALF_UP);
+            if (seasonalYears > 0) {
+                base = base.add(seasonal.divide(BigDecimal.valueOf(seasonalYears), 2, RoundingMode.HALF_UP))
+                        .divide(TWO, 2, RoundingMode.HALF_UP);
+            }
+        }
+        BigDecimal amount = base.multiply(BigDecimal.ONE.add(MARGIN)).setScale(0, RoundingMode.CEILING);
+        return new Budget(category, amount.max(MINIMUM_AMOUNT), period, "EUR");
+    }
+    private static BigDecimal spent(Map<YearMonth, Map<String, BigDecimal>> history, YearMonth month, String category) {
+        return history.getOrDefault(month, Map.of()).getOrDefault(category, BigDecimal.ZERO);
+    }
+    @Override
+    public String getStrategyName() {
+        return "Historical (seasonal average +10%)";
+    }
+}
@@ -0,0 +1,157 @@
+package org.finance.summary;
+import org.finance.archive.ArchiveCatalog;
+import org.finance.database.DatabaseManager;
+import org.finance.database.MergeBatch;
+import org.finance.model.LedgerTotals;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+/**
+ * Running income, expense and investment totals per currency, stored in ledger_summary
+ * as one row per currency, so balances are read without scanning the transactions.
+ * <p>
+ * The repository keeps them in step with the transactions in the same unit of work,
+ * reading back the stored rows so the stored type and currency decide what is added
+ * or removed. Archiving moves rows without changing any total, so it leaves them
+ * untouched. Like the expense histograms they are derived data: snapshots do not carry
+ * them and restores rebuild them.
+ */
+public class LedgerSummary {
+    private static final Logger logger = Logger.getLogger(LedgerSummary.class.getName());
+    private static final String DEFAULT_CURRENCY = "EUR";
+    private static final String CURRENCY = "COALESCE(currency, '" + DEFAULT_CURRENCY + "')";
+    private static final String TOTALS = "SELECT " + CURRENCY + ", type, SUM(amount), COUNT(*) FROM ";
+    private static final String GROUP_BY = " GROUP BY " + CURRENCY + ", type";
+    private static final String MERGE = """
+        MERGE INTO ledger_summary s USING (VALUES (?, ?, ?, ?, ?)) v(c, i, e, n, k)
+        ON s.currency = v.c
+        WHEN MATCHED THEN UPDATE SET income = s.income + v.i, expenses = s.expenses + v.e,
+            investments = s.investments + v.n, transaction_count = s.transaction_count + v.k
+        WHEN NOT MATCHED THEN INSERT (currency, income, expenses, investments, transaction_count)
+            VALUES (v.c, v.i, v.e, v.n, v.k)
+    """;
+    private final DatabaseManager dbManager;
+
+    public LedgerSummary(DatabaseManager dbManager) {
+        this.dbManager = Objects.requireNonNull(dbManager, "Database manager cannot be null");
+    }
+    /**
+     * Adds (sign 1) or removes (sign -1) the stored transactions with the given ids.
+     * Call it after inserting the rows, or before replacing or deleting them.
+     *
+     * @param source table or union of tables holding the rows
+     */
+    public static void apply(Connection conn, String source, Collection<String> ids, int sign) throws SQLException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Map<String, LedgerTotals> deltas;
+        try (PreparedStatement stmt = conn.prepareStatement(TOTALS + source + " WHERE id = ANY(?)" + GROUP_BY)) {
+            stmt.setObject(1, ids.toArray());
+            deltas = collect(stmt.executeQuery(), sign);
+        }
+        write(conn, deltas);
+    }
+    /**
+     * Totals every transaction of the given source with one aggregation.
+     */
+    public static Map<String, LedgerTotals> sum(Connection conn, String source) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            return collect(stmt.executeQuery(TOTALS + source + GROUP_BY), 1);
+        }
+    }
+    /**
+     * Builds the totals of the given source on the caller's transaction. The table must be empty.
+     */
+    public static void rebuild(Connection conn, String source) throws SQLException {
+        Map<String, LedgerTotals> totals = sum(conn, source);
+        write(conn, totals);
+        logger.info("Totali del registro costruiti per " + totals.size() + " valute");
+    }
+    /**
+     * Reads the stored totals.
+     */
+    public static Map<String, LedgerTotals> read(Connection conn) throws SQLException {
+        Map<String, LedgerTotals> totals = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT currency, income, expenses, investments, transaction_count FROM ledger_summary")) {
+            while (rs.next()) {
+                totals.put(rs.getString(1), new LedgerTotals(rs.getString(1), rs.getBigDecimal(2), rs.getBigDecimal(3),
+                        rs.getBigDecimal(4), rs.getLong(5)));
+            }
+        }
+        return totals;
+    }
+    /**
+     * Replaces the stored totals on the caller's transaction.
+     */
+    public static void replace(Connection conn, Map<String, LedgerTotals> totals) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DELETE FROM ledger_summary");
+        }
+        write(conn, totals);
+    }
+    private static Map<String, LedgerTotals> collect(ResultSet rs, int sign) throws SQLException {
+        Map<String, LedgerTotals> totals = new HashMap<>();
+        while (rs.next()) {
+            String currency = rs.getString(1);
+            BigDecimal amount = rs.getBigDecimal(3).multiply(BigDecimal.valueOf(sign));
+            long count = rs.getLong(4) * sign;
+            BigDecimal zero = BigDecimal.ZERO;
+            LedgerTotals delta = switch (rs.getString(2)) {
+                case "INCOME" -> new LedgerTotals(currency, amount, zero, zero, count);
+                case "INVESTMENT" -> new LedgerTotals(currency, zero, zero, amount, count);
+                default -> new LedgerTotals(currency, zero, amount, zero, count);
+            };
+            totals.merge(currency, delta, LedgerTotals::plus);
+        }
+        return totals;
+    }
+    private static void write(Connection conn, Map<String, LedgerTotals> deltas) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        for (LedgerTotals delta : deltas.values()) {
+            rows.add(new Object[] {delta.currency(), delta.income(), delta.expenses(),
+                    delta.investments(), delta.transactionCount()});
+        }
+        MergeBatch.execute(conn, MERGE, rows, rows.size());
+    }
+    /**
+     * Builds the totals when there are none but transactions exist, e.g. on a ledger
+     * created before they were introduced.
+     */
+    public void ensureBuilt() {
+        try (Connection conn = dbManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("""
+                 SELECT NOT EXISTS(SELECT 1 FROM ledger_summary)
+                     AND (EXISTS(SELECT 1 FROM transactions) OR EXISTS(SELECT 1 FROM archive_partitions))
+             """)) {
+            rs.next();
+            if (!rs.getBoolean(1)) {
+                return;
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Errore nella verifica dei totali del registro", e);
+            throw new RuntimeException("Errore nella verifica dei totali del registro", e);
+        }
+        dbManager.run(() -> {
+            try (Connection conn = dbManager.getConnection()) {
+                rebuild(conn, ArchiveCatalog.forDatabase(dbManager).allTransactions());
+            } catch (SQLException e) {
+                logger.log(Level.SEVERE, "Errore nella costruzione dei totali del registro", e);
+                throw new RuntimeException("Errore nella costruzione dei totali del registro", e);
+            }
+        });
+    }
+}
@@ -0,0 +1,133 @@
+package org.finance.archive;
+import org.finance.database.DatabaseManager;
+import org.finance.dedup.DuplicateDetector;
+import org.finance.importer.CsvColumnMapping;
+import org.finance.importer.CsvStatementImporter;
+import org.finance.importer.ImportResult;
+import org.finance.model.Budget;
+import org.finance.model.Category;
+import org.finance.model.ExpenseTransaction;
+import org.finance.model.IncomeTransaction;
+import org.finance.model.Transaction;
+import org.finance.repository.TransactionCriteria;
+import org.finance.repository.impl.H2BudgetRepository;
+import org.finance.repository.impl.H2CategoryRepository;
+import org.finance.repository.impl.H2TransactionRepository;
+import org.finance.service.BudgetRecomputationJob;
+import org.finance.service.BudgetSpendAccumulator;
+import org.finance.service.PersistentFinanceService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+@DisplayName("TransactionArchiver Tests - Archiviazione e riavvio")
+class TransactionArchiverTest {
+    private static final YearMonth ARCHIVED_MONTH = YearMonth.of(2018, 6);
+    @TempDir
+    Path tempDir;
+    private DatabaseManager dbManager;
+    private H2CategoryRepository categoryRepository;
+    private H2TransactionRepository transactionRepository;
+    private H2BudgetRepository budgetRepository;
+    private PersistentFinanceService financeService;
+    private BudgetSpendAccumulator accumulator;
+    @BeforeEach
+    void setUp() {
+        dbManager = DatabaseManager.forUrl("jdbc:h2:mem:archive_" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        start();
+    }
+    @AfterEach
+    void tearDown() {
+        accumulator.close();
+        dbManager.closeConnection();
+    }
+    private void start() {
+        categoryRepository = new H2CategoryRepository(dbManager);
+        transactionRepository = new H2TransactionRepository(categoryRepository, dbManager);
+        budgetRepository = new H2BudgetRepository(categoryRepository, dbManager);
+        financeService = new PersistentFinanceService(transactionRepository, budgetRepository, categoryRepository, dbManager);
+        accumulator = new BudgetSpendAccumulator(budgetRepository,
+                new BudgetRecomputationJob(transactionRepository, budgetRepository));
+        accumulator.replay();
+        financeService.setBudgetSpendAccumulator(accumulator);
+    }
+    private void restart() {
+        accumulator.close();
+        dbManager.closeConnection();
+        start();
+    }
+    private Category casa() {
+        return categoryRepository.findById("Casa").orElseThrow();
+    }
+    private void addExpense(String description, String amount, LocalDate day) {
+        financeService.addTransaction(new ExpenseTransaction(UUID.randomUUID().toString(), new BigDecimal(amount),
+                description, casa(), "EUR", day.atStartOfDay()));
+    }
+    @Test
+    @DisplayName("Dovrebbe conservare budget, totali e ricerca dopo archiviazione e riavvio")
+    void shouldKeepBudgetsTotalsAndSearchAcrossRestart() {
+        Budget archivedBudget = new Budget(casa(), BigDecimal.valueOf(1000), ARCHIVED_MONTH, "EUR");
+        financeService.addBudget(archivedBudget);
+        addExpense("Affitto giugno", "700.00", ARCHIVED_MONTH.atDay(1));
+        addExpense("Bolletta luce", "80.00", ARCHIVED_MONTH.atDay(20));
+        financeService.addTransaction(new IncomeTransaction(UUID.randomUUID().toString(), new BigDecimal("2000.00"),
+                "Stipendio", categoryRepository.findById("Lavoro").orElseThrow(), "EUR",
+                ARCHIVED_MONTH.atDay(27).atStartOfDay()));
+        addExpense("Affitto corrente", "750.00", LocalDate.now().withDayOfMonth(1));
+        accumulator.flush();
+        BigDecimal incomeBefore = financeService.getTotalIncome();
+        BigDecimal expensesBefore = financeService.getTotalExpenses();
+
+        ArchiveResult result = new TransactionArchiver(dbManager).archive(2);
+        assertEquals(3, result.totalRows());
+        restart();
+
+        assertEquals(0, new BigDecimal("780.00").compareTo(accumulator.getSpent(archivedBudget.getId())));
+        assertEquals(0, incomeBefore.compareTo(financeService.getTotalIncome()));
+        assertEquals(0, expensesBefore.compareTo(financeService.getTotalExpenses()));
+        List<Transaction> byText = financeService.searchTransactions(TransactionCriteria.all().withText("Affitto"));
+        assertEquals(2, byText.size());
+        List<Transaction> archivedMonth = financeService.searchTransactions(TransactionCriteria.all()
+                .between(ARCHIVED_MONTH.atDay(1), ARCHIVED_MONTH.atEndOfMonth()));
+        assertEquals(3, archivedMonth.size());
+    }
+    @Test
+    @DisplayName("Dovrebbe scartare come duplicate le righe gia' archiviate in una reimportazione")
+    void shouldSkipArchivedRowsOnReimport() throws Exception {
+        Path csv = tempDir.resolve("estratto.csv");
+        Files.writeString(csv, String.join("\n",
+                "data;descrizione;importo;categoria",
+                "01/06/2018;Affitto giugno;-700,00;Casa",
+                "20/06/2018;Bolletta luce;-80,00;Casa"));
+        try (CsvStatementImporter importer = new CsvStatementImporter(transactionRepository, categoryRepository, 2, 2)) {
+            importer.setDuplicateDetector(DuplicateDetector.forDatabase(dbManager));
+            assertEquals(2, importer.importFile(csv, CsvColumnMapping.defaultMapping("EUR")).rowsImported());
+        }
+        new TransactionArchiver(dbManager).archive(2);
+        restart();
+
+        Files.writeString(csv, String.join("\n",
+                "data;descrizione;importo;categoria",
+                "01/06/2018;Affitto giugno;-700,00;Casa",
+                "20/06/2018;Bolletta luce;-80,00;Casa",
+                "01/07/2018;Affitto luglio;-700,00;Casa"));
+        try (CsvStatementImporter importer = new CsvStatementImporter(transactionRepository, categoryRepository, 2, 2)) {
+            importer.setDuplicateDetector(DuplicateDetector.forDatabase(dbManager));
+            ImportResult reimport = importer.importFile(csv, CsvColumnMapping.defaultMapping("EUR"));
+            assertEquals(1, reimport.rowsImported());
+            assertEquals(2, reimport.rowsDuplicate());
+        }
+        assertEquals(3, financeService.searchTransactions(TransactionCriteria.all()
+                .between(LocalDate.of(2018, 1, 1), LocalDate.of(2018, 12, 31))).size());
+    }
+}
@@ -0,0 +1,88 @@
+package org.finance.benchmark;
+import org.finance.categorization.CategorizationEngine;
+import org.finance.model.CategorizationRule;
+import org.finance.model.Category;
+import org.finance.model.TransactionType;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+/**
+ * Misura la classificazione di descrizioni con l'automa compilato rispetto alla
+ * scansione regola per regola con String.contains.
+ * Uso: mvn test-compile exec:java -Dexec.classpathScope=test
+ *      -Dexec.mainClass=org.finance.benchmark.CategorizationBenchmark [-Drules=5000 -Ddescriptions=1000000]
+ */
+public class CategorizationBenchmark {
+    private static final int RULES = Integer.getInteger("rules", 5_000);
+    private static final int DESCRIPTIONS = Integer.getInteger("descriptions", 1_000_000);
+    /** The naive scan is sampled: at thousands of rules it would take minutes on the full set. */
+    private static final int NAIVE_SAMPLE = Integer.getInteger("naiveSample", 20_000);
+    private static final String[] PREFIXES = {"PAGAMENTO POS ", "ADDEBITO SDD ", "BONIFICO A FAVORE DI ", "PRELIEVO ", ""};
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        List<Category> categories = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            categories.add(new Category("Categoria " + i));
+        }
+        List<String> merchants = new ArrayList<>();
+        List<CategorizationRule> rules = new ArrayList<>();
+        for (int i = 0; i < RULES; i++) {
+            String merchant = randomWord(random, 5 + random.nextInt(8)) + " " + i;
+            merchants.add(merchant);
+            BigDecimal max = i % 10 == 0 ? BigDecimal.valueOf(100) : null;
+            rules.add(new CategorizationRule(merchant, null, max, null, categories.get(i % categories.size()), i % 3));
+        }
+        String[] descriptions = new String[DESCRIPTIONS];
+        BigDecimal[] amounts = new BigDecimal[DESCRIPTIONS];
+        for (int i = 0; i < DESCRIPTIONS; i++) {
+            String merchant = random.nextInt(10) < 8
+                    ? merchants.get(random.nextInt(merchants.size())).toUpperCase()
+                    : randomWord(random, 10);
+            descriptions[i] = PREFIXES[random.nextInt(PREFIXES.length)] + merchant + " CARTA *" + random.nextInt(10_000);
+            amounts[i] = BigDecimal.valueOf(random.nextInt(50_000), 2);
+        }
+        long start = System.nanoTime();
+        CategorizationEngine engine = CategorizationEngine.compile(rules);
+        System.out.printf("Compilazione: %d regole, %d stati in %d ms%n",
+                RULES, engine.getStateCount(), (System.nanoTime() - start) / 1_000_000);
+        for (int round = 1; round <= 3; round++) {
+            start = System.nanoTime();
+            long matched = 0;
+            for (int i = 0; i < DESCRIPTIONS; i++) {
+                if (engine.match(descriptions[i], amounts[i], TransactionType.EXPENSE).isPresent()) {
+                    matched++;
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("Automa (giro %d): %d descrizioni, %d categorizzate, %d ms (%.0f descrizioni/s)%n",
+                    round, DESCRIPTIONS, matched, elapsed / 1_000_000, DESCRIPTIONS / (elapsed / 1e9));
+        }
+        int sample = Math.min(NAIVE_SAMPLE, DESCRIPTIONS);
+        start = System.nanoTime();
+        long matched = 0;
+        for (int i = 0; i < sample; i++) {
+            String description = CategorizationRule.normalizeKeyword(descriptions[i]);
+            CategorizationRule best = null;
+            for (CategorizationRule rule : rules) {
+                if (description.contains(rule.getKeyword()) && rule.accepts(amounts[i], TransactionType.EXPENSE)
+                        && (best == null || rule.getPriority() > best.getPriority())) {
+                    best = rule;
+                }
+            }
+            if (best != null) {
+                matched++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("Scansione ingenua: %d descrizioni, %d categorizzate, %d ms (%.0f descrizioni/s)%n",
+                sample, matched, elapsed / 1_000_000, sample / (elapsed / 1e9));
+    }
+    private static String randomWord(Random random, int length) {
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+        return word.toString();
+    }
+}
@@ -0,0 +1,81 @@
+package org.finance.benchmark;
+import org.finance.database.DatabaseManager;
+import org.finance.model.Category;
+import org.finance.model.Transaction;
+import org.finance.model.TransactionType;
+import org.finance.factory.TransactionFactory;
+import org.finance.repository.TransactionCriteria;
+import org.finance.repository.impl.H2CategoryRepository;
+import org.finance.repository.impl.H2TransactionRepository;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+/**
+ * Misura la ricerca full-text sulle descrizioni tramite l'indice invertito,
+ * da sola e combinata con filtri di categoria e data, con i risultati piu' recenti per primi.
+ * Uso: mvn test-compile exec:java -Dexec.classpathScope=test
+ *      -Dexec.mainClass=org.finance.benchmark.DescriptionSearchBenchmark [-Drows=1000000]
+ */
+public class DescriptionSearchBenchmark {
+    private static final int ROWS = Integer.getInteger("rows", 1_000_000);
+    private static final int BATCH = 10_000;
+    private static final int REPETITIONS = 20;
+    private static final String[] MERCHANTS = {"Esselunga", "Conad", "Coop", "Carrefour", "Lidl", "Eni", "Q8",
+            "Trenitalia", "Italo", "Amazon", "Netflix", "Spotify", "Farmacia", "Ristorante", "Pizzeria"};
+    private static final String[] CITIES = {"Milano", "Roma", "Torino", "Bologna", "Napoli", "Firenze"};
+    public static void main(String[] args) {
+        if (System.getProperty("finance.db.url") == null) {
+            try {
+                Path dir = Files.createTempDirectory("finance-bench");
+                System.setProperty("finance.db.url", "jdbc:h2:" + dir.resolve("bench_db").toAbsolutePath());
+            } catch (java.io.IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        DatabaseManager dbManager = DatabaseManager.getInstance();
+        H2CategoryRepository categoryRepository = new H2CategoryRepository(dbManager);
+        H2TransactionRepository repository = new H2TransactionRepository(categoryRepository, dbManager);
+        List<Category> categories = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            categories.add(categoryRepository.save(new Category("Bench " + i)));
+        }
+        Random random = new Random(7);
+        LocalDateTime start = LocalDateTime.now().minusYears(5);
+        long seedStart = System.nanoTime();
+        for (int from = 0; from < ROWS; from += BATCH) {
+            List<Transaction> batch = new ArrayList<>(BATCH);
+            for (int i = from; i < Math.min(from + BATCH, ROWS); i++) {
+                String description = "Pagamento POS " + MERCHANTS[random.nextInt(MERCHANTS.length)] + " "
+                        + CITIES[random.nextInt(CITIES.length)] + " " + random.nextInt(100_000);
+                batch.add(TransactionFactory.createTransaction(TransactionType.EXPENSE,
+                        BigDecimal.valueOf(1 + random.nextInt(20_000), 2), description,
+                        categories.get(random.nextInt(categories.size())), "EUR",
+                        start.plusSeconds(i * 150L)));
+            }
+            repository.saveAll(batch);
+        }
+        System.out.printf("Seed completato: %d transazioni in %d ms%n", ROWS, (System.nanoTime() - seedStart) / 1_000_000);
+        LocalDate today = LocalDate.now();
+        measure(repository, "parola esatta", TransactionCriteria.all().withText("netflix").limit(50));
+        measure(repository, "prefisso", TransactionCriteria.all().withText("trenit").limit(50));
+        measure(repository, "due prefissi", TransactionCriteria.all().withText("esse tori").limit(50));
+        measure(repository, "prefisso raro", TransactionCriteria.all().withText("4242").limit(50));
+        measure(repository, "prefisso + categoria + mese", TransactionCriteria.all().withText("conad")
+                .withCategory("Bench 3").between(today.minusMonths(1), today).limit(50));
+        dbManager.closeConnection();
+    }
+    private static void measure(H2TransactionRepository repository, String label, TransactionCriteria criteria) {
+        int results = repository.findByCriteria(criteria).size();
+        long start = System.nanoTime();
+        for (int i = 0; i < REPETITIONS; i++) {
+            repository.findByCriteria(criteria);
+        }
+        System.out.printf("%-30s %3d risultati, %.1f ms per ricerca%n", label, results,
+                (System.nanoTime() - start) / 1e6 / REPETITIONS);
+    }
+}
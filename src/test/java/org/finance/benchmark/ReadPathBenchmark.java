@@ -0,0 +1,119 @@
+package org.finance.benchmark;
+import org.finance.database.DatabaseManager;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+/**
+ * Misura la latenza degli insert mentre report full-history girano in parallelo,
+ * confrontando il percorso condiviso con il writer e quello snapshot read-only.
+ * Uso: mvn test-compile exec:java -Dexec.classpathScope=test
+ *      -Dexec.mainClass=org.finance.benchmark.ReadPathBenchmark [-Drows=200000 -Dinserts=2000 -Dreaders=4]
+ */
+public class ReadPathBenchmark {
+    private static final int ROWS = Integer.getInteger("rows", 200_000);
+    private static final int INSERTS = Integer.getInteger("inserts", 2_000);
+    private static final int READERS = Integer.getInteger("readers", 4);
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection open() throws SQLException;
+    }
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty("finance.db.url") == null) {
+            Path dir = Files.createTempDirectory("finance-bench");
+            System.setProperty("finance.db.url", "jdbc:h2:" + dir.resolve("bench_db").toAbsolutePath());
+        }
+        DatabaseManager dbManager = DatabaseManager.getInstance();
+        seed(dbManager);
+        measure("condiviso (writer pool)", dbManager, dbManager::getConnection);
+        measure("snapshot read-only", dbManager, dbManager::getReadConnection);
+        dbManager.closeConnection();
+    }
+    private static void seed(DatabaseManager dbManager) throws SQLException {
+        try (Connection conn = dbManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("MERGE INTO categories (name, description) VALUES ('Bench', 'Benchmark')");
+            stmt.execute("DELETE FROM transactions WHERE category_name = 'Bench'");
+        }
+        insertRows(dbManager, ROWS);
+        System.out.printf("Seed completato: %d transazioni%n", ROWS);
+    }
+    private static void insertRows(DatabaseManager dbManager, int rows) throws SQLException {
+        String sql = "INSERT INTO transactions (id, amount, description, timestamp, category_name, type, currency) VALUES (?, ?, ?, ?, 'Bench', 'EXPENSE', 'EUR')";
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            LocalDateTime start = LocalDateTime.now().minusYears(10);
+            for (int i = 0; i < rows; i++) {
+                stmt.setString(1, UUID.randomUUID().toString());
+                stmt.setBigDecimal(2, java.math.BigDecimal.valueOf(1 + i % 500));
+                stmt.setString(3, "Seed " + i);
+                stmt.setTimestamp(4, Timestamp.valueOf(start.plusMinutes(i * 20L)));
+                stmt.addBatch();
+                if (i % 1000 == 999) {
+                    stmt.executeBatch();
+                    conn.commit();
+                }
+            }
+            stmt.executeBatch();
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+    }
+    private static void measure(String label, DatabaseManager dbManager, ConnectionSource readSource) throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong scans = new AtomicLong();
+        Thread[] readers = new Thread[READERS];
+        for (int r = 0; r < READERS; r++) {
+            readers[r] = new Thread(() -> {
+                while (running.get()) {
+                    try (Connection conn = readSource.open();
+                         Statement stmt = conn.createStatement();
+                         ResultSet rs = stmt.executeQuery("SELECT * FROM transactions ORDER BY timestamp DESC")) {
+                        while (rs.next() && running.get()) {
+                            rs.getBigDecimal("amount");
+                        }
+                        scans.incrementAndGet();
+                    } catch (SQLException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            });
+            readers[r].start();
+        }
+        Thread.sleep(500);
+        long[] latencies = new long[INSERTS];
+        String sql = "INSERT INTO transactions (id, amount, description, timestamp, category_name, type, currency) VALUES (?, 10, 'Bench insert', ?, 'Bench', 'EXPENSE', 'EUR')";
+        for (int i = 0; i < INSERTS; i++) {
+            long begin = System.nanoTime();
+            try (Connection conn = dbManager.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, UUID.randomUUID().toString());
+                stmt.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+                stmt.executeUpdate();
+            }
+            latencies[i] = System.nanoTime() - begin;
+        }
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%-25s insert p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms (scan completate: %d)%n",
+                label, millis(latencies, 0.50), millis(latencies, 0.95), millis(latencies, 0.99),
+                latencies[latencies.length - 1] / 1_000_000.0, scans.get());
+    }
+    private static double millis(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,61 @@
+package org.finance.categorization;
+import org.finance.model.CategorizationRule;
+import org.finance.model.Category;
+import org.finance.model.TransactionType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+@DisplayName("CategorizationEngine Tests - Categorizzazione automatica")
+class CategorizationEngineTest {
+    private static final Category FOOD = new Category("Cibo");
+    private static final Category TRANSPORT = new Category("Trasporti");
+    private static final Category OTHER = new Category("Altro");
+    @Test
+    @DisplayName("Dovrebbe trovare tutte le parole chiave, anche sovrapposte")
+    void shouldReportOverlappingKeywords() {
+        KeywordAutomaton automaton = new KeywordAutomaton(List.of("he", "she", "his", "hers"));
+        List<Integer> matches = new ArrayList<>();
+        automaton.scan("uSHErs", matches::add);
+        assertEquals(List.of(1, 0, 3), matches);
+    }
+    @Test
+    @DisplayName("Dovrebbe ignorare le maiuscole nella descrizione")
+    void shouldMatchCaseInsensitively() {
+        CategorizationEngine engine = CategorizationEngine.compile(List.of(
+                rule("Esselunga", null, null, FOOD, 0)));
+        assertEquals(FOOD, category(engine, "PAGAMENTO POS ESSELUNGA MILANO", "35.20"));
+        assertNull(category(engine, "Benzina", "35.20"));
+    }
+    @Test
+    @DisplayName("Dovrebbe preferire la priorita' piu' alta e poi la parola chiave piu' lunga")
+    void shouldPickBestRule() {
+        CategorizationEngine engine = CategorizationEngine.compile(List.of(
+                rule("pos", null, null, OTHER, 0),
+                rule("pos esselunga", null, null, FOOD, 0),
+                rule("telepass", null, null, TRANSPORT, 5)));
+        assertEquals(FOOD, category(engine, "POS ESSELUNGA", "10"));
+        assertEquals(TRANSPORT, category(engine, "POS ESSELUNGA TELEPASS", "10"));
+        assertEquals(OTHER, category(engine, "POS ALTRO", "10"));
+    }
+    @Test
+    @DisplayName("Dovrebbe rispettare intervallo di importo e tipo")
+    void shouldCheckAmountAndType() {
+        CategorizationEngine engine = CategorizationEngine.compile(List.of(
+                rule("bar", null, new BigDecimal("10"), FOOD, 0),
+                new CategorizationRule(null, new BigDecimal("1000"), null, TransactionType.EXPENSE, OTHER, -1)));
+        assertEquals(FOOD, category(engine, "Bar Centrale", "3.50"));
+        assertNull(category(engine, "Bar Centrale", "45"));
+        assertEquals(OTHER, category(engine, "Affitto", "1200"));
+        assertTrue(engine.match("Affitto", new BigDecimal("1200"), TransactionType.INCOME).isEmpty());
+    }
+    private static CategorizationRule rule(String keyword, BigDecimal min, BigDecimal max, Category category, int priority) {
+        return new CategorizationRule(keyword, min, max, null, category, priority);
+    }
+    private static Category category(CategorizationEngine engine, String description, String amount) {
+        return engine.match(description, new BigDecimal(amount), TransactionType.EXPENSE)
+                .map(CategorizationRule::getCategory).orElse(null);
+    }
+}
@@ -0,0 +1,75 @@
+package org.finance.database;
+import org.finance.model.Category;
+import org.finance.repository.impl.H2CategoryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+@DisplayName("UnitOfWork Tests - Transazioni del DatabaseManager")
+class UnitOfWorkTest {
+    private DatabaseManager dbManager;
+    private H2CategoryRepository categoryRepository;
+    private List<String> committed;
+    @BeforeEach
+    void setUp() {
+        dbManager = DatabaseManager.forUrl("jdbc:h2:mem:uow_" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        categoryRepository = new H2CategoryRepository(dbManager);
+        committed = new CopyOnWriteArrayList<>();
+    }
+    @AfterEach
+    void tearDown() {
+        dbManager.closeConnection();
+    }
+    @Test
+    @DisplayName("Dovrebbe annullare entrambe le scritture e non eseguire le callback se il lavoro fallisce")
+    void shouldRollBackBothWritesAndDropCallbacksOnFailure() {
+        long epochBefore = dbManager.getWriteEpoch();
+        RuntimeException failure = assertThrows(RuntimeException.class, () -> dbManager.run(() -> {
+            categoryRepository.save(new Category("Viaggi"));
+            dbManager.afterCommit(() -> committed.add("Viaggi"));
+            categoryRepository.save(new Category("Salute"));
+            dbManager.afterCommit(() -> committed.add("Salute"));
+            throw new IllegalStateException("errore dopo le scritture");
+        }));
+        assertEquals("errore dopo le scritture", failure.getMessage());
+        assertTrue(categoryRepository.findById("Viaggi").isEmpty());
+        assertTrue(categoryRepository.findById("Salute").isEmpty());
+        assertTrue(committed.isEmpty());
+        assertEquals(epochBefore, dbManager.getWriteEpoch());
+        assertFalse(dbManager.isInUnitOfWork());
+    }
+    @Test
+    @DisplayName("Dovrebbe annullare anche le scritture di un lavoro annidato")
+    void shouldRollBackNestedWorkWithTheOuterOne() {
+        assertThrows(IllegalStateException.class, () -> dbManager.run(() -> {
+            dbManager.run(() -> {
+                categoryRepository.save(new Category("Viaggi"));
+                dbManager.afterCommit(() -> committed.add("Viaggi"));
+            });
+            categoryRepository.save(new Category("Salute"));
+            throw new IllegalStateException("errore esterno");
+        }));
+        assertTrue(categoryRepository.findById("Viaggi").isEmpty());
+        assertTrue(categoryRepository.findById("Salute").isEmpty());
+        assertTrue(committed.isEmpty());
+    }
+    @Test
+    @DisplayName("Dovrebbe eseguire le callback solo dopo il commit")
+    void shouldRunCallbacksAfterCommit() {
+        long epochBefore = dbManager.getWriteEpoch();
+        dbManager.run(() -> {
+            categoryRepository.save(new Category("Viaggi"));
+            dbManager.afterCommit(() -> committed.add("Viaggi"));
+            categoryRepository.save(new Category("Salute"));
+            assertTrue(committed.isEmpty());
+        });
+        assertEquals(List.of("Viaggi"), committed);
+        assertTrue(categoryRepository.findById("Viaggi").isPresent());
+        assertTrue(categoryRepository.findById("Salute").isPresent());
+        assertNotEquals(epochBefore, dbManager.getWriteEpoch());
+    }
+}
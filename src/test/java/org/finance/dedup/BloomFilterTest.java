@@ -0,0 +1,47 @@
+package org.finance.dedup;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+@DisplayName("BloomFilter Tests - Rilevamento duplicati")
+class BloomFilterTest {
+    private static final LocalDateTime DATE = LocalDateTime.of(2024, 3, 1, 0, 0);
+    @Test
+    @DisplayName("Dovrebbe riconoscere sempre le impronte inserite")
+    void shouldHaveNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(fingerprint(i));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain(fingerprint(i)));
+        }
+    }
+    @Test
+    @DisplayName("Dovrebbe rispettare il tasso di falsi positivi configurato")
+    void shouldKeepFalsePositiveRateLow() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(fingerprint(i));
+        }
+        int falsePositives = 0;
+        for (int i = 10_000; i < 20_000; i++) {
+            if (filter.mightContain(fingerprint(i))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 200, "Falsi positivi: " + falsePositives);
+    }
+    @Test
+    @DisplayName("Dovrebbe ignorare maiuscole e spazi nella descrizione")
+    void shouldNormalizeDescription() {
+        TransactionFingerprint first = TransactionFingerprint.of(new BigDecimal("12.5"), DATE, "Spesa  Conad ", "Cibo");
+        TransactionFingerprint second = TransactionFingerprint.of(new BigDecimal("12.50"), DATE, "spesa conad", "cibo");
+        assertEquals(first, second);
+        assertEquals(first, TransactionFingerprint.fromHex(first.toHex()));
+    }
+    private static TransactionFingerprint fingerprint(int i) {
+        return TransactionFingerprint.of(BigDecimal.valueOf(i, 2), DATE, "Transazione " + i, "Cibo");
+    }
+}
@@ -0,0 +1,77 @@
+package org.finance.dedup;
+import org.finance.archive.TransactionArchiver;
+import org.finance.database.DatabaseManager;
+import org.finance.model.Category;
+import org.finance.model.ExpenseTransaction;
+import org.finance.model.Transaction;
+import org.finance.repository.impl.H2CategoryRepository;
+import org.finance.repository.impl.H2TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+@DisplayName("DuplicateDetector Tests - Rilevamento duplicati")
+class DuplicateDetectorTest {
+    private DatabaseManager dbManager;
+    private H2TransactionRepository transactionRepository;
+    private Category casa;
+    @BeforeEach
+    void setUp() {
+        dbManager = DatabaseManager.forUrl("jdbc:h2:mem:dedup_" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        H2CategoryRepository categoryRepository = new H2CategoryRepository(dbManager);
+        casa = new Category("Casa");
+        categoryRepository.save(casa);
+        transactionRepository = new H2TransactionRepository(categoryRepository, dbManager);
+    }
+    @AfterEach
+    void tearDown() {
+        dbManager.closeConnection();
+    }
+    private Transaction expense(String description, LocalDateTime timestamp) {
+        return new ExpenseTransaction(UUID.randomUUID().toString(), new BigDecimal("12.50"), description, casa, "EUR", timestamp);
+    }
+    @Test
+    @DisplayName("Dovrebbe inizializzare il filtro solo alla prima ricerca")
+    void shouldSeedLazilyOnFirstLookup() {
+        DuplicateDetector detector = DuplicateDetector.forDatabase(dbManager);
+        assertFalse(detector.isSeeded());
+        detector.filterNew(List.of(expense("Affitto", LocalDateTime.of(2024, 1, 5, 9, 0))));
+        assertTrue(detector.isSeeded());
+        detector.invalidate();
+        assertFalse(detector.isSeeded());
+    }
+    @Test
+    @DisplayName("Dovrebbe riconoscere le transazioni salvate fuori dall'importazione dopo l'inizializzazione")
+    void shouldDetectRowsSavedAfterSeeding() {
+        DuplicateDetector detector = DuplicateDetector.forDatabase(dbManager);
+        LocalDateTime day = LocalDateTime.of(2024, 2, 10, 8, 30);
+        detector.filterNew(List.of(expense("Primo import", day)));
+        assertTrue(detector.isSeeded());
+        transactionRepository.save(expense("Affitto a mano", day));
+        transactionRepository.saveAll(List.of(expense("Abbonamento ricorrente", day)));
+        Transaction fresh = expense("Nuova spesa", day);
+        List<Transaction> result = detector.filterNew(List.of(expense("Affitto a mano", day),
+                expense("Abbonamento ricorrente", day), fresh));
+        assertEquals(List.of(fresh), result);
+    }
+    @Test
+    @DisplayName("Dovrebbe riconoscere come duplicate le transazioni archiviate")
+    void shouldDetectDuplicatesOfArchivedTransactions() {
+        LocalDateTime archivedDay = LocalDateTime.of(2018, 6, 1, 10, 0);
+        LocalDateTime recentDay = LocalDateTime.now().withNano(0);
+        transactionRepository.save(expense("Affitto giugno", archivedDay));
+        transactionRepository.save(expense("Bolletta", recentDay));
+        new TransactionArchiver(dbManager).archive(2);
+        DuplicateDetector detector = DuplicateDetector.forDatabase(dbManager);
+        Transaction archivedCopy = expense("Affitto giugno", archivedDay);
+        Transaction hotCopy = expense("Bolletta", recentDay);
+        Transaction fresh = expense("Affitto luglio", archivedDay.plusMonths(1));
+        List<Transaction> result = detector.filterNew(List.of(archivedCopy, hotCopy, fresh));
+        assertEquals(List.of(fresh), result);
+    }
+}
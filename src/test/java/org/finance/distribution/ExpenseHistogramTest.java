@@ -0,0 +1,46 @@
+package org.finance.distribution;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+@DisplayName("ExpenseHistogram Tests - Percentili delle spese")
+class ExpenseHistogramTest {
+    @Test
+    @DisplayName("Dovrebbe stimare i percentili entro l'accuratezza relativa")
+    void shouldEstimateQuantilesWithinRelativeAccuracy() {
+        Random random = new Random(7);
+        List<BigDecimal> amounts = new ArrayList<>();
+        ExpenseHistogram histogram = new ExpenseHistogram();
+        for (int i = 0; i < 20_000; i++) {
+            BigDecimal amount = BigDecimal.valueOf((long) Math.exp(random.nextGaussian() * 1.5 + 8), 2);
+            amounts.add(amount);
+            histogram.add(amount);
+        }
+        Collections.sort(amounts);
+        for (double q : new double[] {0.5, 0.9, 0.99}) {
+            double exact = amounts.get((int) Math.ceil(q * amounts.size()) - 1).doubleValue();
+            double estimate = histogram.quantile(q).doubleValue();
+            assertEquals(exact, estimate, exact * ExpenseHistogram.RELATIVE_ACCURACY + 0.01, "quantile " + q);
+        }
+    }
+    @Test
+    @DisplayName("Dovrebbe unire periodi come se fossero un unico istogramma")
+    void shouldMergeLikeASingleHistogram() {
+        ExpenseHistogram january = new ExpenseHistogram();
+        ExpenseHistogram february = new ExpenseHistogram();
+        ExpenseHistogram both = new ExpenseHistogram();
+        for (int i = 1; i <= 100; i++) {
+            BigDecimal amount = BigDecimal.valueOf(i * 3L);
+            (i % 2 == 0 ? january : february).add(amount);
+            both.add(amount);
+        }
+        january.merge(february);
+        assertEquals(both, january);
+        assertEquals(100, january.getCount());
+        assertThrows(IllegalStateException.class, () -> new ExpenseHistogram().quantile(0.5));
+    }
+}
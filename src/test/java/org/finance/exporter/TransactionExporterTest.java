@@ -0,0 +1,106 @@
+package org.finance.exporter;
+import org.finance.database.DatabaseManager;
+import org.finance.importer.CsvColumnMapping;
+import org.finance.importer.CsvStatementImporter;
+import org.finance.importer.ImportResult;
+import org.finance.model.Category;
+import org.finance.model.ExpenseTransaction;
+import org.finance.model.IncomeTransaction;
+import org.finance.model.InvestmentTransaction;
+import org.finance.model.Transaction;
+import org.finance.repository.impl.H2CategoryRepository;
+import org.finance.repository.impl.H2TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+@DisplayName("TransactionExporter Tests - Esportazione e reimportazione")
+class TransactionExporterTest {
+    @TempDir
+    Path tempDir;
+    private DatabaseManager source;
+    private DatabaseManager target;
+    @BeforeEach
+    void setUp() {
+        source = DatabaseManager.forUrl("jdbc:h2:mem:export_" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        target = DatabaseManager.forUrl("jdbc:h2:mem:reimport_" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+    }
+    @AfterEach
+    void tearDown() {
+        source.closeConnection();
+        target.closeConnection();
+    }
+    private static H2CategoryRepository categories(DatabaseManager dbManager) {
+        H2CategoryRepository categoryRepository = new H2CategoryRepository(dbManager);
+        categoryRepository.save(new Category("Casa"));
+        categoryRepository.save(new Category("Lavoro"));
+        return categoryRepository;
+    }
+    @Test
+    @DisplayName("Dovrebbe conservare tipo, importo, data e categoria in un giro esporta-importa")
+    void shouldKeepTypesThroughCsvRoundTrip() throws Exception {
+        H2CategoryRepository sourceCategories = categories(source);
+        H2TransactionRepository sourceTransactions = new H2TransactionRepository(sourceCategories, source);
+        Category casa = sourceCategories.findById("Casa").orElseThrow();
+        Category lavoro = sourceCategories.findById("Lavoro").orElseThrow();
+        LocalDateTime day = LocalDateTime.of(2024, 3, 1, 0, 0);
+        sourceTransactions.save(new IncomeTransaction(UUID.randomUUID().toString(), new BigDecimal("2500.00"),
+                "Stipendio; marzo", lavoro, "EUR", day));
+        sourceTransactions.save(new ExpenseTransaction(UUID.randomUUID().toString(), new BigDecimal("750.00"),
+                "Affitto", casa, "EUR", day.plusDays(1)));
+        sourceTransactions.save(new InvestmentTransaction(UUID.randomUUID().toString(), new BigDecimal("300.00"),
+                "ETF", casa, "EUR", day.plusDays(2)));
+
+        Path csv = tempDir.resolve("export.csv");
+        ExportResult exported = new TransactionExporter(source).exportTransactions(csv, ExportFormat.CSV, ExportFilter.all());
+        assertEquals(3, exported.rowsWritten());
+
+        H2CategoryRepository targetCategories = categories(target);
+        H2TransactionRepository targetTransactions = new H2TransactionRepository(targetCategories, target);
+        try (CsvStatementImporter importer = new CsvStatementImporter(targetTransactions, targetCategories, 2, 2)) {
+            ImportResult imported = importer.importFile(csv, CsvColumnMapping.defaultMapping("EUR"));
+            assertEquals(3, imported.rowsImported());
+            assertEquals(0, imported.rowsRejected());
+        }
+        List<Transaction> expected = sorted(sourceTransactions.findAll());
+        List<Transaction> actual = sorted(targetTransactions.findAll());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getType(), actual.get(i).getType());
+            assertEquals(0, expected.get(i).getAmount().compareTo(actual.get(i).getAmount()));
+            assertEquals(expected.get(i).getDescription(), actual.get(i).getDescription());
+            assertEquals(expected.get(i).getTimestamp(), actual.get(i).getTimestamp());
+            assertEquals(expected.get(i).getCategory().getName(), actual.get(i).getCategory().getName());
+        }
+    }
+    @Test
+    @DisplayName("Dovrebbe esportare tutto l'ultimo giorno dell'intervallo, frazioni di secondo incluse")
+    void shouldIncludeWholeLastDay() throws Exception {
+        H2CategoryRepository sourceCategories = categories(source);
+        H2TransactionRepository sourceTransactions = new H2TransactionRepository(sourceCategories, source);
+        Category casa = sourceCategories.findById("Casa").orElseThrow();
+        LocalDate last = LocalDate.of(2024, 3, 31);
+        sourceTransactions.save(new ExpenseTransaction(UUID.randomUUID().toString(), new BigDecimal("10.00"),
+                "Ultimo istante", casa, "EUR", last.atTime(23, 59, 59, 500_000_000)));
+        sourceTransactions.save(new ExpenseTransaction(UUID.randomUUID().toString(), new BigDecimal("20.00"),
+                "Giorno dopo", casa, "EUR", last.plusDays(1).atStartOfDay()));
+
+        ExportResult exported = new TransactionExporter(source).exportTransactions(tempDir.resolve("marzo.csv"),
+                ExportFormat.CSV, ExportFilter.betweenDates(LocalDate.of(2024, 3, 1), last));
+
+        assertEquals(1, exported.rowsWritten());
+        assertThrows(IllegalArgumentException.class, () -> ExportFilter.between(last.atStartOfDay(), last.atStartOfDay()));
+    }
+    private static List<Transaction> sorted(List<Transaction> transactions) {
+        return transactions.stream().sorted(Comparator.comparing(Transaction::getTimestamp)).toList();
+    }
+}
@@ -0,0 +1,87 @@
+package org.finance.importer;
+import org.finance.model.*;
+import org.finance.repository.CategoryRepository;
+import org.finance.repository.TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+@DisplayName("CsvStatementImporter Tests - Import massivo")
+class CsvStatementImporterTest {
+    @TempDir
+    Path tempDir;
+    private List<Transaction> saved;
+    private CsvStatementImporter importer;
+    @BeforeEach
+    void setUp() {
+        TransactionRepository transactionRepository = mock(TransactionRepository.class);
+        CategoryRepository categoryRepository = mock(CategoryRepository.class);
+        saved = new CopyOnWriteArrayList<>();
+        when(transactionRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Transaction> batch = invocation.getArgument(0);
+            saved.addAll(batch);
+            return batch;
+        });
+        when(categoryRepository.findById(anyString())).thenReturn(Optional.empty());
+        when(categoryRepository.findById("Casa")).thenReturn(Optional.of(new Category("Casa")));
+        when(categoryRepository.findById("Lavoro")).thenReturn(Optional.of(new Category("Lavoro")));
+        importer = new CsvStatementImporter(transactionRepository, categoryRepository, 2, 2);
+    }
+    @AfterEach
+    void tearDown() {
+        importer.close();
+    }
+    @Test
+    @DisplayName("Dovrebbe importare le righe valide e scartare quelle errate")
+    void shouldImportValidRowsAndRejectInvalidOnes() throws Exception {
+        Path csv = tempDir.resolve("estratto.csv");
+        Files.writeString(csv, String.join("\n",
+                "data;descrizione;importo;categoria",
+                "01/03/2024;Affitto;-750,00;Casa",
+                "27/03/2024;\"Stipendio; marzo\";2.500,00;Lavoro",
+                "",
+                "31/02/2024;Data errata;-10,00;Casa",
+                "02/03/2024;Categoria ignota;-5,00;Viaggi",
+                "03/03/2024;Importo errato;abc;Casa"));
+        ImportResult result = importer.importFile(csv, CsvColumnMapping.defaultMapping("EUR"));
+        assertEquals(5, result.rowsRead());
+        assertEquals(2, result.rowsImported());
+        assertEquals(3, result.rowsRejected());
+        assertEquals(2, saved.size());
+        Transaction rent = saved.stream().filter(t -> t.getDescription().equals("Affitto")).findFirst().orElseThrow();
+        assertInstanceOf(ExpenseTransaction.class, rent);
+        assertEquals(new BigDecimal("750.00"), rent.getAmount());
+        assertEquals(LocalDateTime.of(2024, 3, 1, 0, 0), rent.getTimestamp());
+        Transaction salary = saved.stream().filter(t -> t.getDescription().equals("Stipendio; marzo")).findFirst().orElseThrow();
+        assertInstanceOf(IncomeTransaction.class, salary);
+        assertEquals(new BigDecimal("2500.00"), salary.getAmount());
+        List<String> rejected = Files.readAllLines(result.rejectFile());
+        assertEquals(3, rejected.size());
+        assertTrue(rejected.stream().anyMatch(line -> line.startsWith("5;Data non valida")));
+        assertTrue(rejected.stream().anyMatch(line -> line.startsWith("6;Categoria sconosciuta")));
+        assertTrue(rejected.stream().anyMatch(line -> line.startsWith("7;Importo non valido")));
+    }
+    @Test
+    @DisplayName("Non dovrebbe creare il file degli scarti se tutte le righe sono valide")
+    void shouldNotKeepRejectFileWhenAllRowsAreValid() throws Exception {
+        Path csv = tempDir.resolve("ok.csv");
+        Files.writeString(csv, "2024-03-01,Rent,EXPENSE,750.00\n2024-03-02,Pay,INCOME,100\n");
+        CsvColumnMapping mapping = new CsvColumnMapping(0, 3, 1, CsvColumnMapping.NONE, 2, ',', '.',
+                false, "yyyy-MM-dd", "EUR", "Casa");
+        ImportResult result = importer.importFile(csv, mapping);
+        assertEquals(2, result.rowsImported());
+        assertNull(result.rejectFile());
+        assertFalse(Files.exists(tempDir.resolve("ok.csv.rejected.csv")));
+    }
+}
@@ -0,0 +1,42 @@
+package org.finance.model;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+@DisplayName("CategoryRollup Tests - Totali per gerarchia di categorie")
+class CategoryRollupTest {
+    @Test
+    @DisplayName("Dovrebbe sommare le sottocategorie nei totali dei padri")
+    void shouldPropagateTotalsToAncestors() {
+        Map<String, String> parents = new HashMap<>();
+        parents.put("Casa", null);
+        parents.put("Bollette", "Casa");
+        parents.put("Luce", "Bollette");
+        parents.put("Gas", "Bollette");
+        parents.put("Affitto", "Casa");
+        parents.put("Svago", null);
+        List<CategoryRollup> roots = CategoryRollup.build(parents, Map.of(
+                "Luce", new BigDecimal("60.00"), "Gas", new BigDecimal("40.00"),
+                "Bollette", new BigDecimal("5.00"), "Affitto", new BigDecimal("800.00"),
+                "Senza Categoria", new BigDecimal("10.00")));
+        assertEquals(List.of("Casa", "Senza Categoria"), roots.stream().map(CategoryRollup::getName).toList());
+        CategoryRollup home = roots.get(0);
+        assertEquals(new BigDecimal("905.00"), home.getTotalAmount());
+        assertEquals(BigDecimal.ZERO, home.getOwnAmount());
+        assertEquals(List.of("Affitto", "Bollette"), home.getChildren().stream().map(CategoryRollup::getName).toList());
+        CategoryRollup bills = home.getChildren().get(1);
+        assertEquals(new BigDecimal("105.00"), bills.getTotalAmount());
+        assertEquals(new BigDecimal("5.00"), bills.getOwnAmount());
+    }
+    @Test
+    @DisplayName("Dovrebbe interrompere i cicli nei padri invece di bloccarsi")
+    void shouldBreakParentCycles() {
+        List<CategoryRollup> roots = CategoryRollup.build(Map.of("A", "B", "B", "A"),
+                Map.of("A", BigDecimal.ONE, "B", BigDecimal.TEN));
+        assertEquals(1, roots.size());
+        assertEquals(new BigDecimal("11"), roots.get(0).getTotalAmount());
+    }
+}
@@ -0,0 +1,38 @@
+package org.finance.model;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+@DisplayName("RecurringTransaction Tests - Transazioni ricorrenti")
+class RecurringTransactionTest {
+    private final Category casa = new Category("Casa");
+    @Test
+    @DisplayName("Dovrebbe ancorare le occorrenze mensili al giorno di inizio")
+    void shouldAnchorMonthlyOccurrences() {
+        LocalDate start = LocalDate.of(2024, 1, 31);
+        assertEquals(LocalDate.of(2024, 2, 29), RecurrenceFrequency.MONTHLY.occurrence(start, 1));
+        assertEquals(LocalDate.of(2024, 3, 31), RecurrenceFrequency.MONTHLY.occurrence(start, 2));
+    }
+    @Test
+    @DisplayName("Dovrebbe fermarsi alla data di fine")
+    void shouldStopAtEndDate() {
+        RecurringTransaction rent = new RecurringTransaction(TransactionType.EXPENSE, new BigDecimal("800"), "Affitto",
+                casa, "EUR", RecurrenceFrequency.WEEKLY, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 20));
+        int occurrences = 0;
+        while (rent.isDue(LocalDate.of(2024, 12, 31))) {
+            rent.advance();
+            occurrences++;
+        }
+        assertEquals(3, occurrences);
+        assertNull(rent.getNextDueDate());
+    }
+    @Test
+    @DisplayName("Dovrebbe generare id stabili per ogni occorrenza")
+    void shouldGenerateStableOccurrenceIds() {
+        RecurringTransaction salary = new RecurringTransaction(TransactionType.INCOME, new BigDecimal("2000"), "Stipendio",
+                casa, "EUR", RecurrenceFrequency.MONTHLY, LocalDate.of(2024, 1, 27), null);
+        assertEquals(salary.occurrenceId(3), salary.occurrenceId(3));
+        assertNotEquals(salary.occurrenceId(3), salary.occurrenceId(4));
+    }
+}
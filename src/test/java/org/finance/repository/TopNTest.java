@@ -0,0 +1,31 @@
+package org.finance.repository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+@DisplayName("TopN Tests - Primi N elementi con heap limitato")
+class TopNTest {
+    @Test
+    @DisplayName("Dovrebbe tenere solo i maggiori, ordinati dal primo")
+    void shouldKeepLargestItemsInOrder() {
+        List<Integer> values = new ArrayList<>(IntStream.range(0, 10_000).boxed().toList());
+        Collections.shuffle(values, new Random(42));
+        TopN<Integer> top = new TopN<>(5, Comparator.reverseOrder());
+        values.forEach(top::offer);
+        assertEquals(List.of(9999, 9998, 9997, 9996, 9995), top.toList());
+        assertEquals(5, top.size());
+    }
+    @Test
+    @DisplayName("Dovrebbe unire liste gia' limitate rispettando il limite")
+    void shouldMergeLimitedLists() {
+        List<Integer> merged = TopN.merge(List.of(List.of(9, 4, 1), List.of(8, 7), List.of()), 3,
+                Comparator.reverseOrder());
+        assertEquals(List.of(9, 8, 7), merged);
+        assertThrows(IllegalArgumentException.class, () -> new TopN<Integer>(0, Comparator.naturalOrder()));
+    }
+}
@@ -0,0 +1,114 @@
+package org.finance.repository.impl;
+import org.finance.archive.ArchiveCatalog;
+import org.finance.archive.TransactionArchiver;
+import org.finance.database.DatabaseManager;
+import org.finance.model.Category;
+import org.finance.model.ExpenseTransaction;
+import org.finance.model.IncomeTransaction;
+import org.finance.model.Transaction;
+import org.finance.model.TransactionType;
+import org.finance.repository.TransactionCriteria;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+@DisplayName("H2TransactionRepository Tests - Ricerca per criteri")
+class H2TransactionRepositoryCriteriaTest {
+    private static final int LAST_YEAR = LocalDate.now().getYear() - 1;
+    private static final int THIS_YEAR = LAST_YEAR + 1;
+    private DatabaseManager dbManager;
+    private H2TransactionRepository transactionRepository;
+    private Category casa;
+    private Category svago;
+    @BeforeEach
+    void setUp() {
+        dbManager = DatabaseManager.forUrl("jdbc:h2:mem:criteria_" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        H2CategoryRepository categoryRepository = new H2CategoryRepository(dbManager);
+        casa = new Category("Casa");
+        svago = new Category("Svago");
+        categoryRepository.save(casa);
+        categoryRepository.save(svago);
+        transactionRepository = new H2TransactionRepository(categoryRepository, dbManager);
+        expense("d1", "Affitto dicembre", "700.00", casa, LocalDateTime.of(LAST_YEAR, 12, 1, 9, 0));
+        expense("d2", "Cinema", "15.00", svago, LocalDateTime.of(LAST_YEAR, 12, 20, 21, 0));
+        expense("d3", "Bolletta gas", "90.00", casa, LocalDateTime.of(LAST_YEAR, 12, 28, 10, 0));
+        expense("g1", "Affitto gennaio", "700.00", casa, LocalDateTime.of(THIS_YEAR, 1, 1, 9, 0));
+        expense("g2", "Concerto", "60.00", svago, LocalDateTime.of(THIS_YEAR, 1, 10, 21, 0));
+        expense("g3", "Bolletta luce", "45.00", casa, LocalDateTime.of(THIS_YEAR, 1, 15, 10, 0));
+        transactionRepository.save(new IncomeTransaction("g4", new BigDecimal("2000.00"), "Stipendio", casa, "EUR",
+                LocalDateTime.of(THIS_YEAR, 1, 27, 8, 0)));
+    }
+    @AfterEach
+    void tearDown() {
+        dbManager.closeConnection();
+    }
+    private void expense(String id, String description, String amount, Category category, LocalDateTime timestamp) {
+        transactionRepository.save(new ExpenseTransaction(id, new BigDecimal(amount), description, category, "EUR", timestamp));
+    }
+    private static List<String> ids(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::getId).toList();
+    }
+    @Test
+    @DisplayName("Dovrebbe combinare categoria, tipo, importo e testo in AND")
+    void shouldCombineFilters() {
+        TransactionCriteria criteria = TransactionCriteria.all()
+                .withCategory("Casa")
+                .withType(TransactionType.EXPENSE)
+                .withAmountBetween(new BigDecimal("40.00"), new BigDecimal("100.00"))
+                .orderBy(TransactionCriteria.Order.OLDEST_FIRST);
+        assertEquals(List.of("d3", "g3"), ids(transactionRepository.findByCriteria(criteria)));
+        assertEquals(List.of("g3"), ids(transactionRepository.findByCriteria(criteria.withText("luce"))));
+        assertTrue(transactionRepository.findByCriteria(criteria.withText("cinema")).isEmpty());
+    }
+    @Test
+    @DisplayName("Dovrebbe ordinare con spareggio per id e rispettare il limite")
+    void shouldOrderAndLimit() {
+        TransactionCriteria expenses = TransactionCriteria.all().withType(TransactionType.EXPENSE);
+        assertEquals(List.of("d1", "g1", "d3"),
+                ids(transactionRepository.findByCriteria(expenses.orderBy(TransactionCriteria.Order.LARGEST_FIRST).limit(3))));
+        assertEquals(List.of("d2", "g3"),
+                ids(transactionRepository.findByCriteria(expenses.orderBy(TransactionCriteria.Order.SMALLEST_FIRST).limit(2))));
+        assertEquals(List.of("g4", "g3"),
+                ids(transactionRepository.findByCriteria(TransactionCriteria.all().limit(2))));
+    }
+    @Test
+    @DisplayName("Dovrebbe trovare le transazioni di un intervallo a cavallo dell'archivio")
+    void shouldSearchDateRangeAcrossArchiveBoundary() {
+        new TransactionArchiver(dbManager).archive(0);
+        assertTrue(ArchiveCatalog.forDatabase(dbManager).getArchivedYears().contains(LAST_YEAR));
+        TransactionCriteria range = TransactionCriteria.all()
+                .between(LocalDate.of(LAST_YEAR, 12, 20), LocalDate.of(THIS_YEAR, 1, 10))
+                .orderBy(TransactionCriteria.Order.OLDEST_FIRST);
+        assertEquals(List.of("d2", "d3", "g1", "g2"), ids(transactionRepository.findByCriteria(range)));
+        assertEquals(List.of("d3", "g1"), ids(transactionRepository.findByCriteria(range.withCategory("Casa"))));
+        assertEquals(List.of("d2"), ids(transactionRepository.findByCriteria(range.limit(1))));
+        assertEquals(List.of("d1", "g1"), ids(transactionRepository.findByCriteria(TransactionCriteria.all()
+                .withText("affitto").orderBy(TransactionCriteria.Order.OLDEST_FIRST))));
+    }
+    @Test
+    @DisplayName("Dovrebbe trovare le spese piu' alte per categoria e per mese anche nell'archivio")
+    void shouldFindLargestExpensesPerGroupAcrossArchive() {
+        for (int archivedBefore : new int[] {-1, 0}) {
+            if (archivedBefore == 0) {
+                new TransactionArchiver(dbManager).archive(0);
+            }
+            Map<String, List<Transaction>> byCategory = transactionRepository.findLargestExpensesByCategory(2);
+            assertEquals(Set.of("Casa", "Svago"), byCategory.keySet());
+            assertEquals(List.of("d1", "g1"), ids(byCategory.get("Casa")));
+            assertEquals(List.of("g2", "d2"), ids(byCategory.get("Svago")));
+            Map<YearMonth, List<Transaction>> byMonth = transactionRepository.findLargestExpensesByMonth(2);
+            assertEquals(Set.of(YearMonth.of(LAST_YEAR, 12), YearMonth.of(THIS_YEAR, 1)), byMonth.keySet());
+            assertEquals(List.of("d1", "d3"), ids(byMonth.get(YearMonth.of(LAST_YEAR, 12))));
+            assertEquals(List.of("g1", "g2"), ids(byMonth.get(YearMonth.of(THIS_YEAR, 1))));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.finance.repository.impl;
+import org.finance.archive.TransactionArchiver;
+import org.finance.database.DatabaseManager;
+import org.finance.model.Category;
+import org.finance.model.ExpenseTransaction;
+import org.finance.model.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+@DisplayName("H2TransactionRepository Tests - Chiavi di idempotenza")
+class H2TransactionRepositoryIdempotencyTest {
+    private DatabaseManager dbManager;
+    private H2CategoryRepository categoryRepository;
+    private H2TransactionRepository transactionRepository;
+    private Category casa;
+    @BeforeEach
+    void setUp() {
+        dbManager = DatabaseManager.forUrl("jdbc:h2:mem:idempotency_" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        categoryRepository = new H2CategoryRepository(dbManager);
+        casa = new Category("Casa");
+        categoryRepository.save(casa);
+        transactionRepository = new H2TransactionRepository(categoryRepository, dbManager);
+    }
+    @AfterEach
+    void tearDown() {
+        dbManager.closeConnection();
+    }
+    private Transaction expense(String id, LocalDateTime timestamp) {
+        return new ExpenseTransaction(id, new BigDecimal("20.00"), "Spesa", casa, "EUR", timestamp);
+    }
+    @Test
+    @DisplayName("Dovrebbe restituire la transazione originale per una chiave gia' usata")
+    void shouldReturnOriginalIdForReusedKey() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        assertEquals("t1", transactionRepository.saveWithIdempotencyKey(expense("t1", now), "k1"));
+        H2TransactionRepository restarted = new H2TransactionRepository(categoryRepository, dbManager);
+        assertEquals("t1", restarted.saveWithIdempotencyKey(expense("t2", now), "k1"));
+        assertEquals(1, transactionRepository.count());
+    }
+    @Test
+    @DisplayName("Non dovrebbe scambiare un id duplicato per una chiave gia' usata")
+    void shouldNotTreatPrimaryKeyViolationAsReusedKey() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        transactionRepository.saveWithIdempotencyKey(expense("t1", now), "k1");
+        assertThrows(RuntimeException.class,
+                () -> transactionRepository.saveWithIdempotencyKey(expense("t1", now), "k2"));
+        assertEquals(1, transactionRepository.count());
+    }
+    @Test
+    @DisplayName("Dovrebbe riconoscere le chiavi delle transazioni archiviate")
+    void shouldRecognizeKeysOfArchivedTransactions() {
+        transactionRepository.saveWithIdempotencyKey(expense("t1", LocalDateTime.of(2018, 4, 2, 9, 0)), "k1");
+        new TransactionArchiver(dbManager).archive(2);
+        H2TransactionRepository restarted = new H2TransactionRepository(categoryRepository, dbManager);
+        assertEquals("t1", restarted.saveWithIdempotencyKey(expense("t2", LocalDateTime.now().withNano(0)), "k1"));
+        assertTrue(restarted.findById("t2").isEmpty());
+    }
+    @Test
+    @DisplayName("Dovrebbe accettare di nuovo la chiave dopo l'eliminazione della transazione")
+    void shouldAcceptKeyAgainAfterDelete() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        transactionRepository.saveWithIdempotencyKey(expense("t1", now), "k1");
+        transactionRepository.deleteById("t1");
+        assertEquals("t2", transactionRepository.saveWithIdempotencyKey(expense("t2", now), "k1"));
+    }
+}
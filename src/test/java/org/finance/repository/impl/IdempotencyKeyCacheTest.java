@@ -0,0 +1,42 @@
+package org.finance.repository.impl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+@DisplayName("IdempotencyKeyCache Tests - Chiavi recenti")
+class IdempotencyKeyCacheTest {
+    @Test
+    @DisplayName("Dovrebbe dimenticare la chiave di una transazione eliminata")
+    void shouldForgetKeyOfRemovedTransaction() {
+        IdempotencyKeyCache cache = new IdempotencyKeyCache(10);
+        cache.put("k1", "t1");
+        cache.put("k2", "t2");
+        cache.removeTransaction("t1");
+        assertNull(cache.get("k1"));
+        assertEquals("t2", cache.get("k2"));
+        assertEquals(1, cache.size());
+    }
+    @Test
+    @DisplayName("Dovrebbe rimuovere la chiave meno recente oltre la capacita'")
+    void shouldEvictLeastRecentlyUsedKey() {
+        IdempotencyKeyCache cache = new IdempotencyKeyCache(2);
+        cache.put("k1", "t1");
+        cache.put("k2", "t2");
+        cache.get("k1");
+        cache.put("k3", "t3");
+        assertNull(cache.get("k2"));
+        assertEquals("t1", cache.get("k1"));
+        cache.removeTransaction("t2");
+        assertEquals(2, cache.size());
+    }
+    @Test
+    @DisplayName("Non dovrebbe rimuovere una chiave riassegnata ad un'altra transazione")
+    void shouldKeepKeyReassignedToAnotherTransaction() {
+        IdempotencyKeyCache cache = new IdempotencyKeyCache(10);
+        cache.put("k1", "t1");
+        cache.put("k1", "t2");
+        cache.removeTransaction("t1");
+        assertEquals("t2", cache.get("k1"));
+        cache.removeTransaction("t2");
+        assertNull(cache.get("k1"));
+    }
+}
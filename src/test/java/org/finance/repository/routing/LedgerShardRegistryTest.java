@@ -0,0 +1,68 @@
+package org.finance.repository.routing;
+import org.finance.database.DatabaseManager;
+import org.finance.model.Category;
+import org.finance.model.ExpenseTransaction;
+import org.finance.model.IncomeTransaction;
+import org.finance.service.PersistentFinanceService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+@DisplayName("LedgerShardRegistry Tests - Shard per ledger")
+class LedgerShardRegistryTest {
+    @TempDir
+    Path shardDirectory;
+    private DatabaseManager defaultDatabase;
+    private LedgerShardRegistry registry;
+    @BeforeEach
+    void setUp() {
+        defaultDatabase = DatabaseManager.forUrl("jdbc:h2:mem:shards_" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        registry = new LedgerShardRegistry(defaultDatabase, shardDirectory);
+    }
+    @AfterEach
+    void tearDown() {
+        registry.close();
+    }
+    @Test
+    @DisplayName("Dovrebbe creare un nuovo shard con le categorie predefinite")
+    void shouldBootstrapNewShardWithDefaultCategories() {
+        LedgerShard shard = registry.shardFor("famiglia-rossi");
+        Category casa = shard.getCategoryRepository().findById("Casa").orElseThrow();
+        shard.getTransactionRepository().save(new ExpenseTransaction(new BigDecimal("75.00"), "Bolletta", casa, "EUR"));
+
+        assertEquals(Category.defaults().size(), shard.getCategoryRepository().count());
+        assertEquals(1, shard.getTransactionRepository().count());
+        assertSame(shard, registry.shardFor("famiglia-rossi"));
+        assertSame(defaultDatabase, registry.shardFor(LedgerShardRegistry.DEFAULT_LEDGER).getDatabaseManager());
+        assertEquals(List.of("default", "famiglia-rossi"), new LedgerShardRegistry(defaultDatabase, shardDirectory).getLedgerIds());
+    }
+    @Test
+    @DisplayName("Dovrebbe tenere separati i dati dei servizi costruiti su shard diversi")
+    void shouldKeepLedgersApart() {
+        PersistentFinanceService bianchi = service(registry.shardFor("bianchi"));
+        PersistentFinanceService verdi = service(registry.shardFor("verdi"));
+        bianchi.addTransaction(new IncomeTransaction(new BigDecimal("1500.00"), "Stipendio",
+                bianchi.getCategoryByName("Lavoro").orElseThrow(), "EUR"));
+        bianchi.addTransaction(new ExpenseTransaction(new BigDecimal("200.00"), "Spesa",
+                bianchi.getCategoryByName("Alimentari").orElseThrow(), "EUR"));
+        verdi.addTransaction(new ExpenseTransaction(new BigDecimal("40.00"), "Treno",
+                verdi.getCategoryByName("Trasporti").orElseThrow(), "EUR"));
+
+        assertEquals(0, new BigDecimal("1300.00").compareTo(bianchi.getBalance()));
+        assertEquals(0, new BigDecimal("-40.00").compareTo(verdi.getBalance()));
+        assertEquals(2, registry.shardFor("bianchi").getTransactionRepository().count());
+        assertEquals(1, registry.shardFor("verdi").getTransactionRepository().count());
+        assertEquals(0, registry.shardFor(LedgerShardRegistry.DEFAULT_LEDGER).getTransactionRepository().count());
+        assertThrows(IllegalArgumentException.class, () -> registry.shardFor("../altro"));
+    }
+    private static PersistentFinanceService service(LedgerShard shard) {
+        return new PersistentFinanceService(shard.getTransactionRepository(), shard.getBudgetRepository(),
+                shard.getCategoryRepository(), shard.getDatabaseManager());
+    }
+}
@@ -0,0 +1,77 @@
+package org.finance.search;
+import org.finance.database.DatabaseManager;
+import org.finance.model.Category;
+import org.finance.model.ExpenseTransaction;
+import org.finance.model.Transaction;
+import org.finance.repository.TransactionCriteria;
+import org.finance.repository.impl.H2CategoryRepository;
+import org.finance.repository.impl.H2TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+@DisplayName("DescriptionIndex Tests - Ricerca full-text sul repository")
+class DescriptionIndexTest {
+    private DatabaseManager dbManager;
+    private H2TransactionRepository transactionRepository;
+    private Category casa;
+    private Category svago;
+    @BeforeEach
+    void setUp() {
+        dbManager = DatabaseManager.forUrl("jdbc:h2:mem:search_" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        H2CategoryRepository categoryRepository = new H2CategoryRepository(dbManager);
+        casa = new Category("Casa");
+        svago = new Category("Svago");
+        categoryRepository.save(casa);
+        categoryRepository.save(svago);
+        transactionRepository = new H2TransactionRepository(categoryRepository, dbManager);
+        save("t1", "PAGAMENTO POS Esselunga Milano", casa, LocalDateTime.of(2024, 3, 2, 10, 0));
+        save("t2", "Esselunga via Roma", casa, LocalDateTime.of(2024, 3, 20, 18, 0));
+        save("t3", "Esselunga bar", svago, LocalDateTime.of(2024, 4, 5, 8, 0));
+        save("t4", "Abbonamento TV", svago, LocalDateTime.of(2024, 4, 6, 8, 0));
+        save("t5", "Impianto TVCC", casa, LocalDateTime.of(2024, 4, 7, 8, 0));
+    }
+    @AfterEach
+    void tearDown() {
+        dbManager.closeConnection();
+    }
+    private void save(String id, String description, Category category, LocalDateTime timestamp) {
+        transactionRepository.save(new ExpenseTransaction(id, new BigDecimal("10.00"), description, category, "EUR", timestamp));
+    }
+    private List<String> search(TransactionCriteria criteria) {
+        return transactionRepository.findByCriteria(criteria).stream().map(Transaction::getId).toList();
+    }
+    @Test
+    @DisplayName("Dovrebbe trovare per prefisso dal piu' recente, filtrando per data e categoria")
+    void shouldFindByPrefixNewestFirstWithFilters() {
+        TransactionCriteria esse = TransactionCriteria.all().withText("esse");
+        assertEquals(List.of("t3", "t2", "t1"), search(esse));
+        assertEquals(List.of("t2", "t1"), search(esse.between(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31))));
+        assertEquals(List.of("t3"), search(esse.withCategory("Svago")));
+        assertEquals(List.of("t1"), search(TransactionCriteria.all().withText("pos esse MIL")));
+    }
+    @Test
+    @DisplayName("Dovrebbe cercare le parole corte solo per intero")
+    void shouldMatchShortTermsAsWholeWords() {
+        assertEquals(List.of("t4"), search(TransactionCriteria.all().withText("tv")));
+        assertEquals(List.of("t5"), search(TransactionCriteria.all().withText("tvc")));
+        assertTrue(search(TransactionCriteria.all().withText("e")).isEmpty());
+    }
+    @Test
+    @DisplayName("Dovrebbe aggiornare l'indice alla modifica e all'eliminazione")
+    void shouldKeepIndexInSyncOnUpdateAndDelete() {
+        save("t2", "Carrefour via Roma", casa, LocalDateTime.of(2024, 3, 20, 18, 0));
+        assertEquals(List.of("t3", "t1"), search(TransactionCriteria.all().withText("esselunga")));
+        assertEquals(List.of("t2"), search(TransactionCriteria.all().withText("carre")));
+        assertEquals(List.of("t2"), search(TransactionCriteria.all().withText("roma")));
+        transactionRepository.deleteById("t2");
+        assertTrue(search(TransactionCriteria.all().withText("carrefour")).isEmpty());
+        assertTrue(search(TransactionCriteria.all().withText("roma")).isEmpty());
+    }
+}
@@ -0,0 +1,22 @@
+package org.finance.search;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.List;
+@DisplayName("DescriptionTokenizer Tests - Parole dell'indice di ricerca")
+class DescriptionTokenizerTest {
+    @Test
+    @DisplayName("Dovrebbe separare le parole ignorando maiuscole, punteggiatura e duplicati")
+    void shouldSplitIntoDistinctLowerCaseWords() {
+        assertEquals(List.of("pagamento", "pos", "esselunga", "milano", "12"),
+                List.copyOf(DescriptionTokenizer.tokens("PAGAMENTO POS*Esselunga - Milano 12 pos")));
+    }
+    @Test
+    @DisplayName("Dovrebbe scartare le parole di un carattere e troncare quelle lunghe")
+    void shouldDropShortAndTruncateLongWords() {
+        String longWord = "a".repeat(DescriptionTokenizer.MAX_TOKEN_LENGTH + 10);
+        assertEquals(List.of("caffè", "a".repeat(DescriptionTokenizer.MAX_TOKEN_LENGTH)),
+                List.copyOf(DescriptionTokenizer.tokens("x caffè " + longWord)));
+        assertTrue(DescriptionTokenizer.tokens(null).isEmpty());
+    }
+}
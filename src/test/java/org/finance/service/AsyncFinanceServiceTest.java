@@ -0,0 +1,128 @@
+package org.finance.service;
+import org.finance.database.DatabaseManager;
+import org.finance.model.Category;
+import org.finance.model.ExpenseTransaction;
+import org.finance.model.IncomeTransaction;
+import org.finance.model.InvestmentTransaction;
+import org.finance.repository.impl.H2BudgetRepository;
+import org.finance.repository.impl.H2CategoryRepository;
+import org.finance.repository.impl.H2TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+@DisplayName("AsyncFinanceService Tests - Facade asincrona")
+class AsyncFinanceServiceTest {
+    private PersistentFinanceService financeService;
+    private AsyncFinanceService asyncService;
+    @BeforeEach
+    void setUp() {
+        financeService = mock(PersistentFinanceService.class);
+        asyncService = new AsyncFinanceService(financeService, 2);
+    }
+    @AfterEach
+    void tearDown() {
+        asyncService.close();
+    }
+    @Test
+    @DisplayName("Dovrebbe eseguire in parallelo le query del report generale")
+    void shouldRunReportQueriesConcurrently() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        when(financeService.getTotalIncome()).thenAnswer(invocation -> {
+            bothStarted.countDown();
+            assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+            return BigDecimal.valueOf(1000);
+        });
+        when(financeService.getTotalExpenses()).thenAnswer(invocation -> {
+            bothStarted.countDown();
+            assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+            return BigDecimal.valueOf(400);
+        });
+        when(financeService.getTotalInvestments()).thenReturn(BigDecimal.valueOf(100));
+        when(financeService.getExpensesByCategory()).thenReturn(Map.of());
+        AsyncFinanceService.BalanceReport report = asyncService.getBalanceReport().get(5, TimeUnit.SECONDS);
+        assertEquals(BigDecimal.valueOf(500), report.balance());
+    }
+    @Test
+    @DisplayName("Dovrebbe comporre il report generale")
+    void shouldComposeBalanceReport() throws Exception {
+        when(financeService.getTotalIncome()).thenReturn(BigDecimal.valueOf(2500));
+        when(financeService.getTotalExpenses()).thenReturn(BigDecimal.valueOf(800));
+        when(financeService.getTotalInvestments()).thenReturn(BigDecimal.ZERO);
+        when(financeService.getExpensesByCategory()).thenReturn(Map.of("Casa", BigDecimal.valueOf(800)));
+        AsyncFinanceService.BalanceReport report = asyncService.getBalanceReport().get(5, TimeUnit.SECONDS);
+        assertEquals(BigDecimal.valueOf(1700), report.balance());
+        assertEquals(BigDecimal.valueOf(800), report.expensesByCategory().get("Casa"));
+    }
+    @Test
+    @DisplayName("Dovrebbe riportare lo stesso bilancio del servizio in presenza di investimenti")
+    void shouldMatchServiceBalanceWithInvestments() throws Exception {
+        DatabaseManager dbManager = DatabaseManager.forUrl("jdbc:h2:mem:async_" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        H2CategoryRepository categoryRepository = new H2CategoryRepository(dbManager);
+        PersistentFinanceService service = new PersistentFinanceService(new H2TransactionRepository(categoryRepository, dbManager),
+                new H2BudgetRepository(categoryRepository, dbManager), categoryRepository, dbManager);
+        try (AsyncFinanceService async = new AsyncFinanceService(service, 2)) {
+            Category lavoro = service.getCategoryByName("Lavoro").orElseThrow();
+            async.addTransaction(new IncomeTransaction(new BigDecimal("2000.00"), "Stipendio", lavoro, "EUR")).get(5, TimeUnit.SECONDS);
+            async.addTransaction(new ExpenseTransaction(new BigDecimal("300.00"), "Affitto",
+                    service.getCategoryByName("Casa").orElseThrow(), "EUR")).get(5, TimeUnit.SECONDS);
+            async.addTransaction(new InvestmentTransaction(new BigDecimal("500.00"), "ETF", lavoro, "EUR")).get(5, TimeUnit.SECONDS);
+
+            BigDecimal balance = async.getBalance().get(5, TimeUnit.SECONDS);
+            AsyncFinanceService.BalanceReport report = async.getBalanceReport().get(5, TimeUnit.SECONDS);
+
+            assertEquals(0, new BigDecimal("1200.00").compareTo(service.getBalance()));
+            assertEquals(0, service.getBalance().compareTo(balance));
+            assertEquals(0, service.getBalance().compareTo(report.balance()));
+            assertEquals(0, new BigDecimal("500.00").compareTo(report.totalInvestments()));
+        } finally {
+            dbManager.closeConnection();
+        }
+    }
+    @Test
+    @DisplayName("Dovrebbe propagare gli errori nel future")
+    void shouldPropagateFailuresThroughFuture() {
+        ExpenseTransaction expense = new ExpenseTransaction(BigDecimal.TEN, "Spesa", new Category("Casa"), "EUR");
+        doThrow(new RuntimeException("db down")).when(financeService).addTransaction(expense);
+        var future = asyncService.addTransaction(expense);
+        var error = assertThrows(Exception.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertEquals("db down", error.getCause().getMessage());
+    }
+    @Test
+    @DisplayName("Dovrebbe restituire un future fallito quando la coda e' piena invece di bloccare il chiamante")
+    void shouldFailFastWhenQueueIsFull() throws Exception {
+        AsyncFinanceService singleThread = new AsyncFinanceService(financeService, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(financeService.getTotalIncome()).thenAnswer(invocation -> {
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return BigDecimal.ONE;
+        });
+        try {
+            var running = singleThread.getTotalIncome();
+            for (int i = 0; i < 64; i++) {
+                singleThread.getTotalIncome();
+            }
+            Thread caller = Thread.currentThread();
+            var rejected = singleThread.addTransaction(
+                    new ExpenseTransaction(BigDecimal.TEN, "Spesa", new Category("Casa"), "EUR"));
+            assertSame(caller, Thread.currentThread());
+            var error = assertThrows(ExecutionException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+            assertInstanceOf(RejectedExecutionException.class, error.getCause());
+            verify(financeService, never()).addTransaction(any());
+            release.countDown();
+            assertEquals(BigDecimal.ONE, running.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            singleThread.close();
+        }
+    }
+}
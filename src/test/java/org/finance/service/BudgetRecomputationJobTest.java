@@ -0,0 +1,70 @@
+package org.finance.service;
+import org.finance.archive.ArchiveCatalog;
+import org.finance.archive.TransactionArchiver;
+import org.finance.database.DatabaseManager;
+import org.finance.model.Budget;
+import org.finance.model.Category;
+import org.finance.model.ExpenseTransaction;
+import org.finance.repository.impl.H2BudgetRepository;
+import org.finance.repository.impl.H2CategoryRepository;
+import org.finance.repository.impl.H2TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.UUID;
+@DisplayName("BudgetRecomputationJob Tests - Ricalcolo unico della spesa")
+class BudgetRecomputationJobTest {
+    private static final YearMonth ARCHIVED_MONTH = YearMonth.of(2019, 3);
+    private DatabaseManager dbManager;
+    private H2TransactionRepository transactionRepository;
+    private H2BudgetRepository budgetRepository;
+    private PersistentFinanceService financeService;
+    private Category casa;
+    @BeforeEach
+    void setUp() {
+        dbManager = DatabaseManager.forUrl("jdbc:h2:mem:recompute_" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        H2CategoryRepository categoryRepository = new H2CategoryRepository(dbManager);
+        transactionRepository = new H2TransactionRepository(categoryRepository, dbManager);
+        budgetRepository = new H2BudgetRepository(categoryRepository, dbManager);
+        financeService = new PersistentFinanceService(transactionRepository, budgetRepository, categoryRepository, dbManager);
+        casa = categoryRepository.findById("Casa").orElseThrow();
+    }
+    @AfterEach
+    void tearDown() {
+        dbManager.closeConnection();
+    }
+    private void expense(String amount, YearMonth month, int day) {
+        transactionRepository.save(new ExpenseTransaction(UUID.randomUUID().toString(), new BigDecimal(amount),
+                "Spesa", casa, "EUR", month.atDay(day).atTime(12, 0)));
+    }
+    @Test
+    @DisplayName("Dovrebbe dare la stessa spesa da replay e da ricalcolo anche per i mesi archiviati")
+    void shouldAgreeOnArchivedMonthsFromReplayAndService() {
+        YearMonth currentMonth = YearMonth.now();
+        Budget archived = new Budget(casa, BigDecimal.valueOf(500), ARCHIVED_MONTH, "EUR");
+        Budget current = new Budget(casa, BigDecimal.valueOf(500), currentMonth, "EUR");
+        budgetRepository.save(archived);
+        budgetRepository.save(current);
+        expense("40.00", ARCHIVED_MONTH, 1);
+        expense("60.00", ARCHIVED_MONTH, 31);
+        expense("25.00", ARCHIVED_MONTH.plusMonths(1), 1);
+        expense("15.00", currentMonth, 1);
+        new TransactionArchiver(dbManager).archive(2);
+        assertTrue(ArchiveCatalog.forDatabase(dbManager).getArchivedYears().contains(ARCHIVED_MONTH.getYear()));
+        budgetRepository.updateSpent(Map.of(archived.getId(), BigDecimal.ZERO, current.getId(), BigDecimal.ZERO));
+
+        BudgetSpendAccumulator accumulator = new BudgetSpendAccumulator(budgetRepository,
+                new BudgetRecomputationJob(transactionRepository, budgetRepository));
+        accumulator.replay();
+        assertEquals(0, new BigDecimal("100.00").compareTo(accumulator.getSpent(archived.getId())));
+        assertEquals(0, new BigDecimal("15.00").compareTo(accumulator.getSpent(current.getId())));
+
+        assertTrue(financeService.recomputeBudgets().isEmpty());
+        assertEquals(0, new BigDecimal("100.00").compareTo(budgetRepository.findById(archived.getId()).orElseThrow().getSpent()));
+    }
+}
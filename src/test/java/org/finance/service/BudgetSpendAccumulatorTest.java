@@ -0,0 +1,129 @@
+package org.finance.service;
+import org.finance.model.Budget;
+import org.finance.model.Category;
+import org.finance.model.ExpenseTransaction;
+import org.finance.repository.BudgetRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+@DisplayName("BudgetSpendAccumulator Tests - Contatori di spesa in memoria")
+class BudgetSpendAccumulatorTest {
+    private static final YearMonth PERIOD = YearMonth.of(2024, 5);
+    private final Category casa = new Category("Casa");
+    private BudgetRepository budgetRepository;
+    private BudgetRecomputationJob recomputationJob;
+    private BudgetSpendAccumulator accumulator;
+    @BeforeEach
+    void setUp() {
+        budgetRepository = mock(BudgetRepository.class);
+        recomputationJob = mock(BudgetRecomputationJob.class);
+        accumulator = new BudgetSpendAccumulator(budgetRepository, recomputationJob);
+    }
+    private Budget budget(String spent) {
+        return new Budget("b1", casa, BigDecimal.valueOf(1000), PERIOD, new BigDecimal(spent));
+    }
+    private ExpenseTransaction expense(String amount) {
+        return new ExpenseTransaction(UUID.randomUUID().toString(), new BigDecimal(amount), "Spesa", casa, "EUR",
+                LocalDateTime.of(2024, 5, 10, 12, 0));
+    }
+    @Test
+    @DisplayName("Dovrebbe scrivere i delta accumulati in un solo batch e azzerarli")
+    void shouldFlushAccumulatedDeltasOnce() {
+        accumulator.register(budget("10.00"));
+        accumulator.recordExpense(expense("5.25"));
+        accumulator.recordExpense(expense("4.75"));
+        accumulator.flush();
+        accumulator.flush();
+        verify(budgetRepository, times(1)).addSpent(Map.of("b1", new BigDecimal("10.00")));
+        assertEquals(new BigDecimal("20.00"), accumulator.getSpent("b1"));
+    }
+    @Test
+    @DisplayName("Dovrebbe restare allineato alla spesa salvata quando un annullamento precede la spesa")
+    void shouldMatchStoredSpentAfterOutOfOrderRevert() {
+        accumulator.register(budget("0.00"));
+        ExpenseTransaction expense = expense("8.00");
+        accumulator.revertExpense(expense);
+        assertEquals(new BigDecimal("-8.00"), accumulator.getSpent("b1"));
+        assertEquals(new BigDecimal("-8.00"), accumulator.withLiveSpent(budget("0.00")).getSpent());
+        accumulator.recordExpense(expense);
+        accumulator.flush();
+        verify(budgetRepository, never()).addSpent(anyMap());
+        assertEquals(new BigDecimal("0.00"), accumulator.getSpent("b1"));
+    }
+    @Test
+    @DisplayName("Dovrebbe conservare i delta quando il flush fallisce")
+    void shouldKeepDeltasWhenFlushFails() {
+        accumulator.register(budget("0.00"));
+        accumulator.recordExpense(expense("7.00"));
+        doThrow(new RuntimeException("db down")).doNothing().when(budgetRepository).addSpent(anyMap());
+        assertThrows(RuntimeException.class, accumulator::flush);
+        accumulator.flush();
+        verify(budgetRepository, times(2)).addSpent(Map.of("b1", new BigDecimal("7.00")));
+    }
+    @Test
+    @DisplayName("Dovrebbe ricalcolare la spesa dalle transazioni e poi ricaricare i contatori")
+    void shouldReplayFromTransactionsThenReload() {
+        accumulator.register(budget("0.00"));
+        accumulator.recordExpense(expense("3.00"));
+        when(budgetRepository.findAll()).thenReturn(List.of(budget("42.00")));
+        accumulator.replay();
+        InOrder order = inOrder(budgetRepository, recomputationJob);
+        order.verify(budgetRepository).addSpent(Map.of("b1", new BigDecimal("3.00")));
+        order.verify(recomputationJob).run();
+        order.verify(budgetRepository).findAll();
+        assertEquals(new BigDecimal("42.00"), accumulator.getSpent("b1"));
+    }
+    @Test
+    @DisplayName("Dovrebbe non perdere spese registrate durante un ricaricamento")
+    void shouldNotLoseExpensesRecordedDuringReload() throws Exception {
+        AtomicReference<BigDecimal> persisted = new AtomicReference<>(BigDecimal.ZERO);
+        doAnswer(invocation -> {
+            Map<String, BigDecimal> deltas = invocation.getArgument(0);
+            persisted.accumulateAndGet(deltas.get("b1"), BigDecimal::add);
+            return null;
+        }).when(budgetRepository).addSpent(anyMap());
+        when(budgetRepository.findAll()).thenAnswer(invocation -> List.of(budget(persisted.get().toPlainString())));
+        accumulator.reload();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?> reloads = executor.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    accumulator.rebuild(() -> null);
+                }
+            });
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < 3; t++) {
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        accumulator.recordExpense(expense("1.00"));
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get(30, TimeUnit.SECONDS);
+            }
+            reloads.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        accumulator.flush();
+        assertEquals(0, new BigDecimal("3000.00").compareTo(persisted.get()));
+        assertEquals(new BigDecimal("3000.00"), accumulator.getSpent("b1"));
+    }
+}
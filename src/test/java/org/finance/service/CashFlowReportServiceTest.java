@@ -0,0 +1,65 @@
+package org.finance.service;
+import org.finance.archive.TransactionArchiver;
+import org.finance.database.DatabaseManager;
+import org.finance.model.Category;
+import org.finance.model.ExpenseTransaction;
+import org.finance.model.IncomeTransaction;
+import org.finance.model.InvestmentTransaction;
+import org.finance.model.MonthlyCashFlow;
+import org.finance.model.Transaction;
+import org.finance.repository.impl.H2BudgetRepository;
+import org.finance.repository.impl.H2CategoryRepository;
+import org.finance.repository.impl.H2TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+@DisplayName("CashFlowReportService Tests - Serie del flusso di cassa")
+class CashFlowReportServiceTest {
+    private DatabaseManager dbManager;
+    private H2TransactionRepository transactionRepository;
+    private PersistentFinanceService financeService;
+    private CashFlowReportService cashFlowReportService;
+    private Category lavoro;
+    @BeforeEach
+    void setUp() {
+        dbManager = DatabaseManager.forUrl("jdbc:h2:mem:cashflow_" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        H2CategoryRepository categoryRepository = new H2CategoryRepository(dbManager);
+        transactionRepository = new H2TransactionRepository(categoryRepository, dbManager);
+        financeService = new PersistentFinanceService(transactionRepository,
+                new H2BudgetRepository(categoryRepository, dbManager), categoryRepository, dbManager);
+        cashFlowReportService = new CashFlowReportService(transactionRepository);
+        lavoro = categoryRepository.findById("Lavoro").orElseThrow();
+    }
+    @AfterEach
+    void tearDown() {
+        dbManager.closeConnection();
+    }
+    @Test
+    @DisplayName("Dovrebbe far coincidere il netto del flusso di cassa con il saldo in presenza di investimenti")
+    void shouldMatchBalanceWithInvestments() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime archived = now.minusYears(4);
+        save(new IncomeTransaction(UUID.randomUUID().toString(), new BigDecimal("3000.00"), "Stipendio", lavoro, "EUR", archived));
+        save(new InvestmentTransaction(UUID.randomUUID().toString(), new BigDecimal("700.00"), "ETF", lavoro, "EUR", archived));
+        new TransactionArchiver(dbManager).archive(2);
+        save(new IncomeTransaction(UUID.randomUUID().toString(), new BigDecimal("2000.00"), "Stipendio", lavoro, "EUR", now));
+        save(new ExpenseTransaction(UUID.randomUUID().toString(), new BigDecimal("450.00"), "Affitto", lavoro, "EUR", now));
+        save(new InvestmentTransaction(UUID.randomUUID().toString(), new BigDecimal("300.00"), "Obbligazioni", lavoro, "EUR", now));
+        List<MonthlyCashFlow> months = cashFlowReportService.getSeries().getMonths();
+        BigDecimal net = months.stream().map(MonthlyCashFlow::net).reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal investments = months.stream().map(MonthlyCashFlow::investments).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, new BigDecimal("3550.00").compareTo(financeService.getBalance()));
+        assertEquals(0, financeService.getBalance().compareTo(net));
+        assertEquals(0, financeService.getTotalInvestments().compareTo(investments));
+        assertEquals(0, new BigDecimal("450.00").compareTo(months.get(months.size() - 1).expenses()));
+    }
+    private void save(Transaction transaction) {
+        financeService.addTransaction(transaction);
+    }
+}
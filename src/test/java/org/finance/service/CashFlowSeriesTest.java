@@ -0,0 +1,48 @@
+package org.finance.service;
+import org.finance.model.MonthlyCashFlow;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+@DisplayName("CashFlowSeries Tests - Flusso di cassa mensile")
+class CashFlowSeriesTest {
+    private static final YearMonth JANUARY = YearMonth.of(2024, 1);
+    @Test
+    @DisplayName("Dovrebbe includere come zero i mesi senza transazioni")
+    void shouldFillMissingMonthsWithZero() {
+        CashFlowSeries series = CashFlowSeries.of(Map.of(
+                JANUARY, Map.of("INCOME", new BigDecimal("2000.00"), "EXPENSE", new BigDecimal("500.00")),
+                JANUARY.plusMonths(2), Map.of("EXPENSE", new BigDecimal("300.00"))), JANUARY, JANUARY.plusMonths(3));
+        List<MonthlyCashFlow> months = series.getMonths();
+        assertEquals(4, months.size());
+        assertEquals(new BigDecimal("1500.00"), months.get(0).net());
+        assertEquals(BigDecimal.ZERO, months.get(1).net());
+        assertEquals(new BigDecimal("-300.00"), months.get(2).net());
+        assertEquals(JANUARY.plusMonths(3), months.get(3).month());
+    }
+    @Test
+    @DisplayName("Dovrebbe sottrarre gli investimenti dal netto")
+    void shouldSubtractInvestmentsFromNet() {
+        CashFlowSeries series = CashFlowSeries.of(Map.of(JANUARY, Map.of("INCOME", new BigDecimal("2000.00"),
+                "EXPENSE", new BigDecimal("500.00"), "INVESTMENT", new BigDecimal("300.00"))), JANUARY, JANUARY);
+        MonthlyCashFlow month = series.getMonths().get(0);
+        assertEquals(new BigDecimal("300.00"), month.investments());
+        assertEquals(new BigDecimal("1200.00"), month.net());
+    }
+    @Test
+    @DisplayName("Dovrebbe calcolare le medie mobili solo a finestra completa")
+    void shouldComputeRollingAveragesOverFullWindows() {
+        CashFlowSeries series = CashFlowSeries.of(Map.of(
+                JANUARY, Map.of("EXPENSE", new BigDecimal("100")),
+                JANUARY.plusMonths(1), Map.of("EXPENSE", new BigDecimal("200")),
+                JANUARY.plusMonths(2), Map.of("EXPENSE", new BigDecimal("600")),
+                JANUARY.plusMonths(3), Map.of("EXPENSE", new BigDecimal("100"))), JANUARY, JANUARY.plusMonths(3));
+        assertEquals(Arrays.asList(null, null, new BigDecimal("300.00"), new BigDecimal("300.00")),
+                series.rollingAverages(3, MonthlyCashFlow::expenses));
+        assertEquals(Arrays.asList(null, null, null, null), series.rollingAverages(6, MonthlyCashFlow::expenses));
+    }
+}
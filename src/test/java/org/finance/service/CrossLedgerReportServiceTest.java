@@ -0,0 +1,74 @@
+package org.finance.service;
+import org.finance.database.DatabaseManager;
+import org.finance.model.ExpenseTransaction;
+import org.finance.model.IncomeTransaction;
+import org.finance.model.InvestmentTransaction;
+import org.finance.model.LedgerTotals;
+import org.finance.repository.ExchangeRateRepository;
+import org.finance.repository.routing.LedgerShard;
+import org.finance.repository.routing.LedgerShardRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+@DisplayName("CrossLedgerReportService Tests - Report su tutti i ledger")
+class CrossLedgerReportServiceTest {
+    @TempDir
+    Path shardDirectory;
+    private LedgerShardRegistry registry;
+    private ExecutorService executor;
+    private CrossLedgerReportService reportService;
+    @BeforeEach
+    void setUp() {
+        registry = new LedgerShardRegistry(
+                DatabaseManager.forUrl("jdbc:h2:mem:crossledger_" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"), shardDirectory);
+        executor = Executors.newFixedThreadPool(2);
+        ExchangeRateRepository exchangeRateRepository = mock(ExchangeRateRepository.class);
+        when(exchangeRateRepository.findRatesByCurrency("USD")).thenReturn(new TreeMap<>(Map.of(
+                LocalDate.of(2024, 1, 2), new BigDecimal("1.25"))));
+        when(exchangeRateRepository.findRatesByCurrency("GBP")).thenReturn(new TreeMap<>());
+        reportService = new CrossLedgerReportService(registry, executor, new CurrencyConverter(exchangeRateRepository));
+    }
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+        registry.close();
+    }
+    @Test
+    @DisplayName("Dovrebbe sommare i ledger per valuta e convertire ogni subtotale una volta")
+    void shouldMergeLedgersPerCurrency() {
+        LedgerShard euro = registry.shardFor(LedgerShardRegistry.DEFAULT_LEDGER);
+        LedgerShard dollars = registry.shardFor("usa");
+        euro.getTransactionRepository().save(new IncomeTransaction(new BigDecimal("1000.00"), "Stipendio",
+                euro.getCategoryRepository().findById("Lavoro").orElseThrow(), "EUR"));
+        euro.getTransactionRepository().save(new ExpenseTransaction(new BigDecimal("100.00"), "Spesa",
+                euro.getCategoryRepository().findById("Alimentari").orElseThrow(), "EUR"));
+        dollars.getTransactionRepository().save(new IncomeTransaction(new BigDecimal("500.00"), "Salary",
+                dollars.getCategoryRepository().findById("Lavoro").orElseThrow(), "USD"));
+        dollars.getTransactionRepository().save(new ExpenseTransaction(new BigDecimal("125.00"), "Groceries",
+                dollars.getCategoryRepository().findById("Alimentari").orElseThrow(), "USD"));
+        dollars.getTransactionRepository().save(new InvestmentTransaction(new BigDecimal("250.00"), "ETF",
+                dollars.getCategoryRepository().findById("Lavoro").orElseThrow(), "USD"));
+
+        Map<String, LedgerTotals> totals = reportService.getLedgerTotals();
+
+        assertEquals(Map.of("default", 2L, "usa", 3L), reportService.getTransactionCountByLedger());
+        assertEquals(0, new BigDecimal("500.00").compareTo(totals.get("USD").income()));
+        assertEquals(0, new BigDecimal("1400.00").compareTo(reportService.getTotalIncomeIn("EUR")));
+        assertEquals(0, new BigDecimal("200.00").compareTo(reportService.getTotalInvestmentsIn("EUR")));
+        assertEquals(0, new BigDecimal("1000.00").compareTo(reportService.getBalanceIn("EUR")));
+        assertEquals(0, new BigDecimal("200.00").compareTo(reportService.getExpensesByCategoryIn("EUR").get("Alimentari")));
+        assertThrows(IllegalStateException.class, () -> reportService.getBalanceIn("GBP"));
+    }
+}
@@ -0,0 +1,44 @@
+package org.finance.service;
+import org.finance.repository.ExchangeRateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+@DisplayName("CurrencyConverter Tests - Conversione tra valute")
+class CurrencyConverterTest {
+    private static final LocalDate MONDAY = LocalDate.of(2024, 3, 4);
+    private ExchangeRateRepository exchangeRateRepository;
+    private CurrencyConverter converter;
+    @BeforeEach
+    void setUp() {
+        exchangeRateRepository = mock(ExchangeRateRepository.class);
+        when(exchangeRateRepository.findRatesByCurrency("USD")).thenReturn(new TreeMap<>(Map.of(
+                MONDAY, new BigDecimal("1.10"), MONDAY.plusDays(4), new BigDecimal("1.20"))));
+        when(exchangeRateRepository.findRatesByCurrency("GBP")).thenReturn(new TreeMap<>(Map.of(
+                MONDAY, new BigDecimal("0.85"))));
+        converter = new CurrencyConverter(exchangeRateRepository);
+    }
+    @Test
+    @DisplayName("Dovrebbe usare l'ultimo tasso disponibile e leggere i tassi una volta per valuta")
+    void shouldUseLatestRateOnOrBeforeDate() {
+        assertEquals(new BigDecimal("100.00"), converter.convert(new BigDecimal("110.00"), "USD", "EUR", MONDAY.plusDays(2)));
+        assertEquals(new BigDecimal("120.00"), converter.convert(new BigDecimal("100.00"), "EUR", "USD", MONDAY.plusDays(6)));
+        assertEquals(new BigDecimal("85.00"), converter.convert(new BigDecimal("110.00"), "USD", "GBP", MONDAY));
+        assertThrows(IllegalStateException.class, () -> converter.rate("USD", MONDAY.minusDays(1)));
+        verify(exchangeRateRepository, times(1)).findRatesByCurrency("USD");
+    }
+    @Test
+    @DisplayName("Dovrebbe convertire una volta ogni subtotale per valuta di ciascun gruppo")
+    void shouldConvertSubtotalsPerGroup() {
+        Map<String, BigDecimal> converted = converter.convertGroups(Map.of(
+                "Cibo", Map.of("EUR", new BigDecimal("50.00"), "USD", new BigDecimal("55.00")),
+                "Auto", Map.of("EUR", new BigDecimal("20.00"))), "EUR", group -> MONDAY);
+        assertEquals(new BigDecimal("100.00"), converted.get("Cibo"));
+        assertEquals(new BigDecimal("20.00"), converted.get("Auto"));
+    }
+}
@@ -0,0 +1,69 @@
+package org.finance.service;
+import org.finance.model.Category;
+import org.finance.model.ExpenseStatistics;
+import org.finance.model.ExpenseTransaction;
+import org.finance.observer.AnomalyObserver;
+import org.finance.observer.ExpenseAnomaly;
+import org.finance.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import java.math.BigDecimal;
+import java.util.Map;
+@DisplayName("ExpenseAnomalyDetector Tests - Spese insolite")
+class ExpenseAnomalyDetectorTest {
+    private static final Category FOOD = new Category("Alimentari");
+    private TransactionRepository transactionRepository;
+    private ExpenseAnomalyDetector detector;
+    @BeforeEach
+    void setUp() {
+        transactionRepository = mock(TransactionRepository.class);
+        detector = new ExpenseAnomalyDetector(transactionRepository);
+    }
+    @Test
+    @DisplayName("Dovrebbe partire dalle statistiche aggregate e segnalare una spesa fuori scala")
+    void shouldFlagOutlierAfterWarmStart() {
+        // 100 spese: 50 da 40 e 50 da 60, media 50, deviazione standard 10
+        when(transactionRepository.expenseStatisticsByCategory()).thenReturn(Map.of("Alimentari",
+                new ExpenseStatistics(100, new BigDecimal("5000"), new BigDecimal("260000"))));
+        detector.warmStart();
+        AnomalyObserver observer = mock(AnomalyObserver.class);
+        detector.addObserver(observer);
+        assertTrue(detector.observe(expense("55")).isEmpty());
+        ExpenseAnomaly anomaly = detector.observe(expense("120")).orElseThrow();
+        assertEquals(50.05, anomaly.mean(), 0.01);
+        assertTrue(anomaly.score() > ExpenseAnomalyDetector.DEFAULT_THRESHOLD);
+        verify(observer).onAnomalousExpense(anomaly);
+        verify(transactionRepository, times(1)).expenseStatisticsByCategory();
+    }
+    @Test
+    @DisplayName("Non dovrebbe segnalare nulla finche' la categoria ha pochi campioni")
+    void shouldWaitForMinimumSamples() {
+        Category travel = new Category("Viaggi");
+        for (int i = 0; i < ExpenseAnomalyDetector.DEFAULT_MIN_SAMPLES; i++) {
+            if (i > 0) {
+                assertTrue(detector.observe(expense("10")).isEmpty());
+            }
+            assertTrue(detector.observe(new ExpenseTransaction(BigDecimal.TEN, "Spesa", travel, "EUR")).isEmpty());
+        }
+        assertTrue(detector.observe(expense("1000")).isEmpty());
+        assertTrue(detector.observe(new ExpenseTransaction(new BigDecimal("1000"), "Spesa", travel, "EUR")).isPresent());
+    }
+    @Test
+    @DisplayName("Dovrebbe smettere di segnalare quando la spesa cambia stabilmente")
+    void shouldAdaptToLastingChange() {
+        for (int i = 0; i < 50; i++) {
+            detector.observe(expense(i % 2 == 0 ? "790" : "810"));
+        }
+        assertTrue(detector.observe(expense("950")).isPresent());
+        for (int i = 0; i < 40; i++) {
+            detector.observe(expense(i % 2 == 0 ? "940" : "960"));
+        }
+        assertTrue(detector.observe(expense("950")).isEmpty());
+    }
+    private static ExpenseTransaction expense(String amount) {
+        return new ExpenseTransaction(new BigDecimal(amount), "Spesa", FOOD, "EUR");
+    }
+}
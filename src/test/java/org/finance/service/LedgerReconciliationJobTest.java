@@ -0,0 +1,45 @@
+package org.finance.service;
+import org.finance.model.LedgerTotals;
+import org.finance.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import java.math.BigDecimal;
+import java.util.Map;
+@DisplayName("LedgerReconciliationJob Tests - Verifica dei totali del registro")
+class LedgerReconciliationJobTest {
+    private static final LedgerTotals EUR = new LedgerTotals("EUR", new BigDecimal("100.00"),
+            new BigDecimal("40.00"), new BigDecimal("10.00"), 3);
+    private TransactionRepository transactionRepository;
+    private LedgerReconciliationJob job;
+    @BeforeEach
+    void setUp() {
+        transactionRepository = mock(TransactionRepository.class);
+        job = new LedgerReconciliationJob(transactionRepository);
+    }
+    @Test
+    @DisplayName("Non dovrebbe scrivere nulla se i totali sono allineati")
+    void shouldNotWriteWhenTotalsMatch() {
+        when(transactionRepository.sumLedgerTotals()).thenReturn(Map.of("EUR", EUR));
+        when(transactionRepository.findLedgerTotals()).thenReturn(Map.of("EUR",
+                new LedgerTotals("EUR", new BigDecimal("100"), new BigDecimal("40"), new BigDecimal("10"), 3)));
+        assertTrue(job.run().isEmpty());
+        verify(transactionRepository, never()).replaceLedgerTotals(any());
+        assertEquals(new BigDecimal("50.00"), EUR.balance());
+    }
+    @Test
+    @DisplayName("Dovrebbe correggere i totali errati e quelli di valute senza transazioni")
+    void shouldReplaceWrongAndStaleTotals() {
+        LedgerTotals staleUsd = new LedgerTotals("USD", BigDecimal.TEN, BigDecimal.ZERO, BigDecimal.ZERO, 1);
+        when(transactionRepository.sumLedgerTotals()).thenReturn(Map.of("EUR", EUR));
+        when(transactionRepository.findLedgerTotals()).thenReturn(Map.of("EUR",
+                new LedgerTotals("EUR", new BigDecimal("90.00"), new BigDecimal("40.00"), new BigDecimal("10.00"), 2),
+                "USD", staleUsd));
+        Map<String, LedgerTotals> corrected = job.run();
+        assertEquals(EUR, corrected.get("EUR"));
+        assertEquals(0, corrected.get("USD").transactionCount());
+        verify(transactionRepository).replaceLedgerTotals(Map.of("EUR", EUR));
+    }
+}
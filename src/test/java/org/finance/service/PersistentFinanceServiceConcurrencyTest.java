@@ -0,0 +1,57 @@
+package org.finance.service;
+import org.finance.database.DatabaseManager;
+import org.finance.model.Budget;
+import org.finance.model.Category;
+import org.finance.model.ExpenseTransaction;
+import org.finance.repository.impl.H2BudgetRepository;
+import org.finance.repository.impl.H2CategoryRepository;
+import org.finance.repository.impl.H2TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+@DisplayName("PersistentFinanceService Tests - Spese concorrenti")
+class PersistentFinanceServiceConcurrencyTest {
+    private DatabaseManager dbManager;
+    private H2BudgetRepository budgetRepository;
+    private PersistentFinanceService financeService;
+    private AsyncFinanceService asyncService;
+    @BeforeEach
+    void setUp() {
+        dbManager = DatabaseManager.forUrl("jdbc:h2:mem:concurrency_" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        H2CategoryRepository categoryRepository = new H2CategoryRepository(dbManager);
+        budgetRepository = new H2BudgetRepository(categoryRepository, dbManager);
+        financeService = new PersistentFinanceService(
+                new H2TransactionRepository(categoryRepository, dbManager), budgetRepository, categoryRepository, dbManager);
+        asyncService = new AsyncFinanceService(financeService, 4);
+    }
+    @AfterEach
+    void tearDown() {
+        asyncService.close();
+        dbManager.closeConnection();
+    }
+    @Test
+    @DisplayName("Dovrebbe sommare nel budget tutte le spese registrate in parallelo")
+    void shouldNotLoseBudgetUpdatesUnderConcurrentExpenses() throws Exception {
+        Category casa = financeService.getCategoryByName("Casa").orElseThrow();
+        Budget budget = new Budget(casa, BigDecimal.valueOf(10000), YearMonth.now(), "EUR");
+        budgetRepository.save(budget);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            ExpenseTransaction expense = new ExpenseTransaction(new BigDecimal("1.50"), "Spesa " + i, casa, "EUR");
+            futures.add(asyncService.addTransaction(expense));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+        Budget stored = budgetRepository.findById(budget.getId()).orElseThrow();
+        assertEquals(0, new BigDecimal("300.00").compareTo(stored.getSpent()));
+        assertEquals(200, financeService.getAllTransactions().size());
+    }
+}
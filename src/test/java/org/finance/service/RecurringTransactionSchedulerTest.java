@@ -0,0 +1,80 @@
+package org.finance.service;
+import org.finance.database.DatabaseManager;
+import org.finance.model.Category;
+import org.finance.model.ExpenseTransaction;
+import org.finance.model.RecurrenceFrequency;
+import org.finance.model.RecurringTransaction;
+import org.finance.model.TransactionType;
+import org.finance.repository.impl.H2BudgetRepository;
+import org.finance.repository.impl.H2CategoryRepository;
+import org.finance.repository.impl.H2RecurringTransactionRepository;
+import org.finance.repository.impl.H2TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+@DisplayName("RecurringTransactionScheduler Tests - Generazione delle ricorrenze")
+class RecurringTransactionSchedulerTest {
+    private DatabaseManager dbManager;
+    private H2RecurringTransactionRepository recurringRepository;
+    private H2TransactionRepository transactionRepository;
+    private ExpenseAnomalyDetector anomalyDetector;
+    private RecurringTransactionScheduler scheduler;
+    private Category casa;
+    @BeforeEach
+    void setUp() {
+        dbManager = DatabaseManager.forUrl("jdbc:h2:mem:recurring_" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        H2CategoryRepository categoryRepository = new H2CategoryRepository(dbManager);
+        transactionRepository = new H2TransactionRepository(categoryRepository, dbManager);
+        PersistentFinanceService financeService = new PersistentFinanceService(transactionRepository,
+                new H2BudgetRepository(categoryRepository, dbManager), categoryRepository, dbManager);
+        recurringRepository = new H2RecurringTransactionRepository(categoryRepository, dbManager);
+        anomalyDetector = new ExpenseAnomalyDetector(transactionRepository);
+        anomalyDetector.warmStart();
+        scheduler = new RecurringTransactionScheduler(recurringRepository, transactionRepository, financeService, dbManager);
+        scheduler.setAnomalyDetector(anomalyDetector);
+        casa = categoryRepository.findById("Casa").orElseThrow();
+    }
+    @AfterEach
+    void tearDown() {
+        scheduler.close();
+        dbManager.closeConnection();
+    }
+    @Test
+    @DisplayName("Dovrebbe includere le ricorrenze generate nelle statistiche delle anomalie")
+    void shouldFeedMaterializedExpensesToAnomalyStatistics() {
+        LocalDate today = LocalDate.now();
+        recurringRepository.save(new RecurringTransaction(TransactionType.EXPENSE, new BigDecimal("800.00"), "Affitto",
+                casa, "EUR", RecurrenceFrequency.MONTHLY, today.minusMonths(11), null));
+
+        assertEquals(12, scheduler.materializeDue(today));
+
+        ExpenseTransaction unusual = new ExpenseTransaction(new BigDecimal("5000.00"), "Riparazione tetto", casa, "EUR");
+        assertTrue(anomalyDetector.observe(unusual).isPresent());
+    }
+    @Test
+    @DisplayName("Dovrebbe non scrivere piu' dopo la chiusura e ripartire con un nuovo avvio")
+    void shouldStopWritingOnCloseAndRestart() throws InterruptedException {
+        LocalDate today = LocalDate.now();
+        recurringRepository.save(new RecurringTransaction(TransactionType.EXPENSE, new BigDecimal("30.00"), "Palestra",
+                casa, "EUR", RecurrenceFrequency.MONTHLY, today.minusMonths(2), null));
+
+        scheduler.start(1, TimeUnit.HOURS);
+        scheduler.close();
+        long afterClose = transactionRepository.count();
+        Thread.sleep(100);
+        assertEquals(afterClose, transactionRepository.count());
+
+        scheduler.start(1, TimeUnit.HOURS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (transactionRepository.count() < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(3, transactionRepository.count());
+    }
+}
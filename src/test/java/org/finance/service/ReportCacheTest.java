@@ -0,0 +1,34 @@
+package org.finance.service;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+@DisplayName("ReportCache Tests - Cache dei report")
+class ReportCacheTest {
+    @Test
+    @DisplayName("Dovrebbe ricalcolare un report solo dopo una scrittura")
+    void shouldRecomputeOnlyAfterWrite() {
+        AtomicLong epoch = new AtomicLong(1);
+        AtomicInteger computations = new AtomicInteger();
+        ReportCache cache = new ReportCache(epoch::get);
+        assertEquals(1, (int) cache.get("report", computations::incrementAndGet));
+        assertEquals(1, (int) cache.get("report", computations::incrementAndGet));
+        epoch.incrementAndGet();
+        assertEquals(2, (int) cache.get("report", computations::incrementAndGet));
+        ReportCache.Statistics statistics = cache.getStatistics();
+        assertEquals(1, statistics.hits());
+        assertEquals(2, statistics.misses());
+        assertEquals(1, statistics.staleMisses());
+        assertEquals(1.0 / 3, statistics.hitRate(), 1e-9);
+    }
+    @Test
+    @DisplayName("Dovrebbe distinguere i report per parametri")
+    void shouldKeyReportsByParameters() {
+        ReportCache cache = new ReportCache(() -> 1);
+        assertEquals("5", cache.get("largest", () -> "5", 5));
+        assertEquals("10", cache.get("largest", () -> "10", 10));
+        assertEquals("5", cache.get("largest", () -> "other", 5));
+        assertEquals(2, cache.getStatistics().entries());
+    }
+}
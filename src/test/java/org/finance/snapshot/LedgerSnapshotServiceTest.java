@@ -0,0 +1,159 @@
+package org.finance.snapshot;
+import org.finance.archive.ArchiveCatalog;
+import org.finance.archive.TransactionArchiver;
+import org.finance.database.DatabaseManager;
+import org.finance.model.Budget;
+import org.finance.model.Category;
+import org.finance.model.ExchangeRate;
+import org.finance.model.ExpenseTransaction;
+import org.finance.model.IncomeTransaction;
+import org.finance.model.InvestmentTransaction;
+import org.finance.repository.TransactionCriteria;
+import org.finance.repository.impl.H2BudgetRepository;
+import org.finance.repository.impl.H2CategoryRepository;
+import org.finance.repository.impl.H2ExchangeRateRepository;
+import org.finance.repository.impl.H2TransactionRepository;
+import org.finance.service.PersistentFinanceService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+@DisplayName("LedgerSnapshotService Tests - Esportazione e ripristino")
+class LedgerSnapshotServiceTest {
+    @TempDir
+    Path tempDir;
+    private Ledger source;
+    private Ledger target;
+    @BeforeEach
+    void setUp() {
+        source = new Ledger("source");
+        target = new Ledger("target");
+    }
+    @AfterEach
+    void tearDown() {
+        source.dbManager.closeConnection();
+        target.dbManager.closeConnection();
+    }
+    @Test
+    @DisplayName("Dovrebbe ripristinare lo stesso ledger esportato, transazioni archiviate incluse")
+    void shouldRoundTripLedger() throws IOException {
+        LocalDateTime now = LocalDateTime.now();
+        Category casa = source.category("Casa");
+        source.financeService.addTransaction(new IncomeTransaction(UUID.randomUUID().toString(),
+                new BigDecimal("2500.00"), "Stipendio", source.category("Lavoro"), "EUR", now.minusYears(4)));
+        source.financeService.addTransaction(new ExpenseTransaction(UUID.randomUUID().toString(),
+                new BigDecimal("80.50"), "Bolletta luce", casa, "EUR", now));
+        source.financeService.addTransaction(new InvestmentTransaction(UUID.randomUUID().toString(),
+                new BigDecimal("300.00"), "ETF", casa, "USD", now));
+        source.budgetRepository.save(new Budget(casa, new BigDecimal("500.00"), YearMonth.now(), "EUR"));
+        new H2ExchangeRateRepository(source.dbManager).saveAll(List.of(
+                new ExchangeRate("USD", LocalDate.of(2024, 3, 4), new BigDecimal("1.08450000"))));
+        new TransactionArchiver(source.dbManager).archive(2);
+        new H2ExchangeRateRepository(target.dbManager).saveAll(List.of(
+                new ExchangeRate("GBP", LocalDate.of(2024, 3, 4), new BigDecimal("0.85000000"))));
+        target.financeService.addTransaction(new ExpenseTransaction(UUID.randomUUID().toString(),
+                new BigDecimal("12.00"), "Da sovrascrivere", target.category("Svago"), "EUR", now));
+        Path snapshot = tempDir.resolve("ledger.snap");
+
+        LedgerSnapshotService.SnapshotSummary exported = new LedgerSnapshotService(source.dbManager).export(snapshot);
+        LedgerSnapshotService.SnapshotSummary restored = new LedgerSnapshotService(target.dbManager).restore(snapshot);
+
+        assertEquals(exported.rowsByTable(), restored.rowsByTable());
+        assertEquals(source.dump(), target.dump());
+        assertEquals(source.transactionRepository.findLedgerTotals(), target.transactionRepository.findLedgerTotals());
+        assertEquals(1, target.financeService.searchTransactions(TransactionCriteria.all().withText("bolletta")).size());
+    }
+    @Test
+    @DisplayName("Dovrebbe lasciare intatto il ledger se il caricamento dello snapshot fallisce")
+    void shouldKeepLedgerWhenLoadFails() throws IOException, SQLException {
+        LocalDateTime now = LocalDateTime.now();
+        String archivedId = UUID.randomUUID().toString();
+        source.financeService.addTransaction(new ExpenseTransaction(archivedId, new BigDecimal("40.00"),
+                "Affitto", source.category("Casa"), "EUR", now.minusYears(4)));
+        new TransactionArchiver(source.dbManager).archive(2);
+        String archiveTable = ArchiveCatalog.forDatabase(source.dbManager).tableName(now.minusYears(4).getYear());
+        try (Connection conn = source.dbManager.getConnection(); Statement stmt = conn.createStatement()) {
+            // The same id in the hot table and in an archive makes the restore fail on the primary key.
+            stmt.execute("INSERT INTO transactions (id, amount, description, timestamp, category_name, type, currency)"
+                    + " SELECT id, amount, description, timestamp, category_name, type, currency FROM " + archiveTable);
+        }
+        target.financeService.addTransaction(new IncomeTransaction(UUID.randomUUID().toString(),
+                new BigDecimal("1800.00"), "Stipendio", target.category("Lavoro"), "EUR", now));
+        target.financeService.addTransaction(new ExpenseTransaction(UUID.randomUUID().toString(),
+                new BigDecimal("35.00"), "Cinema", target.category("Svago"), "EUR", now));
+        target.budgetRepository.save(new Budget(target.category("Svago"), new BigDecimal("100.00"), YearMonth.now(), "EUR"));
+        List<List<Object>> before = target.dump();
+        Path snapshot = tempDir.resolve("broken.snap");
+        new LedgerSnapshotService(source.dbManager).export(snapshot);
+
+        assertThrows(IOException.class, () -> new LedgerSnapshotService(target.dbManager).restore(snapshot));
+
+        assertEquals(before, target.dump());
+        assertEquals(0, new BigDecimal("1765.00").compareTo(target.financeService.getBalance()));
+        assertEquals(1, target.financeService.searchTransactions(TransactionCriteria.all().withText("cinema")).size());
+    }
+    /**
+     * An in-memory ledger with its repositories and default categories.
+     */
+    private static final class Ledger {
+        private final DatabaseManager dbManager;
+        private final H2CategoryRepository categoryRepository;
+        private final H2TransactionRepository transactionRepository;
+        private final H2BudgetRepository budgetRepository;
+        private final PersistentFinanceService financeService;
+        private Ledger(String name) {
+            dbManager = DatabaseManager.forUrl("jdbc:h2:mem:snapshot_" + name + "_" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+            categoryRepository = new H2CategoryRepository(dbManager);
+            transactionRepository = new H2TransactionRepository(categoryRepository, dbManager);
+            budgetRepository = new H2BudgetRepository(categoryRepository, dbManager);
+            financeService = new PersistentFinanceService(transactionRepository, budgetRepository, categoryRepository, dbManager);
+        }
+        private Category category(String name) {
+            return categoryRepository.findById(name).orElseThrow();
+        }
+        /**
+         * Reads categories, budgets, every live or archived transaction and the exchange
+         * rates in a fixed order.
+         */
+        private List<List<Object>> dump() {
+            List<List<Object>> rows = new ArrayList<>();
+            try (Connection conn = dbManager.getConnection(); Statement stmt = conn.createStatement()) {
+                read(stmt, "SELECT name, description, parent_name FROM categories ORDER BY name", rows);
+                read(stmt, "SELECT id, category_name, limit_amount, spent FROM budgets ORDER BY id", rows);
+                read(stmt, "SELECT id, amount, description, timestamp, category_name, type, currency FROM "
+                        + ArchiveCatalog.forDatabase(dbManager).allTransactions() + " ORDER BY id", rows);
+                read(stmt, "SELECT currency, rate_date, rate FROM exchange_rates ORDER BY currency, rate_date", rows);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            return rows;
+        }
+        private static void read(Statement stmt, String sql, List<List<Object>> rows) throws SQLException {
+            try (ResultSet rs = stmt.executeQuery(sql)) {
+                int columns = rs.getMetaData().getColumnCount();
+                while (rs.next()) {
+                    List<Object> row = new ArrayList<>(columns);
+                    for (int i = 1; i <= columns; i++) {
+                        row.add(rs.getObject(i));
+                    }
+                    rows.add(row);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.finance.strategy;
+import org.finance.model.Budget;
+import org.finance.model.Category;
+import org.finance.repository.TransactionRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+@DisplayName("HistoricalBudgetingStrategy Tests - Budget dalla spesa storica")
+class HistoricalBudgetingStrategyTest {
+    private static final Category FOOD = new Category("Cibo");
+    private static final Category TRAVEL = new Category("Viaggi");
+    private static final YearMonth AUGUST = YearMonth.of(2025, 8);
+    @Test
+    @DisplayName("Dovrebbe unire media recente e stesso mese degli anni precedenti, piu' il margine")
+    void shouldBlendTrailingAndSeasonalAverages() {
+        Map<YearMonth, Map<String, BigDecimal>> history = new HashMap<>();
+        for (YearMonth month = AUGUST.minusYears(1); month.isBefore(AUGUST); month = month.plusMonths(1)) {
+            history.put(month, new HashMap<>(Map.of("Cibo", BigDecimal.valueOf(400))));
+        }
+        history.get(AUGUST.minusYears(1)).put("Viaggi", BigDecimal.valueOf(2000));
+        // Cibo: trailing 400, seasonal 400 -> 440 with the margin
+        assertEquals(BigDecimal.valueOf(440), HistoricalBudgetingStrategy.suggest(FOOD, AUGUST, history).getAmount());
+        // Viaggi: trailing 0, last August 2000 -> (0 + 2000) / 2 * 1.10
+        assertEquals(BigDecimal.valueOf(1100), HistoricalBudgetingStrategy.suggest(TRAVEL, AUGUST, history).getAmount());
+    }
+    @Test
+    @DisplayName("Dovrebbe usare il minimo senza storico e leggere lo storico una volta per tutte le categorie")
+    void shouldFallBackToMinimumAndReadHistoryOnce() {
+        TransactionRepository repository = mock(TransactionRepository.class);
+        when(repository.sumExpensesByMonthAndCategory()).thenReturn(Map.of());
+        List<Budget> budgets = new HistoricalBudgetingStrategy(repository)
+                .calculateSuggestedBudgets(List.of(FOOD, TRAVEL), AUGUST, () -> fail("Income is not needed"));
+        assertEquals(2, budgets.size());
+        budgets.forEach(budget -> {
+            assertEquals(BigDecimal.valueOf(50), budget.getAmount());
+            assertEquals(AUGUST, budget.getPeriod());
+        });
+        verify(repository, times(1)).sumExpensesByMonthAndCategory();
+    }
+}